@@ -4,15 +4,28 @@ import androidx.room.Room
 import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner
 import androidx.test.platform.app.InstrumentationRegistry
 import com.keylesspalace.tusky.db.AppDatabase
+import com.keylesspalace.tusky.db.CachedTimeline
+import com.keylesspalace.tusky.db.DELETE_RANGE_QUERY
+import com.keylesspalace.tusky.db.GET_STATUSES_QUERY
+import com.keylesspalace.tusky.db.HOME_TIMELINE
+import com.keylesspalace.tusky.db.IdRange
+import com.keylesspalace.tusky.db.REMOVE_PLACEHOLDERS_BETWEEN_QUERY
 import com.keylesspalace.tusky.db.TimelineAccountEntity
+import com.keylesspalace.tusky.db.TimelineColumnCodec
 import com.keylesspalace.tusky.db.TimelineDao
+import com.keylesspalace.tusky.db.TimelinePage
 import com.keylesspalace.tusky.db.TimelineStatusEntity
 import com.keylesspalace.tusky.db.TimelineStatusWithAccount
+import com.keylesspalace.tusky.entity.Emoji
+import com.keylesspalace.tusky.entity.Status
 import com.keylesspalace.tusky.entity.Status.Visibility.PRIVATE
 import com.keylesspalace.tusky.repository.TimelineRepository
+import com.keylesspalace.tusky.util.dec
 import org.junit.After
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
 import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -48,6 +61,8 @@ class TimelineDAOTest {
 
         val resultsFromDb = timelineDao.getStatusesForAccount(
             setOne.first.timelineUserId,
+            HOME_TIMELINE,
+            "",
             maxId = "21",
             sinceId = ignoredOne.first.serverId,
             limit = 10
@@ -72,7 +87,14 @@ class TimelineDAOTest {
 
         timelineDao.insertStatusIfNotThere(placeholder)
 
-        val fromDb = timelineDao.getStatusesForAccount(status.timelineUserId, null, null, 10)
+        val fromDb = timelineDao.getStatusesForAccount(
+            status.timelineUserId,
+            HOME_TIMELINE,
+            "",
+            null,
+            null,
+            10
+        )
             .blockingGet()
         val result = fromDb.first()
 
@@ -122,6 +144,8 @@ class TimelineDAOTest {
             listOf(recentThisAccount),
             timelineDao.getStatusesForAccount(
                 1,
+                HOME_TIMELINE,
+                "",
                 null,
                 null,
                 100
@@ -132,6 +156,8 @@ class TimelineDAOTest {
             listOf(recentAnotherAccount),
             timelineDao.getStatusesForAccount(
                 2,
+                HOME_TIMELINE,
+                "",
                 null,
                 null,
                 100
@@ -149,6 +175,8 @@ class TimelineDAOTest {
 
         timelineDao.deleteRange(
             1,
+            HOME_TIMELINE,
+            "",
             oldStatuses.last().first.serverId,
             oldStatuses.first().first.serverId
         )
@@ -165,6 +193,8 @@ class TimelineDAOTest {
 
         timelineDao.deleteRange(
             1,
+            HOME_TIMELINE,
+            "",
             newStatuses.last().first.serverId,
             newStatuses.first().first.serverId
         )
@@ -178,6 +208,8 @@ class TimelineDAOTest {
             newStatuses,
             timelineDao.getStatusesForAccount(
                 1,
+                HOME_TIMELINE,
+                "",
                 null,
                 null,
                 100
@@ -185,6 +217,134 @@ class TimelineDAOTest {
         )
     }
 
+    @Test
+    fun insertPageUsesOneTransaction() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        var transactions = 0
+        lateinit var countingDb: AppDatabase
+        countingDb = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java)
+            .setQueryCallback(
+                { sql, _ ->
+                    // Room's own inserts open nested transactions, only count the outer ones
+                    if (sql.startsWith("BEGIN") && !countingDb.inTransaction()) {
+                        transactions++
+                    }
+                },
+                { it.run() }
+            )
+            .build()
+        val dao = countingDb.timelineDao()
+
+        val sets = (1L..30L).map { makeStatus(statusId = it, authorServerId = "author$it") }
+        val page = TimelinePage(
+            timelineUserId = 1,
+            timelineKind = HOME_TIMELINE,
+            timelineArgument = "",
+            deleteRange = IdRange("0", "31"),
+            accounts = sets.map { it.second },
+            statuses = sets.map { it.first },
+            placeholders = listOf(createPlaceholder("0", 1)),
+            removePlaceholdersBetween = IdRange("1", "30")
+        )
+        dao.insertPage(page)
+
+        assertEquals(1, transactions)
+        val fromDb = dao.getStatusesForAccount(1, HOME_TIMELINE, "", null, null, 100).blockingGet()
+        assertEquals(sets.reversed().map { it.first } + page.placeholders, fromDb.map { it.status })
+        countingDb.close()
+    }
+
+    @Test
+    fun evictOldestAndRemoveOrphanedAccounts() {
+        for (id in 1L..10L) {
+            val (status, author, reblogAuthor) = makeStatus(statusId = id, authorServerId = "author$id")
+            timelineDao.insertInTransaction(status, author, reblogAuthor)
+        }
+
+        timelineDao.evictOldest(1, HOME_TIMELINE, "", 4) { createPlaceholder(it.dec(), 1) }
+        timelineDao.removeOrphanedAccounts(1)
+
+        val fromDb = timelineDao.getStatusesForAccount(1, HOME_TIMELINE, "", null, null, 100).blockingGet()
+        assertEquals(
+            listOf("10", "9", "8", "7", "6", "5", "4"),
+            fromDb.map { it.status.serverId }
+        )
+        // A placeholder marks that older statuses have to be loaded from the network again
+        assertNull(fromDb.last().status.authorServerId)
+        assertEquals(7, timelineDao.countStatuses(1, HOME_TIMELINE, ""))
+        db.query("SELECT serverId FROM TimelineAccountEntity ORDER BY serverId", null).use { cursor ->
+            val accounts = mutableSetOf<String>()
+            while (cursor.moveToNext()) {
+                accounts.add(cursor.getString(0))
+            }
+            assertEquals((5..10).map { "author$it" }.toSet(), accounts)
+        }
+        assertEquals(7, timelineDao.countAccountStatuses(1))
+        assertTrue(timelineDao.getAccountStatusesSize(1) > 0)
+    }
+
+    @Test
+    fun oldestTimelineHoldsTheOldestStatus() {
+        val (newer, author) = makeStatus(statusId = 20)
+        val (older, _) = makeStatus(statusId = 5)
+        timelineDao.insertInTransaction(newer, author, null)
+        timelineDao.insertInTransaction(
+            older.copy(timelineKind = "LIST", timelineArgument = "12"), author, null
+        )
+
+        assertEquals(CachedTimeline("LIST", "12"), timelineDao.getOldestTimeline(1))
+        assertNull(timelineDao.getOldestTimeline(2))
+    }
+
+    @Test
+    fun timelinesAreCachedSeparately() {
+        val (status, author) = makeStatus(statusId = 5)
+        val listStatus = status.copy(timelineKind = "LIST", timelineArgument = "12")
+        timelineDao.insertInTransaction(status, author, null)
+        timelineDao.insertInTransaction(listStatus, author, null)
+
+        timelineDao.deleteRange(1, HOME_TIMELINE, "", "1", "10")
+
+        assertEquals(
+            listOf(listStatus),
+            timelineDao.getStatusesForAccount(1, "LIST", "12", null, null, 10)
+                .blockingGet().map { it.status }
+        )
+        assertTrue(
+            timelineDao.getStatusesForAccount(1, HOME_TIMELINE, "", null, null, 10)
+                .blockingGet().isEmpty()
+        )
+        assertTrue(
+            timelineDao.getStatusesForAccount(1, "LIST", "13", null, null, 10)
+                .blockingGet().isEmpty()
+        )
+    }
+
+    @Test
+    fun rangeQueriesUseSortKeyIndex() {
+        // Bound as they are numbered, by their first use in the query
+        val queries = mapOf(
+            GET_STATUSES_QUERY to arrayOf<Any?>(1, HOME_TIMELINE, "", "21", null, 10),
+            DELETE_RANGE_QUERY to arrayOf<Any?>(1, HOME_TIMELINE, "", "21", "3"),
+            REMOVE_PLACEHOLDERS_BETWEEN_QUERY to arrayOf<Any?>(1, HOME_TIMELINE, "", "21", "3")
+        )
+        for ((query, args) in queries) {
+            val plan = StringBuilder()
+            db.openHelper.writableDatabase.query("EXPLAIN QUERY PLAN $query", args).use { cursor ->
+                while (cursor.moveToNext()) {
+                    plan.append(cursor.getString(cursor.getColumnIndexOrThrow("detail"))).append('\n')
+                }
+            }
+            assertTrue(
+                plan.toString(),
+                plan.contains(
+                    "index_TimelineStatusEntity_timelineUserId_timelineKind_timelineArgument_sortKey"
+                )
+            )
+            assertFalse(plan.toString(), plan.contains("TEMP B-TREE"))
+        }
+    }
+
     private fun makeStatus(
         accountId: Long = 1,
         statusId: Long = 10,
@@ -200,7 +360,9 @@ class TimelineDAOTest {
             "displayName",
             "blah",
             "avatar",
-            "[\"tusky\": \"http://tusky.cool/emoji.jpg\"]",
+            TimelineColumnCodec.encodeEmojis(
+                listOf(Emoji("", "tusky", "http://tusky.cool/emoji.jpg", "", true))
+            ),
             false
         )
 
@@ -213,7 +375,7 @@ class TimelineDAOTest {
                 "RdisplayName",
                 "Rblah",
                 "Ravatar",
-                "[]",
+                TimelineColumnCodec.encodeEmojis(listOf()),
                 false
             )
         } else {
@@ -230,7 +392,7 @@ class TimelineDAOTest {
             inReplyToAccountId = "inReplyToAccountId$statusId",
             content = "Content!$statusId",
             createdAt = createdAt,
-            emojis = "emojis$statusId",
+            emojis = TimelineColumnCodec.encodeEmojis(listOf()),
             reblogsCount = 1 * statusId.toInt(),
             favouritesCount = 2 * statusId.toInt(),
             reblogged = even,
@@ -239,9 +401,11 @@ class TimelineDAOTest {
             sensitive = !even,
             spoilerText = "spoier$statusId",
             visibility = PRIVATE,
-            attachments = "attachments$accountId",
-            mentions = "mentions$accountId",
-            application = "application$accountId",
+            attachments = TimelineColumnCodec.encodeAttachments(listOf()),
+            mentions = TimelineColumnCodec.encodeMentions(arrayOf()),
+            application = TimelineColumnCodec.encodeApplication(
+                Status.Application("application$accountId", null)
+            ),
             reblogServerId = if (reblog) (statusId * 100).toString() else null,
             reblogAccountId = reblogAuthor?.serverId,
             poll = null,
@@ -253,7 +417,9 @@ class TimelineDAOTest {
             quoteEmojis = null,
             quoteFullName = null,
             quoteUsername = null,
-            quotedAccountEmojis = null
+            quotedAccountEmojis = null,
+            contentSpans = null,
+            quoteSpans = null
         )
         return Triple(status, author, reblogAuthor)
     }
@@ -291,7 +457,9 @@ class TimelineDAOTest {
             quoteEmojis = null,
             quoteFullName = null,
             quoteUsername = null,
-            quotedAccountEmojis = null
+            quotedAccountEmojis = null,
+            contentSpans = null,
+            quoteSpans = null
         )
     }
 
@@ -80,13 +80,13 @@ import com.keylesspalace.tusky.databinding.ActivityMainBinding
 import com.keylesspalace.tusky.db.AccountEntity
 import com.keylesspalace.tusky.db.AppDatabase
 import com.keylesspalace.tusky.entity.Account
-import com.keylesspalace.tusky.fragment.SFragment
 import com.keylesspalace.tusky.interfaces.AccountSelectionListener
 import com.keylesspalace.tusky.interfaces.ActionButtonActivity
 import com.keylesspalace.tusky.interfaces.ReselectableFragment
 import com.keylesspalace.tusky.pager.MainPagerAdapter
 import com.keylesspalace.tusky.service.StreamingService
 import com.keylesspalace.tusky.settings.PrefKeys
+import com.keylesspalace.tusky.util.StatusFilter
 import com.keylesspalace.tusky.util.ThemeUtils
 import com.keylesspalace.tusky.util.ViewPager2Fix
 import com.keylesspalace.tusky.util.deleteStaleCachedMedia
@@ -139,6 +139,7 @@ class MainActivity : BottomSheetActivity(), ActionButtonActivity {
     private val cacheUpdater: CacheUpdater by inject()
     private val conversationRepository: ConversationsRepository by inject()
     private val appDb: AppDatabase by inject()
+    private val statusFilter: StatusFilter by inject()
 
     private lateinit var header: AccountHeaderView
 
@@ -286,7 +287,7 @@ class MainActivity : BottomSheetActivity(), ActionButtonActivity {
                     is MainTabsChangedEvent -> setupTabs(false)
                     is PreferenceChangedEvent -> {
                         when (event.preferenceKey) {
-                            PrefKeys.LIVE_NOTIFICATIONS -> {
+                            PrefKeys.LIVE_NOTIFICATIONS, PrefKeys.LIVE_TIMELINES -> {
                                 initPullNotifications()
                             }
                             PrefKeys.HIDE_LIVE_NOTIFICATION_DESCRIPTION -> {
@@ -358,16 +359,20 @@ class MainActivity : BottomSheetActivity(), ActionButtonActivity {
             disablePushNotifications()
         }
 
-        if (NotificationHelper.areNotificationsEnabled(this, accountManager.value)) {
-            if (accountManager.value.areNotificationsStreamingEnabled()) {
-                StreamingService.startStreaming(this)
-                NotificationHelper.disablePullNotifications(this)
-            } else {
-                StreamingService.stopStreaming(this)
-                NotificationHelper.enablePullNotifications(this)
-            }
+        val notificationsEnabled =
+            NotificationHelper.areNotificationsEnabled(this, accountManager.value)
+        val streamNotifications =
+            notificationsEnabled && accountManager.value.areNotificationsStreamingEnabled()
+        // Live timelines share the socket with live notifications
+        if (streamNotifications || preferences.getBoolean(PrefKeys.LIVE_TIMELINES, false)) {
+            StreamingService.startStreaming(this)
         } else {
-            disablePushNotifications()
+            StreamingService.stopStreaming(this)
+        }
+        if (notificationsEnabled && !streamNotifications) {
+            NotificationHelper.enablePullNotifications(this)
+        } else {
+            NotificationHelper.disablePullNotifications(this)
         }
         draftWarning()
     }
@@ -759,7 +764,7 @@ class MainActivity : BottomSheetActivity(), ActionButtonActivity {
 
     private fun changeAccount(newSelectedId: Long, forward: Intent?) {
         cacheUpdater.stop()
-        SFragment.flushFilters()
+        statusFilter.clear()
         accountManager.value.setActiveAccount(newSelectedId)
         val intent = Intent(this, MainActivity::class.java)
         intent.flags = Intent.FLAG_ACTIVITY_NEW_TASK or Intent.FLAG_ACTIVITY_CLEAR_TASK
@@ -18,24 +18,22 @@ package com.keylesspalace.tusky.adapter
 import android.view.LayoutInflater
 import android.view.ViewGroup
 import android.widget.ImageView
+import androidx.paging.PagedListAdapter
+import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.RecyclerView
 import com.bumptech.glide.Glide
 import com.github.penfeizhou.animation.glide.AnimationDecoderOption
 import com.keylesspalace.tusky.R
 import com.keylesspalace.tusky.entity.Emoji
 
+/**
+ * Pages through the custom emojis of the instance, they come filtered and sorted from the
+ * database.
+ */
 class EmojiAdapter(
-    emojiList: List<Emoji>,
     private val onEmojiSelectedListener: OnEmojiSelectedListener,
     private val animateEmojis: Boolean
-) : RecyclerView.Adapter<EmojiAdapter.EmojiHolder>() {
-
-    private val emojis: List<Emoji> = emojiList.filter { emoji -> emoji.visibleInPicker == null || emoji.visibleInPicker }
-        .sortedBy { it.shortcode.lowercase() }
-
-    override fun getItemCount(): Int {
-        return emojis.size
-    }
+) : PagedListAdapter<Emoji, EmojiAdapter.EmojiHolder>(EMOJI_COMPARATOR) {
 
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): EmojiHolder {
         val view = LayoutInflater.from(parent.context)
@@ -44,7 +42,7 @@ class EmojiAdapter(
     }
 
     override fun onBindViewHolder(viewHolder: EmojiHolder, position: Int) {
-        val emoji = emojis[position]
+        val emoji = getItem(position) ?: return
 
         Glide.with(viewHolder.emojiImageView)
             .load(emoji.url)
@@ -61,6 +59,17 @@ class EmojiAdapter(
     }
 
     class EmojiHolder(val emojiImageView: ImageView) : RecyclerView.ViewHolder(emojiImageView)
+
+    companion object {
+
+        val EMOJI_COMPARATOR = object : DiffUtil.ItemCallback<Emoji>() {
+            override fun areContentsTheSame(oldItem: Emoji, newItem: Emoji): Boolean =
+                oldItem == newItem
+
+            override fun areItemsTheSame(oldItem: Emoji, newItem: Emoji): Boolean =
+                oldItem.shortcode == newItem.shortcode
+        }
+    }
 }
 
 interface OnEmojiSelectedListener {
@@ -6,7 +6,6 @@ import android.graphics.Paint;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
-import android.text.Spanned;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
 import android.view.MotionEvent;
@@ -60,6 +59,7 @@ import com.keylesspalace.tusky.viewdata.PollOptionViewData;
 import com.keylesspalace.tusky.viewdata.PollViewData;
 import com.keylesspalace.tusky.viewdata.PollViewDataKt;
 import com.keylesspalace.tusky.viewdata.StatusViewData.Concrete;
+import com.keylesspalace.tusky.viewdata.StatusViewData.RenderedTexts;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -208,6 +208,10 @@ public abstract class StatusBaseViewHolder extends RecyclerView.ViewHolder {
         displayName.setText(emojifiedName);
     }
 
+    private void setDisplayName(CharSequence renderedName) {
+        displayName.setText(CustomEmojiHelper.attachEmojis(renderedName, displayName));
+    }
+
     protected void setUsername(String name) {
         Context context = username.getContext();
         String usernameText = (name == null) ?
@@ -220,8 +224,8 @@ public abstract class StatusBaseViewHolder extends RecyclerView.ViewHolder {
     }
 
     protected void setSpoilerAndContent(boolean expanded,
-                                        @NonNull Spanned content,
-                                        @Nullable String spoilerText,
+                                        @NonNull CharSequence content,
+                                        @Nullable CharSequence spoilerText,
                                         @Nullable Mention[] mentions,
                                         @NonNull List<Emoji> emojis,
                                         @Nullable PollViewData poll,
@@ -229,8 +233,8 @@ public abstract class StatusBaseViewHolder extends RecyclerView.ViewHolder {
                                         final StatusActionListener listener) {
         boolean sensitive = !TextUtils.isEmpty(spoilerText);
         if (sensitive) {
-            CharSequence emojiSpoiler = CustomEmojiHelper.emojify(spoilerText, emojis, contentWarningDescription);
-            contentWarningDescription.setText(emojiSpoiler);
+            contentWarningDescription.setText(
+                    CustomEmojiHelper.attachEmojis(spoilerText, contentWarningDescription));
             contentWarningDescription.setVisibility(View.VISIBLE);
             contentWarningButton.setVisibility(View.VISIBLE);
             setContentWarningButtonText(expanded);
@@ -261,15 +265,14 @@ public abstract class StatusBaseViewHolder extends RecyclerView.ViewHolder {
 
     private void setTextVisible(boolean sensitive,
                                 boolean expanded,
-                                Spanned content,
+                                CharSequence content,
                                 Mention[] mentions,
                                 List<Emoji> emojis,
                                 @Nullable PollViewData poll,
                                 StatusDisplayOptions statusDisplayOptions,
                                 final StatusActionListener listener) {
         if (expanded) {
-            CharSequence emojifiedText = CustomEmojiHelper.emojify(content, emojis, this.content);
-            LinkHelper.setClickableText(this.content, emojifiedText, mentions, listener);
+            LinkHelper.setRenderedText(this.content, content, listener);
             for (int i = 0; i < mediaLabels.length; ++i) {
                 updateMediaLabel(i, sensitive, expanded);
             }
@@ -821,7 +824,8 @@ public abstract class StatusBaseViewHolder extends RecyclerView.ViewHolder {
             @Nullable Object payloads
     ) {
         if (payloads == null) {
-            setDisplayName(status.getUserFullName(), status.getAccountEmojis());
+            RenderedTexts texts = status.getRenderedTexts();
+            setDisplayName(texts.displayName);
             setUsername(status.getNickname());
             setCreatedAt(status.getCreatedAt(), status.getEditedAt(), statusDisplayOptions);
             setIsReply(status.getInReplyToId() != null);
@@ -857,12 +861,10 @@ public abstract class StatusBaseViewHolder extends RecyclerView.ViewHolder {
             }
 
             setupQuote(
-                    status.getQuote(),
-                    status.getQuoteEmojis(),
-                    status.getQuotedAccountEmojis(),
+                    texts.quote,
+                    texts.quoteFullName,
                     status.getQuotedStatusId(),
                     status.getQuotedStatusUrl(),
-                    status.getQuoteFullName(),
                     status.getQuoteUsername(),
                     listener
             );
@@ -871,11 +873,11 @@ public abstract class StatusBaseViewHolder extends RecyclerView.ViewHolder {
             setupButtons(listener, status.getSenderId(), content, statusDisplayOptions);
             setRebloggingEnabled(status.getRebloggingEnabled(), status.getVisibility());
 
-            if(status.getContent() != null) {
+            if(texts.content != null) {
                 setSpoilerAndContent(
                         status.isExpanded(),
-                        status.getContent(),
-                        status.getSpoilerText(),
+                        texts.content,
+                        texts.spoilerText,
                         status.getMentions(),
                         status.getStatusEmojis(),
                         status.getPoll(),
@@ -904,23 +906,18 @@ public abstract class StatusBaseViewHolder extends RecyclerView.ViewHolder {
     }
 
     private void setupQuote(
-        @Nullable Spanned quote,
-        List<Emoji> statusEmojis,
-        List<Emoji> accountEmojis,
+        @Nullable CharSequence quote,
+        @Nullable CharSequence quoteFullName,
         String quotedStatusId,
         String quotedStatusUrl,
-        String quoteFullName,
         String quoteUsername,
         StatusActionListener listener
     ) {
         if (quote != null && this.quoteView != null) {
-            CharSequence emojifiedText =
-                CustomEmojiHelper.emojify(quote, statusEmojis, this.quoteText);
-            LinkHelper.setClickableText(this.quoteText, emojifiedText, null, listener);
+            LinkHelper.setRenderedText(this.quoteText, quote, listener);
 
-            CharSequence emojifiedName =
-                CustomEmojiHelper.emojify(quoteFullName, accountEmojis, this.quoteName, true);
-            this.quoteName.setText(emojifiedName);
+            this.quoteName.setText(quoteFullName == null ? null :
+                    CustomEmojiHelper.attachEmojis(quoteFullName, this.quoteName));
 
             if (quoteUsername != null) {
                 Context context = this.quoteUsername.getContext();
@@ -931,8 +928,6 @@ public abstract class StatusBaseViewHolder extends RecyclerView.ViewHolder {
                 this.quoteUsername.setVisibility(View.GONE);
             }
 
-            this.quoteText.setText(emojifiedText);
-
             this.quoteView.setOnClickListener(v -> {
                 int position = getAbsoluteAdapterPosition();
                 if (position != RecyclerView.NO_POSITION) {
@@ -1,43 +1,72 @@
 package com.keylesspalace.tusky.appstore
 
-import com.google.gson.Gson
 import com.keylesspalace.tusky.db.AccountManager
 import com.keylesspalace.tusky.db.AppDatabase
-import io.reactivex.Single
+import com.keylesspalace.tusky.db.DatabaseWriter
+import com.keylesspalace.tusky.db.TimelineColumnCodec
+import com.keylesspalace.tusky.repository.NotificationRepository
 import io.reactivex.disposables.Disposable
-import io.reactivex.schedulers.Schedulers
 
 class CacheUpdater(
     eventHub: EventHub,
     accountManager: AccountManager,
     private val appDatabase: AppDatabase,
-    gson: Gson
+    private val notificationRepository: NotificationRepository,
+    private val writer: DatabaseWriter
 ) {
 
     private val disposable: Disposable
 
     init {
-        val timelineDao = appDatabase.timelineDao()
         disposable = eventHub.events.subscribe { event ->
             val accountId = accountManager.activeAccount?.id ?: return@subscribe
-            when (event) {
-                is FavoriteEvent ->
-                    timelineDao.setFavourited(accountId, event.statusId, event.favourite)
-                is ReblogEvent ->
-                    timelineDao.setReblogged(accountId, event.statusId, event.reblog)
-                is BookmarkEvent ->
-                    timelineDao.setBookmarked(accountId, event.statusId, event.bookmark)
-                is UnfollowEvent ->
-                    timelineDao.removeAllByUser(accountId, event.accountId)
-                is StatusDeletedEvent ->
-                    timelineDao.delete(accountId, event.statusId)
-                is EmojiReactEvent -> {
-                    val pleromaString = gson.toJson(event.newStatus.pleroma)
-                    timelineDao.setPleroma(accountId, event.newStatus.id, pleromaString)
+            // Events mostly come from the main thread, a burst of them is written together
+            writer.execute { update(accountId, event) }
+        }
+    }
+
+    private fun update(accountId: Long, event: Event) {
+        val timelineDao = appDatabase.timelineDao()
+        val notificationDao = appDatabase.notificationDao()
+        when (event) {
+            is FavoriteEvent -> {
+                timelineDao.setFavourited(accountId, event.statusId, event.favourite)
+                notificationRepository.updateStatus(accountId, event.statusId) {
+                    it.copy(favourited = event.favourite)
+                }
+            }
+            is ReblogEvent -> {
+                timelineDao.setReblogged(accountId, event.statusId, event.reblog)
+                notificationRepository.updateStatus(accountId, event.statusId) {
+                    it.copy(reblogged = event.reblog)
                 }
-                is PollVoteEvent -> {
-                    val pollString = gson.toJson(event.poll)
-                    timelineDao.setVoted(accountId, event.statusId, pollString)
+            }
+            is BookmarkEvent -> {
+                timelineDao.setBookmarked(accountId, event.statusId, event.bookmark)
+                notificationRepository.updateStatus(accountId, event.statusId) {
+                    it.copy(bookmarked = event.bookmark)
+                }
+            }
+            is UnfollowEvent ->
+                timelineDao.removeAllByUser(accountId, event.accountId)
+            is BlockEvent ->
+                notificationDao.removeAllBySender(accountId, event.accountId)
+            is StatusDeletedEvent -> {
+                timelineDao.delete(accountId, event.statusId)
+                notificationDao.removeAllByStatus(accountId, event.statusId)
+            }
+            is EmojiReactEvent -> {
+                val pleroma = TimelineColumnCodec.encodePleroma(event.newStatus.pleroma)
+                timelineDao.setPleroma(accountId, event.newStatus.id, pleroma)
+                notificationRepository.updateStatus(accountId, event.newStatus.id) {
+                    it.copy(pleroma = event.newStatus.pleroma)
+                }
+            }
+            is PollVoteEvent -> {
+                val poll = TimelineColumnCodec.encodePoll(event.poll)
+                timelineDao.setVoted(accountId, event.statusId, poll)
+                notificationRepository.updateStatus(accountId, event.statusId) {
+                    it.copy(poll = event.poll)
                 }
             }
         }
@@ -48,11 +77,10 @@ class CacheUpdater(
     }
 
     fun clearForUser(accountId: Long) {
-        Single.fromCallable {
+        writer.execute {
             appDatabase.timelineDao().removeAllForAccount(accountId)
             appDatabase.timelineDao().removeAllUsersForAccount(accountId)
+            appDatabase.notificationDao().removeAllForAccount(accountId)
         }
-            .subscribeOn(Schedulers.io())
-            .subscribe()
     }
 }
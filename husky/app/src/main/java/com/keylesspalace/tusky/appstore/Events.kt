@@ -5,6 +5,7 @@ import com.keylesspalace.tusky.entity.Account
 import com.keylesspalace.tusky.entity.ChatMessage
 import com.keylesspalace.tusky.entity.Poll
 import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.repository.TimelineKey
 
 data class FavoriteEvent(val statusId: String, val favourite: Boolean) : Dispatchable
 data class ReblogEvent(val statusId: String, val reblog: Boolean) : Dispatchable
@@ -27,3 +28,5 @@ data class ChatMessageDeliveredEvent(val chatMsg: ChatMessage) : Dispatchable
 data class ChatMessageReceivedEvent(val chatMsg: ChatMessage) : Dispatchable
 data class AnnouncementReadEvent(val announcementId: String) : Dispatchable
 data class UnpinStatus(val status: Status) : Dispatchable
+data class TimelineStreamEvent(val timeline: TimelineKey, val status: Status) : Dispatchable
+data class StatusEditedEvent(val status: Status) : Dispatchable
@@ -124,15 +124,12 @@ class AnnouncementsActivity :
             }
         }
 
-        viewModel.emojis.observe(this) {
-            it?.let { list ->
-                picker.adapter = EmojiAdapter(
-                    list,
-                    this,
-                    preferences.getBoolean(PrefKeys.ANIMATE_CUSTOM_EMOJIS, false)
-                )
-            }
-        }
+        val emojiAdapter = EmojiAdapter(
+            this,
+            preferences.getBoolean(PrefKeys.ANIMATE_CUSTOM_EMOJIS, false)
+        )
+        picker.adapter = emojiAdapter
+        viewModel.emojis.observe(this) { emojiAdapter.submitList(it) }
 
         viewModel.load()
         binding.progressBar.show()
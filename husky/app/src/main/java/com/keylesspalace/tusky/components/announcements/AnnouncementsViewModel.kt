@@ -22,11 +22,10 @@ package com.keylesspalace.tusky.components.announcements
 
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
-import androidx.lifecycle.viewModelScope
+import androidx.paging.PagedList
 import com.keylesspalace.tusky.appstore.AnnouncementReadEvent
 import com.keylesspalace.tusky.appstore.EventHub
 import com.keylesspalace.tusky.components.instance.domain.repository.InstanceRepository
-import com.keylesspalace.tusky.core.extensions.cancelIfActive
 import com.keylesspalace.tusky.entity.Announcement
 import com.keylesspalace.tusky.entity.Emoji
 import com.keylesspalace.tusky.network.MastodonApi
@@ -35,9 +34,6 @@ import com.keylesspalace.tusky.util.Loading
 import com.keylesspalace.tusky.util.Resource
 import com.keylesspalace.tusky.util.RxAwareViewModel
 import com.keylesspalace.tusky.util.Success
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.Job
-import kotlinx.coroutines.launch
 import timber.log.Timber
 
 class AnnouncementsViewModel(
@@ -46,25 +42,16 @@ class AnnouncementsViewModel(
     private val eventHub: EventHub
 ) : RxAwareViewModel() {
 
-    private var job: Job? = null
-
     private val announcementsMutable = MutableLiveData<Resource<List<Announcement>>>()
     val announcements: LiveData<Resource<List<Announcement>>>
         get() = announcementsMutable
 
-    private val emojisMutable = MutableLiveData<List<Emoji>?>()
-    val emojis: LiveData<List<Emoji>?>
-        get() = emojisMutable
+    val emojis: LiveData<PagedList<Emoji>> = instanceRepository.getPickerEmojiPages()
 
     init {
-        getEmojis()
-    }
-
-    private fun getEmojis() {
-        job?.cancelIfActive()
-        job = viewModelScope.launch(Dispatchers.IO) {
-            emojisMutable.postValue(instanceRepository.getEmojis())
-        }
+        instanceRepository.refreshEmojis()
+            .subscribe({}, { Timber.w(it, "Failed to refresh custom emojis") })
+            .autoDispose()
     }
 
     fun load() {
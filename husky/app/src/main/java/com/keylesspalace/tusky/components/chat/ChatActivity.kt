@@ -149,6 +149,7 @@ class ChatActivity :
     private val serviceClient: ServiceClient by inject()
     val viewModel: ChatViewModel by viewModel()
     private lateinit var adapter: ChatMessagesAdapter
+    private lateinit var emojiAdapter: EmojiAdapter
 
     @VisibleForTesting
     var maximumTootCharacters = InstanceConstants.DEFAULT_CHARACTER_LIMIT
@@ -470,6 +471,9 @@ class ChatActivity :
 
     private fun subscribeToUpdates() {
         withLifecycleContext {
+            viewModel.autocompleteUpdates.observe { token ->
+                (binding.editText.adapter as? ComposeAutoCompleteAdapter)?.refresh(token)
+            }
             viewModel.instanceParams.observe { instanceData ->
                 maximumTootCharacters = instanceData.chatLimit
             }
@@ -481,7 +485,8 @@ class ChatActivity :
                     binding.stickerKeyboard.setupStickerKeyboard(this@ChatActivity, stickers)
                 }
             }
-            viewModel.emoji.observe { setEmojiList(it) }
+            viewModel.hasEmojis.observe { enableButton(binding.emojiButton, true, it) }
+            viewModel.emojiPages.observe { emojiAdapter.submitList(it) }
             viewModel.media.observe {
                 val notHaveMedia = it.isEmpty()
 
@@ -539,17 +544,6 @@ class ChatActivity :
         }
     }
 
-    private fun setEmojiList(emojiList: List<Emoji>?) {
-        if (emojiList != null) {
-            binding.emojiView.adapter = EmojiAdapter(
-                emojiList,
-                this@ChatActivity,
-                preferences.getBoolean(PrefKeys.ANIMATE_CUSTOM_EMOJIS, false)
-            )
-            enableButton(binding.emojiButton, true, emojiList.isNotEmpty())
-        }
-    }
-
     private fun replaceTextAtCaret(text: CharSequence) {
         // If you select "backward" in an editable, you get SelectionStart > SelectionEnd
         val start = binding.editText.selectionStart.coerceAtMost(binding.editText.selectionEnd)
@@ -603,6 +597,11 @@ class ChatActivity :
 
         binding.emojiView.layoutManager =
             GridLayoutManager(this, 3, GridLayoutManager.HORIZONTAL, false)
+        emojiAdapter = EmojiAdapter(
+            this,
+            preferences.getBoolean(PrefKeys.ANIMATE_CUSTOM_EMOJIS, false)
+        )
+        binding.emojiView.adapter = emojiAdapter
 
         val textColor = ThemeUtils.getColor(this, android.R.attr.textColorTertiary)
 
@@ -664,7 +663,7 @@ class ChatActivity :
 
     private fun showEmojis() {
         binding.emojiView.adapter?.let {
-            if (it.itemCount == 0) {
+            if (viewModel.hasEmojis.value != true) {
                 val errorMessage = getString(
                     R.string.error_no_custom_emojis,
                     accountManager.value.activeAccount!!.domain
@@ -866,29 +865,39 @@ class ChatActivity :
         bar.show()
     }
 
-    private fun clearPlaceholdersForResponse(msgs: MutableList<ChatMesssageOrPlaceholder>) {
-        msgs.removeAll { it.isLeft() }
+    /**
+     * Keeps the part of the cached messages that is known to be complete: messages above a gap
+     * arrived on their own and are fetched again with the newer ones.
+     */
+    private fun contiguousPartOf(
+        msgs: List<ChatMesssageOrPlaceholder>
+    ): List<ChatMesssageOrPlaceholder> {
+        val gap = msgs.indexOfFirst { it.isLeft() }
+        val contiguous = if (gap == -1 || gap == msgs.size - 1) {
+            msgs
+        } else {
+            msgs.subList(gap + 1, msgs.size)
+        }
+        return contiguous.filter { it.isRight() }
     }
 
     private fun tryCache() {
-        // Request timeline from disk to make it quick, then replace it with timeline from
-        // the server to update it
+        // Show the cached messages right away, then only ask the server for the newer ones
         chatsRepo.getChatMessages(chatId, null, null, null, LOAD_AT_ONCE, TimelineRequestMode.DISK)
             .observeOn(AndroidSchedulers.mainThread())
             .autoDispose(this, Lifecycle.Event.ON_DESTROY)
-            .subscribe { msgs ->
-                if (msgs.size > 1) {
-                    val mutableMsgs = msgs.toMutableList()
-                    clearPlaceholdersForResponse(mutableMsgs)
+            .subscribe({ msgs ->
+                val cached = contiguousPartOf(msgs)
+                if (cached.isNotEmpty()) {
                     this.msgs.clear()
-                    this.msgs.addAll(mutableMsgs)
+                    this.msgs.addAll(cached)
                     updateAdapter()
                     binding.progressBar.visibility = View.GONE
-                    // Request statuses including current top to refresh all of them
                 }
-                updateCurrent()
                 loadAbove()
-            }
+            }, {
+                loadAbove()
+            })
     }
 
     private fun updateCurrent() {
@@ -3,14 +3,16 @@ package com.keylesspalace.tusky.components.chat
 import com.keylesspalace.tusky.components.common.CommonComposeViewModel
 import com.keylesspalace.tusky.components.common.MediaUploader
 import com.keylesspalace.tusky.components.compose.ComposeActivity
+import com.keylesspalace.tusky.components.compose.ComposeAutocompleteSearch
 import com.keylesspalace.tusky.components.instance.domain.repository.InstanceRepository
 import com.keylesspalace.tusky.network.MastodonApi
 
 open class ChatViewModel(
     api: MastodonApi,
     instanceRepository: InstanceRepository,
-    mediaUploader: MediaUploader
-) : CommonComposeViewModel(api, mediaUploader, instanceRepository) {
+    mediaUploader: MediaUploader,
+    autocompleteSearch: ComposeAutocompleteSearch
+) : CommonComposeViewModel(api, mediaUploader, instanceRepository, autocompleteSearch) {
 
     fun getSingleMedia(): ComposeActivity.QueuedMedia? {
         return if (media.value?.isNotEmpty() == true) {
@@ -21,11 +21,12 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.Observer
 import androidx.lifecycle.viewModelScope
+import androidx.paging.PagedList
 import com.keylesspalace.tusky.components.compose.ComposeActivity.QueuedMedia
 import com.keylesspalace.tusky.components.compose.ComposeAutoCompleteAdapter
+import com.keylesspalace.tusky.components.compose.ComposeAutocompleteSearch
 import com.keylesspalace.tusky.components.instance.data.models.entity.InstanceEntity
 import com.keylesspalace.tusky.components.instance.domain.repository.InstanceRepository
-import com.keylesspalace.tusky.components.search.SearchType
 import com.keylesspalace.tusky.core.extensions.cancelIfActive
 import com.keylesspalace.tusky.core.functional.Either
 import com.keylesspalace.tusky.core.utils.InstanceConstants
@@ -38,8 +39,8 @@ import com.keylesspalace.tusky.util.VersionUtils
 import com.keylesspalace.tusky.util.map
 import com.keylesspalace.tusky.util.withoutFirstWhich
 import io.reactivex.Single
+import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.disposables.Disposable
-import java.util.Locale
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.async
@@ -53,6 +54,7 @@ open class CommonComposeViewModel(
     private val api: MastodonApi,
     private val mediaUploader: MediaUploader,
     private val instanceRepository: InstanceRepository,
+    private val autocompleteSearch: ComposeAutocompleteSearch
 ) : RxAwareViewModel() {
 
     private var job: Job? = null
@@ -81,7 +83,20 @@ open class CommonComposeViewModel(
     val instanceStickers: LiveData<Array<StickerPack>> =
         stickers // .map { stickers -> HashMap<String,String>(stickers) }
 
-    val emoji: MutableLiveData<List<Emoji>?> = MutableLiveData()
+    val hasEmojis: LiveData<Boolean> = instanceRepository.hasEmojis()
+
+    /**
+     * The custom emojis for the emoji picker, loaded as they are scrolled to.
+     */
+    val emojiPages: LiveData<PagedList<Emoji>> by lazy { instanceRepository.getPickerEmojiPages() }
+
+    private val autocompleteRefreshes = MutableLiveData<String>()
+
+    /**
+     * Autocompletion tokens that have more suggestions than were shown, see
+     * [ComposeAutocompleteSearch.refreshes].
+     */
+    val autocompleteUpdates: LiveData<String> = autocompleteRefreshes
 
     val media = mutableLiveData<List<QueuedMedia>>(listOf())
     val uploadError = MutableLiveData<Throwable>()
@@ -90,13 +105,19 @@ open class CommonComposeViewModel(
 
     init {
         getInstanceConfig()
+        instanceRepository.refreshEmojis()
+            .subscribe({}, { Log.w(TAG, "Failed to refresh custom emojis", it) })
+            .autoDispose()
+        autocompleteSearch.refreshes
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe { autocompleteRefreshes.value = it }
+            .autoDispose()
     }
 
     private fun getInstanceConfig() {
         job?.cancelIfActive()
         job = viewModelScope.launch(Dispatchers.IO) {
             val instanceInfo = getInstanceInfo()
-            emoji.postValue(instanceInfo.emojiList)
             instance.postValue(instanceInfo)
         }
     }
@@ -178,8 +199,14 @@ open class CommonComposeViewModel(
                 val item = media.value?.find { it.localId == mediaItem.localId }
                     ?: return@subscribe
                 val newMediaItem = when (event) {
-                    is UploadEvent.ProgressEvent ->
-                        item.copy(uploadPercent = event.percentage)
+                    // Preparing shows as an upload that hasn't started yet
+                    is UploadEvent.ProgressEvent -> item.copy(
+                        uploadPercent = if (event.stage == UploadStage.UPLOADING) {
+                            event.percentage
+                        } else {
+                            0
+                        }
+                    )
                     is UploadEvent.FinishedEvent ->
                         item.copy(id = event.attachment.id, uploadPercent = -1)
                 }
@@ -248,53 +275,20 @@ open class CommonComposeViewModel(
     fun searchAutocompleteSuggestions(token: String):
         List<ComposeAutoCompleteAdapter.AutocompleteResult> {
         when (token[0]) {
-            '@' -> {
-                return try {
-                    val acct = token.substring(1)
-                    api.searchAccounts(query = acct, resolve = true, limit = 10)
-                        .blockingGet()
-                        .map { ComposeAutoCompleteAdapter.AccountResult(it) }
-                        .filter {
-                            it.account.username.startsWith(acct, ignoreCase = true)
-                        }
-                } catch (e: Throwable) {
-                    Log.e(TAG, String.format("Autocomplete search for %s failed.", token), e)
-                    emptyList()
-                }
-            }
-            '#' -> {
-                return try {
-                    api.searchObservable(
-                        query = token,
-                        type = SearchType.Hashtag.apiParameter,
-                        limit = 10
-                    )
-                        .blockingGet()
-                        .hashtags
-                        .map { ComposeAutoCompleteAdapter.HashtagResult(it) }
-                } catch (e: Throwable) {
-                    Log.e(TAG, String.format("Autocomplete search for %s failed.", token), e)
-                    emptyList()
-                }
+            '@', '#' -> {
+                return autocompleteSearch.search(token)
             }
             ':' -> {
-                val emojiList = emoji.value ?: return emptyList()
-
-                val incomplete = token.substring(1).lowercase(Locale.ROOT)
+                val matches = instanceRepository.searchEmojis(
+                    token.substring(1),
+                    EMOJI_SUGGESTION_LIMIT
+                )
                 val results = ArrayList<ComposeAutoCompleteAdapter.AutocompleteResult>()
-                val resultsInside = ArrayList<ComposeAutoCompleteAdapter.AutocompleteResult>()
-                for (emoji in emojiList) {
-                    val shortcode = emoji.shortcode.lowercase(Locale.ROOT)
-                    if (shortcode.startsWith(incomplete)) {
-                        results.add(ComposeAutoCompleteAdapter.EmojiResult(emoji))
-                    } else if (shortcode.indexOf(incomplete, 1) != -1) {
-                        resultsInside.add(ComposeAutoCompleteAdapter.EmojiResult(emoji))
-                    }
-                }
-                if (results.isNotEmpty() && resultsInside.isNotEmpty()) {
+                matches.startingWith.mapTo(results) { ComposeAutoCompleteAdapter.EmojiResult(it) }
+                if (results.isNotEmpty() && matches.containing.isNotEmpty()) {
                     results.add(ComposeAutoCompleteAdapter.ResultSeparator())
                 }
-                results.addAll(resultsInside)
+                matches.containing.mapTo(results) { ComposeAutoCompleteAdapter.EmojiResult(it) }
                 return results
             }
             else -> {
@@ -308,6 +302,7 @@ open class CommonComposeViewModel(
         for (uploadDisposable in mediaToDisposable.values) {
             uploadDisposable.dispose()
         }
+        autocompleteSearch.dispose()
         super.onCleared()
     }
 
@@ -357,6 +352,7 @@ open class CommonComposeViewModel(
 
     private companion object {
         const val TAG = "CCVM"
+        const val EMOJI_SUGGESTION_LIMIT = 50
     }
 }
 
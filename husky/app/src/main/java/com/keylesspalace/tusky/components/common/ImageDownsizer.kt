@@ -0,0 +1,287 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.components.common
+
+import android.content.ContentResolver
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.Matrix
+import android.net.Uri
+import android.util.Log
+import androidx.exifinterface.media.ExifInterface
+import com.keylesspalace.tusky.util.orientationMatrix
+import java.io.BufferedInputStream
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+import kotlin.math.roundToInt
+import kotlin.math.sqrt
+
+/**
+ * Reduces images to fit under a byte and a pixel limit, maintaining both aspect ratio and
+ * orientation.
+ *
+ * The bounds and the EXIF orientation are read from the same pass over the start of the image.
+ * The size that fits is predicted from them, the image is decoded once, subsampled to at most
+ * twice that size, then scaled and reoriented in one step. Compression is tried in memory,
+ * lowering the quality and then the size until the result fits, and only that is written.
+ * At most the decoded image, the scaled one and the compressed bytes are in memory at once.
+ */
+class ImageDownsizer(private val maxPixels: Long) {
+
+    fun interface Source {
+        fun open(): InputStream?
+    }
+
+    private class Header(val width: Int, val height: Int, val orientation: Int)
+
+    fun downsize(
+        contentResolver: ContentResolver,
+        uri: Uri,
+        sizeLimit: Long,
+        output: File
+    ): Boolean {
+        return downsize({ contentResolver.openInputStream(uri) }, sizeLimit, output)
+    }
+
+    /**
+     * @return whether [output] holds an image that fits
+     */
+    fun downsize(source: Source, sizeLimit: Long, output: File): Boolean {
+        return try {
+            val header = readHeader(source) ?: return false
+            val scale = targetScale(header.width, header.height, maxPixels, sizeLimit)
+            val image = decode(source, header, scale) ?: return false
+            val compressed = compressToFit(image, sizeLimit)
+            image.recycle()
+            if (compressed == null) {
+                return false
+            }
+            FileOutputStream(output).use { compressed.writeTo(it) }
+            true
+        } catch (e: IOException) {
+            Log.w(TAG, "Failed to downsize image", e)
+            false
+        } catch (e: OutOfMemoryError) {
+            Log.w(TAG, "Not enough memory to downsize image", e)
+            false
+        }
+    }
+
+    private fun readHeader(source: Source): Header? {
+        val options = BitmapFactory.Options()
+        options.inJustDecodeBounds = true
+        val input = source.open() ?: return null
+        val orientation = BufferedInputStream(input, HEADER_BUFFER_SIZE).use { stream ->
+            stream.mark(HEADER_MARK_LIMIT)
+            val orientation = readOrientation(stream)
+            try {
+                stream.reset()
+                BitmapFactory.decodeStream(stream, null, options)
+            } catch (e: IOException) {
+                // The EXIF data went past the mark, start over for the bounds
+                source.open()?.use { BitmapFactory.decodeStream(it, null, options) }
+            }
+            orientation
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null
+        }
+        return Header(options.outWidth, options.outHeight, orientation)
+    }
+
+    private fun readOrientation(stream: InputStream): Int {
+        // ExifInterface marks streams itself, which would move the mark of the header
+        val unmarkable = object : FilterInputStream(stream) {
+            override fun markSupported() = false
+
+            override fun mark(readlimit: Int) {}
+
+            override fun reset() {
+                throw IOException("mark/reset not supported")
+            }
+
+            override fun close() {}
+        }
+        return try {
+            ExifInterface(unmarkable).getAttributeInt(
+                ExifInterface.TAG_ORIENTATION,
+                ExifInterface.ORIENTATION_NORMAL
+            )
+        } catch (e: IOException) {
+            Log.w(TAG, e)
+            ExifInterface.ORIENTATION_UNDEFINED
+        }
+    }
+
+    private fun decode(source: Source, header: Header, scale: Float): Bitmap? {
+        val options = BitmapFactory.Options()
+        options.inSampleSize = sampleSizeFor(scale)
+        val decoded = source.open()?.use { BitmapFactory.decodeStream(it, null, options) }
+            ?: return null
+
+        val matrix = Matrix()
+        // What is left after subsampling, relative to the decoded size
+        val remainingScale = scale * header.width / decoded.width
+        if (remainingScale < 1f) {
+            matrix.setScale(remainingScale, remainingScale)
+        }
+        orientationMatrix(header.orientation)?.let { matrix.postConcat(it) }
+        if (matrix.isIdentity) {
+            return decoded
+        }
+        val result = Bitmap.createBitmap(
+            decoded,
+            0,
+            0,
+            decoded.width,
+            decoded.height,
+            matrix,
+            true
+        )
+        if (result !== decoded) {
+            decoded.recycle()
+        }
+        return result
+    }
+
+    private fun compressToFit(image: Bitmap, sizeLimit: Long): ByteArrayOutputStream? {
+        /* It's not likely the user will give transparent images over the upload limit, but if
+         * they do, make sure the transparency is retained. */
+        val format = if (image.hasAlpha()) Bitmap.CompressFormat.PNG else Bitmap.CompressFormat.JPEG
+        val expectedSize = image.width.toLong() * image.height * ESTIMATED_BYTES_PER_PIXEL
+        val buffer = ByteArrayOutputStream(
+            minOf(sizeLimit, expectedSize.toLong()).toInt().coerceAtLeast(BUFFER_SIZE)
+        )
+        var current = image
+        try {
+            repeat(MAX_SIZE_ATTEMPTS) {
+                if (compress(current, format, MAX_QUALITY, buffer) <= sizeLimit) {
+                    return buffer
+                }
+                if (format == Bitmap.CompressFormat.JPEG) {
+                    val quality = highestFittingQuality(current, sizeLimit, buffer)
+                    if (quality != null) {
+                        compress(current, format, quality, buffer)
+                        return buffer
+                    }
+                }
+                // Doesn't fit even at the lowest quality, shrink it as much as it is too large
+                val factor = sqrt(sizeLimit.toDouble() / buffer.size()) * SHRINK_MARGIN
+                val smaller = Bitmap.createScaledBitmap(
+                    current,
+                    (current.width * factor).roundToInt().coerceAtLeast(1),
+                    (current.height * factor).roundToInt().coerceAtLeast(1),
+                    true
+                )
+                if (current !== image) {
+                    current.recycle()
+                }
+                current = smaller
+            }
+            return null
+        } finally {
+            if (current !== image) {
+                current.recycle()
+            }
+        }
+    }
+
+    /**
+     * Searches the JPEG quality between [MIN_QUALITY] and [MAX_QUALITY] in a few steps, the
+     * buffer holds the last attempt afterwards, not necessarily the returned quality.
+     */
+    private fun highestFittingQuality(
+        image: Bitmap,
+        sizeLimit: Long,
+        buffer: ByteArrayOutputStream
+    ): Int? {
+        if (compress(image, Bitmap.CompressFormat.JPEG, MIN_QUALITY, buffer) > sizeLimit) {
+            return null
+        }
+        var fitting = MIN_QUALITY
+        var tooLarge = MAX_QUALITY
+        while (tooLarge - fitting > QUALITY_STEP) {
+            val quality = (fitting + tooLarge) / 2
+            if (compress(image, Bitmap.CompressFormat.JPEG, quality, buffer) <= sizeLimit) {
+                fitting = quality
+            } else {
+                tooLarge = quality
+            }
+        }
+        return fitting
+    }
+
+    private fun compress(
+        image: Bitmap,
+        format: Bitmap.CompressFormat,
+        quality: Int,
+        buffer: ByteArrayOutputStream
+    ): Int {
+        buffer.reset()
+        image.compress(format, quality, buffer)
+        return buffer.size()
+    }
+
+    private companion object {
+        const val TAG = "ImageDownsizer"
+        const val HEADER_BUFFER_SIZE = 16 * 1024
+        // EXIF segments are at most 64 KiB, but there can be several before the image data
+        const val HEADER_MARK_LIMIT = 1024 * 1024
+        const val BUFFER_SIZE = 64 * 1024
+        const val MAX_QUALITY = 85
+        const val MIN_QUALITY = 50
+        const val QUALITY_STEP = 5
+        const val MAX_SIZE_ATTEMPTS = 4
+        const val SHRINK_MARGIN = 0.9
+    }
+}
+
+/**
+ * Bytes per pixel a photo takes as a JPEG of quality 85, a little above what they usually do.
+ */
+private const val ESTIMATED_BYTES_PER_PIXEL = 0.35
+
+/**
+ * How much an image has to be scaled down, at most 1, so it's predicted to fit [sizeLimit]
+ * bytes and has at most [maxPixels].
+ */
+internal fun targetScale(width: Int, height: Int, maxPixels: Long, sizeLimit: Long): Float {
+    val pixels = width.toLong() * height
+    val fittingPixels = minOf(maxPixels, (sizeLimit / ESTIMATED_BYTES_PER_PIXEL).toLong())
+    if (pixels <= fittingPixels) {
+        return 1f
+    }
+    return sqrt(fittingPixels.toDouble() / pixels).toFloat()
+}
+
+/**
+ * The largest power of two to subsample with that keeps the image at least [scale] of its size.
+ */
+internal fun sampleSizeFor(scale: Float): Int {
+    var sampleSize = 1
+    while (sampleSize * 2 * scale <= 1f) {
+        sampleSize *= 2
+    }
+    return sampleSize
+}
@@ -36,7 +36,6 @@ import com.keylesspalace.tusky.util.getMediaSize
 import com.keylesspalace.tusky.util.randomAlphanumericString
 import io.reactivex.Observable
 import io.reactivex.Single
-import io.reactivex.schedulers.Schedulers
 import java.io.File
 import java.io.FileOutputStream
 import java.io.IOException
@@ -45,7 +44,10 @@ import okhttp3.MediaType.Companion.toMediaTypeOrNull
 import okhttp3.MultipartBody
 
 sealed class UploadEvent {
-    data class ProgressEvent(val percentage: Int) : UploadEvent()
+    data class ProgressEvent(
+        val percentage: Int,
+        val stage: UploadStage = UploadStage.UPLOADING
+    ) : UploadEvent()
     data class FinishedEvent(val attachment: Attachment) : UploadEvent()
 }
 
@@ -85,7 +87,8 @@ class CouldNotOpenFileException : Exception()
 
 class MediaUploaderImpl(
     private val context: Context,
-    private val mastodonApi: MastodonApi
+    private val mastodonApi: MastodonApi,
+    private val uploadScheduler: UploadScheduler
 ) : MediaUploader {
 
     override fun uploadMedia(
@@ -93,16 +96,17 @@ class MediaUploaderImpl(
         videoLimit: Long,
         imageLimit: Long
     ): Observable<UploadEvent> {
-        return Observable
-            .fromCallable {
-                if (shouldResizeMedia(media, imageLimit)) {
-                    downsize(media, imageLimit)
+        return uploadScheduler.schedule(
+            media,
+            prepare = {
+                if (shouldResizeMedia(it, imageLimit)) {
+                    downsize(it, imageLimit)
                 } else {
-                    media
+                    it
                 }
-            }
-            .switchMap { upload(it) }
-            .subscribeOn(Schedulers.io())
+            },
+            upload = { upload(it) }
+        )
     }
 
     private fun getMimeTypeAndSuffixFromFilenameOrUri(
@@ -195,6 +199,7 @@ class MediaUploaderImpl(
     }
 
     private val contentResolver = context.contentResolver
+    private val downsizer = ImageDownsizer(STATUS_IMAGE_PIXEL_SIZE_LIMIT)
 
     private fun upload(media: QueuedMedia): Observable<UploadEvent> {
         return Observable.create { emitter ->
@@ -253,7 +258,11 @@ class MediaUploaderImpl(
 
     private fun downsize(media: QueuedMedia, imageLimit: Long): QueuedMedia {
         val file = createNewImageFile(context, media.originalFileName)
-        DownsizeImageTask.resize(arrayOf(media.uri), imageLimit, context.contentResolver, file)
+        if (!downsizer.downsize(contentResolver, media.uri, imageLimit, file)) {
+            Log.w(TAG, "Could not downsize ${media.uri}, uploading it as it is")
+            file.delete()
+            return media
+        }
         return media.copy(uri = file.toUri(), mediaSize = file.length())
     }
 
@@ -285,7 +294,7 @@ class MediaUploaderImpl(
 
     private companion object {
         private const val TAG = "MediaUploaderImpl"
-        private const val STATUS_IMAGE_PIXEL_SIZE_LIMIT = 16777216 // 4096^2 Pixels
+        private const val STATUS_IMAGE_PIXEL_SIZE_LIMIT = 16777216L // 4096^2 Pixels
     }
 }
 
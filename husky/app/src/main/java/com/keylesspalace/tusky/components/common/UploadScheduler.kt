@@ -0,0 +1,98 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.components.common
+
+import android.app.ActivityManager
+import android.content.Context
+import androidx.core.app.ActivityManagerCompat
+import androidx.core.content.getSystemService
+import com.keylesspalace.tusky.components.compose.ComposeActivity.QueuedMedia
+import com.keylesspalace.tusky.util.ConcurrencyLimit
+import io.reactivex.Observable
+import io.reactivex.Scheduler
+import io.reactivex.schedulers.Schedulers
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+
+enum class UploadStage {
+    PREPARING,
+    UPLOADING
+}
+
+/**
+ * Runs the uploads of all compose screens as two stages, preparing (decoding and downsizing) and
+ * uploading, each with its own limit on how many attachments go through it at once. Preparing
+ * needs the memory of a decoded image, so fewer attachments are prepared at once than are sent.
+ *
+ * Uploads that fail on the network are retried with the media that was already prepared.
+ */
+class UploadScheduler(
+    prepareConcurrency: Int,
+    uploadConcurrency: Int,
+    private val scheduler: Scheduler = Schedulers.io()
+) {
+
+    private val preparing = ConcurrencyLimit(prepareConcurrency)
+    private val uploading = ConcurrencyLimit(uploadConcurrency)
+
+    fun schedule(
+        media: QueuedMedia,
+        prepare: (QueuedMedia) -> QueuedMedia,
+        upload: (QueuedMedia) -> Observable<UploadEvent>
+    ): Observable<UploadEvent> {
+        val prepared = preparing.limit(
+            Observable.fromCallable { prepare(media) }.subscribeOn(scheduler)
+        )
+        return prepared
+            .concatMap { ready ->
+                uploading.limit(upload(ready).subscribeOn(scheduler))
+                    .retryWhen { errors ->
+                        errors.zipWith(1..UPLOAD_ATTEMPTS) { error, attempt -> error to attempt }
+                            .flatMap { (error, attempt) ->
+                                if (error !is IOException || attempt == UPLOAD_ATTEMPTS) {
+                                    Observable.error(error)
+                                } else {
+                                    Observable.timer(
+                                        RETRY_DELAY_SECONDS shl (attempt - 1),
+                                        TimeUnit.SECONDS,
+                                        scheduler
+                                    )
+                                }
+                            }
+                    }
+            }
+            .startWith(UploadEvent.ProgressEvent(0, UploadStage.PREPARING))
+    }
+
+    companion object {
+        private const val UPLOAD_ATTEMPTS = 3
+        private const val RETRY_DELAY_SECONDS = 2L
+
+        /**
+         * Prepares one attachment at a time on low RAM devices, two otherwise.
+         */
+        fun forDevice(context: Context): UploadScheduler {
+            val activityManager = context.getSystemService<ActivityManager>()
+            val lowRam = activityManager == null ||
+                ActivityManagerCompat.isLowRamDevice(activityManager)
+            return UploadScheduler(if (lowRam) 1 else 2, 3)
+        }
+    }
+}
@@ -414,6 +414,9 @@ class ComposeActivity :
         activeAccount: AccountEntity
     ) {
         withLifecycleContext {
+            viewModel.autocompleteUpdates.observe { token ->
+                (binding.composeEditField.adapter as? ComposeAutoCompleteAdapter)?.refresh(token)
+            }
             viewModel.instanceParams.observe { instanceData ->
                 maximumTootCharacters = instanceData.maxChars
                 updateVisibleCharactersLeft()
@@ -473,9 +476,8 @@ class ComposeActivity :
                 }
             }
 
-            viewModel.emoji.observe { emojis ->
-                val emojiListIsEmpty = emojis.isNullOrEmpty()
-                enableButton(binding.composeEmojiButton, !emojiListIsEmpty, !emojiListIsEmpty)
+            viewModel.hasEmojis.observe { hasEmojis ->
+                enableButton(binding.composeEmojiButton, hasEmojis, hasEmojis)
             }
 
             combineLiveData(
@@ -998,14 +1000,14 @@ class ComposeActivity :
     }
 
     private fun showEmojis() {
-        if (viewModel.emoji.value.isNullOrEmpty()) {
+        if (viewModel.hasEmojis.value != true) {
             val errorMessage = getString(
                 R.string.error_no_custom_emojis, accountManager.value.activeAccount!!.domain
             )
             Toast.makeText(this, errorMessage, Toast.LENGTH_SHORT).show()
         } else {
             EmojiDialogFragment.newInstance(
-                viewModel.emoji.value ?: emptyList(), onEmojiClick = { isCustomEmoji, shortcode ->
+                null, onEmojiClick = { isCustomEmoji, shortcode ->
                     if (isCustomEmoji) {
                         replaceTextAtCaret(":$shortcode: ")
                     } else {
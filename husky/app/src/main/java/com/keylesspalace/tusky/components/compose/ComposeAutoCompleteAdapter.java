@@ -53,6 +53,8 @@ public class ComposeAutoCompleteAdapter extends BaseAdapter
 
     private final ArrayList<AutocompleteResult> resultList;
     private final AutocompletionProvider autocompletionProvider;
+    private Filter filter;
+    private volatile String lastConstraint;
 
     public ComposeAutoCompleteAdapter(AutocompletionProvider autocompletionProvider) {
         super();
@@ -75,9 +77,26 @@ public class ComposeAutoCompleteAdapter extends BaseAdapter
         return position;
     }
 
+    /**
+     * Searches again if the suggestions are still those of {@code token}, when the provider has
+     * more results for it than it returned.
+     */
+    public void refresh(String token) {
+        if (token.equals(lastConstraint)) {
+            getFilter().filter(token);
+        }
+    }
+
     @Override
     @NonNull
     public Filter getFilter() {
+        if (filter == null) {
+            filter = createFilter();
+        }
+        return filter;
+    }
+
+    private Filter createFilter() {
         return new Filter() {
             @Override
             public CharSequence convertResultToString(Object resultValue) {
@@ -96,6 +115,7 @@ public class ComposeAutoCompleteAdapter extends BaseAdapter
             @Override
             protected FilterResults performFiltering(CharSequence constraint) {
                 FilterResults filterResults = new FilterResults();
+                lastConstraint = constraint == null ? null : constraint.toString();
                 if (constraint != null) {
                     List<AutocompleteResult> results =
                             autocompletionProvider.search(constraint.toString());
@@ -0,0 +1,211 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.components.compose
+
+import com.keylesspalace.tusky.components.compose.ComposeAutoCompleteAdapter.AccountResult
+import com.keylesspalace.tusky.components.compose.ComposeAutoCompleteAdapter.AutocompleteResult
+import com.keylesspalace.tusky.components.compose.ComposeAutoCompleteAdapter.HashtagResult
+import com.keylesspalace.tusky.components.search.SearchType
+import com.keylesspalace.tusky.db.AccountManager
+import com.keylesspalace.tusky.db.TimelineDao
+import com.keylesspalace.tusky.entity.Account
+import com.keylesspalace.tusky.entity.HashTag
+import com.keylesspalace.tusky.network.MastodonApi
+import com.keylesspalace.tusky.repository.toAccount
+import io.reactivex.Maybe
+import io.reactivex.Observable
+import io.reactivex.Scheduler
+import io.reactivex.disposables.Disposable
+import io.reactivex.schedulers.Schedulers
+import io.reactivex.subjects.PublishSubject
+import timber.log.Timber
+import java.util.concurrent.TimeUnit
+
+/**
+ * Account and hashtag suggestions for the compose and chat screens.
+ *
+ * [search] answers right away, it's called on the autocompletion filter thread. Accounts come
+ * from the cached timelines first, then from earlier server results. Server searches are
+ * debounced and run one at a time: a newer token cancels the request of an older one. When
+ * results of the current token come back, they are cached and [refreshes] emits the token so
+ * the suggestions can be filtered again.
+ *
+ * Cached server results that weren't cut off by the limit also answer longer tokens, so typing
+ * "@al", "@ali", "@alic" only searches once. Tokens with a domain aren't answered that way, the
+ * server resolves them.
+ */
+class ComposeAutocompleteSearch(
+    private val api: MastodonApi,
+    private val accountManager: AccountManager,
+    private val timelineDao: TimelineDao,
+    scheduler: Scheduler = Schedulers.computation()
+) {
+
+    private class CachedResults(
+        val accounts: List<Account>,
+        val hashtags: List<HashTag>,
+        val complete: Boolean,
+        val time: Long
+    )
+
+    // Server results by token, least recently used first
+    private val cache = object : LinkedHashMap<String, CachedResults>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, CachedResults>) =
+            size > CACHE_SIZE
+    }
+
+    private val queries = PublishSubject.create<String>()
+    private val refreshSubject = PublishSubject.create<String>()
+    private val disposable: Disposable
+
+    @Volatile
+    private var currentToken: String? = null
+
+    /**
+     * Tokens whose server results came back while they were still being typed.
+     */
+    val refreshes: Observable<String> = refreshSubject
+
+    init {
+        disposable = queries
+            .debounce(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, scheduler)
+            .switchMapMaybe { token ->
+                // An empty token only cancels the pending search
+                if (token.isEmpty()) Maybe.empty() else fetch(token)
+            }
+            .subscribe { token ->
+                if (token == currentToken) {
+                    refreshSubject.onNext(token)
+                }
+            }
+    }
+
+    fun search(token: String): List<AutocompleteResult> {
+        currentToken = token
+        val cached = cachedResults(token)
+        queries.onNext(if (cached == null) token else "")
+        return when (token[0]) {
+            '@' -> {
+                val acct = token.substring(1)
+                val accounts = LinkedHashMap<String, Account>()
+                localAccounts(acct).forEach { accounts[it.id] = it }
+                cached?.accounts?.forEach { account ->
+                    if (accounts.size < LIMIT && account.id !in accounts &&
+                        account.username.startsWith(acct, true)
+                    ) {
+                        accounts[account.id] = account
+                    }
+                }
+                accounts.values.map { AccountResult(it) }
+            }
+            '#' -> {
+                val tag = token.substring(1)
+                cached?.hashtags.orEmpty()
+                    .filter { it.name.startsWith(tag, ignoreCase = true) }
+                    .map { HashtagResult(it) }
+            }
+            else -> emptyList()
+        }
+    }
+
+    fun dispose() {
+        disposable.dispose()
+    }
+
+    private fun localAccounts(acct: String): List<Account> {
+        val accountId = accountManager.activeAccount?.id ?: return emptyList()
+        if (acct.isEmpty()) {
+            return emptyList()
+        }
+        return try {
+            timelineDao.searchAccounts(accountId, escapeLike(acct), LIMIT).map { it.toAccount() }
+        } catch (e: Exception) {
+            Timber.w(e, "Failed to search cached accounts for $acct")
+            emptyList()
+        }
+    }
+
+    private fun cachedResults(token: String): CachedResults? {
+        val now = System.currentTimeMillis()
+        synchronized(cache) {
+            cache[token]?.let { cached ->
+                if (now - cached.time < CACHE_TIME_MILLIS) {
+                    return cached
+                }
+            }
+            if (token.indexOf('@', 1) != -1) {
+                return null
+            }
+            for (end in token.length - 1 downTo 2) {
+                val cached = cache[token.substring(0, end)] ?: continue
+                if (cached.complete && now - cached.time < CACHE_TIME_MILLIS) {
+                    return cached
+                }
+            }
+            return null
+        }
+    }
+
+    private fun fetch(token: String): Maybe<String> {
+        val results = if (token[0] == '@') {
+            api.searchAccounts(query = token.substring(1), resolve = true, limit = LIMIT)
+                .map { accounts ->
+                    val acct = token.substring(1)
+                    val matching = accounts.filter { it.username.startsWith(acct, true) }
+                    CachedResults(
+                        matching,
+                        emptyList(),
+                        accounts.size < LIMIT,
+                        System.currentTimeMillis()
+                    )
+                }
+        } else {
+            api.searchObservable(
+                query = token,
+                type = SearchType.Hashtag.apiParameter,
+                limit = LIMIT
+            ).map { result ->
+                CachedResults(
+                    emptyList(),
+                    result.hashtags,
+                    result.hashtags.size < LIMIT,
+                    System.currentTimeMillis()
+                )
+            }
+        }
+        return results
+            .doOnSuccess { synchronized(cache) { cache[token] = it } }
+            .map { token }
+            .toMaybe()
+            .doOnError { Timber.w(it, "Autocomplete search for $token failed") }
+            .onErrorComplete()
+    }
+
+    private fun escapeLike(text: String): String {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_")
+    }
+
+    private companion object {
+        const val LIMIT = 10
+        const val CACHE_SIZE = 32
+        const val CACHE_TIME_MILLIS = 60_000L
+        const val DEBOUNCE_MILLIS = 300L
+    }
+}
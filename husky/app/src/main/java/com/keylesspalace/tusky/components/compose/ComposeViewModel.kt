@@ -52,8 +52,9 @@ class ComposeViewModel(
     private val serviceClient: ServiceClient,
     private val draftHelper: DraftHelper,
     private val saveTootHelper: SaveTootHelper,
-    instanceRepository: InstanceRepository
-) : CommonComposeViewModel(api, mediaUploader, instanceRepository) {
+    instanceRepository: InstanceRepository,
+    autocompleteSearch: ComposeAutocompleteSearch
+) : CommonComposeViewModel(api, mediaUploader, instanceRepository, autocompleteSearch) {
 
     private var replyingStatusAuthor: String? = null
     private var replyingStatusContent: String? = null
@@ -7,18 +7,21 @@ import androidx.lifecycle.switchMap
 import androidx.paging.Config
 import androidx.paging.toLiveData
 import com.keylesspalace.tusky.db.AppDatabase
+import com.keylesspalace.tusky.db.DatabaseWriter
 import com.keylesspalace.tusky.entity.Conversation
 import com.keylesspalace.tusky.network.MastodonApi
 import com.keylesspalace.tusky.util.Listing
 import com.keylesspalace.tusky.util.NetworkState
-import io.reactivex.Single
-import io.reactivex.schedulers.Schedulers
 import retrofit2.Call
 import retrofit2.Callback
 import retrofit2.Response
 import java.util.concurrent.Executors
 
-class ConversationsRepository(private val mastodonApi: MastodonApi, private val db: AppDatabase) {
+class ConversationsRepository(
+    private val mastodonApi: MastodonApi,
+    private val db: AppDatabase,
+    private val writer: DatabaseWriter
+) {
 
     private val ioExecutor = Executors.newSingleThreadExecutor()
 
@@ -44,11 +47,9 @@ class ConversationsRepository(private val mastodonApi: MastodonApi, private val
                     call: Call<List<Conversation>>,
                     response: Response<List<Conversation>>
                 ) {
-                    ioExecutor.execute {
-                        db.runInTransaction {
-                            db.conversationDao().deleteForAccount(accountId)
-                            insertResultIntoDb(accountId, response.body())
-                        }
+                    writer.execute {
+                        db.conversationDao().deleteForAccount(accountId)
+                        insertResultIntoDb(accountId, response.body())
                         // since we are in bg thread now, post the result.
                         networkState.postValue(NetworkState.LOADED)
                     }
@@ -65,7 +66,10 @@ class ConversationsRepository(private val mastodonApi: MastodonApi, private val
         val boundaryCallback = ConversationsBoundaryCallback(
             accountId = accountId,
             mastodonApi = mastodonApi,
-            handleResponse = this::insertResultIntoDb,
+            // Waits for the write, the next page is only asked for once this one is cached
+            handleResponse = { accountId, result ->
+                writer.complete { insertResultIntoDb(accountId, result) }.blockingAwait()
+            },
             ioExecutor = ioExecutor,
             networkPageSize = DEFAULT_PAGE_SIZE
         )
@@ -101,10 +105,7 @@ class ConversationsRepository(private val mastodonApi: MastodonApi, private val
     }
 
     fun deleteCacheForAccount(accountId: Long) {
-        Single.fromCallable {
-            db.conversationDao().deleteForAccount(accountId)
-        }.subscribeOn(Schedulers.io())
-            .subscribe()
+        writer.execute { db.conversationDao().deleteForAccount(accountId) }
     }
 
     private fun insertResultIntoDb(accountId: Long, result: List<Conversation>?) {
@@ -6,6 +6,7 @@ import androidx.lifecycle.switchMap
 import androidx.paging.PagedList
 import com.keylesspalace.tusky.db.AccountManager
 import com.keylesspalace.tusky.db.AppDatabase
+import com.keylesspalace.tusky.db.DatabaseWriter
 import com.keylesspalace.tusky.network.TimelineCases
 import com.keylesspalace.tusky.util.Listing
 import com.keylesspalace.tusky.util.NetworkState
@@ -17,7 +18,8 @@ class ConversationsViewModel(
     private val repository: ConversationsRepository,
     private val timelineCases: TimelineCases,
     private val database: AppDatabase,
-    private val accountManager: AccountManager
+    private val accountManager: AccountManager,
+    private val writer: DatabaseWriter
 ) : RxAwareViewModel() {
 
     private val repoResult = MutableLiveData<Listing<ConversationEntity>>()
@@ -45,16 +47,16 @@ class ConversationsViewModel(
     fun favourite(favourite: Boolean, position: Int) {
         conversations.value?.getOrNull(position)?.let { conversation ->
             timelineCases.favourite(conversation.lastStatus.toStatus(), favourite)
-                .flatMap {
+                .flatMapCompletable {
                     val newConversation = conversation.copy(
                         lastStatus = conversation.lastStatus.copy(favourited = favourite)
                     )
 
-                    database.conversationDao().insert(newConversation)
+                    writer.complete { database.conversationDao().insert(newConversation) }
                 }
                 .subscribeOn(Schedulers.io())
                 .doOnError { t -> Timber.w("Failed to favourite conversation: ${t.message}") }
-                .onErrorReturnItem(0)
+                .onErrorComplete()
                 .subscribe()
                 .autoDispose()
         }
@@ -63,16 +65,16 @@ class ConversationsViewModel(
     fun bookmark(bookmark: Boolean, position: Int) {
         conversations.value?.getOrNull(position)?.let { conversation ->
             timelineCases.bookmark(conversation.lastStatus.toStatus(), bookmark)
-                .flatMap {
+                .flatMapCompletable {
                     val newConversation = conversation.copy(
                         lastStatus = conversation.lastStatus.copy(bookmarked = bookmark)
                     )
 
-                    database.conversationDao().insert(newConversation)
+                    writer.complete { database.conversationDao().insert(newConversation) }
                 }
                 .subscribeOn(Schedulers.io())
                 .doOnError { t -> Timber.w("Failed to bookmark conversation: ${t.message}") }
-                .onErrorReturnItem(0)
+                .onErrorComplete()
                 .subscribe()
                 .autoDispose()
         }
@@ -81,16 +83,16 @@ class ConversationsViewModel(
     fun voteInPoll(position: Int, choices: MutableList<Int>) {
         conversations.value?.getOrNull(position)?.let { conversation ->
             timelineCases.voteInPoll(conversation.lastStatus.toStatus(), choices)
-                .flatMap { poll ->
+                .flatMapCompletable { poll ->
                     val newConversation = conversation.copy(
                         lastStatus = conversation.lastStatus.copy(poll = poll)
                     )
 
-                    database.conversationDao().insert(newConversation)
+                    writer.complete { database.conversationDao().insert(newConversation) }
                 }
                 .subscribeOn(Schedulers.io())
                 .doOnError { t -> Timber.w("Failed to favourite conversation: ${t.message}") }
-                .onErrorReturnItem(0)
+                .onErrorComplete()
                 .subscribe()
                 .autoDispose()
         }
@@ -130,8 +132,6 @@ class ConversationsViewModel(
     }
 
     private fun saveConversationToDb(conversation: ConversationEntity) {
-        database.conversationDao().insert(conversation)
-            .subscribeOn(Schedulers.io())
-            .subscribe()
+        writer.execute { database.conversationDao().insert(conversation) }
     }
 }
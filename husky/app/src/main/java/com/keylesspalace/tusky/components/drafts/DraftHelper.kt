@@ -23,6 +23,7 @@ import androidx.core.content.FileProvider
 import androidx.core.net.toUri
 import com.keylesspalace.tusky.BuildConfig
 import com.keylesspalace.tusky.db.AppDatabase
+import com.keylesspalace.tusky.db.DatabaseWriter
 import com.keylesspalace.tusky.db.DraftAttachment
 import com.keylesspalace.tusky.db.DraftEntity
 import com.keylesspalace.tusky.entity.NewPoll
@@ -36,7 +37,11 @@ import java.text.SimpleDateFormat
 import java.util.Date
 import java.util.Locale
 
-class DraftHelper(private val context: Context, private val db: AppDatabase) {
+class DraftHelper(
+    private val context: Context,
+    private val db: AppDatabase,
+    private val writer: DatabaseWriter
+) {
 
     private val draftDao = db.draftDao()
 
@@ -109,18 +114,18 @@ class DraftHelper(private val context: Context, private val db: AppDatabase) {
                 quoteId = quoteId
             )
         }.flatMapCompletable { draft ->
-            draftDao.insertOrReplace(draft)
+            writer.complete { draftDao.insertOrReplace(draft) }
         }.subscribeOn(Schedulers.io())
     }
 
     fun deleteDraftAndAttachments(draftId: Int): Completable {
         return draftDao.find(draftId).flatMapCompletable { draft ->
             deleteDraftAndAttachments(draft)
-        }
+        }.subscribeOn(Schedulers.io())
     }
 
     fun deleteDraftAndAttachments(draft: DraftEntity): Completable {
-        return deleteAttachments(draft).andThen(draftDao.delete(draft.id))
+        return deleteAttachments(draft).andThen(writer.complete { draftDao.delete(draft.id) })
     }
 
     fun deleteAttachments(draft: DraftEntity): Completable {
@@ -19,6 +19,7 @@ import androidx.lifecycle.ViewModel
 import androidx.paging.toLiveData
 import com.keylesspalace.tusky.db.AccountManager
 import com.keylesspalace.tusky.db.AppDatabase
+import com.keylesspalace.tusky.db.DatabaseWriter
 import com.keylesspalace.tusky.db.DraftEntity
 import com.keylesspalace.tusky.entity.Status
 import com.keylesspalace.tusky.network.MastodonApi
@@ -29,7 +30,8 @@ class DraftsViewModel(
     private val database: AppDatabase,
     private val accountManager: AccountManager,
     private val api: MastodonApi,
-    private val draftHelper: DraftHelper
+    private val draftHelper: DraftHelper,
+    private val writer: DatabaseWriter
 ) : ViewModel() {
 
     val drafts =
@@ -45,14 +47,12 @@ class DraftsViewModel(
     fun deleteDraft(draft: DraftEntity) {
         // this does not immediately delete media files to avoid unnecessary file operations
         // in case the user decides to restore the draft
-        database.draftDao().delete(draft.id)
-            .subscribe()
+        writer.execute { database.draftDao().delete(draft.id) }
         deletedDrafts.add(draft)
     }
 
     fun restoreDraft(draft: DraftEntity) {
-        database.draftDao().insertOrReplace(draft)
-            .subscribe()
+        writer.execute { database.draftDao().insertOrReplace(draft) }
         deletedDrafts.remove(draft)
     }
 
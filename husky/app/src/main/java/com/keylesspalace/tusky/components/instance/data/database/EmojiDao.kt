@@ -0,0 +1,73 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.components.instance.data.database
+
+import androidx.lifecycle.LiveData
+import androidx.paging.DataSource
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+import com.keylesspalace.tusky.components.instance.data.models.entity.EmojiCatalogueEntity
+import com.keylesspalace.tusky.components.instance.data.models.entity.EmojiEntity
+
+@Dao
+abstract class EmojiDao {
+
+    @Query("SELECT * FROM EmojiCatalogueEntity WHERE instance = :instance")
+    abstract fun getCatalogue(instance: String): EmojiCatalogueEntity?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract fun insertCatalogue(catalogue: EmojiCatalogueEntity)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract fun insertEmojis(emojis: List<EmojiEntity>)
+
+    @Query("DELETE FROM EmojiEntity WHERE instance = :instance AND syncedAt != :syncedAt")
+    abstract fun deleteEmojisNotSyncedAt(instance: String, syncedAt: Long)
+
+    /**
+     * Ends storing a new list, whose emojis were all inserted with [syncedAt].
+     */
+    @Transaction
+    open fun finishCatalogue(catalogue: EmojiCatalogueEntity) {
+        deleteEmojisNotSyncedAt(catalogue.instance, catalogue.syncedAt)
+        insertCatalogue(catalogue)
+    }
+
+    @Query("SELECT EXISTS(SELECT 1 FROM EmojiEntity WHERE instance = :instance)")
+    abstract fun hasEmojis(instance: String): LiveData<Boolean>
+
+    @Query(
+        "SELECT * FROM EmojiEntity WHERE instance = :instance AND visibleInPicker = 1 " +
+            "ORDER BY sortKey"
+    )
+    abstract fun getPickerEmojiPages(instance: String): DataSource.Factory<Int, EmojiEntity>
+
+    @Query(
+        "SELECT * FROM EmojiEntity WHERE instance = :instance AND visibleInPicker = 1 " +
+            "ORDER BY sortKey"
+    )
+    abstract fun getPickerEmojis(instance: String): List<EmojiEntity>
+
+    @Query("SELECT * FROM EmojiEntity WHERE instance = :instance")
+    abstract fun getEmojis(instance: String): List<EmojiEntity>
+}
@@ -0,0 +1,40 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.components.instance.data.models.entity
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * The HTTP validators of the custom emoji list that was last stored for an instance. A list
+ * that comes back with the same validators, or revalidated by the HTTP cache, isn't stored
+ * again.
+ *
+ * @param syncedAt when the list was stored, lists without validators are only fetched again
+ * once in a while
+ */
+@Entity
+data class EmojiCatalogueEntity(
+    @field:PrimaryKey
+    val instance: String,
+    val etag: String?,
+    val lastModified: String?,
+    val syncedAt: Long
+)
@@ -0,0 +1,87 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.components.instance.data.models.entity
+
+import androidx.room.Entity
+import androidx.room.Index
+import com.keylesspalace.tusky.entity.Emoji
+import java.util.Locale
+
+/**
+ * A custom emoji of an instance, one row per emoji instead of a list blob in [InstanceEntity],
+ * so pickers and autocompletion can load the few they show.
+ *
+ * @param sortKey the shortcode in lower case, emojis are listed and searched by it
+ * @param syncedAt when the emoji was last part of the catalogue the instance sent, rows that
+ * weren't part of the last one are removed
+ */
+@Entity(
+    primaryKeys = ["instance", "shortcode"],
+    indices = [Index("instance", "sortKey")]
+)
+data class EmojiEntity(
+    val instance: String,
+    val shortcode: String,
+    val sortKey: String,
+    val url: String,
+    val staticUrl: String,
+    val category: String,
+    val visibleInPicker: Boolean,
+    val syncedAt: Long
+) {
+
+    fun toEmoji(): Emoji {
+        return Emoji(
+            category = category,
+            shortcode = shortcode,
+            url = url,
+            staticUrl = staticUrl,
+            visibleInPicker = visibleInPicker
+        )
+    }
+
+    companion object {
+
+        fun sortKeyOf(shortcode: String): String = shortcode.lowercase(Locale.ROOT)
+    }
+}
+
+/**
+ * Fields of the API entity can be missing, whatever its types say.
+ */
+fun Emoji.toEntity(instance: String, syncedAt: Long): EmojiEntity? {
+    val code: String? = shortcode
+    val imageUrl: String? = url
+    if (code.isNullOrEmpty() || imageUrl.isNullOrEmpty()) {
+        return null
+    }
+    val staticImageUrl: String? = staticUrl
+    val categoryName: String? = category
+    return EmojiEntity(
+        instance = instance,
+        shortcode = code,
+        sortKey = EmojiEntity.sortKeyOf(code),
+        url = imageUrl,
+        staticUrl = if (staticImageUrl.isNullOrEmpty()) imageUrl else staticImageUrl,
+        category = categoryName ?: "",
+        visibleInPicker = visibleInPicker ?: true,
+        syncedAt = syncedAt
+    )
+}
@@ -21,7 +21,6 @@ import androidx.room.TypeConverters
 import com.keylesspalace.tusky.components.instance.data.models.data.InstanceInfo
 import com.keylesspalace.tusky.core.utils.InstanceConstants
 import com.keylesspalace.tusky.db.Converters
-import com.keylesspalace.tusky.entity.Emoji
 import com.keylesspalace.tusky.util.PostFormat
 import com.keylesspalace.tusky.util.PostFormat.PLAIN
 
@@ -30,7 +29,6 @@ import com.keylesspalace.tusky.util.PostFormat.PLAIN
 data class InstanceEntity(
     @field:PrimaryKey
     var instance: String,
-    val emojiList: List<Emoji>?,
     val maximumTootCharacters: Int?,
     val maxPollOptions: Int?,
     val maxPollOptionLength: Int?,
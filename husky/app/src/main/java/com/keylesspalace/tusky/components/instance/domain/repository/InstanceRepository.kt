@@ -19,9 +19,13 @@
 
 package com.keylesspalace.tusky.components.instance.domain.repository
 
+import androidx.lifecycle.LiveData
+import androidx.paging.PagedList
 import com.keylesspalace.tusky.components.instance.data.models.entity.InstanceEntity
 import com.keylesspalace.tusky.core.functional.Either
 import com.keylesspalace.tusky.entity.Emoji
+import com.keylesspalace.tusky.util.EmojiSearchIndex
+import io.reactivex.Completable
 import io.reactivex.Single
 import kotlinx.coroutines.flow.Flow
 
@@ -30,5 +34,28 @@ interface InstanceRepository {
     suspend fun getInstanceInfo(): Flow<Either<Nothing, InstanceEntity>>
     fun getInstanceInfoRx(): Single<InstanceEntity>
     fun getInstanceInfoDb(): InstanceEntity
-    fun getEmojis(): List<Emoji>
+
+    /**
+     * Brings the stored custom emojis of the active account's instance up to date, at most
+     * every few minutes. The other emoji methods only read what is stored.
+     */
+    fun refreshEmojis(): Completable
+
+    /**
+     * The custom emojis that are shown in pickers, sorted by shortcode. Blocking.
+     */
+    fun getPickerEmojis(): List<Emoji>
+
+    /**
+     * The custom emojis that are shown in pickers, loaded page by page as they are scrolled to.
+     */
+    fun getPickerEmojiPages(): LiveData<PagedList<Emoji>>
+
+    fun hasEmojis(): LiveData<Boolean>
+
+    /**
+     * Custom emojis whose shortcode starts with or contains [query], ignoring case, at most
+     * [limit] of each. Blocking, the first search after the emojis changed builds the index.
+     */
+    fun searchEmojis(query: String, limit: Int): EmojiSearchIndex.Matches
 }
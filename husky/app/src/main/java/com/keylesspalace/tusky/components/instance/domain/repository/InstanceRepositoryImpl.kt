@@ -19,30 +19,60 @@
 
 package com.keylesspalace.tusky.components.instance.domain.repository
 
+import androidx.lifecycle.LiveData
+import androidx.lifecycle.MutableLiveData
+import androidx.paging.PagedList
+import androidx.paging.toLiveData
+import com.google.gson.Gson
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
 import com.keylesspalace.tusky.components.instance.data.models.InstanceFeatures
 import com.keylesspalace.tusky.components.instance.data.models.InstanceFeatures.QUOTE_POSTING
 import com.keylesspalace.tusky.components.instance.data.models.data.Instance
+import com.keylesspalace.tusky.components.instance.data.models.entity.EmojiCatalogueEntity
 import com.keylesspalace.tusky.components.instance.data.models.entity.InstanceEntity
+import com.keylesspalace.tusky.components.instance.data.models.entity.toEntity
 import com.keylesspalace.tusky.core.functional.Either
 import com.keylesspalace.tusky.core.utils.InstanceConstants
 import com.keylesspalace.tusky.db.AccountManager
 import com.keylesspalace.tusky.db.AppDatabase
+import com.keylesspalace.tusky.db.DatabaseWriter
 import com.keylesspalace.tusky.entity.Emoji
 import com.keylesspalace.tusky.network.MastodonService
+import com.keylesspalace.tusky.util.EmojiSearchIndex
 import com.keylesspalace.tusky.util.PostFormat
+import io.reactivex.Completable
 import io.reactivex.Single
+import io.reactivex.schedulers.Schedulers
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
 import timber.log.Timber
+import java.util.concurrent.ConcurrentHashMap
 
 internal class InstanceRepositoryImpl(
     private val accountManager: AccountManager,
     private val service: MastodonService,
-    private val db: AppDatabase
+    private val db: AppDatabase,
+    private val gson: Gson,
+    private val writer: DatabaseWriter
 ) : InstanceRepository {
 
     private lateinit var instanceSettings: InstanceEntity
 
+    // When the emoji list of an instance was last synced, guards syncEmojis()
+    private val emojiSyncs = ConcurrentHashMap<String, Long>()
+
+    // The sync of the emoji list of an instance that is running, shared by every refresh that
+    // comes in meanwhile
+    private val emojiSyncsInFlight = HashMap<String, Completable>()
+
+    // Autocompletion index of the emojis of an instance, dropped when they are stored again
+    @Volatile
+    private var emojiSearchIndex: Pair<String, EmojiSearchIndex>? = null
+    private var emojiSearchIndexVersion = 0
+
     override suspend fun getInstanceInfo(): Flow<Either<Nothing, InstanceEntity>> = flow {
         if (::instanceSettings.isInitialized && (instanceSettings.instance == accountManager.activeAccount?.domain)) {
             Timber.d("Instance settings already cached for ${instanceSettings.instance}")
@@ -65,7 +95,7 @@ internal class InstanceRepositoryImpl(
 
             emit(Either.Right(instance))
         }
-    }
+    }.flowOn(Dispatchers.IO)
 
     override fun getInstanceInfoRx(): Single<InstanceEntity> {
         return if (::instanceSettings.isInitialized && (instanceSettings.instance == accountManager.activeAccount?.domain)) {
@@ -91,10 +121,126 @@ internal class InstanceRepositoryImpl(
         return db.instanceDao().loadFromCache(accountManager.activeAccount!!.domain)
     }
 
-    override fun getEmojis(): List<Emoji> {
-        return runCatching {
-            service.getCustomEmojis().blockingGet()
-        }.getOrElse { emptyList() }
+    override fun refreshEmojis(): Completable {
+        return Completable.defer {
+            val instance = accountManager.activeAccount?.domain
+                ?: return@defer Completable.complete()
+            synchronized(emojiSyncsInFlight) {
+                emojiSyncsInFlight.getOrPut(instance) {
+                    Completable.fromAction { syncEmojis(instance) }
+                        .subscribeOn(Schedulers.io())
+                        .doFinally {
+                            synchronized(emojiSyncsInFlight) { emojiSyncsInFlight.remove(instance) }
+                        }
+                        .cache()
+                }
+            }
+        }
+    }
+
+    override fun getPickerEmojis(): List<Emoji> {
+        val instance = accountManager.activeAccount?.domain ?: return emptyList()
+        return db.emojiDao().getPickerEmojis(instance).map { it.toEmoji() }
+    }
+
+    override fun getPickerEmojiPages(): LiveData<PagedList<Emoji>> {
+        // Without an account, an instance that has no emojis
+        val instance = accountManager.activeAccount?.domain.orEmpty()
+        return db.emojiDao().getPickerEmojiPages(instance)
+            .map { it.toEmoji() }
+            .toLiveData(pageSize = EMOJI_PAGE_SIZE)
+    }
+
+    override fun hasEmojis(): LiveData<Boolean> {
+        val instance = accountManager.activeAccount?.domain ?: return MutableLiveData(false)
+        return db.emojiDao().hasEmojis(instance)
+    }
+
+    override fun searchEmojis(query: String, limit: Int): EmojiSearchIndex.Matches {
+        val instance = accountManager.activeAccount?.domain
+            ?: return EmojiSearchIndex.Matches(emptyList(), emptyList())
+        val cached = emojiSearchIndex
+        val index = if (cached != null && cached.first == instance) {
+            cached.second
+        } else {
+            val version = emojiSearchIndexVersion
+            val emojis = db.emojiDao().getEmojis(instance).map { it.toEmoji() }
+            EmojiSearchIndex(emojis).also {
+                // Unless the emojis were stored again while it was built
+                synchronized(this) {
+                    if (version == emojiSearchIndexVersion) {
+                        emojiSearchIndex = instance to it
+                    }
+                }
+            }
+        }
+        return index.search(query, limit)
+    }
+
+    @Synchronized
+    private fun invalidateEmojiSearchIndex() {
+        emojiSearchIndex = null
+        emojiSearchIndexVersion++
+    }
+
+    /**
+     * Fetches the emoji list through the HTTP cache, which revalidates it with the validators
+     * of the last response. The list is only stored again when it comes back with other
+     * validators, then it's read as a stream and stored in chunks, so it's never all in memory.
+     */
+    private fun syncEmojis(instance: String) {
+        val now = System.currentTimeMillis()
+        val lastSync = emojiSyncs[instance]
+        if (lastSync != null && now - lastSync < EMOJI_REVALIDATION_INTERVAL) {
+            return
+        }
+        val dao = db.emojiDao()
+        val catalogue = dao.getCatalogue(instance)
+        if (catalogue != null && catalogue.etag == null && catalogue.lastModified == null &&
+            now - catalogue.syncedAt < EMOJI_REFETCH_INTERVAL
+        ) {
+            // Can't be revalidated, don't download it every time
+            emojiSyncs[instance] = now
+            return
+        }
+
+        val response = runCatching { service.getCustomEmojiList().execute() }.getOrElse {
+            Timber.w(it, "Failed to fetch the custom emojis of $instance")
+            return
+        }
+        val body = response.body()
+        if (!response.isSuccessful || body == null) {
+            response.errorBody()?.close()
+            Timber.w("Failed to fetch the custom emojis of $instance: ${response.code()}")
+            return
+        }
+
+        body.use {
+            val etag = response.headers()["ETag"]
+            val lastModified = response.headers()["Last-Modified"]
+            val unchanged = catalogue != null && (
+                (etag != null && etag == catalogue.etag) ||
+                    (etag == null && lastModified != null &&
+                        lastModified == catalogue.lastModified)
+                )
+            if (unchanged) {
+                Timber.d("Custom emojis of $instance unchanged")
+            } else {
+                runCatching {
+                    JsonReader(body.charStream()).use { reader ->
+                        readEmojiList(reader, gson.getAdapter(Emoji::class.java)) { emojis ->
+                            dao.insertEmojis(emojis.mapNotNull { it.toEntity(instance, now) })
+                        }
+                    }
+                    dao.finishCatalogue(EmojiCatalogueEntity(instance, etag, lastModified, now))
+                    invalidateEmojiSearchIndex()
+                }.onFailure {
+                    Timber.w(it, "Failed to read the custom emojis of $instance")
+                    return
+                }
+            }
+        }
+        emojiSyncs[instance] = now
     }
 
     private fun parseInstance(instanceRemote: Instance): InstanceEntity {
@@ -108,7 +254,6 @@ internal class InstanceRepositoryImpl(
 
         val instance = InstanceEntity(
             instance = accountManager.activeAccount?.domain!!,
-            emojiList = getEmojis(),
             maximumTootCharacters = instanceRemote.maxTootChars,
             maxPollOptions = instanceRemote.pollLimits?.maxOptions,
             maxPollOptionLength = instanceRemote.pollLimits?.maxOptionChars,
@@ -129,8 +274,40 @@ internal class InstanceRepositoryImpl(
             postFormats = postFormats.map { PostFormat.getFormat(it) }
         )
 
-        db.instanceDao().insertOrReplace(instance)
+        writer.execute { db.instanceDao().insertOrReplace(instance) }
 
         return instance
     }
 }
+
+/**
+ * Reads a JSON array of emojis one by one, passing them on in chunks of [chunkSize].
+ */
+internal fun readEmojiList(
+    reader: JsonReader,
+    adapter: TypeAdapter<Emoji>,
+    chunkSize: Int = EMOJI_CHUNK_SIZE,
+    onChunk: (List<Emoji>) -> Unit
+) {
+    var chunk = ArrayList<Emoji>(chunkSize)
+    reader.beginArray()
+    while (reader.hasNext()) {
+        val emoji: Emoji? = adapter.read(reader)
+        if (emoji != null) {
+            chunk.add(emoji)
+        }
+        if (chunk.size == chunkSize) {
+            onChunk(chunk)
+            chunk = ArrayList(chunkSize)
+        }
+    }
+    reader.endArray()
+    if (chunk.isNotEmpty()) {
+        onChunk(chunk)
+    }
+}
+
+private const val EMOJI_CHUNK_SIZE = 500
+private const val EMOJI_PAGE_SIZE = 60
+private const val EMOJI_REVALIDATION_INTERVAL = 10 * 60 * 1000L
+private const val EMOJI_REFETCH_INTERVAL = 24 * 60 * 60 * 1000L
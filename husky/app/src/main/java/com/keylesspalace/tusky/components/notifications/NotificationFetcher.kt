@@ -3,81 +3,159 @@ package com.keylesspalace.tusky.components.notifications
 import android.util.Log
 import com.keylesspalace.tusky.db.AccountEntity
 import com.keylesspalace.tusky.db.AccountManager
-import com.keylesspalace.tusky.entity.Marker
 import com.keylesspalace.tusky.entity.Notification
 import com.keylesspalace.tusky.network.MastodonApi
+import com.keylesspalace.tusky.repository.NotificationRepository
 import com.keylesspalace.tusky.util.isLessThan
+import io.reactivex.Completable
+import io.reactivex.Observable
+import io.reactivex.Scheduler
+import io.reactivex.Single
+import io.reactivex.schedulers.Schedulers
+import java.util.concurrent.TimeUnit
 
+/**
+ * Fetches the new notifications of every account and shows them. The accounts are fetched a few
+ * at a time, and each one has a deadline, so a slow or unreachable instance doesn't hold up the
+ * others.
+ */
 class NotificationFetcher(
     private val mastodonApi: MastodonApi,
     private val accountManager: AccountManager,
-    private val notifier: Notifier
+    private val notifier: Notifier,
+    private val notificationRepository: NotificationRepository,
+    private val timeoutScheduler: Scheduler = Schedulers.computation()
 ) {
 
+    /**
+     * New notifications of an account and the id it has seen up to.
+     */
+    class FetchedNotifications(
+        val account: AccountEntity,
+        val notifications: List<Notification>,
+        val lastNotificationId: String
+    )
+
     fun fetchAndShow() {
-        for (account in accountManager.getAllAccountsOrderedByActive()) {
-            if (account.notificationsEnabled) {
-                try {
-                    val notifications = fetchNotifications(account)
-                    notifications.forEachIndexed { index, notification ->
-                        notifier.show(notification, account, index == 0)
-                    }
-                    accountManager.saveAccount(account)
-                } catch (e: Exception) {
-                    Log.w(TAG, "Error while fetching notifications", e)
-                }
+        val fetched = fetchAll().blockingGet()
+        fetched.forEach(::show)
+        accountManager.saveAccounts(fetched.map { it.account })
+    }
+
+    /**
+     * Fetches and shows what one account missed, like while its stream was disconnected.
+     */
+    fun fetchAndShow(account: AccountEntity): Completable {
+        return fetch(account)
+            .doOnSuccess { result ->
+                show(result)
+                accountManager.saveAccount(account)
             }
+            .ignoreElement()
+    }
+
+    private fun show(result: FetchedNotifications) {
+        val account = result.account
+        // A stream may have seen newer ones in the meantime
+        if (account.lastNotificationId.isLessThan(result.lastNotificationId)) {
+            account.lastNotificationId = result.lastNotificationId
+        }
+        result.notifications.forEachIndexed { index, notification ->
+            notifier.show(notification, account, index == 0)
         }
     }
 
-    private fun fetchNotifications(account: AccountEntity): MutableList<Notification> {
+    /**
+     * Fetches the accounts with notifications enabled, in the order of
+     * [AccountManager.getAllAccountsOrderedByActive]. Accounts that failed or ran out of time are
+     * left out.
+     */
+    fun fetchAll(): Single<List<FetchedNotifications>> {
+        val accounts = accountManager.getAllAccountsOrderedByActive()
+            .filter { it.notificationsEnabled }
+        return Observable.fromIterable(accounts)
+            .concatMapEager(
+                { account ->
+                    fetch(account)
+                        .toMaybe()
+                        .doOnError { e -> Log.w(TAG, "Error while fetching notifications", e) }
+                        .onErrorComplete()
+                        .toObservable()
+                },
+                MAX_CONCURRENT_ACCOUNTS,
+                1
+            )
+            .toList()
+    }
+
+    private fun fetch(account: AccountEntity): Single<FetchedNotifications> {
         val authHeader = String.format("Bearer %s", account.accessToken)
-        // We fetch marker to not load/show notifications which user has already seen
-        val marker = fetchMarker(authHeader, account)
-        if (marker != null && account.lastNotificationId.isLessThan(marker.lastReadId)) {
-            account.lastNotificationId = marker.lastReadId
-        }
         Log.d(TAG, "getting Notifications for " + account.fullName)
+        // The marker and the notifications are requested together, notifications the marker
+        // says were already read are dropped afterwards
+        val sinceId = account.lastNotificationId
         val notifications = mastodonApi.notificationsWithAuth(
             authHeader,
             account.domain,
-            account.lastNotificationId,
+            sinceId,
+            FETCH_LIMIT,
             Notification.Type.asStringList
-        ).blockingGet()
+        ).timeout(ACCOUNT_TIMEOUT_SECONDS, TimeUnit.SECONDS, timeoutScheduler)
 
-        val newId = account.lastNotificationId
-        var newestId = ""
-        val result = mutableListOf<Notification>()
-        for (notification in notifications.reversed()) {
-            val currentId = notification.id
-            if (newestId.isLessThan(currentId)) {
-                newestId = currentId
-                account.lastNotificationId = currentId
-            }
-            if (newId.isLessThan(currentId)) {
-                result.add(notification)
+        return Single.zip(fetchMarker(authHeader, account), notifications) { markerId, fetched ->
+            // The notifications tab shows them from the cache without fetching them again
+            notificationRepository.addFetchedNotifications(
+                account.id,
+                fetched,
+                sinceId,
+                FETCH_LIMIT
+            )
+            val seenId = if (sinceId.isLessThan(markerId)) markerId else sinceId
+            var newestId = seenId
+            val result = mutableListOf<Notification>()
+            for (notification in fetched.reversed()) {
+                val currentId = notification.id
+                if (newestId.isLessThan(currentId)) {
+                    newestId = currentId
+                }
+                if (seenId.isLessThan(currentId)) {
+                    result.add(notification)
+                }
             }
+            FetchedNotifications(account, result, newestId)
         }
-        return result
     }
 
-    private fun fetchMarker(authHeader: String, account: AccountEntity): Marker? {
-        return try {
-            val allMarkers = mastodonApi.markersWithAuth(
-                authHeader,
-                account.domain,
-                listOf("notifications")
-            ).blockingGet()
-            val notificationMarker = allMarkers["notifications"]
-            Log.d(TAG, "Fetched marker: $notificationMarker")
-            notificationMarker
-        } catch (e: Exception) {
-            Log.e(TAG, "Failed to fetch marker", e)
-            null
-        }
+    /**
+     * The last read notification id, or an empty string if the marker couldn't be fetched.
+     */
+    private fun fetchMarker(authHeader: String, account: AccountEntity): Single<String> {
+        return mastodonApi.markersWithAuth(
+            authHeader,
+            account.domain,
+            listOf("notifications")
+        )
+            .timeout(MARKER_TIMEOUT_SECONDS, TimeUnit.SECONDS, timeoutScheduler)
+            .map { allMarkers ->
+                val notificationMarker = allMarkers["notifications"]
+                Log.d(TAG, "Fetched marker: $notificationMarker")
+                notificationMarker?.lastReadId.orEmpty()
+            }
+            .onErrorReturn { e ->
+                Log.e(TAG, "Failed to fetch marker", e)
+                ""
+            }
     }
 
     companion object {
         const val TAG = "NotificationFetcher"
+        private const val FETCH_LIMIT = 30
+
+        // OkHttp limits the requests per instance on its own, this limits the open requests
+        private const val MAX_CONCURRENT_ACCOUNTS = 4
+
+        // The marker is only an optimization, it's given up on sooner
+        private const val MARKER_TIMEOUT_SECONDS = 10L
+        private const val ACCOUNT_TIMEOUT_SECONDS = 20L
     }
 }
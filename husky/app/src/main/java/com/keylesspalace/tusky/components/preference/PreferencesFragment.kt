@@ -21,7 +21,9 @@
 package com.keylesspalace.tusky.components.preference
 
 import android.os.Bundle
+import android.text.format.Formatter
 import android.widget.Toast
+import androidx.lifecycle.Lifecycle
 import androidx.preference.Preference
 import androidx.preference.PreferenceFragmentCompat
 import com.keylesspalace.tusky.R
@@ -31,6 +33,8 @@ import com.keylesspalace.tusky.core.extensions.getNonNullString
 import com.keylesspalace.tusky.core.logging.CrashHandler
 import com.keylesspalace.tusky.db.AccountManager
 import com.keylesspalace.tusky.entity.Notification
+import com.keylesspalace.tusky.repository.TimelineCacheBudget
+import com.keylesspalace.tusky.repository.TimelineKey
 import com.keylesspalace.tusky.settings.AppTheme
 import com.keylesspalace.tusky.settings.PrefKeys
 import com.keylesspalace.tusky.settings.emojiPreference
@@ -46,6 +50,9 @@ import com.mikepenz.iconics.IconicsDrawable
 import com.mikepenz.iconics.typeface.library.googlematerial.GoogleMaterial
 import com.mikepenz.iconics.utils.colorInt
 import com.mikepenz.iconics.utils.sizePx
+import com.uber.autodispose.android.lifecycle.AndroidLifecycleScopeProvider
+import com.uber.autodispose.autoDispose
+import io.reactivex.android.schedulers.AndroidSchedulers
 import okhttp3.OkHttpClient
 import org.koin.android.ext.android.inject
 
@@ -55,9 +62,11 @@ class PreferencesFragment : PreferenceFragmentCompat() {
     private val accountManager: AccountManager by inject()
     private val eventHub: EventHub by inject()
     private val crashHandler: CrashHandler by inject()
+    private val cacheBudget: TimelineCacheBudget by inject()
 
     private val iconSize by lazy { resources.getDimensionPixelSize(R.dimen.preference_icon_size) }
     private var httpProxyPref: Preference? = null
+    private var timelineCacheSizePref: Preference? = null
 
     override fun onCreatePreferences(savedInstanceState: Bundle?, rootKey: String?) {
         makePreferenceScreen {
@@ -282,6 +291,55 @@ class PreferencesFragment : PreferenceFragmentCompat() {
                 }
             }
 
+            preferenceCategory(R.string.pref_title_timeline_cache) {
+                switchPreference {
+                    setDefaultValue(false)
+                    key = PrefKeys.LIVE_TIMELINES
+                    setTitle(R.string.pref_title_live_timelines)
+                    setSummary(R.string.pref_summary_live_timelines)
+                    isSingleLineTitle = false
+                    setOnPreferenceChangeListener { _, _ ->
+                        eventHub.dispatch(PreferenceChangedEvent(key))
+                        true
+                    }
+                }
+
+                listPreference {
+                    setDefaultValue(TimelineCacheBudget.DEFAULT_MAX_STATUSES.toString())
+                    setEntries(R.array.timeline_cache_limit_names)
+                    setEntryValues(R.array.timeline_cache_limit_values)
+                    key = PrefKeys.TIMELINE_CACHE_LIMIT
+                    setSummaryProvider { entry }
+                    setTitle(R.string.pref_title_timeline_cache_limit)
+                    setOnPreferenceChangeListener { _, _ ->
+                        accountManager.activeAccount?.let {
+                            cacheBudget.scheduleTrim(it.id, TimelineKey.HOME)
+                        }
+                        true
+                    }
+                }
+
+                listPreference {
+                    setDefaultValue(TimelineCacheBudget.DEFAULT_MAX_MEGABYTES.toString())
+                    setEntries(R.array.timeline_cache_size_limit_names)
+                    setEntryValues(R.array.timeline_cache_size_limit_values)
+                    key = PrefKeys.TIMELINE_CACHE_SIZE_LIMIT
+                    setSummaryProvider { entry }
+                    setTitle(R.string.pref_title_timeline_cache_size_limit)
+                    setOnPreferenceChangeListener { _, _ ->
+                        accountManager.activeAccount?.let {
+                            cacheBudget.scheduleTrim(it.id, TimelineKey.HOME)
+                        }
+                        true
+                    }
+                }
+
+                timelineCacheSizePref = preference {
+                    setTitle(R.string.pref_title_timeline_cache_size)
+                    isSelectable = false
+                }
+            }
+
             preferenceCategory(R.string.pref_title_timeline_filters) {
                 preference {
                     setTitle(R.string.pref_title_status_tabs)
@@ -391,6 +449,23 @@ class PreferencesFragment : PreferenceFragmentCompat() {
     override fun onResume() {
         super.onResume()
         updateHttpProxySummary()
+        updateTimelineCacheSummary()
+    }
+
+    private fun updateTimelineCacheSummary() {
+        cacheBudget.getCacheSize()
+            .observeOn(AndroidSchedulers.mainThread())
+            .autoDispose(AndroidLifecycleScopeProvider.from(this, Lifecycle.Event.ON_PAUSE))
+            .subscribe(
+                { size ->
+                    timelineCacheSizePref?.summary = getString(
+                        R.string.timeline_cache_size_summary,
+                        size.statuses,
+                        Formatter.formatShortFileSize(context, size.bytes)
+                    )
+                },
+                { timelineCacheSizePref?.summary = "" }
+            )
     }
 
     private fun updateHttpProxySummary() {
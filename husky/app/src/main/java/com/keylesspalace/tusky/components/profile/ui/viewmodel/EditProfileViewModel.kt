@@ -59,6 +59,7 @@ import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.flow.catch
 import kotlinx.coroutines.flow.onStart
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import okhttp3.MediaType.Companion.toMediaTypeOrNull
 import okhttp3.MultipartBody
 import okhttp3.RequestBody
@@ -369,8 +370,11 @@ class EditProfileViewModel(
         getInstanceInfoJob = viewModelScope.launch {
             instanceRepository.getInstanceInfo()
                 .catch {
+                    val cached = withContext(Dispatchers.IO) {
+                        instanceRepository.getInstanceInfoDb()
+                    }
                     _instanceData.emit(
-                        instanceRepository.getInstanceInfoDb().toInstanceInfo().apply {
+                        cached.toInstanceInfo().apply {
                             isLoadingInfo = false
                         }
                     )
@@ -550,7 +550,7 @@ class SearchStatusesFragment :
             searchViewModel.emojiReact(react, emoji, statusId)
         } else {
             EmojiDialogFragment.newInstance(
-                searchViewModel.instance.value?.emojiList ?: emptyList(),
+                null,
                 onEmojiClick = { _, shortcode ->
                     searchViewModel.emojiReact(react, shortcode, statusId)
                 }).show(parentFragmentManager, EmojiDialogFragment.DIALOG_TAG)
@@ -23,14 +23,17 @@ package com.keylesspalace.tusky.db
 import com.keylesspalace.tusky.entity.Account
 import com.keylesspalace.tusky.entity.Status
 import com.keylesspalace.tusky.settings.PrefKeys
+import io.reactivex.Single
+import io.reactivex.schedulers.Schedulers
 import timber.log.Timber
 
 /**
- * This class caches the account database and handles all account related operations
+ * This class caches the account database and handles all account related operations.
+ * Changes are applied to the cached accounts right away and saved through the [DatabaseWriter].
  * @author ConnyDuck
  */
 
-class AccountManager(db: AppDatabase) {
+class AccountManager(db: AppDatabase, private val writer: DatabaseWriter) {
 
     @Volatile
     var activeAccount: AccountEntity? = null
@@ -40,7 +43,15 @@ class AccountManager(db: AppDatabase) {
     private val accountDao: AccountDao = db.accountDao()
 
     init {
-        accounts = accountDao.loadAll().toMutableList()
+        // A deliberate exception to keeping the database off the main thread: AccountManager is
+        // first created on the main thread at startup, and nothing can be shown before the
+        // accounts are known, so the main thread blocks here until they are loaded. Room
+        // refuses to query on the main thread, so the query runs on an io thread, but the wait
+        // is the same. The table only holds one row per logged in account.
+        accounts = Single.fromCallable { accountDao.loadAll() }
+            .subscribeOn(Schedulers.io())
+            .blockingGet()
+            .toMutableList()
 
         activeAccount = accounts.find { acc ->
             acc.isActive
@@ -59,7 +70,7 @@ class AccountManager(db: AppDatabase) {
             it.isActive = false
             Timber.d("addAccount: saving account with id [${it.id}]")
 
-            accountDao.insertOrReplace(it)
+            save(it)
         }
 
         val maxAccountId = accounts.maxByOrNull { it.id }?.id ?: 0
@@ -80,10 +91,22 @@ class AccountManager(db: AppDatabase) {
     fun saveAccount(account: AccountEntity) {
         if (account.id != 0L) {
             Timber.d("saveAccount: saving account with id [${account.id}]")
-            accountDao.insertOrReplace(account)
+            save(account)
         }
     }
 
+    /**
+     * Saves several already known accounts to the database in one transaction.
+     */
+    fun saveAccounts(accounts: List<AccountEntity>) {
+        val snapshots = accounts.filter { it.id != 0L }.map { it.copy() }
+        if (snapshots.isEmpty()) {
+            return
+        }
+        Timber.d("saveAccounts: saving accounts with ids ${snapshots.map { it.id }}")
+        writer.execute { snapshots.forEach { accountDao.insertOrReplace(it) } }
+    }
+
     /**
      * Logs the current account out by deleting all data of the account.
      * @return the new active account, or null if no other account was found
@@ -92,14 +115,15 @@ class AccountManager(db: AppDatabase) {
         if (activeAccount == null) {
             return null
         } else {
-            accounts.remove(activeAccount!!)
-            accountDao.delete(activeAccount!!)
+            val loggedOut = activeAccount!!
+            accounts.remove(loggedOut)
+            writer.execute { accountDao.delete(loggedOut) }
 
             if (accounts.size > 0) {
                 accounts[0].isActive = true
                 activeAccount = accounts[0]
                 Timber.d("logActiveAccountOut: saving account with id [${accounts[0].id}]")
-                accountDao.insertOrReplace(accounts[0])
+                save(accounts[0])
             } else {
                 activeAccount = null
             }
@@ -123,7 +147,8 @@ class AccountManager(db: AppDatabase) {
             it.emojis = account.emojis ?: emptyList()
 
             Timber.d("updateActiveAccount: saving account with id [${it.id}]")
-            it.id = accountDao.insertOrReplace(it)
+            // The id was given by addAccount, the row is stored under it
+            save(it)
 
             val accountIndex = accounts.indexOf(it)
 
@@ -153,10 +178,18 @@ class AccountManager(db: AppDatabase) {
 
         activeAccount?.let {
             it.isActive = true
-            accountDao.insertOrReplace(it)
+            save(it)
         }
     }
 
+    /**
+     * Saves a snapshot, the entity may change again before the write runs.
+     */
+    private fun save(account: AccountEntity) {
+        val snapshot = account.copy()
+        writer.execute { accountDao.insertOrReplace(snapshot) }
+    }
+
     /**
      * @return an immutable list of all accounts in the database with the active account first
      */
@@ -22,7 +22,10 @@ import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 import com.keylesspalace.tusky.TabDataKt;
 import com.keylesspalace.tusky.components.conversation.ConversationEntity;
+import com.keylesspalace.tusky.components.instance.data.database.EmojiDao;
 import com.keylesspalace.tusky.components.instance.data.database.InstanceDao;
+import com.keylesspalace.tusky.components.instance.data.models.entity.EmojiCatalogueEntity;
+import com.keylesspalace.tusky.components.instance.data.models.entity.EmojiEntity;
 import com.keylesspalace.tusky.components.instance.data.models.entity.InstanceEntity;
 
 /**
@@ -30,7 +33,8 @@ import com.keylesspalace.tusky.components.instance.data.models.entity.InstanceEn
  */
 @Database(entities = {TootEntity.class, DraftEntity.class, AccountEntity.class,
     InstanceEntity.class, TimelineStatusEntity.class, TimelineAccountEntity.class,
-    ConversationEntity.class, ChatEntity.class, ChatMessageEntity.class}, version = 35)
+    ConversationEntity.class, ChatEntity.class, ChatMessageEntity.class, EmojiEntity.class,
+    EmojiCatalogueEntity.class, NotificationEntity.class}, version = 44)
 public abstract class AppDatabase extends RoomDatabase {
 
     public abstract TootDao tootDao();
@@ -39,6 +43,8 @@ public abstract class AppDatabase extends RoomDatabase {
 
     public abstract InstanceDao instanceDao();
 
+    public abstract EmojiDao emojiDao();
+
     public abstract ConversationsDao conversationDao();
 
     public abstract TimelineDao timelineDao();
@@ -47,6 +53,8 @@ public abstract class AppDatabase extends RoomDatabase {
 
     public abstract DraftDao draftDao();
 
+    public abstract NotificationDao notificationDao();
+
     public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
 
         @Override
@@ -538,4 +546,176 @@ public abstract class AppDatabase extends RoomDatabase {
             database.execSQL("ALTER TABLE InstanceEntity_temp RENAME TO InstanceEntity");
         }
     };
+
+    public static final Migration MIGRATION_35_36 = new Migration(35, 36) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            TimelineColumnMigration.migrateJsonToBlobs(database);
+        }
+    };
+
+    public static final Migration MIGRATION_36_37 = new Migration(36, 37) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `TimelineStatusEntity` ADD COLUMN `contentSpans` BLOB");
+            database.execSQL("ALTER TABLE `TimelineStatusEntity` ADD COLUMN `quoteSpans` BLOB");
+        }
+    };
+
+    public static final Migration MIGRATION_37_38 = new Migration(37, 38) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Same format as StringUtils.toSortKey()
+            database.execSQL(
+                "ALTER TABLE `TimelineStatusEntity` ADD COLUMN `sortKey` TEXT NOT NULL DEFAULT ''");
+            database.execSQL(
+                "UPDATE `TimelineStatusEntity` SET `sortKey` = printf('%04d', LENGTH(`serverId`)) || `serverId`");
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_TimelineStatusEntity_timelineUserId_sortKey` " +
+                "ON `TimelineStatusEntity` (`timelineUserId`, `sortKey`)");
+
+            database.execSQL(
+                "ALTER TABLE `ChatEntity` ADD COLUMN `sortKey` TEXT NOT NULL DEFAULT ''");
+            database.execSQL(
+                "UPDATE `ChatEntity` SET `sortKey` = printf('%04d', LENGTH(`chatId`)) || `chatId`");
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_ChatEntity_localId_sortKey` " +
+                "ON `ChatEntity` (`localId`, `sortKey`)");
+        }
+    };
+
+    public static final Migration MIGRATION_38_39 = new Migration(38, 39) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // The timeline becomes part of the primary key, the table has to be rebuilt.
+            // Everything cached so far is from the home timeline.
+            String columns = "`serverId`, `url`, `timelineUserId`, `authorServerId`, " +
+                "`inReplyToId`, `inReplyToAccountId`, `content`, `createdAt`, `editedAt`, " +
+                "`emojis`, `reblogsCount`, `favouritesCount`, `reblogged`, `bookmarked`, " +
+                "`favourited`, `sensitive`, `spoilerText`, `visibility`, `attachments`, " +
+                "`mentions`, `application`, `reblogServerId`, `reblogAccountId`, `poll`, " +
+                "`pleroma`, `quotedStatusId`, `quotedStatusUrl`, `quote`, `quoteEmojis`, " +
+                "`quoteFullName`, `quoteUsername`, `quotedAccountEmojis`, `contentSpans`, " +
+                "`quoteSpans`, `sortKey`";
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `TimelineStatusEntity_new` (" +
+                "`serverId` TEXT NOT NULL, `url` TEXT, `timelineUserId` INTEGER NOT NULL, " +
+                "`authorServerId` TEXT, `inReplyToId` TEXT, `inReplyToAccountId` TEXT, " +
+                "`content` TEXT, `createdAt` INTEGER NOT NULL, `editedAt` INTEGER, " +
+                "`emojis` BLOB, `reblogsCount` INTEGER NOT NULL, " +
+                "`favouritesCount` INTEGER NOT NULL, `reblogged` INTEGER NOT NULL, " +
+                "`bookmarked` INTEGER NOT NULL, `favourited` INTEGER NOT NULL, " +
+                "`sensitive` INTEGER NOT NULL, `spoilerText` TEXT, `visibility` INTEGER, " +
+                "`attachments` BLOB, `mentions` BLOB, `application` BLOB, " +
+                "`reblogServerId` TEXT, `reblogAccountId` TEXT, `poll` BLOB, `pleroma` BLOB, " +
+                "`quotedStatusId` TEXT, `quotedStatusUrl` TEXT, `quote` TEXT, " +
+                "`quoteEmojis` BLOB, `quoteFullName` TEXT, `quoteUsername` TEXT, " +
+                "`quotedAccountEmojis` BLOB, `contentSpans` BLOB, `quoteSpans` BLOB, " +
+                "`sortKey` TEXT NOT NULL, `timelineKind` TEXT NOT NULL, " +
+                "`timelineArgument` TEXT NOT NULL, " +
+                "PRIMARY KEY(`serverId`, `timelineUserId`, `timelineKind`, `timelineArgument`), " +
+                "FOREIGN KEY(`authorServerId`, `timelineUserId`) " +
+                "REFERENCES `TimelineAccountEntity`(`serverId`, `timelineUserId`) " +
+                "ON UPDATE NO ACTION ON DELETE NO ACTION )");
+            database.execSQL("INSERT INTO `TimelineStatusEntity_new` (" + columns +
+                ", `timelineKind`, `timelineArgument`) SELECT " + columns +
+                ", 'HOME', '' FROM `TimelineStatusEntity`");
+            database.execSQL("DROP TABLE `TimelineStatusEntity`");
+            database.execSQL(
+                "ALTER TABLE `TimelineStatusEntity_new` RENAME TO `TimelineStatusEntity`");
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_TimelineStatusEntity_authorServerId_timelineUserId` " +
+                "ON `TimelineStatusEntity` (`authorServerId`, `timelineUserId`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS " +
+                "`index_TimelineStatusEntity_timelineUserId_timelineKind_timelineArgument_sortKey` " +
+                "ON `TimelineStatusEntity` " +
+                "(`timelineUserId`, `timelineKind`, `timelineArgument`, `sortKey`)");
+        }
+    };
+
+    public static final Migration MIGRATION_39_40 = new Migration(39, 40) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Only the last message of each chat was cached so far, without any record of the
+            // gaps between them. Start over, the chat list brings them back on the next refresh.
+            database.execSQL("DELETE FROM `ChatMessageEntity`");
+            database.execSQL(
+                "ALTER TABLE `ChatMessageEntity` ADD COLUMN `sortKey` TEXT NOT NULL DEFAULT ''");
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_ChatMessageEntity_localId_chatId_sortKey` " +
+                "ON `ChatMessageEntity` (`localId`, `chatId`, `sortKey`)");
+        }
+    };
+
+    public static final Migration MIGRATION_40_41 = new Migration(40, 41) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `EmojiEntity` (" +
+                "`instance` TEXT NOT NULL, `shortcode` TEXT NOT NULL, `sortKey` TEXT NOT NULL, " +
+                "`url` TEXT NOT NULL, `staticUrl` TEXT NOT NULL, `category` TEXT NOT NULL, " +
+                "`visibleInPicker` INTEGER NOT NULL, `syncedAt` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`instance`, `shortcode`))");
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_EmojiEntity_instance_sortKey` " +
+                "ON `EmojiEntity` (`instance`, `sortKey`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `EmojiCatalogueEntity` (" +
+                "`instance` TEXT NOT NULL, `etag` TEXT, `lastModified` TEXT, " +
+                "`syncedAt` INTEGER NOT NULL, PRIMARY KEY(`instance`))");
+            // The emoji lists are stored in their own table now, they are fetched again
+            database.execSQL("UPDATE `InstanceEntity` SET `emojiList` = NULL");
+        }
+    };
+
+    public static final Migration MIGRATION_41_42 = new Migration(41, 42) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `NotificationEntity` (" +
+                "`accountId` INTEGER NOT NULL, `serverId` TEXT NOT NULL, `type` TEXT, " +
+                "`senderServerId` TEXT, `statusServerId` TEXT, `notification` TEXT, " +
+                "`sortKey` TEXT NOT NULL, PRIMARY KEY(`accountId`, `serverId`))");
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_NotificationEntity_accountId_sortKey` " +
+                "ON `NotificationEntity` (`accountId`, `sortKey`)");
+        }
+    };
+
+    public static final Migration MIGRATION_42_43 = new Migration(42, 43) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // The emojis of an instance are kept in EmojiEntity now, drop the unused emojiList
+            database.execSQL("CREATE TABLE IF NOT EXISTS `InstanceEntity_new` (" +
+                "`instance` TEXT NOT NULL, `maximumTootCharacters` INTEGER, " +
+                "`maxPollOptions` INTEGER, `maxPollOptionLength` INTEGER, " +
+                "`maxBioLength` INTEGER, `maxBioFields` INTEGER, `version` TEXT, " +
+                "`chatLimit` INTEGER, `quotePosting` INTEGER NOT NULL, " +
+                "`maxMediaAttachments` INTEGER, `imageSizeLimit` INTEGER, " +
+                "`videoSizeLimit` INTEGER, `postFormats` TEXT, PRIMARY KEY(`instance`))");
+            String columns = "`instance`, `maximumTootCharacters`, `maxPollOptions`, " +
+                "`maxPollOptionLength`, `maxBioLength`, `maxBioFields`, `version`, " +
+                "`chatLimit`, `quotePosting`, `maxMediaAttachments`, `imageSizeLimit`, " +
+                "`videoSizeLimit`, `postFormats`";
+            database.execSQL("INSERT INTO `InstanceEntity_new` (" + columns + ") SELECT " +
+                columns + " FROM `InstanceEntity`");
+            database.execSQL("DROP TABLE `InstanceEntity`");
+            database.execSQL("ALTER TABLE `InstanceEntity_new` RENAME TO `InstanceEntity`");
+        }
+    };
+
+    public static final Migration MIGRATION_43_44 = new Migration(43, 44) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Chats are listed by their latest activity
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_ChatEntity_localId_updatedAt` " +
+                "ON `ChatEntity` (`localId`, `updatedAt`)");
+        }
+    };
 }
@@ -2,9 +2,12 @@ package com.keylesspalace.tusky.db
 
 import androidx.room.Embedded
 import androidx.room.Entity
+import androidx.room.Index
+import com.keylesspalace.tusky.util.toSortKey
 
 @Entity(
-    primaryKeys = ["localId", "chatId"]
+    primaryKeys = ["localId", "chatId"],
+    indices = [Index("localId", "sortKey"), Index("localId", "updatedAt")]
 )
 data class ChatEntity(
     val localId: Long, /* our user account id */
@@ -12,7 +15,8 @@ data class ChatEntity(
     val accountId: String,
     val unread: Long,
     val updatedAt: Long,
-    val lastMessageId: String?
+    val lastMessageId: String?,
+    val sortKey: String = chatId.toSortKey()
 )
 
 data class ChatEntityWithAccount(
@@ -1,13 +1,18 @@
 package com.keylesspalace.tusky.db
 
 import androidx.room.Entity
+import androidx.room.Index
+import com.keylesspalace.tusky.util.toSortKey
 
 /*
  * ChatMessage model
+ *
+ * Placeholders for gaps in a cached chat are stored with an empty accountId.
  */
 
 @Entity(
-    primaryKeys = ["localId", "messageId"]
+    primaryKeys = ["localId", "messageId"],
+    indices = [Index("localId", "chatId", "sortKey")]
 )
 data class ChatMessageEntity(
     val localId: Long,
@@ -17,5 +22,6 @@ data class ChatMessageEntity(
     val accountId: String,
     val createdAt: Long,
     val attachment: String?,
-    val emojis: String
+    val emojis: String,
+    val sortKey: String = messageId.toSortKey()
 )
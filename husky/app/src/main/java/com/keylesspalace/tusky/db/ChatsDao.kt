@@ -12,7 +12,7 @@ import io.reactivex.Single
 abstract class ChatsDao {
 
     @Query(
-        """SELECT c.chatId, c.localId, c.accountId, c.lastMessageId, c.unread, c.updatedAt,
+        """SELECT c.chatId, c.localId, c.accountId, c.lastMessageId, c.unread, c.updatedAt, c.sortKey,
 a.serverId as 'a_serverId', a.timelineUserId as 'a_timelineUserId',
 a.localUsername as 'a_localUsername', a.username as 'a_username',
 a.displayName as 'a_displayName', a.url as 'a_url', a.avatar as 'a_avatar',
@@ -20,18 +20,13 @@ a.emojis as 'a_emojis', a.bot as 'a_bot',
 msg.accountId as 'msg_accountId', msg.localId as 'msg_localId',
 msg.chatId as 'msg_chatId', msg.attachment as 'msg_attachment',
 msg.content as 'msg_content', msg.createdAt as 'msg_createdAt', msg.emojis as 'msg_emojis',
-msg.messageId as 'msg_messageId'
+msg.messageId as 'msg_messageId', msg.sortKey as 'msg_sortKey'
 FROM ChatEntity c
 LEFT JOIN TimelineAccountEntity a ON (a.timelineUserId == :localId AND a.serverId = c.accountId)
-LEFT JOIN ChatMessageEntity msg ON (msg.localId == :localId AND msg.chatId == c.chatId)
+LEFT JOIN ChatMessageEntity msg ON (msg.localId == :localId AND msg.messageId == c.lastMessageId)
 WHERE c.localId = :localId
-AND (CASE WHEN :maxId IS NOT NULL THEN
-(LENGTH(c.chatId) < LENGTH(:maxId) OR LENGTH(c.chatId) == LENGTH(:maxId) AND c.chatId < :maxId)
-ELSE 1 END)
-AND (CASE WHEN :sinceId IS NOT NULL THEN
-(LENGTH(c.chatId) > LENGTH(:sinceId) OR LENGTH(c.chatId) == LENGTH(:sinceId) 
-AND c.chatId > :sinceId)
-ELSE 1 END)
+AND c.sortKey < COALESCE(printf('%04d', LENGTH(:maxId)) || :maxId, '$NO_UPPER_BOUND')
+AND c.sortKey > COALESCE(printf('%04d', LENGTH(:sinceId)) || :sinceId, '')
 ORDER BY c.updatedAt DESC
 LIMIT :limit
     """
@@ -55,17 +50,68 @@ LIMIT :limit
     @Insert(onConflict = REPLACE)
     abstract fun insertChatMessage(chatMessageEntity: ChatMessageEntity): Long
 
+    @Insert(onConflict = IGNORE)
+    abstract fun insertChatMessageIfNotThere(chatMessageEntity: ChatMessageEntity): Long
+
     @Transaction
     open fun insertInTransaction(
         chatEntity: ChatEntity,
         lastMessage: ChatMessageEntity?,
+        placeholderBelow: ChatMessageEntity?,
         accountEntity: TimelineAccountEntity
     ) {
         insertAccount(accountEntity)
-        lastMessage?.let(this::insertChatMessage)
+        lastMessage?.let { insertMessage(it, placeholderBelow) }
         insertChat(chatEntity)
     }
 
+    /**
+     * Inserts a message that didn't come with the messages below it. If it wasn't cached yet,
+     * [placeholderBelow] marks the possible gap under it.
+     */
+    @Transaction
+    open fun insertMessage(message: ChatMessageEntity, placeholderBelow: ChatMessageEntity?) {
+        if (insertChatMessageIfNotThere(message) != -1L && placeholderBelow != null) {
+            insertChatMessageIfNotThere(placeholderBelow)
+        }
+    }
+
+    @Transaction
+    open fun addMessage(
+        accountId: Long,
+        message: ChatMessageEntity,
+        placeholderBelow: ChatMessageEntity?
+    ) {
+        insertMessage(message, placeholderBelow)
+        setLastMessageId(accountId, message.chatId, message.messageId)
+    }
+
+    /**
+     * Adds a message sent from this device. It only needs [placeholderBelow] when the messages
+     * cached for the chat don't reach up to its last known message.
+     */
+    @Transaction
+    open fun addSentMessage(
+        accountId: Long,
+        message: ChatMessageEntity,
+        placeholderBelow: ChatMessageEntity
+    ) {
+        val lastMessageId = getLastMessageId(accountId, message.chatId)
+        val contiguous = lastMessageId != null &&
+            lastMessageId == getNewestMessageId(accountId, message.chatId)
+        addMessage(accountId, message, if (contiguous) null else placeholderBelow)
+    }
+
+    @Query("SELECT lastMessageId FROM ChatEntity WHERE localId = :localId AND chatId = :chatId")
+    abstract fun getLastMessageId(localId: Long, chatId: String): String?
+
+    @Query(
+        """SELECT messageId FROM ChatMessageEntity WHERE localId = :localId AND chatId = :chatId
+ORDER BY sortKey DESC
+LIMIT 1"""
+    )
+    abstract fun getNewestMessageId(localId: Long, chatId: String): String?
+
     @Transaction
     open fun setLastMessage(accountId: Long, chatId: String, lastMessageEntity: ChatMessageEntity) {
         insertChatMessage(lastMessageEntity)
@@ -80,23 +126,70 @@ LIMIT :limit
 
     @Query(
         """DELETE FROM ChatEntity WHERE accountId = ""
-AND localId = :account AND
-(LENGTH(chatId) < LENGTH(:maxId) OR LENGTH(chatId) == LENGTH(:maxId) AND chatId < :maxId)
-AND
-(LENGTH(chatId) > LENGTH(:sinceId) OR LENGTH(chatId) == LENGTH(:sinceId) AND chatId > :sinceId)
-"""
+AND localId = :account
+AND sortKey < printf('%04d', LENGTH(:maxId)) || :maxId
+AND sortKey > printf('%04d', LENGTH(:sinceId)) || :sinceId"""
     )
     abstract fun removeAllPlaceholdersBetween(account: Long, maxId: String, sinceId: String)
 
     @Query(
-        """DELETE FROM ChatEntity WHERE localId = :accountId AND
-(LENGTH(chatId) < LENGTH(:maxId) OR LENGTH(chatId) == LENGTH(:maxId) AND chatId < :maxId)
-AND
-(LENGTH(chatId) > LENGTH(:minId) OR LENGTH(chatId) == LENGTH(:minId) AND chatId > :minId)
-    """
+        """DELETE FROM ChatEntity WHERE localId = :accountId
+AND sortKey < printf('%04d', LENGTH(:maxId)) || :maxId
+AND sortKey > printf('%04d', LENGTH(:minId)) || :minId"""
     )
     abstract fun deleteRange(accountId: Long, minId: String, maxId: String)
 
+    @Query(
+        """SELECT * FROM ChatMessageEntity WHERE localId = :localId AND chatId = :chatId
+AND sortKey < COALESCE(printf('%04d', LENGTH(:maxId)) || :maxId, '$NO_UPPER_BOUND')
+AND sortKey > COALESCE(printf('%04d', LENGTH(:sinceId)) || :sinceId, '')
+ORDER BY sortKey DESC
+LIMIT :limit"""
+    )
+    abstract fun getChatMessages(
+        localId: Long,
+        chatId: String,
+        maxId: String?,
+        sinceId: String?,
+        limit: Int
+    ): Single<List<ChatMessageEntity>>
+
+    @Insert(onConflict = REPLACE)
+    abstract fun insertChatMessages(chatMessageEntities: List<ChatMessageEntity>)
+
+    /**
+     * Replaces everything cached between the oldest and the newest message of a page with the
+     * page itself.
+     */
+    @Transaction
+    open fun insertMessagePage(localId: Long, chatId: String, messages: List<ChatMessageEntity>) {
+        if (messages.isEmpty()) {
+            return
+        }
+        deleteMessageRange(localId, chatId, messages.last().messageId, messages.first().messageId)
+        insertChatMessages(messages)
+    }
+
+    @Query(
+        """DELETE FROM ChatMessageEntity WHERE localId = :localId AND chatId = :chatId
+AND sortKey < printf('%04d', LENGTH(:maxId)) || :maxId
+AND sortKey > printf('%04d', LENGTH(:minId)) || :minId"""
+    )
+    abstract fun deleteMessageRange(localId: Long, chatId: String, minId: String, maxId: String)
+
+    @Query(
+        """DELETE FROM ChatMessageEntity WHERE accountId = ""
+AND localId = :localId AND chatId = :chatId
+AND sortKey < printf('%04d', LENGTH(:maxId)) || :maxId
+AND sortKey > printf('%04d', LENGTH(:sinceId)) || :sinceId"""
+    )
+    abstract fun removeAllMessagePlaceholdersBetween(
+        localId: Long,
+        chatId: String,
+        maxId: String,
+        sinceId: String
+    )
+
     @Query("""DELETE FROM ChatEntity WHERE localId = :localId AND accountId = :accountId""")
     abstract fun deleteChatByAccount(localId: Long, accountId: String)
 
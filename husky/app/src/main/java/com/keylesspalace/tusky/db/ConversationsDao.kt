@@ -30,7 +30,7 @@ interface ConversationsDao {
     fun insert(conversations: List<ConversationEntity>)
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    fun insert(conversation: ConversationEntity): Single<Long>
+    fun insert(conversation: ConversationEntity)
 
     @Delete
     fun delete(conversation: ConversationEntity): Single<Int>
@@ -0,0 +1,125 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.keylesspalace.tusky.db
+
+import androidx.room.RoomDatabase
+import io.reactivex.Completable
+import timber.log.Timber
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+/**
+ * The one thread that writes to the database. Writes run in the order they were queued, and the
+ * ones that queued up while a transaction was running are committed together in the next one.
+ *
+ * If a batch fails, its writes are retried one by one so a single failing write doesn't take the
+ * others with it.
+ */
+class DatabaseWriter internal constructor(
+    private val executor: Executor,
+    private val runInTransaction: (Runnable) -> Unit
+) {
+
+    constructor(db: RoomDatabase) : this(
+        Executors.newSingleThreadExecutor { Thread(it, "DatabaseWriter") },
+        db::runInTransaction
+    )
+
+    private class Write(val block: () -> Unit, val onDone: (Throwable?) -> Unit)
+
+    // Guarded by this
+    private val pending = ArrayDeque<Write>()
+    private var draining = false
+
+    /**
+     * Queues a write that nobody waits for, failures are only logged.
+     */
+    fun execute(block: () -> Unit) {
+        enqueue(Write(block) { error -> error?.let { Timber.e(it, "Database write failed") } })
+    }
+
+    /**
+     * Queues a write, completes once it is committed.
+     */
+    fun complete(block: () -> Unit): Completable {
+        return Completable.create { emitter ->
+            enqueue(
+                Write(block) { error ->
+                    if (error == null) {
+                        emitter.onComplete()
+                    } else {
+                        emitter.tryOnError(error)
+                    }
+                }
+            )
+        }
+    }
+
+    private fun enqueue(write: Write) {
+        val start = synchronized(this) {
+            pending.addLast(write)
+            val idle = !draining
+            draining = true
+            idle
+        }
+        if (start) {
+            executor.execute(::drain)
+        }
+    }
+
+    private fun drain() {
+        while (true) {
+            val batch = synchronized(this) {
+                if (pending.isEmpty()) {
+                    draining = false
+                    return
+                }
+                val count = minOf(pending.size, MAX_BATCH)
+                List(count) { pending.removeFirst() }
+            }
+            commit(batch)
+        }
+    }
+
+    private fun commit(batch: List<Write>) {
+        val batchError = runCatching {
+            runInTransaction(Runnable { batch.forEach { it.block() } })
+        }.exceptionOrNull()
+        if (batchError == null) {
+            batch.forEach { it.onDone(null) }
+            return
+        }
+        if (batch.size == 1) {
+            batch[0].onDone(batchError)
+            return
+        }
+        // The batch was rolled back as a whole, none of it is written yet
+        for (write in batch) {
+            val error = runCatching {
+                runInTransaction(Runnable { write.block() })
+            }.exceptionOrNull()
+            write.onDone(error)
+        }
+    }
+
+    private companion object {
+        // Keeps a burst of writes from holding the write lock for too long at once
+        const val MAX_BATCH = 100
+    }
+}
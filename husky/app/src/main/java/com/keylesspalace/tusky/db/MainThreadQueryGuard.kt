@@ -0,0 +1,41 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.keylesspalace.tusky.db
+
+import android.os.Looper
+import androidx.room.RoomDatabase
+
+/**
+ * Fails every query that runs on the main looper, in debug builds. Room only checks the DAO
+ * methods it generates, this also catches raw queries and transactions opened by hand.
+ *
+ * Register it with [RoomDatabase.Builder.setQueryCallback] and a direct executor, so it runs on
+ * the thread of the query.
+ *
+ * It can't see the main thread waiting on a query that runs elsewhere. The only place that
+ * does so on purpose is the initial load of the accounts in [AccountManager].
+ */
+object MainThreadQueryGuard : RoomDatabase.QueryCallback {
+
+    override fun onQuery(sqlQuery: String, bindArgs: List<Any?>) {
+        check(Looper.myLooper() != Looper.getMainLooper()) {
+            "Database query on the main thread: $sqlQuery"
+        }
+    }
+}
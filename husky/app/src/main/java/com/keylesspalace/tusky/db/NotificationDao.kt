@@ -0,0 +1,181 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.db
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy.Companion.IGNORE
+import androidx.room.OnConflictStrategy.Companion.REPLACE
+import androidx.room.Query
+import androidx.room.Transaction
+import com.keylesspalace.tusky.util.dec
+import io.reactivex.Single
+
+@Dao
+abstract class NotificationDao {
+
+    @Insert(onConflict = REPLACE)
+    abstract fun insertNotifications(notifications: List<NotificationEntity>)
+
+    @Insert(onConflict = REPLACE)
+    abstract fun insertNotification(notification: NotificationEntity)
+
+    @Insert(onConflict = IGNORE)
+    abstract fun insertIfNotThere(notification: NotificationEntity): Long
+
+    /**
+     * Newest first, placeholders included whatever the filter is.
+     *
+     * @param excludedTypes see [NotificationEntity.type]
+     */
+    @Query(
+        """SELECT * FROM NotificationEntity WHERE accountId = :accountId
+AND sortKey < COALESCE(printf('%04d', LENGTH(:maxId)) || :maxId, '$NO_UPPER_BOUND')
+AND sortKey > COALESCE(printf('%04d', LENGTH(:sinceId)) || :sinceId, '')
+AND (type IS NULL OR type NOT IN (:excludedTypes))
+ORDER BY sortKey DESC
+LIMIT :limit"""
+    )
+    abstract fun getNotifications(
+        accountId: Long,
+        maxId: String?,
+        sinceId: String?,
+        excludedTypes: List<String>,
+        limit: Int
+    ): Single<List<NotificationEntity>>
+
+    @Query(
+        """SELECT * FROM NotificationEntity WHERE accountId = :accountId
+AND statusServerId = :statusId AND notification IS NOT NULL"""
+    )
+    abstract fun getByStatus(accountId: Long, statusId: String): List<NotificationEntity>
+
+    @Query(
+        """SELECT * FROM NotificationEntity WHERE accountId = :accountId
+AND sortKey <= printf('%04d', LENGTH(:id)) || :id
+ORDER BY sortKey DESC
+LIMIT 1"""
+    )
+    abstract fun getAtOrBelow(accountId: Long, id: String): NotificationEntity?
+
+    @Query(
+        """SELECT * FROM NotificationEntity WHERE accountId = :accountId
+AND sortKey > :sortKey
+ORDER BY sortKey ASC
+LIMIT 1"""
+    )
+    abstract fun getAbove(accountId: Long, sortKey: String): NotificationEntity?
+
+    @Query(
+        """DELETE FROM NotificationEntity WHERE accountId = :accountId
+AND sortKey < COALESCE(printf('%04d', LENGTH(:maxId)) || :maxId, '$NO_UPPER_BOUND')
+AND sortKey > COALESCE(printf('%04d', LENGTH(:minId)) || :minId, '')"""
+    )
+    abstract fun deleteRange(accountId: Long, minId: String?, maxId: String?)
+
+    /**
+     * Applies a fetched range in one transaction. Notifications may be missing below it, and
+     * get a placeholder at [NotificationRange.minId], unless the row right below is a cached
+     * notification that the range connects to: it is at minId itself, or nothing but cached
+     * notifications were above it before.
+     */
+    @Transaction
+    open fun insertRange(range: NotificationRange, limit: Int) {
+        val accountId = range.accountId
+        val minId = range.minId
+        val gapBelow = minId != null && !connectsBelow(accountId, minId)
+        deleteRange(accountId, minId, range.maxId)
+        insertNotifications(range.notifications)
+        if (gapBelow) {
+            insertIfNotThere(placeholder(accountId, minId!!))
+        }
+        evictBeyond(accountId, limit)
+    }
+
+    private fun connectsBelow(accountId: Long, minId: String): Boolean {
+        val below = getAtOrBelow(accountId, minId)
+        if (below?.notification == null) {
+            return false
+        }
+        // A gap above it would have been marked with a placeholder
+        return below.serverId == minId ||
+            getAbove(accountId, below.sortKey)?.notification != null
+    }
+
+    /**
+     * Adds a notification on top, with a placeholder below it if notifications may be missing
+     * between it and the cached ones.
+     */
+    @Transaction
+    open fun insertNewest(notification: NotificationEntity, gapBelow: Boolean, limit: Int) {
+        insertNotification(notification)
+        if (gapBelow) {
+            insertIfNotThere(placeholder(notification.accountId, notification.serverId.dec()))
+        }
+        evictBeyond(notification.accountId, limit)
+    }
+
+    @Query(
+        """DELETE FROM NotificationEntity WHERE accountId = :accountId AND sortKey NOT IN
+(SELECT sortKey FROM NotificationEntity WHERE accountId = :accountId
+ORDER BY sortKey DESC LIMIT :limit)"""
+    )
+    abstract fun deleteBeyond(accountId: Long, limit: Int): Int
+
+    @Query(
+        """SELECT * FROM NotificationEntity WHERE accountId = :accountId
+ORDER BY sortKey ASC LIMIT 1"""
+    )
+    abstract fun getOldest(accountId: Long): NotificationEntity?
+
+    /**
+     * Keeps the newest [limit] rows. If a notification is left at the bottom it gets a
+     * placeholder below it, so loading further goes to the network instead of ending there.
+     */
+    @Transaction
+    open fun evictBeyond(accountId: Long, limit: Int) {
+        if (deleteBeyond(accountId, limit) == 0) {
+            return
+        }
+        val oldest = getOldest(accountId) ?: return
+        if (oldest.notification != null) {
+            insertIfNotThere(placeholder(accountId, oldest.serverId.dec()))
+        }
+    }
+
+    @Query(
+        """DELETE FROM NotificationEntity WHERE accountId = :accountId
+AND senderServerId = :senderId"""
+    )
+    abstract fun removeAllBySender(accountId: Long, senderId: String)
+
+    @Query(
+        """DELETE FROM NotificationEntity WHERE accountId = :accountId
+AND statusServerId = :statusId"""
+    )
+    abstract fun removeAllByStatus(accountId: Long, statusId: String)
+
+    @Query("DELETE FROM NotificationEntity WHERE accountId = :accountId")
+    abstract fun removeAllForAccount(accountId: Long)
+
+    private fun placeholder(accountId: Long, id: String): NotificationEntity {
+        return NotificationEntity(accountId, id, null, null, null, null)
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.db
+
+import androidx.room.Entity
+import androidx.room.Index
+import com.keylesspalace.tusky.util.toSortKey
+
+/**
+ * A cached notification of an account, or a placeholder for notifications that weren't loaded
+ * yet. Placeholders have neither [type] nor [notification].
+ */
+@Entity(
+    primaryKeys = ["accountId", "serverId"],
+    indices = [Index("accountId", "sortKey")]
+)
+data class NotificationEntity(
+    // our local id of the account the notification was sent to
+    val accountId: Long,
+    val serverId: String,
+    // Notification.Type.presentation, what the type filters are matched against
+    val type: String?,
+    // who the notification is from and what status it is about, to update and remove it
+    val senderServerId: String?,
+    val statusServerId: String?,
+    // the notification as JSON
+    val notification: String?,
+    // serverId.toSortKey(), ordered like the ids themselves
+    val sortKey: String = serverId.toSortKey()
+)
+
+/**
+ * Notifications fetched between two ids, applied by [NotificationDao.insertRange].
+ *
+ * @param minId every notification between it and [maxId] was fetched, cached ones that are
+ * missing were deleted in the meantime. Null when the oldest notification was reached.
+ * @param maxId null for the newest notifications
+ */
+data class NotificationRange(
+    val accountId: Long,
+    val minId: String?,
+    val maxId: String?,
+    val notifications: List<NotificationEntity>
+)
@@ -0,0 +1,180 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.db
+
+import android.graphics.Typeface
+import android.text.SpannableString
+import android.text.Spanned
+import android.text.style.BackgroundColorSpan
+import android.text.style.BulletSpan
+import android.text.style.ForegroundColorSpan
+import android.text.style.QuoteSpan
+import android.text.style.RelativeSizeSpan
+import android.text.style.StrikethroughSpan
+import android.text.style.StyleSpan
+import android.text.style.SubscriptSpan
+import android.text.style.SuperscriptSpan
+import android.text.style.TypefaceSpan
+import android.text.style.URLSpan
+import android.text.style.UnderlineSpan
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+/**
+ * Stores already parsed status content (text plus the spans HtmlCompat produced) so that
+ * reading it back from the timeline cache doesn't have to run the HTML parser again.
+ *
+ * Only the span types that the HTML parser creates for status content are kept. Anything
+ * else, e.g. the custom emoji spans added at bind time, is dropped. A blob written by another
+ * [VERSION], or with a span type this version doesn't know, decodes to null, and the content
+ * has to be parsed again from its HTML.
+ */
+object SpannedColumnCodec {
+
+    const val VERSION = 1
+
+    private const val URL = 1
+    private const val STYLE = 2
+    private const val UNDERLINE = 3
+    private const val STRIKETHROUGH = 4
+    private const val TYPEFACE = 5
+    private const val RELATIVE_SIZE = 6
+    private const val SUBSCRIPT = 7
+    private const val SUPERSCRIPT = 8
+    private const val QUOTE = 9
+    private const val BULLET = 10
+    private const val FOREGROUND_COLOR = 11
+    private const val BACKGROUND_COLOR = 12
+
+    private const val MONOSPACE = "monospace"
+
+    @JvmStatic
+    fun encode(spanned: Spanned?): ByteArray? {
+        spanned ?: return null
+
+        val bytes = ByteArrayOutputStream(spanned.length * 2 + 16)
+        val out = DataOutputStream(bytes)
+        out.writeByte(VERSION)
+        writeString(out, spanned.toString())
+
+        val spans = spanned.getSpans(0, spanned.length, Any::class.java)
+        val supported = spans.filter { typeOf(it) != 0 }
+        out.writeInt(supported.size)
+        for (span in supported) {
+            val type = typeOf(span)
+            out.writeByte(type)
+            out.writeInt(spanned.getSpanStart(span))
+            out.writeInt(spanned.getSpanEnd(span))
+            out.writeInt(spanned.getSpanFlags(span))
+            when (span) {
+                is URLSpan -> writeString(out, span.url)
+                is StyleSpan -> out.writeInt(span.style)
+                is TypefaceSpan -> writeString(out, span.family)
+                is RelativeSizeSpan -> out.writeFloat(span.sizeChange)
+                is ForegroundColorSpan -> out.writeInt(span.foregroundColor)
+                is BackgroundColorSpan -> out.writeInt(span.backgroundColor)
+            }
+        }
+        out.flush()
+        return bytes.toByteArray()
+    }
+
+    @JvmStatic
+    fun decode(bytes: ByteArray?): Spanned? {
+        if (bytes == null || bytes.isEmpty()) {
+            return null
+        }
+        val input = DataInputStream(ByteArrayInputStream(bytes))
+        return try {
+            if (input.readByte().toInt() != VERSION) {
+                return null
+            }
+            val text = SpannableString(readString(input).orEmpty())
+            repeat(input.readInt()) {
+                val type = input.readByte().toInt()
+                val start = input.readInt()
+                val end = input.readInt()
+                val flags = input.readInt()
+                val span: Any = when (type) {
+                    URL -> URLSpan(readString(input))
+                    STYLE -> StyleSpan(input.readInt())
+                    UNDERLINE -> UnderlineSpan()
+                    STRIKETHROUGH -> StrikethroughSpan()
+                    TYPEFACE -> TypefaceSpan(readString(input) ?: MONOSPACE)
+                    RELATIVE_SIZE -> RelativeSizeSpan(input.readFloat())
+                    SUBSCRIPT -> SubscriptSpan()
+                    SUPERSCRIPT -> SuperscriptSpan()
+                    QUOTE -> QuoteSpan()
+                    BULLET -> BulletSpan()
+                    FOREGROUND_COLOR -> ForegroundColorSpan(input.readInt())
+                    BACKGROUND_COLOR -> BackgroundColorSpan(input.readInt())
+                    else -> return null
+                }
+                if (start in 0..end && end <= text.length) {
+                    text.setSpan(span, start, end, flags)
+                }
+            }
+            text
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    private fun typeOf(span: Any): Int {
+        return when (span) {
+            is URLSpan -> URL
+            is StyleSpan -> if (span.style == Typeface.NORMAL) 0 else STYLE
+            is UnderlineSpan -> UNDERLINE
+            is StrikethroughSpan -> STRIKETHROUGH
+            is TypefaceSpan -> TYPEFACE
+            is RelativeSizeSpan -> RELATIVE_SIZE
+            is SubscriptSpan -> SUBSCRIPT
+            is SuperscriptSpan -> SUPERSCRIPT
+            is QuoteSpan -> QUOTE
+            is BulletSpan -> BULLET
+            is ForegroundColorSpan -> FOREGROUND_COLOR
+            is BackgroundColorSpan -> BACKGROUND_COLOR
+            else -> 0
+        }
+    }
+
+    private fun writeString(out: DataOutputStream, value: String?) {
+        if (value == null) {
+            out.writeInt(-1)
+        } else {
+            val bytes = value.toByteArray(Charsets.UTF_8)
+            out.writeInt(bytes.size)
+            out.write(bytes)
+        }
+    }
+
+    private fun readString(input: DataInputStream): String? {
+        val length = input.readInt()
+        if (length < 0) {
+            return null
+        }
+        val bytes = ByteArray(length)
+        input.readFully(bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+}
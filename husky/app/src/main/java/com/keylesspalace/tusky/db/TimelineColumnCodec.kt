@@ -0,0 +1,384 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.db
+
+import com.keylesspalace.tusky.entity.Attachment
+import com.keylesspalace.tusky.entity.Emoji
+import com.keylesspalace.tusky.entity.EmojiReaction
+import com.keylesspalace.tusky.entity.Poll
+import com.keylesspalace.tusky.entity.PollOption
+import com.keylesspalace.tusky.entity.Status
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.util.Date
+
+/**
+ * Binary encoding for the nested columns of [TimelineStatusEntity] and [TimelineAccountEntity].
+ *
+ * Every blob starts with a [VERSION] byte followed by length-prefixed fields, so reading a row
+ * is a straight walk over the bytes without any reflection. Blobs written by an unknown version
+ * or that can't be read are treated as missing: the timeline is only a cache and will be
+ * refilled from the network.
+ *
+ * Fields that are only needed by the network layer are not stored: [EmojiReaction.accounts]
+ * and [Status.PleromaStatus.quote] (the cache keeps the quote in its own columns).
+ */
+object TimelineColumnCodec {
+
+    const val VERSION = 1
+
+    private const val NULL_LENGTH = -1
+
+    @JvmStatic
+    fun encodeEmojis(emojis: List<Emoji>?): ByteArray {
+        return encode { writer ->
+            writer.writeList(emojis.orEmpty()) { writeEmoji(it) }
+        }
+    }
+
+    @JvmStatic
+    fun decodeEmojis(bytes: ByteArray?): List<Emoji> {
+        return decode(bytes) { reader ->
+            reader.readList { readEmoji() }
+        } ?: emptyList()
+    }
+
+    @JvmStatic
+    fun encodeAttachments(attachments: List<Attachment>?): ByteArray {
+        return encode { writer ->
+            writer.writeList(attachments.orEmpty()) { attachment ->
+                writeString(attachment.id)
+                writeString(attachment.url)
+                writeString(attachment.previewUrl)
+                writeNullable(attachment.meta) { meta ->
+                    writeNullable(meta.focus) { focus ->
+                        writeFloat(focus.x)
+                        writeFloat(focus.y)
+                    }
+                    writeNullable(meta.duration) { writeFloat(it) }
+                }
+                writeByte(typeCode(attachment.type))
+                writeString(attachment.description)
+                writeString(attachment.blurhash)
+            }
+        }
+    }
+
+    @JvmStatic
+    fun decodeAttachments(bytes: ByteArray?): ArrayList<Attachment> {
+        return decode(bytes) { reader ->
+            reader.readList {
+                Attachment(
+                    id = readString().orEmpty(),
+                    url = readString().orEmpty(),
+                    previewUrl = readString(),
+                    meta = readNullable {
+                        Attachment.MetaData(
+                            focus = readNullable { Attachment.Focus(readFloat(), readFloat()) },
+                            duration = readNullable { readFloat() }
+                        )
+                    },
+                    type = typeOf(readByte().toInt()),
+                    description = readString(),
+                    blurhash = readString()
+                )
+            }
+        } ?: ArrayList()
+    }
+
+    @JvmStatic
+    fun encodeMentions(mentions: Array<Status.Mention>?): ByteArray {
+        return encode { writer ->
+            writer.writeList(mentions.orEmpty().asList()) { mention ->
+                writeString(mention.id)
+                writeString(mention.url)
+                writeString(mention.username)
+                writeString(mention.localUsername)
+            }
+        }
+    }
+
+    @JvmStatic
+    fun decodeMentions(bytes: ByteArray?): Array<Status.Mention> {
+        return decode(bytes) { reader ->
+            reader.readList {
+                Status.Mention(
+                    id = readString().orEmpty(),
+                    url = readString(),
+                    username = readString().orEmpty(),
+                    localUsername = readString().orEmpty()
+                )
+            }.toTypedArray()
+        } ?: arrayOf()
+    }
+
+    @JvmStatic
+    fun encodeApplication(application: Status.Application?): ByteArray? {
+        application ?: return null
+        return encode { writer ->
+            writer.writeString(application.name)
+            writer.writeString(application.website)
+        }
+    }
+
+    @JvmStatic
+    fun decodeApplication(bytes: ByteArray?): Status.Application? {
+        return decode(bytes) { reader ->
+            Status.Application(
+                name = reader.readString().orEmpty(),
+                website = reader.readString()
+            )
+        }
+    }
+
+    @JvmStatic
+    fun encodePoll(poll: Poll?): ByteArray? {
+        poll ?: return null
+        return encode { writer ->
+            writer.writeString(poll.id)
+            writer.writeNullable(poll.expiresAt) { writeLong(it.time) }
+            writer.writeBoolean(poll.expired)
+            writer.writeBoolean(poll.multiple)
+            writer.writeInt(poll.votesCount)
+            writer.writeNullable(poll.votersCount) { writeInt(it) }
+            writer.writeList(poll.options) { option ->
+                writeString(option.title)
+                writeInt(option.votesCount)
+            }
+            writer.writeBoolean(poll.voted)
+        }
+    }
+
+    @JvmStatic
+    fun decodePoll(bytes: ByteArray?): Poll? {
+        return decode(bytes) { reader ->
+            Poll(
+                id = reader.readString().orEmpty(),
+                expiresAt = reader.readNullable { Date(readLong()) },
+                expired = reader.readBoolean(),
+                multiple = reader.readBoolean(),
+                votesCount = reader.readInt(),
+                votersCount = reader.readNullable { readInt() },
+                options = reader.readList { PollOption(readString().orEmpty(), readInt()) },
+                voted = reader.readBoolean()
+            )
+        }
+    }
+
+    @JvmStatic
+    fun encodePleroma(pleroma: Status.PleromaStatus?): ByteArray? {
+        pleroma ?: return null
+        return encode { writer ->
+            writer.writeNullable(pleroma.threadMuted) { writeBoolean(it) }
+            writer.writeString(pleroma.conversationId)
+            writer.writeNullable(pleroma.emojiReactions) { reactions ->
+                writeList(reactions) { reaction ->
+                    writeString(reaction.category)
+                    writeString(reaction.name)
+                    writeInt(reaction.count)
+                    writeBoolean(reaction.me)
+                    writeString(reaction.url)
+                    writeString(reaction.staticUrl)
+                }
+            }
+            writer.writeString(pleroma.inReplyToAccountAcct)
+            writer.writeNullable(pleroma.parentVisible) { writeBoolean(it) }
+        }
+    }
+
+    @JvmStatic
+    fun decodePleroma(bytes: ByteArray?): Status.PleromaStatus? {
+        return decode(bytes) { reader ->
+            Status.PleromaStatus(
+                threadMuted = reader.readNullable { readBoolean() },
+                conversationId = reader.readString(),
+                emojiReactions = reader.readNullable {
+                    readList {
+                        EmojiReaction(
+                            category = readString().orEmpty(),
+                            name = readString().orEmpty(),
+                            count = readInt(),
+                            me = readBoolean(),
+                            url = readString(),
+                            staticUrl = readString(),
+                            accounts = null
+                        )
+                    }
+                },
+                inReplyToAccountAcct = reader.readString(),
+                parentVisible = reader.readNullable { readBoolean() }
+            )
+        }
+    }
+
+    // Stored codes, they must not change when the enum does
+    private fun typeCode(type: Attachment.Type): Int {
+        return when (type) {
+            Attachment.Type.IMAGE -> 0
+            Attachment.Type.GIFV -> 1
+            Attachment.Type.VIDEO -> 2
+            Attachment.Type.AUDIO -> 3
+            Attachment.Type.UNKNOWN -> 4
+        }
+    }
+
+    private fun typeOf(code: Int): Attachment.Type {
+        return when (code) {
+            0 -> Attachment.Type.IMAGE
+            1 -> Attachment.Type.GIFV
+            2 -> Attachment.Type.VIDEO
+            3 -> Attachment.Type.AUDIO
+            else -> Attachment.Type.UNKNOWN
+        }
+    }
+
+    private fun ColumnWriter.writeEmoji(emoji: Emoji) {
+        writeString(emoji.category)
+        writeString(emoji.shortcode)
+        writeString(emoji.url)
+        writeString(emoji.staticUrl)
+        writeNullable(emoji.visibleInPicker) { writeBoolean(it) }
+    }
+
+    private fun ColumnReader.readEmoji(): Emoji {
+        return Emoji(
+            category = readString().orEmpty(),
+            shortcode = readString().orEmpty(),
+            url = readString().orEmpty(),
+            staticUrl = readString().orEmpty(),
+            visibleInPicker = readNullable { readBoolean() }
+        )
+    }
+
+    private inline fun encode(block: (ColumnWriter) -> Unit): ByteArray {
+        val bytes = ByteArrayOutputStream(64)
+        val writer = ColumnWriter(DataOutputStream(bytes))
+        writer.writeByte(VERSION)
+        block(writer)
+        writer.flush()
+        return bytes.toByteArray()
+    }
+
+    private inline fun <T> decode(bytes: ByteArray?, block: (ColumnReader) -> T): T? {
+        if (bytes == null || bytes.isEmpty()) {
+            return null
+        }
+        val reader = ColumnReader(DataInputStream(ByteArrayInputStream(bytes)))
+        return try {
+            if (reader.readByte().toInt() != VERSION) {
+                null
+            } else {
+                block(reader)
+            }
+        } catch (e: IOException) {
+            null
+        } catch (e: RuntimeException) {
+            null
+        }
+    }
+
+    private class ColumnWriter(private val out: DataOutputStream) {
+
+        fun writeByte(value: Int) = out.writeByte(value)
+
+        fun writeBoolean(value: Boolean) = out.writeBoolean(value)
+
+        fun writeInt(value: Int) = out.writeInt(value)
+
+        fun writeLong(value: Long) = out.writeLong(value)
+
+        fun writeFloat(value: Float) = out.writeFloat(value)
+
+        // DataOutputStream.writeUTF() is capped at 64k, which a long description can exceed
+        fun writeString(value: String?) {
+            if (value == null) {
+                out.writeInt(NULL_LENGTH)
+            } else {
+                val bytes = value.toByteArray(Charsets.UTF_8)
+                out.writeInt(bytes.size)
+                out.write(bytes)
+            }
+        }
+
+        inline fun <T> writeNullable(value: T?, block: ColumnWriter.(T) -> Unit) {
+            out.writeBoolean(value != null)
+            if (value != null) {
+                block(value)
+            }
+        }
+
+        inline fun <T> writeList(values: List<T>, block: ColumnWriter.(T) -> Unit) {
+            out.writeInt(values.size)
+            for (value in values) {
+                block(value)
+            }
+        }
+
+        fun flush() = out.flush()
+    }
+
+    private class ColumnReader(private val input: DataInputStream) {
+
+        fun readByte(): Byte = input.readByte()
+
+        fun readBoolean(): Boolean = input.readBoolean()
+
+        fun readInt(): Int = input.readInt()
+
+        fun readLong(): Long = input.readLong()
+
+        fun readFloat(): Float = input.readFloat()
+
+        fun readString(): String? {
+            val length = input.readInt()
+            if (length == NULL_LENGTH) {
+                return null
+            }
+            val bytes = ByteArray(checkLength(length))
+            input.readFully(bytes)
+            return String(bytes, Charsets.UTF_8)
+        }
+
+        // A corrupt length must not allocate more than the blob could hold
+        fun checkLength(length: Int): Int {
+            if (length < 0 || length > input.available()) {
+                throw IOException("Length $length out of bounds")
+            }
+            return length
+        }
+
+        inline fun <T> readNullable(block: ColumnReader.() -> T): T? {
+            return if (input.readBoolean()) block() else null
+        }
+
+        inline fun <T> readList(block: ColumnReader.() -> T): ArrayList<T> {
+            // Every item takes at least a byte
+            val size = checkLength(input.readInt())
+            val list = ArrayList<T>(size)
+            repeat(size) {
+                list.add(block())
+            }
+            return list
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.db
+
+import android.content.ContentValues
+import android.database.Cursor
+import android.database.sqlite.SQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import com.google.gson.reflect.TypeToken
+import com.keylesspalace.tusky.entity.Attachment
+import com.keylesspalace.tusky.entity.Emoji
+import com.keylesspalace.tusky.entity.Poll
+import com.keylesspalace.tusky.entity.Status
+
+/**
+ * Rewrites the JSON columns of the timeline cache into [TimelineColumnCodec] blobs.
+ *
+ * SQLite cannot change the type of a column in place, so both tables are copied into new
+ * tables row by row and then swapped.
+ */
+object TimelineColumnMigration {
+
+    private val gson = Gson()
+
+    private val emojiListType = object : TypeToken<List<Emoji>>() {}.type
+    private val attachmentListType = object : TypeToken<List<Attachment>>() {}.type
+
+    @JvmStatic
+    fun migrateJsonToBlobs(database: SupportSQLiteDatabase) {
+        database.execSQL(
+            "CREATE TABLE IF NOT EXISTS `TimelineAccountEntity_new` (" +
+                "`serverId` TEXT NOT NULL, `timelineUserId` INTEGER NOT NULL, " +
+                "`localUsername` TEXT NOT NULL, `username` TEXT NOT NULL, " +
+                "`displayName` TEXT NOT NULL, `url` TEXT NOT NULL, `avatar` TEXT NOT NULL, " +
+                "`emojis` BLOB NOT NULL, `bot` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`serverId`, `timelineUserId`))"
+        )
+        database.execSQL(
+            "CREATE TABLE IF NOT EXISTS `TimelineStatusEntity_new` (" +
+                "`serverId` TEXT NOT NULL, `url` TEXT, `timelineUserId` INTEGER NOT NULL, " +
+                "`authorServerId` TEXT, `inReplyToId` TEXT, `inReplyToAccountId` TEXT, " +
+                "`content` TEXT, `createdAt` INTEGER NOT NULL, `editedAt` INTEGER, " +
+                "`emojis` BLOB, `reblogsCount` INTEGER NOT NULL, " +
+                "`favouritesCount` INTEGER NOT NULL, `reblogged` INTEGER NOT NULL, " +
+                "`bookmarked` INTEGER NOT NULL, `favourited` INTEGER NOT NULL, " +
+                "`sensitive` INTEGER NOT NULL, `spoilerText` TEXT, `visibility` INTEGER, " +
+                "`attachments` BLOB, `mentions` BLOB, `application` BLOB, " +
+                "`reblogServerId` TEXT, `reblogAccountId` TEXT, `poll` BLOB, `pleroma` BLOB, " +
+                "`quotedStatusId` TEXT, `quotedStatusUrl` TEXT, `quote` TEXT, " +
+                "`quoteEmojis` BLOB, `quoteFullName` TEXT, `quoteUsername` TEXT, " +
+                "`quotedAccountEmojis` BLOB, " +
+                "PRIMARY KEY(`serverId`, `timelineUserId`), " +
+                "FOREIGN KEY(`authorServerId`, `timelineUserId`) " +
+                "REFERENCES `TimelineAccountEntity`(`serverId`, `timelineUserId`) " +
+                "ON UPDATE NO ACTION ON DELETE NO ACTION )"
+        )
+
+        database.query("SELECT * FROM `TimelineAccountEntity`").use { cursor ->
+            while (cursor.moveToNext()) {
+                val values = cursor.copyValues()
+                values.put(
+                    "emojis",
+                    TimelineColumnCodec.encodeEmojis(
+                        fromJson<List<Emoji>>(cursor.getString("emojis"), emojiListType)
+                    )
+                )
+                database.insert(
+                    "TimelineAccountEntity_new",
+                    SQLiteDatabase.CONFLICT_REPLACE,
+                    values
+                )
+            }
+        }
+
+        database.query("SELECT * FROM `TimelineStatusEntity`").use { cursor ->
+            while (cursor.moveToNext()) {
+                val values = cursor.copyValues()
+                // Placeholders have all of their nested columns set to NULL, keep them that way
+                val isPlaceholder = cursor.getString("authorServerId") == null
+                for (column in listOf("emojis", "quoteEmojis", "quotedAccountEmojis")) {
+                    values.putBlob(column, isPlaceholder) {
+                        TimelineColumnCodec.encodeEmojis(
+                            fromJson<List<Emoji>>(cursor.getString(column), emojiListType)
+                        )
+                    }
+                }
+                values.putBlob("attachments", isPlaceholder) {
+                    TimelineColumnCodec.encodeAttachments(
+                        fromJson<List<Attachment>>(
+                            cursor.getString("attachments"),
+                            attachmentListType
+                        )
+                    )
+                }
+                values.putBlob("mentions", isPlaceholder) {
+                    TimelineColumnCodec.encodeMentions(
+                        fromJson(cursor.getString("mentions"), Array<Status.Mention>::class.java)
+                    )
+                }
+                values.putBlob("application", isPlaceholder) {
+                    TimelineColumnCodec.encodeApplication(
+                        fromJson(cursor.getString("application"), Status.Application::class.java)
+                    )
+                }
+                values.putBlob("poll", isPlaceholder) {
+                    TimelineColumnCodec.encodePoll(
+                        fromJson(cursor.getString("poll"), Poll::class.java)
+                    )
+                }
+                values.putBlob("pleroma", isPlaceholder) {
+                    TimelineColumnCodec.encodePleroma(
+                        fromJson(cursor.getString("pleroma"), Status.PleromaStatus::class.java)
+                    )
+                }
+                database.insert(
+                    "TimelineStatusEntity_new",
+                    SQLiteDatabase.CONFLICT_REPLACE,
+                    values
+                )
+            }
+        }
+
+        database.execSQL("DROP TABLE `TimelineStatusEntity`")
+        database.execSQL("DROP TABLE `TimelineAccountEntity`")
+        database.execSQL("ALTER TABLE `TimelineAccountEntity_new` RENAME TO `TimelineAccountEntity`")
+        database.execSQL("ALTER TABLE `TimelineStatusEntity_new` RENAME TO `TimelineStatusEntity`")
+        database.execSQL(
+            "CREATE INDEX IF NOT EXISTS `index_TimelineStatusEntity_authorServerId_timelineUserId` " +
+                "ON `TimelineStatusEntity` (`authorServerId`, `timelineUserId`)"
+        )
+    }
+
+    private fun <T> fromJson(json: String?, type: java.lang.reflect.Type): T? {
+        if (json == null) {
+            return null
+        }
+        return try {
+            gson.fromJson<T>(json, type)
+        } catch (e: JsonParseException) {
+            null
+        }
+    }
+
+    private fun Cursor.getString(column: String): String? {
+        val index = getColumnIndexOrThrow(column)
+        return if (isNull(index)) null else getString(index)
+    }
+
+    private fun Cursor.copyValues(): ContentValues {
+        val values = ContentValues(columnCount)
+        for (index in 0 until columnCount) {
+            val name = getColumnName(index)
+            when (getType(index)) {
+                Cursor.FIELD_TYPE_NULL -> values.putNull(name)
+                Cursor.FIELD_TYPE_INTEGER -> values.put(name, getLong(index))
+                Cursor.FIELD_TYPE_FLOAT -> values.put(name, getDouble(index))
+                Cursor.FIELD_TYPE_BLOB -> values.put(name, getBlob(index))
+                else -> values.put(name, getString(index))
+            }
+        }
+        return values
+    }
+
+    private inline fun ContentValues.putBlob(
+        column: String,
+        isPlaceholder: Boolean,
+        encode: () -> ByteArray?
+    ) {
+        if (isPlaceholder) {
+            putNull(column)
+        } else {
+            put(column, encode())
+        }
+    }
+}
@@ -20,36 +20,24 @@ abstract class TimelineDao {
     @Insert(onConflict = IGNORE)
     abstract fun insertStatusIfNotThere(timelineAccountEntity: TimelineStatusEntity): Long
 
-    @Query(
-        """
-SELECT s.serverId, s.url, s.timelineUserId,
-s.authorServerId, s.inReplyToId, s.inReplyToAccountId, s.createdAt, s.editedAt,
-s.emojis, s.reblogsCount, s.favouritesCount, s.reblogged, s.favourited, s.bookmarked, s.sensitive,
-s.spoilerText, s.visibility, s.mentions, s.application, s.reblogServerId,s.reblogAccountId,
-s.content, s.attachments, s.poll, s.pleroma,
-a.serverId as 'a_serverId', a.timelineUserId as 'a_timelineUserId',
-a.localUsername as 'a_localUsername', a.username as 'a_username',
-a.displayName as 'a_displayName', a.url as 'a_url', a.avatar as 'a_avatar',
-a.emojis as 'a_emojis', a.bot as 'a_bot',
-rb.serverId as 'rb_serverId', rb.timelineUserId 'rb_timelineUserId',
-rb.localUsername as 'rb_localUsername', rb.username as 'rb_username',
-rb.displayName as 'rb_displayName', rb.url as 'rb_url', rb.avatar as 'rb_avatar',
-rb.emojis as'rb_emojis', rb.bot as 'rb_bot', s.quote, s.quoteEmojis, s.quoteFullName,
-s.quoteUsername, s.quotedAccountEmojis
-FROM TimelineStatusEntity s
-LEFT JOIN TimelineAccountEntity a ON (s.timelineUserId = a.timelineUserId AND s.authorServerId = a.serverId)
-LEFT JOIN TimelineAccountEntity rb ON (s.timelineUserId = rb.timelineUserId AND s.reblogAccountId = rb.serverId)
-WHERE s.timelineUserId = :account
-AND (CASE WHEN :maxId IS NOT NULL THEN
-(LENGTH(s.serverId) < LENGTH(:maxId) OR LENGTH(s.serverId) == LENGTH(:maxId) AND s.serverId < :maxId)
-ELSE 1 END)
-AND (CASE WHEN :sinceId IS NOT NULL THEN
-(LENGTH(s.serverId) > LENGTH(:sinceId) OR LENGTH(s.serverId) == LENGTH(:sinceId) AND s.serverId > :sinceId)
-ELSE 1 END)
-ORDER BY LENGTH(s.serverId) DESC, s.serverId DESC
-LIMIT :limit"""
-    )
-    abstract fun getStatusesForAccount(account: Long, maxId: String?, sinceId: String?, limit: Int): Single<List<TimelineStatusWithAccount>>
+    @Insert(onConflict = REPLACE)
+    abstract fun insertAccounts(accounts: List<TimelineAccountEntity>)
+
+    @Insert(onConflict = REPLACE)
+    abstract fun insertStatuses(statuses: List<TimelineStatusEntity>)
+
+    @Insert(onConflict = IGNORE)
+    abstract fun insertStatusesIfNotThere(statuses: List<TimelineStatusEntity>)
+
+    @Query(GET_STATUSES_QUERY)
+    abstract fun getStatusesForAccount(
+        account: Long,
+        kind: String,
+        argument: String,
+        maxId: String?,
+        sinceId: String?,
+        limit: Int
+    ): Single<List<TimelineStatusWithAccount>>
 
     @Transaction
     open fun insertInTransaction(
@@ -62,24 +50,51 @@ LIMIT :limit"""
         insertStatus(status)
     }
 
-    @Query(
-        """DELETE FROM TimelineStatusEntity WHERE timelineUserId = :accountId AND
-        (LENGTH(serverId) < LENGTH(:maxId) OR LENGTH(serverId) == LENGTH(:maxId) AND serverId < :maxId)
-AND
-(LENGTH(serverId) > LENGTH(:minId) OR LENGTH(serverId) == LENGTH(:minId) AND serverId > :minId)
-    """
+    /**
+     * Applies a whole fetched page in one transaction, so readers never see it half-written.
+     */
+    @Transaction
+    open fun insertPage(page: TimelinePage) {
+        page.deleteRange?.let { range ->
+            deleteRange(
+                page.timelineUserId,
+                page.timelineKind,
+                page.timelineArgument,
+                range.minId,
+                range.maxId
+            )
+        }
+        insertAccounts(page.accounts)
+        insertStatuses(page.statuses)
+        insertStatusesIfNotThere(page.placeholders)
+        page.removePlaceholdersBetween?.let { range ->
+            removeAllPlaceholdersBetween(
+                page.timelineUserId,
+                page.timelineKind,
+                page.timelineArgument,
+                range.maxId,
+                range.minId
+            )
+        }
+    }
+
+    @Query(DELETE_RANGE_QUERY)
+    abstract fun deleteRange(
+        accountId: Long,
+        kind: String,
+        argument: String,
+        minId: String,
+        maxId: String
     )
-    abstract fun deleteRange(accountId: Long, minId: String, maxId: String)
 
-    @Query(
-        """DELETE FROM TimelineStatusEntity WHERE authorServerId = null
-AND timelineUserId = :account AND
-(LENGTH(serverId) < LENGTH(:maxId) OR LENGTH(serverId) == LENGTH(:maxId) AND serverId < :maxId)
-AND
-(LENGTH(serverId) > LENGTH(:sinceId) OR LENGTH(serverId) == LENGTH(:sinceId) AND serverId > :sinceId)
-"""
+    @Query(REMOVE_PLACEHOLDERS_BETWEEN_QUERY)
+    abstract fun removeAllPlaceholdersBetween(
+        account: Long,
+        kind: String,
+        argument: String,
+        maxId: String,
+        sinceId: String
     )
-    abstract fun removeAllPlaceholdersBetween(account: Long, maxId: String, sinceId: String)
 
     @Query(
         """UPDATE TimelineStatusEntity SET favourited = :favourited
@@ -120,15 +135,227 @@ AND serverId = :statusId"""
     @Query("""DELETE FROM TimelineStatusEntity WHERE createdAt < :olderThan""")
     abstract fun cleanup(olderThan: Long)
 
+    @Query(
+        """SELECT COUNT(*) FROM TimelineStatusEntity WHERE timelineUserId = :accountId
+AND timelineKind = :kind AND timelineArgument = :argument"""
+    )
+    abstract fun countStatuses(accountId: Long, kind: String, argument: String): Int
+
+    @Query("SELECT COUNT(*) FROM TimelineStatusEntity WHERE timelineUserId = :accountId")
+    abstract fun countAccountStatuses(accountId: Long): Int
+
+    @Query(
+        """SELECT COALESCE(SUM($STATUS_ROW_BYTES), 0) FROM TimelineStatusEntity
+WHERE timelineUserId = :accountId"""
+    )
+    abstract fun getAccountStatusesSize(accountId: Long): Long
+
+    /**
+     * The cached timeline of the account that holds its oldest status.
+     */
+    @Query(
+        """SELECT timelineKind, timelineArgument FROM TimelineStatusEntity
+WHERE timelineUserId = :accountId
+GROUP BY timelineKind, timelineArgument
+ORDER BY MIN(sortKey) ASC LIMIT 1"""
+    )
+    abstract fun getOldestTimeline(accountId: Long): CachedTimeline?
+
+    @Query("SELECT COUNT(*) FROM TimelineStatusEntity")
+    abstract fun countAllStatuses(): Int
+
+    @Query("SELECT COALESCE(SUM($STATUS_ROW_BYTES), 0) FROM TimelineStatusEntity")
+    abstract fun getAllStatusesSize(): Long
+
+    @Query(
+        """DELETE FROM TimelineStatusEntity WHERE timelineUserId = :accountId
+AND timelineKind = :kind AND timelineArgument = :argument AND sortKey IN
+(SELECT sortKey FROM TimelineStatusEntity WHERE timelineUserId = :accountId
+AND timelineKind = :kind AND timelineArgument = :argument
+ORDER BY sortKey ASC LIMIT :count)"""
+    )
+    abstract fun deleteOldest(accountId: Long, kind: String, argument: String, count: Int)
+
+    @Query(
+        """SELECT * FROM TimelineStatusEntity WHERE timelineUserId = :accountId
+AND timelineKind = :kind AND timelineArgument = :argument
+ORDER BY sortKey ASC LIMIT 1"""
+    )
+    abstract fun getOldest(accountId: Long, kind: String, argument: String): TimelineStatusEntity?
+
+    /**
+     * Drops the [count] oldest statuses of a timeline. If a status is left at the bottom it gets
+     * a placeholder below it, so loading further goes to the network instead of ending there.
+     */
+    @Transaction
+    open fun evictOldest(
+        accountId: Long,
+        kind: String,
+        argument: String,
+        count: Int,
+        placeholderBelow: (String) -> TimelineStatusEntity
+    ) {
+        deleteOldest(accountId, kind, argument, count)
+        val oldest = getOldest(accountId, kind, argument) ?: return
+        if (oldest.authorServerId != null) {
+            insertStatusIfNotThere(placeholderBelow(oldest.serverId))
+        }
+    }
+
+    /**
+     * The cached timelines of some kinds, the one written last first. SQLite gives every row it
+     * inserts or replaces a higher rowid than any before.
+     */
+    @Query(
+        """SELECT timelineKind, timelineArgument FROM TimelineStatusEntity
+WHERE timelineUserId = :accountId AND timelineKind IN (:kinds)
+GROUP BY timelineKind, timelineArgument
+ORDER BY MAX(rowid) DESC"""
+    )
+    abstract fun getTimelines(accountId: Long, kinds: List<String>): List<CachedTimeline>
+
+    @Query(
+        """DELETE FROM TimelineStatusEntity WHERE timelineUserId = :accountId
+AND timelineKind = :kind AND timelineArgument = :argument"""
+    )
+    abstract fun deleteTimeline(accountId: Long, kind: String, argument: String)
+
+    /**
+     * Removes the cached accounts nothing points to anymore: neither a status, a reblog nor a chat.
+     */
+    @Query(
+        """DELETE FROM TimelineAccountEntity WHERE timelineUserId = :accountId AND serverId NOT IN
+(SELECT authorServerId FROM TimelineStatusEntity
+WHERE timelineUserId = :accountId AND authorServerId IS NOT NULL
+UNION SELECT reblogAccountId FROM TimelineStatusEntity
+WHERE timelineUserId = :accountId AND reblogAccountId IS NOT NULL
+UNION SELECT accountId FROM ChatEntity WHERE localId = :accountId)"""
+    )
+    abstract fun removeOrphanedAccounts(accountId: Long)
+
+    /**
+     * Cached accounts whose acct or display name starts with [prefix], which has to escape the
+     * LIKE wildcards with a backslash.
+     */
+    @Query(
+        """SELECT * FROM TimelineAccountEntity WHERE timelineUserId = :accountId
+AND (username LIKE :prefix || '%' ESCAPE '\' OR displayName LIKE :prefix || '%' ESCAPE '\')
+ORDER BY username LIMIT :limit"""
+    )
+    abstract fun searchAccounts(
+        accountId: Long,
+        prefix: String,
+        limit: Int
+    ): List<TimelineAccountEntity>
+
     @Query(
         """UPDATE TimelineStatusEntity SET poll = :poll
 WHERE timelineUserId = :accountId AND (serverId = :statusId OR reblogServerId = :statusId)"""
     )
-    abstract fun setVoted(accountId: Long, statusId: String, poll: String)
+    abstract fun setVoted(accountId: Long, statusId: String, poll: ByteArray?)
 
     @Query(
         """UPDATE TimelineStatusEntity SET pleroma = :pleroma
 WHERE timelineUserId = :accountId AND (serverId = :statusId OR reblogServerId = :statusId)"""
     )
-    abstract fun setPleroma(accountId: Long, statusId: String, pleroma: String)
+    abstract fun setPleroma(accountId: Long, statusId: String, pleroma: ByteArray?)
+
+    @Query(
+        """UPDATE TimelineStatusEntity SET contentSpans = :contentSpans, content = :content,
+editedAt = :editedAt, spoilerText = :spoilerText, sensitive = :sensitive, emojis = :emojis,
+attachments = :attachments, mentions = :mentions, poll = :poll
+WHERE timelineUserId = :accountId AND (serverId = :statusId OR reblogServerId = :statusId)"""
+    )
+    abstract fun setEdited(
+        accountId: Long,
+        statusId: String,
+        contentSpans: ByteArray?,
+        content: String?,
+        editedAt: Long?,
+        spoilerText: String?,
+        sensitive: Boolean,
+        emojis: ByteArray?,
+        attachments: ByteArray?,
+        mentions: ByteArray?,
+        poll: ByteArray?
+    )
+
+    /**
+     * Replaces what an edit can change of a status, in every timeline and reblog it's cached in.
+     *
+     * @param edited the edited status as a row, only the columns an edit changes are used
+     */
+    open fun setEdited(accountId: Long, edited: TimelineStatusEntity) {
+        setEdited(
+            accountId,
+            edited.serverId,
+            edited.contentSpans,
+            edited.content,
+            edited.editedAt,
+            edited.spoilerText,
+            edited.sensitive,
+            edited.emojis,
+            edited.attachments,
+            edited.mentions,
+            edited.poll
+        )
+    }
 }
+
+/**
+ * Sorts after every sort key, stands in for a missing maxId.
+ */
+internal const val NO_UPPER_BOUND = "~"
+
+/**
+ * The range queries of [TimelineDao]. The test that checks they are served by the sort key
+ * index runs them too.
+ */
+internal const val GET_STATUSES_QUERY = """
+SELECT s.serverId, s.url, s.timelineUserId,
+s.authorServerId, s.inReplyToId, s.inReplyToAccountId, s.createdAt, s.editedAt,
+s.emojis, s.reblogsCount, s.favouritesCount, s.reblogged, s.favourited, s.bookmarked, s.sensitive,
+s.spoilerText, s.visibility, s.mentions, s.application, s.reblogServerId,s.reblogAccountId,
+s.content, s.attachments, s.poll, s.pleroma,
+a.serverId as 'a_serverId', a.timelineUserId as 'a_timelineUserId',
+a.localUsername as 'a_localUsername', a.username as 'a_username',
+a.displayName as 'a_displayName', a.url as 'a_url', a.avatar as 'a_avatar',
+a.emojis as 'a_emojis', a.bot as 'a_bot',
+rb.serverId as 'rb_serverId', rb.timelineUserId 'rb_timelineUserId',
+rb.localUsername as 'rb_localUsername', rb.username as 'rb_username',
+rb.displayName as 'rb_displayName', rb.url as 'rb_url', rb.avatar as 'rb_avatar',
+rb.emojis as'rb_emojis', rb.bot as 'rb_bot', s.quote, s.quoteEmojis, s.quoteFullName,
+s.quoteUsername, s.quotedAccountEmojis,
+s.contentSpans, s.quoteSpans, s.sortKey, s.timelineKind, s.timelineArgument
+FROM TimelineStatusEntity s
+LEFT JOIN TimelineAccountEntity a ON (s.timelineUserId = a.timelineUserId AND s.authorServerId = a.serverId)
+LEFT JOIN TimelineAccountEntity rb ON (s.timelineUserId = rb.timelineUserId AND s.reblogAccountId = rb.serverId)
+WHERE s.timelineUserId = :account
+AND s.timelineKind = :kind AND s.timelineArgument = :argument
+AND s.sortKey < COALESCE(printf('%04d', LENGTH(:maxId)) || :maxId, '$NO_UPPER_BOUND')
+AND s.sortKey > COALESCE(printf('%04d', LENGTH(:sinceId)) || :sinceId, '')
+ORDER BY s.sortKey DESC
+LIMIT :limit"""
+
+internal const val DELETE_RANGE_QUERY = """DELETE FROM TimelineStatusEntity
+WHERE timelineUserId = :accountId
+AND timelineKind = :kind AND timelineArgument = :argument
+AND sortKey < printf('%04d', LENGTH(:maxId)) || :maxId
+AND sortKey > printf('%04d', LENGTH(:minId)) || :minId"""
+
+internal const val REMOVE_PLACEHOLDERS_BETWEEN_QUERY = """DELETE FROM TimelineStatusEntity
+WHERE authorServerId IS NULL
+AND timelineUserId = :account
+AND timelineKind = :kind AND timelineArgument = :argument
+AND sortKey < printf('%04d', LENGTH(:maxId)) || :maxId
+AND sortKey > printf('%04d', LENGTH(:sinceId)) || :sinceId"""
+
+/**
+ * Approximate size of a cached status row: what its text and blob columns take up.
+ */
+internal const val STATUS_ROW_BYTES = """(LENGTH(serverId) + IFNULL(LENGTH(url), 0)
++ IFNULL(LENGTH(content), 0) + IFNULL(LENGTH(contentSpans), 0) + IFNULL(LENGTH(spoilerText), 0)
++ IFNULL(LENGTH(emojis), 0) + IFNULL(LENGTH(attachments), 0) + IFNULL(LENGTH(mentions), 0)
++ IFNULL(LENGTH(application), 0) + IFNULL(LENGTH(poll), 0) + IFNULL(LENGTH(pleroma), 0)
++ IFNULL(LENGTH(quote), 0) + IFNULL(LENGTH(quoteSpans), 0) + IFNULL(LENGTH(quoteEmojis), 0)
++ IFNULL(LENGTH(quotedAccountEmojis), 0) + LENGTH(sortKey))"""
@@ -0,0 +1,60 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.db
+
+/**
+ * Exclusive range of status ids, bounds are compared like [TimelineDao] does.
+ */
+data class IdRange(
+    val minId: String,
+    val maxId: String
+)
+
+/**
+ * Everything one fetched page changes in the timeline cache, applied by
+ * [TimelineDao.insertPage].
+ *
+ * @param timelineKind see [TimelineStatusEntity.timelineKind]
+ * @param timelineArgument see [TimelineStatusEntity.timelineArgument]
+ * @param deleteRange cached statuses in this range are dropped first: the server didn't
+ * return them, so they were deleted in the meantime
+ * @param accounts authors and reblog authors of [statuses], without duplicates
+ * @param placeholders gaps to remember, never overwriting a status that's already there
+ * @param removePlaceholdersBetween placeholders in this range turned out to be no gap at all
+ */
+data class TimelinePage(
+    val timelineUserId: Long,
+    val timelineKind: String,
+    val timelineArgument: String,
+    val deleteRange: IdRange?,
+    val accounts: List<TimelineAccountEntity>,
+    val statuses: List<TimelineStatusEntity>,
+    val placeholders: List<TimelineStatusEntity>,
+    val removePlaceholdersBetween: IdRange?
+)
+
+/**
+ * A timeline in the cache, see [TimelineStatusEntity.timelineKind] and
+ * [TimelineStatusEntity.timelineArgument].
+ */
+data class CachedTimeline(
+    val timelineKind: String,
+    val timelineArgument: String
+)
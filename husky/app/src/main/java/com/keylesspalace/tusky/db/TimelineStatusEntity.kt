@@ -6,6 +6,13 @@ import androidx.room.ForeignKey
 import androidx.room.Index
 import androidx.room.TypeConverters
 import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.util.toSortKey
+
+/**
+ * [TimelineStatusEntity.timelineKind] of the home timeline, which every row had before other
+ * timelines were cached.
+ */
+const val HOME_TIMELINE = "HOME"
 
 /**
  * We're trying to play smart here. Server sends us reblogs as two entities one embedded into
@@ -19,7 +26,7 @@ import com.keylesspalace.tusky.entity.Status
  * fields.
  */
 @Entity(
-    primaryKeys = ["serverId", "timelineUserId"],
+    primaryKeys = ["serverId", "timelineUserId", "timelineKind", "timelineArgument"],
     foreignKeys = (
         [
             ForeignKey(
@@ -30,7 +37,11 @@ import com.keylesspalace.tusky.entity.Status
         ]
         ),
     // Avoiding rescanning status table when accounts table changes. Recommended by Room(c).
-    indices = [Index("authorServerId", "timelineUserId")]
+    indices = [
+        Index("authorServerId", "timelineUserId"),
+        // Paging and range deletes walk this instead of scanning and sorting by serverId
+        Index("timelineUserId", "timelineKind", "timelineArgument", "sortKey")
+    ]
 )
 @TypeConverters(Converters::class)
 data class TimelineStatusEntity(
@@ -44,7 +55,7 @@ data class TimelineStatusEntity(
     val content: String?,
     val createdAt: Long,
     val editedAt: Long?,
-    val emojis: String?,
+    val emojis: ByteArray?,
     val reblogsCount: Int,
     val favouritesCount: Int,
     val reblogged: Boolean,
@@ -53,21 +64,85 @@ data class TimelineStatusEntity(
     val sensitive: Boolean,
     val spoilerText: String?,
     val visibility: Status.Visibility?,
-    val attachments: String?,
-    val mentions: String?,
-    val application: String?,
+    val attachments: ByteArray?,
+    val mentions: ByteArray?,
+    val application: ByteArray?,
     val reblogServerId: String?, // if it has a reblogged status, it's id is stored here
     val reblogAccountId: String?,
-    val poll: String?,
-    val pleroma: String?,
+    val poll: ByteArray?,
+    val pleroma: ByteArray?,
     val quotedStatusId: String?,
     val quotedStatusUrl: String?,
     val quote: String?,
-    val quoteEmojis: String?,
+    val quoteEmojis: ByteArray?,
     val quoteFullName: String?,
     val quoteUsername: String?,
-    val quotedAccountEmojis: String?
-)
+    val quotedAccountEmojis: ByteArray?,
+    // already parsed content and quote, see SpannedColumnCodec. content and quote keep the
+    // HTML they were parsed from, for when these are missing or can't be decoded anymore
+    val contentSpans: ByteArray?,
+    val quoteSpans: ByteArray?,
+    // serverId.toSortKey(), ordered like the ids themselves
+    val sortKey: String = serverId.toSortKey(),
+    // which timeline of the user this row belongs to, a status can be cached in several of them
+    val timelineKind: String = HOME_TIMELINE,
+    // list id, account id or hashtags, empty for timelines without an argument
+    val timelineArgument: String = ""
+) {
+
+    // The nested columns are encoded blobs, compare them by content rather than by reference
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is TimelineStatusEntity) return false
+
+        return serverId == other.serverId &&
+            url == other.url &&
+            timelineUserId == other.timelineUserId &&
+            authorServerId == other.authorServerId &&
+            inReplyToId == other.inReplyToId &&
+            inReplyToAccountId == other.inReplyToAccountId &&
+            content == other.content &&
+            createdAt == other.createdAt &&
+            editedAt == other.editedAt &&
+            emojis.contentEquals(other.emojis) &&
+            reblogsCount == other.reblogsCount &&
+            favouritesCount == other.favouritesCount &&
+            reblogged == other.reblogged &&
+            bookmarked == other.bookmarked &&
+            favourited == other.favourited &&
+            sensitive == other.sensitive &&
+            spoilerText == other.spoilerText &&
+            visibility == other.visibility &&
+            attachments.contentEquals(other.attachments) &&
+            mentions.contentEquals(other.mentions) &&
+            application.contentEquals(other.application) &&
+            reblogServerId == other.reblogServerId &&
+            reblogAccountId == other.reblogAccountId &&
+            poll.contentEquals(other.poll) &&
+            pleroma.contentEquals(other.pleroma) &&
+            quotedStatusId == other.quotedStatusId &&
+            quotedStatusUrl == other.quotedStatusUrl &&
+            quote == other.quote &&
+            quoteEmojis.contentEquals(other.quoteEmojis) &&
+            quoteFullName == other.quoteFullName &&
+            quoteUsername == other.quoteUsername &&
+            quotedAccountEmojis.contentEquals(other.quotedAccountEmojis) &&
+            contentSpans.contentEquals(other.contentSpans) &&
+            quoteSpans.contentEquals(other.quoteSpans) &&
+            sortKey == other.sortKey &&
+            timelineKind == other.timelineKind &&
+            timelineArgument == other.timelineArgument
+    }
+
+    override fun hashCode(): Int {
+        var result = serverId.hashCode()
+        result = 31 * result + timelineUserId.hashCode()
+        result = 31 * result + createdAt.hashCode()
+        result = 31 * result + (content?.hashCode() ?: 0)
+        result = 31 * result + (reblogServerId?.hashCode() ?: 0)
+        return result
+    }
+}
 
 @Entity(
     primaryKeys = ["serverId", "timelineUserId"]
@@ -80,9 +155,31 @@ data class TimelineAccountEntity(
     val displayName: String,
     val url: String,
     val avatar: String,
-    val emojis: String,
+    val emojis: ByteArray,
     val bot: Boolean
-)
+) {
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is TimelineAccountEntity) return false
+
+        return serverId == other.serverId &&
+            timelineUserId == other.timelineUserId &&
+            localUsername == other.localUsername &&
+            username == other.username &&
+            displayName == other.displayName &&
+            url == other.url &&
+            avatar == other.avatar &&
+            emojis.contentEquals(other.emojis) &&
+            bot == other.bot
+    }
+
+    override fun hashCode(): Int {
+        var result = serverId.hashCode()
+        result = 31 * result + timelineUserId.hashCode()
+        return result
+    }
+}
 
 class TimelineStatusWithAccount {
 
@@ -26,6 +26,7 @@ import com.google.gson.GsonBuilder
 import com.keylesspalace.tusky.appstore.CacheUpdater
 import com.keylesspalace.tusky.components.common.MediaUploader
 import com.keylesspalace.tusky.components.common.MediaUploaderImpl
+import com.keylesspalace.tusky.components.common.UploadScheduler
 import com.keylesspalace.tusky.components.drafts.DraftHelper
 import com.keylesspalace.tusky.core.logging.CrashHandler
 import com.keylesspalace.tusky.db.AccountManager
@@ -36,23 +37,27 @@ import org.koin.dsl.module
 
 val appComponentModule = module {
     factory {
-        DraftHelper(get(), get())
+        DraftHelper(get(), get(), get())
     }
 
     factory {
-        MediaUploaderImpl(get(), get())
+        MediaUploaderImpl(get(), get(), get())
     } bind MediaUploader::class
 
+    single {
+        UploadScheduler.forDevice(get())
+    }
+
     factory {
-        SaveTootHelper(get(), get())
+        SaveTootHelper(get(), get(), get())
     }
 
     single {
-        AccountManager(get())
+        AccountManager(get(), get())
     }
 
     single {
-        CacheUpdater(get(), get(), get(), get())
+        CacheUpdater(get(), get(), get(), get(), get())
     }
 
     single {
@@ -31,8 +31,15 @@ import com.keylesspalace.tusky.components.notifications.NotificationFetcher
 import com.keylesspalace.tusky.components.notifications.NotificationWorkerFactory
 import com.keylesspalace.tusky.components.notifications.Notifier
 import com.keylesspalace.tusky.components.notifications.SystemNotifier
+import com.keylesspalace.tusky.core.utils.ApplicationUtils
 import com.keylesspalace.tusky.db.AppDatabase
+import com.keylesspalace.tusky.db.DatabaseWriter
+import com.keylesspalace.tusky.db.MainThreadQueryGuard
+import com.keylesspalace.tusky.service.TimelineStreams
+import com.keylesspalace.tusky.util.EmojiDrawablePool
+import com.keylesspalace.tusky.util.EmojiPreferences
 import com.keylesspalace.tusky.util.LocaleManager
+import com.keylesspalace.tusky.util.StatusFilter
 import org.koin.dsl.bind
 import org.koin.dsl.module
 
@@ -50,7 +57,23 @@ val appModule = module {
     }
 
     single {
-        NotificationFetcher(get(), get(), get())
+        StatusFilter()
+    }
+
+    single {
+        EmojiPreferences(get())
+    }
+
+    single {
+        EmojiDrawablePool(get())
+    }
+
+    single {
+        TimelineStreams()
+    }
+
+    single {
+        NotificationFetcher(get(), get(), get(), get())
     }
 
     single {
@@ -63,7 +86,11 @@ val appModule = module {
 
     single {
         Room.databaseBuilder(get(), AppDatabase::class.java, "tuskyDB")
-            .allowMainThreadQueries()
+            .apply {
+                if (ApplicationUtils.isDebug()) {
+                    setQueryCallback(MainThreadQueryGuard, Runnable::run)
+                }
+            }
             .addMigrations(
                 AppDatabase.MIGRATION_2_3,
                 AppDatabase.MIGRATION_3_4,
@@ -98,10 +125,23 @@ val appModule = module {
                 AppDatabase.MIGRATION_31_32,
                 AppDatabase.MIGRATION_32_33,
                 AppDatabase.MIGRATION_33_34,
-                AppDatabase.MIGRATION_34_35
+                AppDatabase.MIGRATION_34_35,
+                AppDatabase.MIGRATION_35_36,
+                AppDatabase.MIGRATION_36_37,
+                AppDatabase.MIGRATION_37_38,
+                AppDatabase.MIGRATION_38_39,
+                AppDatabase.MIGRATION_39_40,
+                AppDatabase.MIGRATION_40_41,
+                AppDatabase.MIGRATION_41_42,
+                AppDatabase.MIGRATION_42_43,
+                AppDatabase.MIGRATION_43_44
             ).build()
     } bind AppDatabase::class
 
+    single {
+        DatabaseWriter(get<AppDatabase>())
+    }
+
     single {
         SystemNotifier(get())
     } bind Notifier::class
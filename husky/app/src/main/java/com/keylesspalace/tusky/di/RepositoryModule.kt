@@ -10,6 +10,10 @@ import com.keylesspalace.tusky.components.report.adapter.StatusesRepository
 import com.keylesspalace.tusky.db.AppDatabase
 import com.keylesspalace.tusky.repository.ChatRepository
 import com.keylesspalace.tusky.repository.ChatRepositoryImpl
+import com.keylesspalace.tusky.repository.NotificationRepository
+import com.keylesspalace.tusky.repository.NotificationRepositoryImpl
+import com.keylesspalace.tusky.repository.ParsedContentCache
+import com.keylesspalace.tusky.repository.TimelineCacheBudget
 import com.keylesspalace.tusky.repository.TimelineRepository
 import com.keylesspalace.tusky.repository.TimelineRepositoryImpl
 import org.koin.core.module.dsl.bind
@@ -19,11 +23,11 @@ import org.koin.dsl.module
 
 val repositoryModule = module {
     factory {
-        ChatRepositoryImpl(get<AppDatabase>().chatsDao(), get(), get(), get())
+        ChatRepositoryImpl(get<AppDatabase>().chatsDao(), get(), get(), get(), get())
     } bind ChatRepository::class
 
     factory {
-        ConversationsRepository(get(), get())
+        ConversationsRepository(get(), get(), get())
     }
 
     factory {
@@ -35,7 +39,32 @@ val repositoryModule = module {
     }
 
     factory {
-        TimelineRepositoryImpl(get<AppDatabase>().timelineDao(), get(), get(), get())
+        NotificationRepositoryImpl(
+            get<AppDatabase>().notificationDao(),
+            get(),
+            get(),
+            get(),
+            get()
+        )
+    } bind NotificationRepository::class
+
+    single {
+        ParsedContentCache()
+    }
+
+    single {
+        TimelineCacheBudget(get<AppDatabase>().timelineDao(), get(), get())
+    }
+
+    factory {
+        TimelineRepositoryImpl(
+            get<AppDatabase>().timelineDao(),
+            get(),
+            get(),
+            get(),
+            get(),
+            get()
+        )
     } bind TimelineRepository::class
 
     factory {
@@ -19,6 +19,8 @@
 
 package com.keylesspalace.tusky.di
 
+import com.keylesspalace.tusky.components.compose.ComposeAutocompleteSearch
+import com.keylesspalace.tusky.db.AppDatabase
 import com.keylesspalace.tusky.network.TimelineCases
 import com.keylesspalace.tusky.network.TimelineCasesImpl
 import org.koin.dsl.bind
@@ -28,4 +30,8 @@ val useCaseModule = module {
     factory {
         TimelineCasesImpl(get(), get())
     } bind TimelineCases::class
+
+    factory {
+        ComposeAutocompleteSearch(get(), get(), get<AppDatabase>().timelineDao())
+    }
 }
@@ -2,9 +2,14 @@ package com.keylesspalace.tusky.entity
 
 import com.google.gson.annotations.SerializedName
 
+/**
+ * @param stream the stream the event was sent on and its parameter, like `["list", "42"]`. Only
+ * set on connections that subscribed to several streams.
+ */
 data class StreamEvent(
     val event: EventType,
-    val payload: String
+    val payload: String,
+    val stream: List<String>? = null
 ) {
     enum class EventType {
         UNKNOWN,
@@ -18,6 +23,9 @@ data class StreamEvent(
         @SerializedName("delete")
         DELETE,
 
+        @SerializedName("status.update")
+        STATUS_UPDATE,
+
         @SerializedName("filters_changed")
         FILTERS_CHANGED;
     }
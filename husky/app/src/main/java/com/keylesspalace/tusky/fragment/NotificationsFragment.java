@@ -80,6 +80,7 @@ import com.keylesspalace.tusky.components.instance.domain.repository.InstanceRep
 import com.keylesspalace.tusky.core.functional.Either;
 import com.keylesspalace.tusky.db.AccountEntity;
 import com.keylesspalace.tusky.entity.EmojiReaction;
+import com.keylesspalace.tusky.entity.Filter;
 import com.keylesspalace.tusky.entity.Notification;
 import com.keylesspalace.tusky.entity.Poll;
 import com.keylesspalace.tusky.entity.Relationship;
@@ -88,11 +89,12 @@ import com.keylesspalace.tusky.interfaces.AccountActionListener;
 import com.keylesspalace.tusky.interfaces.ActionButtonActivity;
 import com.keylesspalace.tusky.interfaces.ReselectableFragment;
 import com.keylesspalace.tusky.interfaces.StatusActionListener;
+import com.keylesspalace.tusky.repository.NotificationPage;
+import com.keylesspalace.tusky.repository.NotificationRepository;
+import com.keylesspalace.tusky.repository.TimelineRequestMode;
 import com.keylesspalace.tusky.settings.PrefKeys;
 import com.keylesspalace.tusky.util.CardViewMode;
-import com.keylesspalace.tusky.util.HttpHeaderLink;
 import com.keylesspalace.tusky.util.ListStatusAccessibilityDelegate;
-import com.keylesspalace.tusky.util.ListUtils;
 import com.keylesspalace.tusky.util.NotificationTypeConverterKt;
 import com.keylesspalace.tusky.util.PairedList;
 import com.keylesspalace.tusky.util.StatusDisplayOptions;
@@ -105,6 +107,8 @@ import com.keylesspalace.tusky.viewdata.StatusViewData;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.schedulers.Schedulers;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -115,7 +119,6 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import kotlin.Unit;
 import kotlin.collections.CollectionsKt;
-import kotlin.jvm.functions.Function1;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -128,6 +131,9 @@ public class NotificationsFragment extends SFragment
 {
 
     private static final int LOAD_AT_ONCE = 30;
+
+    private static final List<String> NOTIFICATIONS_FILTER_CONTEXTS =
+        Collections.singletonList(Filter.NOTIFICATIONS);
     private int maxPlaceholderId = 0;
 
 
@@ -157,6 +163,9 @@ public class NotificationsFragment extends SFragment
     private final EventHub eventHub = (EventHub) inject(EventHub.class).getValue();
     private final InstanceRepository instanceRepo =
             (InstanceRepository) inject(InstanceRepository.class).getValue();
+    private final NotificationRepository notificationRepository =
+            (NotificationRepository) inject(NotificationRepository.class).getValue();
+    private final CompositeDisposable fetchDisposables = new CompositeDisposable();
     private SwipeRefreshLayout swipeRefreshLayout;
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
@@ -239,6 +248,8 @@ public class NotificationsFragment extends SFragment
         alwaysOpenSpoiler = accountManager.getValue().getActiveAccount().getAlwaysOpenSpoiler();
 
         withMuted = !preferences.getBoolean(PrefKeys.HIDE_MUTED_USERS, false);
+        // Muted users are left out by the server already
+        reloadFilters(null, false);
 
         topLoading = false;
         bottomLoading = false;
@@ -274,10 +285,18 @@ public class NotificationsFragment extends SFragment
                     setupRecyclerView();
                     updateAdapter();
 
-                    sendFetchNotificationsRequest(null, null, FetchEnd.BOTTOM, -1);
+                    loadCachedNotifications();
                 });
     }
 
+    /**
+     * Shows the cached notifications right away and only fetches what is newer, or the newest
+     * notifications if nothing is cached.
+     */
+    private void loadCachedNotifications() {
+        sendFetchNotificationsRequest(null, null, FetchEnd.BOTTOM, -1, TimelineRequestMode.DISK);
+    }
+
     private void createNotificationsAdapter(boolean canQuotePosts) {
         StatusDisplayOptions statusDisplayOptions =
                 new StatusDisplayOptions(
@@ -497,7 +516,7 @@ public class NotificationsFragment extends SFragment
         } else {
             topId = null;
         }
-        sendFetchNotificationsRequest(null, topId, FetchEnd.TOP, -1);
+        sendFetchNotificationsRequest(null, topId, FetchEnd.TOP, -1, TimelineRequestMode.NETWORK);
     }
 
     @Override
@@ -581,13 +600,9 @@ public class NotificationsFragment extends SFragment
         NotificationViewData.Concrete viewdata =
             (NotificationViewData.Concrete) notifications.getPairedItem(position);
 
-        StatusViewData.Builder viewDataBuilder =
-            new StatusViewData.Builder(viewdata.getStatusViewData());
-        viewDataBuilder.setReblogged(reblog);
-
         NotificationViewData.Concrete newViewData =
             new NotificationViewData.Concrete(viewdata.getType(), viewdata.getId(),
-                viewdata.getAccount(), viewDataBuilder.createStatusViewData(), viewdata.getEmoji(),
+                viewdata.getAccount(), viewdata.getStatusViewData().withReblogged(reblog), viewdata.getEmoji(),
                 viewdata.getEmojiUrl(), viewdata.getTarget());
         notifications.setPairedItem(position, newViewData);
         updateAdapter();
@@ -614,13 +629,9 @@ public class NotificationsFragment extends SFragment
         NotificationViewData.Concrete viewdata =
             (NotificationViewData.Concrete) notifications.getPairedItem(position);
 
-        StatusViewData.Builder viewDataBuilder =
-            new StatusViewData.Builder(viewdata.getStatusViewData());
-        viewDataBuilder.setFavourited(favourite);
-
         NotificationViewData.Concrete newViewData =
             new NotificationViewData.Concrete(viewdata.getType(), viewdata.getId(),
-                viewdata.getAccount(), viewDataBuilder.createStatusViewData(), viewdata.getEmoji(),
+                viewdata.getAccount(), viewdata.getStatusViewData().withFavourited(favourite), viewdata.getEmoji(),
                 viewdata.getEmojiUrl(), viewdata.getTarget());
 
         notifications.setPairedItem(position, newViewData);
@@ -650,13 +661,9 @@ public class NotificationsFragment extends SFragment
         NotificationViewData.Concrete viewdata =
             (NotificationViewData.Concrete) notifications.getPairedItem(position);
 
-        StatusViewData.Builder viewDataBuilder =
-            new StatusViewData.Builder(viewdata.getStatusViewData());
-        viewDataBuilder.setBookmarked(bookmark);
-
         NotificationViewData.Concrete newViewData =
             new NotificationViewData.Concrete(viewdata.getType(), viewdata.getId(),
-                viewdata.getAccount(), viewDataBuilder.createStatusViewData(), viewdata.getEmoji(),
+                viewdata.getAccount(), viewdata.getStatusViewData().withBookmarked(bookmark), viewdata.getEmoji(),
                 viewdata.getEmojiUrl(), viewdata.getTarget());
 
         notifications.setPairedItem(position, newViewData);
@@ -680,13 +687,9 @@ public class NotificationsFragment extends SFragment
         NotificationViewData.Concrete viewdata =
             (NotificationViewData.Concrete) notifications.getPairedItem(position);
 
-        StatusViewData.Builder viewDataBuilder =
-            new StatusViewData.Builder(viewdata.getStatusViewData());
-        viewDataBuilder.setPoll(poll);
-
         NotificationViewData.Concrete newViewData =
             new NotificationViewData.Concrete(viewdata.getType(), viewdata.getId(),
-                viewdata.getAccount(), viewDataBuilder.createStatusViewData(), viewdata.getEmoji(),
+                viewdata.getAccount(), viewdata.getStatusViewData().withPoll(poll), viewdata.getEmoji(),
                 viewdata.getEmojiUrl(), viewdata.getTarget());
 
         notifications.setPairedItem(position, newViewData);
@@ -743,9 +746,7 @@ public class NotificationsFragment extends SFragment
     public void onExpandedChange(boolean expanded, int position) {
         NotificationViewData.Concrete old =
             (NotificationViewData.Concrete) notifications.getPairedItem(position);
-        StatusViewData.Concrete statusViewData =
-            new StatusViewData.Builder(old.getStatusViewData()).setIsExpanded(expanded)
-                .createStatusViewData();
+        StatusViewData.Concrete statusViewData = old.getStatusViewData().withExpanded(expanded);
         NotificationViewData notificationViewData =
             new NotificationViewData.Concrete(old.getType(), old.getId(), old.getAccount(),
                 statusViewData, old.getEmoji(), old.getEmojiUrl(), old.getTarget());
@@ -758,8 +759,7 @@ public class NotificationsFragment extends SFragment
         NotificationViewData.Concrete old =
             (NotificationViewData.Concrete) notifications.getPairedItem(position);
         StatusViewData.Concrete statusViewData =
-            new StatusViewData.Builder(old.getStatusViewData()).setIsShowingSensitiveContent(
-                isShowing).createStatusViewData();
+            old.getStatusViewData().withShowingContent(isShowing);
         NotificationViewData notificationViewData =
             new NotificationViewData.Concrete(old.getType(), old.getId(), old.getAccount(),
                 statusViewData, old.getEmoji(), old.getEmojiUrl(), old.getTarget());
@@ -771,9 +771,8 @@ public class NotificationsFragment extends SFragment
     public void onMute(int position, boolean isMuted) {
         NotificationViewData.Concrete old =
             (NotificationViewData.Concrete) notifications.getPairedItem(position);
-        StatusViewData.Concrete statusViewData =
-            new StatusViewData.Builder(old.getStatusViewData()).setMuted(isMuted)
-                .createStatusViewData();
+        StatusViewData.Concrete statusViewData = old.getStatusViewData()
+            .withMuted(isMuted, old.getStatusViewData().isThreadMuted());
         NotificationViewData notificationViewData =
             new NotificationViewData.Concrete(old.getType(), old.getId(), old.getAccount(),
                 statusViewData, old.getEmoji(), old.getEmojiUrl(), old.getTarget());
@@ -789,14 +788,10 @@ public class NotificationsFragment extends SFragment
         NotificationViewData.Concrete viewdata =
             (NotificationViewData.Concrete) notifications.getPairedItem(position);
 
-        StatusViewData.Builder viewDataBuilder =
-            new StatusViewData.Builder(viewdata.getStatusViewData());
-        viewDataBuilder.setThreadMuted(threadMuted);
-        viewDataBuilder.setMuted(muted);
-
         NotificationViewData.Concrete newViewData =
             new NotificationViewData.Concrete(viewdata.getType(), viewdata.getId(),
-                viewdata.getAccount(), viewDataBuilder.createStatusViewData(), viewdata.getEmoji(),
+                viewdata.getAccount(), viewdata.getStatusViewData().withMuted(muted, threadMuted),
+                viewdata.getEmoji(),
                 viewdata.getEmojiUrl(), viewdata.getTarget());
 
         notifications.setPairedItem(position, newViewData);
@@ -805,6 +800,17 @@ public class NotificationsFragment extends SFragment
 
     @Override
     public void onLoadMore(int position) {
+        if(position >= 0 && position == notifications.size() - 1 &&
+           notifications.get(position).isLeft()) {
+            // Left at the bottom when many pages in a row were filtered out
+            Placeholder placeholder = notifications.get(position).asLeft();
+            notifications.setPairedItem(position,
+                new NotificationViewData.Placeholder(placeholder.id, true));
+            updateAdapter();
+            sendFetchNotificationsRequest(bottomId, null, FetchEnd.BOTTOM, -1,
+                TimelineRequestMode.NETWORK);
+            return;
+        }
         // Check bounds before accessing list,
         if(notifications.size() >= position && position > 0) {
             Notification previous = notifications.get(position - 1).asRightOrNull();
@@ -815,7 +821,7 @@ public class NotificationsFragment extends SFragment
                 return;
             }
             sendFetchNotificationsRequest(previous.getId(), next.getId(), FetchEnd.MIDDLE,
-                position);
+                position, TimelineRequestMode.NETWORK);
             Placeholder placeholder = notifications.get(position).asLeft();
             NotificationViewData notificationViewData =
                 new NotificationViewData.Placeholder(placeholder.id, true);
@@ -851,7 +857,7 @@ public class NotificationsFragment extends SFragment
         StatusViewData.Concrete status =
             ((NotificationViewData.Concrete) notification).getStatusViewData();
         StatusViewData.Concrete updatedStatus =
-            new StatusViewData.Builder(status).setCollapsed(isCollapsed).createStatusViewData();
+            status.withCollapsed(isCollapsed);
 
         NotificationViewData.Concrete concreteNotification =
             (NotificationViewData.Concrete) notification;
@@ -888,6 +894,9 @@ public class NotificationsFragment extends SFragment
         //Update adapter
         updateAdapter();
 
+        notificationRepository.clearNotifications(
+            accountManager.getValue().getActiveAccount().getId());
+
         //Execute clear notifications request
         Call<ResponseBody> call = mastodonApi.getValue().clearNotifications();
         call.enqueue(new Callback<ResponseBody>() {
@@ -917,6 +926,7 @@ public class NotificationsFragment extends SFragment
             callItem.cancel();
         }
         callList.clear();
+        fetchDisposables.clear();
         bottomLoading = false;
         topLoading = false;
 
@@ -1087,6 +1097,10 @@ public class NotificationsFragment extends SFragment
 
     private void onPreferenceChanged(String key) {
         switch(key) {
+            case Filter.NOTIFICATIONS: {
+                reloadFilters(null, true);
+                break;
+            }
             case "fabHide": {
                 hideFab = preferences.getBoolean("fabHide", false);
                 break;
@@ -1170,7 +1184,7 @@ public class NotificationsFragment extends SFragment
             }
         }
 
-        sendFetchNotificationsRequest(bottomId, null, FetchEnd.BOTTOM, -1);
+        sendFetchNotificationsRequest(bottomId, null, FetchEnd.BOTTOM, -1, TimelineRequestMode.ANY);
     }
 
     private Placeholder newPlaceholder() {
@@ -1188,7 +1202,7 @@ public class NotificationsFragment extends SFragment
     }
 
     private void sendFetchNotificationsRequest(String fromId, String uptoId,
-        final FetchEnd fetchEnd, final int pos)
+        final FetchEnd fetchEnd, final int pos, final TimelineRequestMode requestMode)
     {
         /* If there is a fetch already ongoing, record however many fetches are requested and
          * fulfill them after it's complete. */
@@ -1205,43 +1219,62 @@ public class NotificationsFragment extends SFragment
             bottomLoading = true;
         }
 
-        Call<List<Notification>> call = mastodonApi.getValue()
-            .notifications(fromId, uptoId, LOAD_AT_ONCE,
-                showNotificationsFilter ? notificationFilter : null, withMuted);
+        Set<Notification.Type> excludes =
+            showNotificationsFilter ? notificationFilter : Collections.emptySet();
+        fetchDisposables.add(notificationRepository
+            .getNotifications(fromId, uptoId, LOAD_AT_ONCE, excludes, withMuted, requestMode)
+            .observeOn(Schedulers.computation())
+            .map(page -> new NotificationPage(filterNotifications(page.getNotifications()),
+                page.getNextMaxId()))
+            .observeOn(AndroidSchedulers.mainThread())
+            .as(autoDisposable(from(this, Lifecycle.Event.ON_DESTROY)))
+            .subscribe(page -> onFetchNotificationsSuccess(page, fetchEnd, pos, requestMode),
+                throwable -> onFetchNotificationsFailure(throwable, fetchEnd, pos)));
+    }
 
-        call.enqueue(new Callback<List<Notification>>() {
-            @Override
-            public void onResponse(@NonNull Call<List<Notification>> call,
-                @NonNull Response<List<Notification>> response)
-            {
-                if(response.isSuccessful()) {
-                    String linkHeader = response.headers().get("Link");
-                    onFetchNotificationsSuccess(response.body(), linkHeader, fetchEnd, pos);
-                } else {
-                    onFetchNotificationsFailure(new Exception(response.message()), fetchEnd, pos);
-                }
+    private List<Either<com.keylesspalace.tusky.repository.Placeholder, Notification>>
+        filterNotifications(
+        List<Either<com.keylesspalace.tusky.repository.Placeholder, Notification>> unfiltered)
+    {
+        List<Either<com.keylesspalace.tusky.repository.Placeholder, Notification>> filtered =
+            new ArrayList<>(unfiltered.size());
+        for(Either<com.keylesspalace.tusky.repository.Placeholder, Notification> item :
+            unfiltered) {
+            Notification notification = item.asRightOrNull();
+            Status status = notification != null ? notification.getStatus() : null;
+            if(status == null || !shouldFilterStatus(status)) {
+                filtered.add(item);
             }
+        }
+        return filtered;
+    }
 
-            @Override
-            public void onFailure(@NonNull Call<List<Notification>> call, @NonNull Throwable t) {
-                if(!call.isCanceled()) {
-                    onFetchNotificationsFailure((Exception) t, fetchEnd, pos);
-                }
-            }
-        });
-        callList.add(call);
+    @NonNull
+    @Override
+    protected List<String> filterContexts() {
+        return NOTIFICATIONS_FILTER_CONTEXTS;
     }
 
-    private void onFetchNotificationsSuccess(List<Notification> notifications, String linkHeader,
-        FetchEnd fetchEnd, int pos)
+    @Override
+    protected void refreshAfterApplyingFilters() {
+        fullyRefresh();
+    }
+
+    private void onFetchNotificationsSuccess(NotificationPage page, FetchEnd fetchEnd, int pos,
+        TimelineRequestMode requestMode)
     {
-        List<HttpHeaderLink> links = HttpHeaderLink.parse(linkHeader);
-        HttpHeaderLink next = HttpHeaderLink.findByRelationType(links, "next");
-        String fromId = null;
-        if(next != null) {
-            fromId = next.uri.getQueryParameter("max_id");
+        if(requestMode == TimelineRequestMode.DISK && page.getNotifications().isEmpty()) {
+            // Nothing cached, start with the newest notifications
+            bottomLoading = false;
+            sendFetchNotificationsRequest(null, null, FetchEnd.BOTTOM, -1,
+                TimelineRequestMode.NETWORK);
+            return;
         }
 
+        List<Either<Placeholder, Notification>> notifications =
+            liftNotificationList(page.getNotifications());
+        String fromId = page.getNextMaxId();
+
         switch(fetchEnd) {
             case TOP: {
                 update(notifications, this.notifications.isEmpty() ? fromId : null);
@@ -1287,9 +1320,14 @@ public class NotificationsFragment extends SFragment
         updateFilterVisibility();
         swipeRefreshLayout.setRefreshing(false);
         progressBar.setVisibility(View.GONE);
+
+        if(requestMode == TimelineRequestMode.DISK) {
+            // Only what arrived since the newest cached notification
+            onRefresh();
+        }
     }
 
-    private void onFetchNotificationsFailure(Exception exception, FetchEnd fetchEnd, int position) {
+    private void onFetchNotificationsFailure(Throwable exception, FetchEnd fetchEnd, int position) {
         swipeRefreshLayout.setRefreshing(false);
         if(fetchEnd == FetchEnd.MIDDLE && !notifications.get(position).isRight()) {
             Placeholder placeholder = notifications.get(position).asLeft();
@@ -1329,14 +1367,15 @@ public class NotificationsFragment extends SFragment
         progressBar.setVisibility(View.GONE);
     }
 
-    private void saveNewestNotificationId(List<Notification> notifications) {
+    private void saveNewestNotificationId(List<Either<Placeholder, Notification>> notifications) {
 
         AccountEntity account = accountManager.getValue().getActiveAccount();
         if(account != null) {
             String lastNotificationId = account.getLastNotificationId();
 
-            for(Notification noti : notifications) {
-                if(isLessThan(lastNotificationId, noti.getId())) {
+            for(Either<Placeholder, Notification> item : notifications) {
+                Notification noti = item.asRightOrNull();
+                if(noti != null && isLessThan(lastNotificationId, noti.getId())) {
                     lastNotificationId = noti.getId();
                 }
             }
@@ -1350,77 +1389,63 @@ public class NotificationsFragment extends SFragment
         }
     }
 
-    private void update(@Nullable List<Notification> newNotifications, @Nullable String fromId) {
-        if(ListUtils.isEmpty(newNotifications)) {
+    /**
+     * Adds notifications on top. The repository leaves out the ones that are shown already and
+     * marks a gap below them with a placeholder.
+     */
+    private void update(List<Either<Placeholder, Notification>> newNotifications,
+        @Nullable String fromId)
+    {
+        if(newNotifications.isEmpty()) {
             updateAdapter();
             return;
         }
         if(fromId != null) {
             bottomId = fromId;
         }
-        List<Either<Placeholder, Notification>> liftedNew = liftNotificationList(newNotifications);
-        if(notifications.isEmpty()) {
-            notifications.addAll(liftedNew);
-        } else {
-            int index = notifications.indexOf(liftedNew.get(newNotifications.size() - 1));
-            for(int i = 0; i < index; i++) {
-                notifications.remove(0);
-            }
-
-            int newIndex = liftedNew.indexOf(notifications.get(0));
-            if(newIndex == -1) {
-                if(index == -1 && liftedNew.size() >= LOAD_AT_ONCE) {
-                    liftedNew.add(new Either.Left<>(newPlaceholder()));
-                }
-                notifications.addAll(0, liftedNew);
-            } else {
-                notifications.addAll(0, liftedNew.subList(0, newIndex));
-            }
-        }
+        notifications.addAll(0, newNotifications);
         updateAdapter();
     }
 
-    private void addItems(List<Notification> newNotifications, @Nullable String fromId) {
+    private void addItems(List<Either<Placeholder, Notification>> newNotifications,
+        @Nullable String fromId)
+    {
         bottomId = fromId;
-        if(ListUtils.isEmpty(newNotifications)) {
+        if(newNotifications.isEmpty()) {
             return;
         }
         int end = notifications.size();
-        List<Either<Placeholder, Notification>> liftedNew = liftNotificationList(newNotifications);
         Either<Placeholder, Notification> last = notifications.get(end - 1);
-        if(last != null && liftedNew.indexOf(last) == -1) {
-            notifications.addAll(liftedNew);
+        if(last != null && newNotifications.indexOf(last) == -1) {
+            notifications.addAll(newNotifications);
             updateAdapter();
         }
     }
 
-    private void replacePlaceholderWithNotifications(List<Notification> newNotifications, int pos) {
+    private void replacePlaceholderWithNotifications(
+        List<Either<Placeholder, Notification>> newNotifications, int pos)
+    {
         // Remove placeholder
         notifications.remove(pos);
 
-        if(ListUtils.isEmpty(newNotifications)) {
-            updateAdapter();
-            return;
-        }
-
-        List<Either<Placeholder, Notification>> liftedNew = liftNotificationList(newNotifications);
-
-        // If we fetched less posts than in the limit, it means that the hole is not filled
-        // If we fetched at least as much it means that there are more posts to load and we should
-        // insert new placeholder
-        if(newNotifications.size() >= LOAD_AT_ONCE) {
-            liftedNew.add(new Either.Left<>(newPlaceholder()));
-        }
-
-        notifications.addAll(pos, liftedNew);
+        // The repository ends the notifications with a placeholder if the hole isn't filled yet
+        notifications.addAll(pos, newNotifications);
         updateAdapter();
     }
 
-    private final Function1<Notification, Either<Placeholder, Notification>> notificationLifter =
-        Either.Right::new;
-
-    private List<Either<Placeholder, Notification>> liftNotificationList(List<Notification> list) {
-        return CollectionsKt.map(list, notificationLifter);
+    private List<Either<Placeholder, Notification>> liftNotificationList(
+        List<Either<com.keylesspalace.tusky.repository.Placeholder, Notification>> list)
+    {
+        List<Either<Placeholder, Notification>> lifted = new ArrayList<>(list.size());
+        for(Either<com.keylesspalace.tusky.repository.Placeholder, Notification> item : list) {
+            Notification notification = item.asRightOrNull();
+            if(notification != null) {
+                lifted.add(new Either.Right<>(notification));
+            } else {
+                lifted.add(new Either.Left<>(newPlaceholder()));
+            }
+        }
+        return lifted;
     }
 
     private void fullyRefreshWithProgressBar(boolean isShow) {
@@ -1430,7 +1455,7 @@ public class NotificationsFragment extends SFragment
             statusView.setVisibility(View.GONE);
         }
         updateAdapter();
-        sendFetchNotificationsRequest(null, null, FetchEnd.TOP, -1);
+        loadCachedNotifications();
     }
 
     private void fullyRefresh() {
@@ -1626,9 +1651,7 @@ public class NotificationsFragment extends SFragment
                     (t) -> Timber.e(t, "Failed to react with " + emoji + " on status: " + statusId));
         } else {
             EmojiDialogFragment dialog = EmojiDialogFragment.Companion.newInstance(
-                    (instanceRepo.getInstanceInfoDb().getEmojiList() !=
-                            null) ? instanceRepo.getInstanceInfoDb()
-                                                .getEmojiList() : Collections.emptyList(),
+                    null,
                     (isCustomEmoji, shortcode) -> {
                         timelineCases.getValue()
                                      .react(shortcode, statusId, true)
@@ -25,7 +25,6 @@ import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Environment;
-import android.text.TextUtils;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -55,24 +54,24 @@ import com.keylesspalace.tusky.db.AccountManager;
 import com.keylesspalace.tusky.entity.Attachment;
 import com.keylesspalace.tusky.entity.EmojiReaction;
 import com.keylesspalace.tusky.entity.Filter;
-import com.keylesspalace.tusky.entity.PollOption;
 import com.keylesspalace.tusky.entity.Status;
 import com.keylesspalace.tusky.interfaces.StatusActionListener;
 import com.keylesspalace.tusky.network.MastodonApi;
 import com.keylesspalace.tusky.network.TimelineCases;
 import com.keylesspalace.tusky.settings.PrefKeys;
 import com.keylesspalace.tusky.util.LinkHelper;
+import com.keylesspalace.tusky.util.StatusFilter;
 import com.keylesspalace.tusky.view.MuteAccountDialog;
 import com.keylesspalace.tusky.viewdata.AttachmentViewData;
 import static com.uber.autodispose.AutoDispose.autoDisposable;
 import static com.uber.autodispose.android.lifecycle.AndroidLifecycleScopeProvider.from;
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import java.util.ArrayList;
+import io.reactivex.schedulers.Schedulers;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import kotlin.Lazy;
 import kotlin.Unit;
 import static org.koin.java.KoinJavaComponent.inject;
@@ -94,15 +93,12 @@ public abstract class SFragment extends BaseFragment {
 
     private BottomSheetActivity bottomSheetActivity;
 
-    private static List<Filter> filters;
-    private boolean filterRemoveRegex;
-    private Matcher filterRemoveRegexMatcher;
-    private static Matcher alphanumeric = Pattern.compile("^\\w+$").matcher("");
     private boolean filterMuted;
 
     protected Lazy<MastodonApi> mastodonApi = inject(MastodonApi.class);
     protected Lazy<AccountManager> accountManager = inject(AccountManager.class);
     protected Lazy<TimelineCases> timelineCases = inject(TimelineCases.class);
+    protected Lazy<StatusFilter> statusFilter = inject(StatusFilter.class);
 
     private static final String TAG = "SFragment";
 
@@ -569,7 +565,7 @@ public abstract class SFragment extends BaseFragment {
             updateMuteFilter(pref, false); // will be reloaded later
         }
 
-        if(filters != null && !forceRefresh) {
+        if(statusFilter.getValue().getFilters() != null && !forceRefresh) {
             applyFilters(forceRefresh);
             return;
         }
@@ -579,8 +575,9 @@ public abstract class SFragment extends BaseFragment {
             public void onResponse(@NonNull Call<List<Filter>> call,
                 @NonNull Response<List<Filter>> response)
             {
-                filters = response.body();
+                List<Filter> filters = response.body();
                 if(response.isSuccessful() && filters != null) {
+                    statusFilter.getValue().setFilters(filters);
                     applyFilters(forceRefresh);
                 } else {
                     Log.e(TAG, "Error getting filters from server");
@@ -594,10 +591,13 @@ public abstract class SFragment extends BaseFragment {
         });
     }
 
-    protected boolean filterIsRelevant(@NonNull Filter filter) {
-        // Called when building local filter expression
-        // Override to select relevant filters for your fragment
-        return false;
+    /**
+     * Filter contexts that apply to this fragment, see {@link Filter#HOME} and the others.
+     * Override to filter statuses in your fragment.
+     */
+    @NonNull
+    protected List<String> filterContexts() {
+        return Collections.emptyList();
     }
 
     protected void refreshAfterApplyingFilters() {
@@ -605,53 +605,29 @@ public abstract class SFragment extends BaseFragment {
         // Override to refresh your fragment
     }
 
+    /**
+     * Can be called from any thread, matchers and verdicts are cached by {@link StatusFilter}.
+     */
     @VisibleForTesting
     public boolean shouldFilterStatus(Status status) {
         if(filterMuted && status.getMuted()) {
             return true;
         }
 
-        if(filterRemoveRegex && status.getPoll() != null) {
-            for(PollOption option : status.getPoll().getOptions()) {
-                if(filterRemoveRegexMatcher.reset(option.getTitle()).find()) {
-                    return true;
-                }
-            }
-        }
-
-        return (filterRemoveRegex &&
-                (filterRemoveRegexMatcher.reset(status.getActionableStatus().getContent()).find() ||
-                 (!status.getSpoilerText().isEmpty() &&
-                  filterRemoveRegexMatcher.reset(status.getActionableStatus().getSpoilerText())
-                      .find())));
+        return statusFilter.getValue().shouldFilter(status, filterContexts());
     }
 
     public void applyFilters(boolean refresh) {
-        List<String> tokens = new ArrayList<>();
-        for(Filter filter : filters) {
-            if(filterIsRelevant(filter)) {
-                tokens.add(filterToRegexToken(filter));
-            }
-        }
-        filterRemoveRegex = !tokens.isEmpty();
-        if(filterRemoveRegex) {
-            filterRemoveRegexMatcher =
-                Pattern.compile(TextUtils.join("|", tokens), Pattern.CASE_INSENSITIVE).matcher("");
-        }
-        if(refresh) {
-            refreshAfterApplyingFilters();
-        }
-    }
-
-    private static String filterToRegexToken(Filter filter) {
-        String phrase = filter.getPhrase();
-        String quotedPhrase = Pattern.quote(phrase);
-        return (filter.getWholeWord() && alphanumeric.reset(phrase).matches()) ?
-            // "whole word" should only apply to alphanumeric filters, #1543
-            String.format("(^|\\W)%s($|\\W)", quotedPhrase) : quotedPhrase;
-    }
-
-    public static void flushFilters() {
-        filters = null;
+        // Compile the matcher for this fragment before anything is filtered with it
+        List<String> contexts = filterContexts();
+        Single.fromCallable(() -> statusFilter.getValue().matcher(contexts))
+            .subscribeOn(Schedulers.computation())
+            .observeOn(AndroidSchedulers.mainThread())
+            .as(autoDisposable(from(this, Lifecycle.Event.ON_DESTROY)))
+            .subscribe(matcher -> {
+                if(refresh) {
+                    refreshAfterApplyingFilters();
+                }
+            }, throwable -> Log.e(TAG, "Error compiling filters", throwable));
     }
 }
@@ -31,14 +31,13 @@ import android.view.ViewGroup;
 import android.widget.ProgressBar;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.arch.core.util.Function;
 import androidx.core.util.Pair;
 import androidx.core.widget.ContentLoadingProgressBar;
 import androidx.fragment.app.FragmentActivity;
 import androidx.lifecycle.Lifecycle;
 import androidx.preference.PreferenceManager;
-import androidx.recyclerview.widget.AsyncDifferConfig;
-import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.DividerItemDecoration;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -67,6 +66,8 @@ import com.keylesspalace.tusky.appstore.PreferenceChangedEvent;
 import com.keylesspalace.tusky.appstore.ReblogEvent;
 import com.keylesspalace.tusky.appstore.StatusComposedEvent;
 import com.keylesspalace.tusky.appstore.StatusDeletedEvent;
+import com.keylesspalace.tusky.appstore.StatusEditedEvent;
+import com.keylesspalace.tusky.appstore.TimelineStreamEvent;
 import com.keylesspalace.tusky.appstore.UnfollowEvent;
 import com.keylesspalace.tusky.appstore.UnpinStatus;
 import com.keylesspalace.tusky.components.compose.ComposeActivity;
@@ -82,18 +83,23 @@ import com.keylesspalace.tusky.interfaces.RefreshableFragment;
 import com.keylesspalace.tusky.interfaces.ReselectableFragment;
 import com.keylesspalace.tusky.interfaces.StatusActionListener;
 import com.keylesspalace.tusky.repository.Placeholder;
+import com.keylesspalace.tusky.repository.TimelineKey;
 import com.keylesspalace.tusky.repository.TimelineRepository;
 import com.keylesspalace.tusky.repository.TimelineRequestMode;
+import com.keylesspalace.tusky.repository.TimelineType;
+import com.keylesspalace.tusky.service.TimelineStreams;
 import com.keylesspalace.tusky.settings.PrefKeys;
 import com.keylesspalace.tusky.view.emojireactions.EmojiDialogFragment;
 import com.keylesspalace.tusky.util.CardViewMode;
 import com.keylesspalace.tusky.util.HttpHeaderLink;
+import com.keylesspalace.tusky.util.ImageLoadingHelper;
 import com.keylesspalace.tusky.util.LinkHelper;
+import com.keylesspalace.tusky.util.ListDiffer;
 import com.keylesspalace.tusky.util.ListStatusAccessibilityDelegate;
-import com.keylesspalace.tusky.util.ListUtils;
 import com.keylesspalace.tusky.util.PairedList;
 import com.keylesspalace.tusky.util.StatusDisplayOptions;
 import com.keylesspalace.tusky.util.StringUtils;
+import com.keylesspalace.tusky.util.TimelineMerge;
 import com.keylesspalace.tusky.util.ViewDataUtils;
 import com.keylesspalace.tusky.view.BackgroundMessageView;
 import com.keylesspalace.tusky.view.EndlessOnScrollListener;
@@ -101,9 +107,13 @@ import com.keylesspalace.tusky.viewdata.StatusViewData;
 import static com.uber.autodispose.AutoDispose.autoDisposable;
 import static com.uber.autodispose.android.lifecycle.AndroidLifecycleScopeProvider.from;
 import io.reactivex.Observable;
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -131,6 +141,15 @@ public class TimelineFragment extends SFragment
     private static final String ARG_ENABLE_SWIPE_TO_REFRESH = "arg.enable.swipe.to.refresh";
 
     private static final int LOAD_AT_ONCE = 30;
+
+    private static final List<String> HOME_FILTER_CONTEXTS =
+        Collections.singletonList(Filter.HOME);
+    private static final List<String> PUBLIC_FILTER_CONTEXTS =
+        Collections.singletonList(Filter.PUBLIC);
+    private static final List<String> FAVOURITES_FILTER_CONTEXTS =
+        Arrays.asList(Filter.PUBLIC, Filter.NOTIFICATIONS);
+    private static final List<String> ACCOUNT_FILTER_CONTEXTS =
+        Collections.singletonList(Filter.ACCOUNT);
     private boolean isSwipeToRefreshEnabled = true;
     private boolean isNeedRefresh;
 
@@ -150,7 +169,10 @@ public class TimelineFragment extends SFragment
         (InstanceRepository) inject(InstanceRepository.class).getValue();
     private final SharedPreferences preferences =
         (SharedPreferences) inject(SharedPreferences.class).getValue();
+    private final TimelineStreams timelineStreams =
+        (TimelineStreams) inject(TimelineStreams.class).getValue();
     private boolean eventRegistered = false;
+    private boolean streaming = false;
 
     private SwipeRefreshLayout swipeRefreshLayout;
     private RecyclerView recyclerView;
@@ -162,6 +184,11 @@ public class TimelineFragment extends SFragment
     private Kind kind;
     private String id;
     private List<String> tags;
+    /**
+     * Key of the cached timeline, null for the kinds that are always loaded from the network.
+     */
+    @Nullable
+    private TimelineKey timelineKey;
     /**
      * For some timeline kinds we must use LINK headers and not just status ids.
      */
@@ -174,24 +201,36 @@ public class TimelineFragment extends SFragment
     private boolean bottomLoading;
 
     private boolean didLoadEverythingBottom;
-    private boolean alwaysShowSensitiveMedia;
-    private boolean alwaysOpenSpoiler;
+    // Read by the view data mapper, which mostly runs off the main thread
+    private volatile boolean alwaysShowSensitiveMedia;
+    private volatile boolean alwaysOpenSpoiler;
+    private volatile boolean useBlurhash;
     private boolean initialUpdateFailed = false;
 
-    private final PairedList<Either<Placeholder, Status>, StatusViewData> statuses =
-        new PairedList<>(new Function<>() {
+    private final Function<Either<Placeholder, Status>, StatusViewData> viewDataMapper =
+        new Function<>() {
             @Override
             public StatusViewData apply(Either<Placeholder, Status> input) {
                 Status status = input.asRightOrNull();
                 if(status != null) {
-                    return ViewDataUtils.statusToViewData(status, alwaysShowSensitiveMedia,
-                        alwaysOpenSpoiler);
+                    // View data are mostly made while merging off the main thread, the
+                    // placeholders and texts are then ready when the status is bound
+                    if(useBlurhash) {
+                        ImageLoadingHelper.prefetchBlurHashes(status);
+                    }
+                    StatusViewData.Concrete viewData = ViewDataUtils.statusToViewData(status,
+                        alwaysShowSensitiveMedia, alwaysOpenSpoiler);
+                    viewData.getRenderedTexts();
+                    return viewData;
                 } else {
                     Placeholder placeholder = input.asLeft();
                     return new StatusViewData.Placeholder(placeholder.getId(), false);
                 }
             }
-        });
+        };
+
+    private final PairedList<Either<Placeholder, Status>, StatusViewData> statuses =
+        new PairedList<>(viewDataMapper);
 
     public static TimelineFragment newInstance(Kind kind) {
         return newInstance(kind, null);
@@ -235,10 +274,43 @@ public class TimelineFragment extends SFragment
         if(kind == Kind.TAG) {
             tags = arguments.getStringArrayList(HASHTAGS_ARG);
         }
+        timelineKey = timelineKeyOf(kind, id, tags);
 
         isSwipeToRefreshEnabled = arguments.getBoolean(ARG_ENABLE_SWIPE_TO_REFRESH, true);
     }
 
+    /**
+     * Key of the cached timeline, or null if it can't be cached. Favourites and bookmarks are
+     * paged by link headers and pinned statuses are ordered by when they were pinned, neither
+     * fits a cache ordered by status id.
+     */
+    @Nullable
+    private static TimelineKey timelineKeyOf(Kind kind, @Nullable String id,
+        @Nullable List<String> hashtags)
+    {
+        switch(kind) {
+            case HOME:
+                return TimelineKey.HOME;
+            case PUBLIC_LOCAL:
+                return new TimelineKey(TimelineType.PUBLIC_LOCAL);
+            case PUBLIC_FEDERATED:
+                return new TimelineKey(TimelineType.PUBLIC_FEDERATED);
+            case PUBLIC_BUBBLE:
+                return new TimelineKey(TimelineType.PUBLIC_BUBBLE);
+            case USER:
+                return id != null ? new TimelineKey(TimelineType.USER, id) : null;
+            case USER_WITH_REPLIES:
+                return id != null ? new TimelineKey(TimelineType.USER_WITH_REPLIES, id) : null;
+            case LIST:
+                return id != null ? new TimelineKey(TimelineType.LIST, id) : null;
+            case TAG:
+                return hashtags != null && !hashtags.isEmpty() ?
+                    TimelineKey.ofHashtags(hashtags) : null;
+            default:
+                return null;
+        }
+    }
+
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
         Bundle savedInstanceState)
@@ -281,22 +353,23 @@ public class TimelineFragment extends SFragment
                     setupRecyclerView();
                     updateAdapter();
 
-                    if(this.kind == Kind.HOME) {
+                    if(this.timelineKey != null) {
                         this.tryCache();
                     } else {
-                        sendFetchTimelineRequest(null, null, null, FetchEnd.BOTTOM, -1);
+                        sendFetchTimelineRequest(null, null, null, FetchEnd.BOTTOM, null);
                     }
                 }
             );
     }
 
     private void createTimelineAdapter(final boolean canQuotePosts) {
+        useBlurhash = preferences.getBoolean("useBlurhash", true);
         StatusDisplayOptions statusDisplayOptions = new StatusDisplayOptions(
             preferences.getBoolean("animateGifAvatars", false),
             accountManager.getValue().getActiveAccount().getMediaPreviewEnabled(),
             preferences.getBoolean("absoluteTimeView", false),
             preferences.getBoolean("showBotOverlay", true),
-            preferences.getBoolean("useBlurhash", true),
+            useBlurhash,
             preferences.getBoolean("showCardsInTimelines", false) ? CardViewMode.INDENTED :
                 CardViewMode.NONE, preferences.getBoolean("confirmReblogs", true),
             preferences.getBoolean(PrefKeys.RENDER_STATUS_AS_MENTION, true),
@@ -309,22 +382,23 @@ public class TimelineFragment extends SFragment
     private void tryCache() {
         // Request timeline from disk to make it quick, then replace it with timeline from
         // the server to update it
-        timelineRepo.getStatuses(null, null, null, LOAD_AT_ONCE, TimelineRequestMode.DISK)
+        timelineRepo.getStatuses(timelineKey, null, null, null, LOAD_AT_ONCE,
+                TimelineRequestMode.DISK)
+            .map(this::filterStatuses)
             .observeOn(AndroidSchedulers.mainThread())
             .as(autoDisposable(from(this, Lifecycle.Event.ON_DESTROY))).subscribe(statuses -> {
-                filterStatuses(statuses);
-
                 if(statuses.size() > 1) {
                     this.clearPlaceholdersForResponse(statuses);
-                    this.statuses.clear();
-                    this.statuses.addAll(statuses);
-                    this.updateAdapter();
-                    this.progressBar.setVisibility(View.GONE);
-                    // Request statuses including current top to refresh all of them
+                    mergeStatuses(merge -> merge.replaceAll(statuses), result -> {
+                        this.progressBar.setVisibility(View.GONE);
+                        // Request statuses including current top to refresh all of them
+                        this.updateCurrent();
+                        this.loadAbove();
+                    });
+                } else {
+                    this.updateCurrent();
+                    this.loadAbove();
                 }
-
-                this.updateCurrent();
-                this.loadAbove();
             }, throwable -> {
                 this.updateCurrent();
                 this.loadAbove();
@@ -338,40 +412,16 @@ public class TimelineFragment extends SFragment
 
         String topId = CollectionsKt.first(this.statuses, Either::isRight).asRight().getId();
 
-        this.timelineRepo.getStatuses(topId, null, null, LOAD_AT_ONCE, TimelineRequestMode.NETWORK)
+        this.timelineRepo.getStatuses(timelineKey, topId, null, null, LOAD_AT_ONCE,
+                TimelineRequestMode.NETWORK)
             .observeOn(AndroidSchedulers.mainThread())
             .as(autoDisposable(from(this, Lifecycle.Event.ON_DESTROY))).subscribe((statuses) -> {
                 this.initialUpdateFailed = false;
                 // When cached timeline is too old, we would replace it with nothing
                 if(!statuses.isEmpty()) {
-                    filterStatuses(statuses);
-
-                    if(!this.statuses.isEmpty()) {
-                        // clear old cached statuses
-                        Iterator<Either<Placeholder, Status>> iterator = this.statuses.iterator();
-                        while(iterator.hasNext()) {
-                            Either<Placeholder, Status> item = iterator.next();
-                            if(item.isRight()) {
-                                Status status = item.asRight();
-                                if(status.getId().length() < topId.length() ||
-                                   status.getId().compareTo(topId) < 0) {
-
-                                    iterator.remove();
-                                }
-                            } else {
-                                Placeholder placeholder = item.asLeft();
-                                if(placeholder.getId().length() < topId.length() ||
-                                   placeholder.getId().compareTo(topId) < 0) {
-
-                                    iterator.remove();
-                                }
-                            }
-
-                        }
-                    }
-
-                    this.statuses.addAll(statuses);
-                    this.updateAdapter();
+                    // clear old cached statuses
+                    mergeStatuses(
+                        merge -> merge.replaceOlderThan(topId, filterStatuses(statuses)), null);
                 }
                 this.bottomLoading = false;
                 this.progressBar.setVisibility(View.GONE);
@@ -398,32 +448,32 @@ public class TimelineFragment extends SFragment
         reloadFilters(preferences, false);
     }
 
-    private static boolean filterContextMatchesKind(Kind kind, List<String> filterContext) {
+    private static List<String> filterContextsOfKind(Kind kind) {
         // home, notifications, public, thread
         switch(kind) {
             case HOME:
             case LIST:
-                return filterContext.contains(Filter.HOME);
+                return HOME_FILTER_CONTEXTS;
             case PUBLIC_FEDERATED:
             case PUBLIC_BUBBLE:
             case PUBLIC_LOCAL:
             case TAG:
-                return filterContext.contains(Filter.PUBLIC);
+                return PUBLIC_FILTER_CONTEXTS;
             case FAVOURITES:
-                return (filterContext.contains(Filter.PUBLIC) ||
-                        filterContext.contains(Filter.NOTIFICATIONS));
+                return FAVOURITES_FILTER_CONTEXTS;
             case USER:
             case USER_WITH_REPLIES:
             case USER_PINNED:
-                return filterContext.contains(Filter.ACCOUNT);
+                return ACCOUNT_FILTER_CONTEXTS;
             default:
-                return false;
+                return Collections.emptyList();
         }
     }
 
+    @NonNull
     @Override
-    protected boolean filterIsRelevant(@NonNull Filter filter) {
-        return filterContextMatchesKind(kind, filter.getContext());
+    protected List<String> filterContexts() {
+        return filterContextsOfKind(kind);
     }
 
     @Override
@@ -577,6 +627,10 @@ public class TimelineFragment extends SFragment
                         handleEmojiReactEvent((EmojiReactEvent) event);
                     } else if(event instanceof UnpinStatus) {
                         handleUnpinStatus((UnpinStatus) event);
+                    } else if(event instanceof TimelineStreamEvent) {
+                        handleTimelineStreamEvent((TimelineStreamEvent) event);
+                    } else if(event instanceof StatusEditedEvent) {
+                        handleStatusEditedEvent((StatusEditedEvent) event);
                     }
                 });
             eventRegistered = true;
@@ -611,9 +665,9 @@ public class TimelineFragment extends SFragment
             }
         }
         if(firstOrNull != null) {
-            this.sendFetchTimelineRequest(null, firstOrNull, secondOrNull, FetchEnd.TOP, -1);
+            this.sendFetchTimelineRequest(null, firstOrNull, secondOrNull, FetchEnd.TOP, null);
         } else {
-            this.sendFetchTimelineRequest(null, null, null, FetchEnd.BOTTOM, -1);
+            this.sendFetchTimelineRequest(null, null, null, FetchEnd.BOTTOM, null);
         }
     }
 
@@ -695,8 +749,7 @@ public class TimelineFragment extends SFragment
             return;
         }
 
-        StatusViewData newViewData =
-            new StatusViewData.Builder(actual.first).setReblogged(reblog).createStatusViewData();
+        StatusViewData newViewData = actual.first.withReblogged(reblog);
         statuses.setPairedItem(actual.second, newViewData);
         updateAdapter();
     }
@@ -724,9 +777,7 @@ public class TimelineFragment extends SFragment
             return;
         }
 
-        StatusViewData newViewData =
-            new StatusViewData.Builder(actual.first).setFavourited(favourite)
-                .createStatusViewData();
+        StatusViewData newViewData = actual.first.withFavourited(favourite);
         statuses.setPairedItem(actual.second, newViewData);
         updateAdapter();
     }
@@ -753,17 +804,15 @@ public class TimelineFragment extends SFragment
             return;
         }
 
-        StatusViewData newViewData =
-            new StatusViewData.Builder(actual.first).setBookmarked(bookmark).createStatusViewData();
+        StatusViewData newViewData = actual.first.withBookmarked(bookmark);
         statuses.setPairedItem(actual.second, newViewData);
         updateAdapter();
     }
 
     @Override
     public void onMute(int position, boolean isMuted) {
-        StatusViewData.Concrete statusViewData = new StatusViewData.Builder(
-            (StatusViewData.Concrete) statuses.getPairedItem(position)).setMuted(isMuted)
-            .createStatusViewData();
+        StatusViewData.Concrete old = (StatusViewData.Concrete) statuses.getPairedItem(position);
+        StatusViewData.Concrete statusViewData = old.withMuted(isMuted, old.isThreadMuted());
         statuses.setPairedItem(position, statusViewData);
         updateAdapter();
     }
@@ -773,12 +822,10 @@ public class TimelineFragment extends SFragment
     {
         status.setThreadMuted(threadMuted);
 
-        StatusViewData.Builder statusViewData =
-            new StatusViewData.Builder((StatusViewData.Concrete) statuses.getPairedItem(position));
-        statusViewData.setMuted(muted);
-        statusViewData.setThreadMuted(threadMuted);
+        StatusViewData.Concrete statusViewData =
+            (StatusViewData.Concrete) statuses.getPairedItem(position);
 
-        statuses.setPairedItem(position, statusViewData.createStatusViewData());
+        statuses.setPairedItem(position, statusViewData.withMuted(muted, threadMuted));
     }
 
     public void onVoteInPoll(int position, @NonNull List<Integer> choices) {
@@ -801,8 +848,7 @@ public class TimelineFragment extends SFragment
             return;
         }
 
-        StatusViewData newViewData =
-            new StatusViewData.Builder(actual.first).setPoll(newPoll).createStatusViewData();
+        StatusViewData newViewData = actual.first.withPoll(newPoll);
         statuses.setPairedItem(actual.second, newViewData);
         updateAdapter();
     }
@@ -819,18 +865,17 @@ public class TimelineFragment extends SFragment
 
     @Override
     public void onExpandedChange(boolean expanded, int position) {
-        StatusViewData newViewData = new StatusViewData.Builder(
-            ((StatusViewData.Concrete) statuses.getPairedItem(position))).setIsExpanded(expanded)
-            .createStatusViewData();
+        StatusViewData newViewData =
+            ((StatusViewData.Concrete) statuses.getPairedItem(position)).withExpanded(expanded);
         statuses.setPairedItem(position, newViewData);
         updateAdapter();
     }
 
     @Override
     public void onContentHiddenChange(boolean isShowing, int position) {
-        StatusViewData newViewData = new StatusViewData.Builder(
-            ((StatusViewData.Concrete) statuses.getPairedItem(
-                position))).setIsShowingSensitiveContent(isShowing).createStatusViewData();
+        StatusViewData newViewData =
+            ((StatusViewData.Concrete) statuses.getPairedItem(position))
+                .withShowingContent(isShowing);
         statuses.setPairedItem(position, newViewData);
         updateAdapter();
     }
@@ -867,10 +912,10 @@ public class TimelineFragment extends SFragment
                 Timber.e("Failed to load more at " + position + ", wrong placeholder position");
                 return;
             }
+            Placeholder placeholder = statuses.get(position).asLeft();
             sendFetchTimelineRequest(fromStatus.getId(), toStatus.getId(), maxMinusOne,
-                FetchEnd.MIDDLE, position);
+                FetchEnd.MIDDLE, placeholder.getId());
 
-            Placeholder placeholder = statuses.get(position).asLeft();
             StatusViewData newViewData = new StatusViewData.Placeholder(placeholder.getId(), true);
             statuses.setPairedItem(position, newViewData);
             updateAdapter();
@@ -900,8 +945,7 @@ public class TimelineFragment extends SFragment
         }
 
         StatusViewData updatedStatus =
-            new StatusViewData.Builder((StatusViewData.Concrete) status).setCollapsed(isCollapsed)
-                .createStatusViewData();
+            ((StatusViewData.Concrete) status).withCollapsed(isCollapsed);
         statuses.setPairedItem(position, updatedStatus);
         updateAdapter();
     }
@@ -1009,7 +1053,7 @@ public class TimelineFragment extends SFragment
             case Filter.THREAD:
             case Filter.PUBLIC:
             case Filter.ACCOUNT: {
-                if(filterContextMatchesKind(kind, Collections.singletonList(key))) {
+                if(filterContextsOfKind(kind).contains(key)) {
                     reloadFilters(sharedPreferences, true);
                 }
                 break;
@@ -1030,42 +1074,32 @@ public class TimelineFragment extends SFragment
     }
 
     private void removeAllByConversationId(String conversationId) {
-        // using iterator to safely remove items while iterating
-        Iterator<Either<Placeholder, Status>> iterator = statuses.iterator();
-        while(iterator.hasNext()) {
-            Status status = iterator.next().asRightOrNull();
-            if(status != null && (status.getConversationId().equalsIgnoreCase(conversationId)) ||
-               status.getActionableStatus().getConversationId().equalsIgnoreCase(conversationId)) {
-                iterator.remove();
-            }
-        }
+        statuses.removeMatching(item -> {
+            Status status = item.asRightOrNull();
+            return status != null &&
+                   (status.getConversationId().equalsIgnoreCase(conversationId) ||
+                    status.getActionableStatus().getConversationId()
+                        .equalsIgnoreCase(conversationId));
+        });
         updateAdapter();
     }
 
     private void removeAllByAccountId(String accountId) {
-        // using iterator to safely remove items while iterating
-        Iterator<Either<Placeholder, Status>> iterator = statuses.iterator();
-        while(iterator.hasNext()) {
-            Status status = iterator.next().asRightOrNull();
-            if(status != null && (status.getAccount().getId().equals(accountId) ||
-                                  status.getActionableStatus().getAccount().getId()
-                                      .equals(accountId))) {
-                iterator.remove();
-            }
-        }
+        statuses.removeMatching(item -> {
+            Status status = item.asRightOrNull();
+            return status != null && (status.getAccount().getId().equals(accountId) ||
+                                      status.getActionableStatus().getAccount().getId()
+                                          .equals(accountId));
+        });
         updateAdapter();
     }
 
     private void removeAllByInstance(String instance) {
-        // using iterator to safely remove items while iterating
-        Iterator<Either<Placeholder, Status>> iterator = statuses.iterator();
-        while(iterator.hasNext()) {
-            Status status = iterator.next().asRightOrNull();
-            if(status != null &&
-               LinkHelper.getDomain(status.getAccount().getUrl()).equals(instance)) {
-                iterator.remove();
-            }
-        }
+        statuses.removeMatching(item -> {
+            Status status = item.asRightOrNull();
+            return status != null &&
+                   LinkHelper.getDomain(status.getAccount().getUrl()).equals(instance);
+        });
         updateAdapter();
     }
 
@@ -1109,14 +1143,14 @@ public class TimelineFragment extends SFragment
                 }
             }
         }
-        sendFetchTimelineRequest(bottomId, null, null, FetchEnd.BOTTOM, -1);
+        sendFetchTimelineRequest(bottomId, null, null, FetchEnd.BOTTOM, null);
     }
 
     private void fullyRefresh() {
         statuses.clear();
         updateAdapter();
         bottomLoading = true;
-        sendFetchTimelineRequest(null, null, null, FetchEnd.BOTTOM, -1);
+        sendFetchTimelineRequest(null, null, null, FetchEnd.BOTTOM, null);
     }
 
     private boolean actionButtonPresent() {
@@ -1168,7 +1202,8 @@ public class TimelineFragment extends SFragment
     }
 
     private void sendFetchTimelineRequest(@Nullable String maxId, @Nullable String sinceId,
-        @Nullable String sinceIdMinusOne, final FetchEnd fetchEnd, final int pos)
+        @Nullable String sinceIdMinusOne, final FetchEnd fetchEnd,
+        @Nullable final String placeholderId)
     {
         if(isAdded() && (fetchEnd == FetchEnd.TOP || fetchEnd == FetchEnd.BOTTOM && maxId == null &&
                                                      progressBar.getVisibility() != View.VISIBLE) &&
@@ -1176,7 +1211,7 @@ public class TimelineFragment extends SFragment
             topProgressBar.show();
         }
 
-        if(kind == Kind.HOME) {
+        if(timelineKey != null) {
             TimelineRequestMode mode;
             // allow getting old statuses/fallbacks for network only for for bottom loading
             if(fetchEnd == FetchEnd.BOTTOM) {
@@ -1184,11 +1219,12 @@ public class TimelineFragment extends SFragment
             } else {
                 mode = TimelineRequestMode.NETWORK;
             }
-            timelineRepo.getStatuses(maxId, sinceId, sinceIdMinusOne, LOAD_AT_ONCE, mode)
+            timelineRepo.getStatuses(timelineKey, maxId, sinceId, sinceIdMinusOne, LOAD_AT_ONCE,
+                    mode)
                 .observeOn(AndroidSchedulers.mainThread())
                 .as(autoDisposable(from(this, Lifecycle.Event.ON_DESTROY)))
-                .subscribe((result) -> onFetchTimelineSuccess(result, fetchEnd, pos),
-                    (err) -> onFetchTimelineFailure(new Exception(err), fetchEnd, pos));
+                .subscribe((result) -> onFetchTimelineSuccess(result, fetchEnd, placeholderId),
+                    (err) -> onFetchTimelineFailure(new Exception(err), fetchEnd, placeholderId));
         } else {
             Callback<List<Status>> callback = new Callback<List<Status>>() {
                 @Override
@@ -1203,15 +1239,17 @@ public class TimelineFragment extends SFragment
                             // again.
                             nextId = newNextId;
                         }
-                        onFetchTimelineSuccess(liftStatusList(response.body()), fetchEnd, pos);
+                        onFetchTimelineSuccess(liftStatusList(response.body()), fetchEnd,
+                            placeholderId);
                     } else {
-                        onFetchTimelineFailure(new Exception(response.message()), fetchEnd, pos);
+                        onFetchTimelineFailure(new Exception(response.message()), fetchEnd,
+                            placeholderId);
                     }
                 }
 
                 @Override
                 public void onFailure(@NonNull Call<List<Status>> call, @NonNull Throwable t) {
-                    onFetchTimelineFailure((Exception) t, fetchEnd, pos);
+                    onFetchTimelineFailure((Exception) t, fetchEnd, placeholderId);
                 }
             };
 
@@ -1240,47 +1278,42 @@ public class TimelineFragment extends SFragment
     }
 
     private void onFetchTimelineSuccess(List<Either<Placeholder, Status>> statuses,
-        FetchEnd fetchEnd, int pos)
+        FetchEnd fetchEnd, @Nullable String placeholderId)
     {
 
         // We filled the hole (or reached the end) if the server returned less statuses than we
         // we asked for.
         boolean fullFetch = statuses.size() >= LOAD_AT_ONCE;
-        filterStatuses(statuses);
+        // Filtering happens in the merge, off the main thread
         switch(fetchEnd) {
             case TOP: {
-                updateStatuses(statuses, fullFetch);
+                mergeStatuses(merge -> merge.prepend(filterStatuses(statuses), fullFetch),
+                    result -> onFetchTimelineMerged(fetchEnd));
                 break;
             }
             case MIDDLE: {
-                replacePlaceholderWithStatuses(statuses, fullFetch, pos);
+                // Looked up by id in the merge, the timeline may have changed since the request
+                mergeStatuses(merge -> merge.replacePlaceholder(placeholderId,
+                        filterStatuses(statuses), fullFetch),
+                    result -> onFetchTimelineMerged(fetchEnd));
                 break;
             }
             case BOTTOM: {
-                if(!this.statuses.isEmpty() &&
-                   !this.statuses.get(this.statuses.size() - 1).isRight()) {
-                    this.statuses.remove(this.statuses.size() - 1);
-                    updateAdapter();
-                }
-
-                if(!statuses.isEmpty() && !statuses.get(statuses.size() - 1).isRight()) {
-                    // Removing placeholder if it's the last one from the cache
-                    statuses.remove(statuses.size() - 1);
-                }
-                int oldSize = this.statuses.size();
-                if(this.statuses.size() > 1) {
-                    addItems(statuses);
-                } else {
-                    updateStatuses(statuses, fullFetch);
-                }
-                if(this.statuses.size() == oldSize) {
-                    // This may be a brittle check but seems like it works
-                    // Can we check it using headers somehow? Do all server support them?
-                    didLoadEverythingBottom = true;
-                }
+                mergeStatuses(merge -> merge.append(filterStatuses(statuses), fullFetch),
+                    result -> {
+                        if(!result.getChanged()) {
+                            // This may be a brittle check but seems like it works
+                            // Can we check it using headers somehow? Do all server support them?
+                            didLoadEverythingBottom = true;
+                        }
+                        onFetchTimelineMerged(fetchEnd);
+                    });
                 break;
             }
         }
+    }
+
+    private void onFetchTimelineMerged(FetchEnd fetchEnd) {
         if(isAdded()) {
             topProgressBar.hide();
             updateBottomLoadingState(fetchEnd);
@@ -1295,20 +1328,18 @@ public class TimelineFragment extends SFragment
         }
     }
 
-    private void onFetchTimelineFailure(Exception exception, FetchEnd fetchEnd, int position) {
+    private void onFetchTimelineFailure(Exception exception, FetchEnd fetchEnd,
+        @Nullable String placeholderId)
+    {
         if(isAdded()) {
             swipeRefreshLayout.setRefreshing(false);
             topProgressBar.hide();
 
-            if(fetchEnd == FetchEnd.MIDDLE && !statuses.get(position).isRight()) {
-                Placeholder placeholder = statuses.get(position).asLeftOrNull();
-                StatusViewData newViewData;
-                if(placeholder == null) {
-                    Status above = statuses.get(position - 1).asRight();
-                    String newId = StringUtils.dec(above.getId());
-                    placeholder = new Placeholder(newId);
-                }
-                newViewData = new StatusViewData.Placeholder(placeholder.getId(), false);
+            int position = placeholderId == null ? -1 :
+                statuses.indexOf(new Either.Left<>(new Placeholder(placeholderId)));
+            if(fetchEnd == FetchEnd.MIDDLE && position != -1) {
+                StatusViewData newViewData =
+                    new StatusViewData.Placeholder(placeholderId, false);
                 statuses.setPairedItem(position, newViewData);
                 updateAdapter();
             } else if(this.statuses.isEmpty()) {
@@ -1342,7 +1373,13 @@ public class TimelineFragment extends SFragment
         }
     }
 
-    private void filterStatuses(List<Either<Placeholder, Status>> statuses) {
+    /**
+     * Removes filtered statuses from the list in place. Runs off the main thread and can run
+     * more than once on the same list.
+     */
+    private List<Either<Placeholder, Status>> filterStatuses(
+        List<Either<Placeholder, Status>> statuses)
+    {
         Iterator<Either<Placeholder, Status>> it = statuses.iterator();
         while(it.hasNext()) {
             Status status = it.next().asRightOrNull();
@@ -1352,67 +1389,64 @@ public class TimelineFragment extends SFragment
                 it.remove();
             }
         }
+        return statuses;
     }
 
-    private void updateStatuses(List<Either<Placeholder, Status>> newStatuses, boolean fullFetch) {
-        if(ListUtils.isEmpty(newStatuses)) {
-            updateAdapter();
-            return;
-        }
-
-        if(statuses.isEmpty()) {
-            statuses.addAll(newStatuses);
-        } else {
-            Either<Placeholder, Status> lastOfNew = newStatuses.get(newStatuses.size() - 1);
-            int index = statuses.indexOf(lastOfNew);
-
-            if(index >= 0) {
-                statuses.subList(0, index).clear();
-            }
+    /**
+     * Merges into a copy of the timeline on a background thread, then shows the result. If the
+     * timeline was changed in the meantime, the merge is done once more on the current timeline
+     * so that the change isn't lost. Should the timeline change again during that merge, the
+     * last try is done on the main thread, where nothing can come in between.
+     */
+    private void mergeStatuses(
+        Function<TimelineMerge<StatusViewData>, TimelineMerge.Result<StatusViewData>> merge,
+        @Nullable Consumer<TimelineMerge.Result<StatusViewData>> onMerged)
+    {
+        mergeStatuses(merge, onMerged, false);
+    }
 
-            int newIndex = newStatuses.indexOf(statuses.get(0));
-            if(newIndex == -1) {
-                if(index == -1 && fullFetch) {
-                    String placeholderId = StringUtils.inc(
-                        CollectionsKt.last(newStatuses, Either::isRight).asRight().getId());
-                    newStatuses.add(new Either.Left<>(new Placeholder(placeholderId)));
+    private void mergeStatuses(
+        Function<TimelineMerge<StatusViewData>, TimelineMerge.Result<StatusViewData>> merge,
+        @Nullable Consumer<TimelineMerge.Result<StatusViewData>> onMerged, boolean isRetry)
+    {
+        final int version = statuses.getVersion();
+        final TimelineMerge<StatusViewData> timeline = copyTimeline();
+        final List<StatusViewData> shown = differ.getCurrentList();
+        Single.fromCallable(() -> {
+                TimelineMerge.Result<StatusViewData> result = merge.apply(timeline);
+                // Diffed here as well, so that showing the result doesn't diff the timeline again
+                return new Pair<>(result, differ.calculateDiff(shown, result.getViewData()));
+            })
+            .subscribeOn(Schedulers.computation())
+            .observeOn(AndroidSchedulers.mainThread())
+            .as(autoDisposable(from(this, Lifecycle.Event.ON_DESTROY)))
+            .subscribe(merged -> {
+                if(statuses.getVersion() == version) {
+                    showMerged(merged.first, merged.second, onMerged);
+                } else if(!isRetry) {
+                    mergeStatuses(merge, onMerged, true);
+                } else {
+                    showMerged(merge.apply(copyTimeline()), null, onMerged);
                 }
-                statuses.addAll(0, newStatuses);
-            } else {
-                statuses.addAll(0, newStatuses.subList(0, newIndex));
-            }
-        }
-        // Remove all consecutive placeholders
-        removeConsecutivePlaceholders();
-        updateAdapter();
+            }, throwable -> Timber.e(throwable, "Failed to merge statuses"));
     }
 
-    private void removeConsecutivePlaceholders() {
-        for(int i = 0; i < statuses.size() - 1; i++) {
-            if(statuses.get(i).isLeft() && statuses.get(i + 1).isLeft()) {
-                statuses.remove(i);
-            }
+    private void showMerged(TimelineMerge.Result<StatusViewData> result,
+        @Nullable ListDiffer.Update<StatusViewData> update,
+        @Nullable Consumer<TimelineMerge.Result<StatusViewData>> onMerged) throws Exception
+    {
+        statuses.setAll(result.getItems(), result.getViewData());
+        if(update == null || !differ.apply(update)) {
+            updateAdapter();
+        }
+        if(onMerged != null) {
+            onMerged.accept(result);
         }
     }
 
-    private void addItems(List<Either<Placeholder, Status>> newStatuses) {
-        if(ListUtils.isEmpty(newStatuses)) {
-            return;
-        }
-        Either<Placeholder, Status> last = null;
-        for(int i = statuses.size() - 1; i >= 0; i--) {
-            if(statuses.get(i).isRight()) {
-                last = statuses.get(i);
-                break;
-            }
-        }
-        // I was about to replace findStatus with indexOf but it is incorrect to compare value
-        // types by ID anyway and we should change equals() for Status, I think, so this makes sense
-        if(last != null && !newStatuses.contains(last)) {
-            statuses.addAll(newStatuses);
-            removeConsecutivePlaceholders();
-            updateAdapter();
-        }
+    private TimelineMerge<StatusViewData> copyTimeline() {
+        return new TimelineMerge<>(new ArrayList<>(statuses), statuses.getPairedCopy(),
+            viewDataMapper);
     }
 
     /**
@@ -1422,30 +1456,6 @@ public class TimelineFragment extends SFragment
         CollectionsKt.removeAll(statuses, Either::isLeft);
     }
 
-    private void replacePlaceholderWithStatuses(List<Either<Placeholder, Status>> newStatuses,
-        boolean fullFetch, int pos)
-    {
-        Either<Placeholder, Status> placeholder = statuses.get(pos);
-        if(placeholder.isLeft()) {
-            statuses.remove(pos);
-        }
-
-        if(ListUtils.isEmpty(newStatuses)) {
-            updateAdapter();
-            return;
-        }
-
-        if(fullFetch) {
-            newStatuses.add(placeholder);
-        }
-
-        statuses.addAll(pos, newStatuses);
-        removeConsecutivePlaceholders();
-
-        updateAdapter();
-
-    }
-
     private int findStatusOrReblogPositionById(@NonNull String statusId) {
         for(int i = 0; i < statuses.size(); i++) {
             Status status = statuses.get(i).asRightOrNull();
@@ -1629,8 +1639,8 @@ public class TimelineFragment extends SFragment
     };
 
 
-    private final AsyncListDiffer<StatusViewData> differ = new AsyncListDiffer<>(listUpdateCallback,
-        new AsyncDifferConfig.Builder<>(diffCallback).build());
+    private final ListDiffer<StatusViewData> differ =
+        new ListDiffer<>(listUpdateCallback, diffCallback);
 
     private final TimelineAdapter.AdapterDataSource<StatusViewData> dataSource =
         new TimelineAdapter.AdapterDataSource<StatusViewData>() {
@@ -1645,7 +1655,8 @@ public class TimelineFragment extends SFragment
             }
         };
 
-    private static final DiffUtil.ItemCallback<StatusViewData> diffCallback =
+    @VisibleForTesting
+    static final DiffUtil.ItemCallback<StatusViewData> diffCallback =
         new DiffUtil.ItemCallback<StatusViewData>() {
 
             @Override
@@ -1680,6 +1691,54 @@ public class TimelineFragment extends SFragment
     public void onResume() {
         super.onResume();
         startUpdateTimestamp();
+        startStreaming();
+    }
+
+    @Override
+    public void onPause() {
+        stopStreaming();
+        super.onPause();
+    }
+
+    /**
+     * Has new statuses of this timeline streamed while it's shown, if the user wants that.
+     */
+    private void startStreaming() {
+        if(streaming || timelineKey == null ||
+           !preferences.getBoolean(PrefKeys.LIVE_TIMELINES, false) ||
+           TimelineStreams.streamOf(timelineKey) == null) {
+            return;
+        }
+        timelineStreams.register(timelineKey);
+        streaming = true;
+        // Catch up on what was posted while nothing was streamed, the stream only has new posts
+        if(!statuses.isEmpty()) {
+            loadAbove();
+        }
+    }
+
+    private void stopStreaming() {
+        if(streaming) {
+            timelineStreams.unregister(timelineKey);
+            streaming = false;
+        }
+    }
+
+    private void handleTimelineStreamEvent(TimelineStreamEvent event) {
+        if(!streaming || !event.getTimeline().equals(timelineKey) || statuses.isEmpty()) {
+            return;
+        }
+        List<Either<Placeholder, Status>> page = new ArrayList<>();
+        page.add(new Either.Right<>(event.getStatus()));
+        mergeStatuses(merge -> merge.insert(filterStatuses(page)), null);
+    }
+
+    private void handleStatusEditedEvent(StatusEditedEvent event) {
+        Either<Placeholder, Status> edited = new Either.Right<>(event.getStatus());
+        // Reblogs of the status get the edit when the timeline is loaded again
+        if(statuses.contains(edited)) {
+            mergeStatuses(merge -> merge.replace(edited), null);
+        }
     }
 
     /**
@@ -1771,9 +1830,7 @@ public class TimelineFragment extends SFragment
                     (t) -> Timber.e(t, "Failed to react with " + emoji + " on status: " + statusId));
         } else {
             EmojiDialogFragment dialog = EmojiDialogFragment.Companion.newInstance(
-                    (instanceRepo.getInstanceInfoDb().getEmojiList() !=
-                            null) ? instanceRepo.getInstanceInfoDb()
-                                                .getEmojiList() : Collections.emptyList(),
+                    null,
                     (isCustomEmoji, shortcode) -> {
                         timelineCases.getValue()
                                      .react(shortcode, statusId, true)
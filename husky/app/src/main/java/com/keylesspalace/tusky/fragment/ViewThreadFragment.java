@@ -79,7 +79,9 @@ import com.keylesspalace.tusky.util.StatusDisplayOptions;
 import com.keylesspalace.tusky.util.ViewDataUtils;
 import com.keylesspalace.tusky.view.ConversationLineItemDecoration;
 import com.keylesspalace.tusky.viewdata.StatusViewData;
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.schedulers.Schedulers;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -95,6 +97,9 @@ public final class ViewThreadFragment extends SFragment
 
     private static final String TAG = "ViewThreadFragment";
 
+    private static final List<String> THREAD_FILTER_CONTEXTS =
+        Collections.singletonList(Filter.THREAD);
+
     private final EventHub eventHub = (EventHub) inject(EventHub.class).getValue();
     private final InstanceRepository instanceRepo = (InstanceRepository) inject(InstanceRepository.class).getValue();
     private final SharedPreferences preferences = (SharedPreferences) inject(SharedPreferences.class).getValue();
@@ -426,8 +431,7 @@ public final class ViewThreadFragment extends SFragment
     @Override
     public void onExpandedChange(boolean expanded, int position) {
         StatusViewData.Concrete newViewData =
-            new StatusViewData.Builder(statuses.getPairedItem(position)).setIsExpanded(expanded)
-                .createStatusViewData();
+            statuses.getPairedItem(position).withExpanded(expanded);
         statuses.setPairedItem(position, newViewData);
         adapter.setItem(position, newViewData, true);
         updateRevealIcon();
@@ -435,9 +439,8 @@ public final class ViewThreadFragment extends SFragment
 
     @Override
     public void onContentHiddenChange(boolean isShowing, int position) {
-        StatusViewData.Concrete newViewData = new StatusViewData.Builder(
-            statuses.getPairedItem(position)).setIsShowingSensitiveContent(isShowing)
-            .createStatusViewData();
+        StatusViewData.Concrete newViewData =
+            statuses.getPairedItem(position).withShowingContent(isShowing);
         statuses.setPairedItem(position, newViewData);
         adapter.setItem(position, newViewData, true);
     }
@@ -484,8 +487,7 @@ public final class ViewThreadFragment extends SFragment
             return;
         }
 
-        StatusViewData.Concrete updatedStatus =
-            new StatusViewData.Builder(status).setCollapsed(isCollapsed).createStatusViewData();
+        StatusViewData.Concrete updatedStatus = status.withCollapsed(isCollapsed);
         statuses.setPairedItem(position, updatedStatus);
         recyclerView.post(() -> adapter.setItem(position, updatedStatus, true));
     }
@@ -526,8 +528,7 @@ public final class ViewThreadFragment extends SFragment
 
         StatusViewData.Concrete viewData = statuses.getPairedItem(position);
 
-        StatusViewData.Concrete newViewData =
-            new StatusViewData.Builder(viewData).setPoll(newPoll).createStatusViewData();
+        StatusViewData.Concrete newViewData = viewData.withPoll(newPoll);
         statuses.setPairedItem(position, newViewData);
         adapter.setItem(position, newViewData, true);
     }
@@ -591,7 +592,14 @@ public final class ViewThreadFragment extends SFragment
                 StatusContext context = response.body();
                 if(response.isSuccessful() && context != null) {
                     swipeRefreshLayout.setRefreshing(false);
-                    setContext(context.getAncestors(), context.getDescendants());
+                    Single.fromCallable(() -> new Pair<>(filterStatuses(context.getAncestors()),
+                            filterStatuses(context.getDescendants())))
+                        .subscribeOn(Schedulers.computation())
+                        .observeOn(AndroidSchedulers.mainThread())
+                        .as(autoDisposable(
+                            from(ViewThreadFragment.this, Lifecycle.Event.ON_DESTROY)))
+                        .subscribe(thread -> setContext(thread.first, thread.second),
+                            throwable -> onThreadRequestFailure(id));
                 } else {
                     onThreadRequestFailure(id);
                 }
@@ -634,7 +642,21 @@ public final class ViewThreadFragment extends SFragment
         return i;
     }
 
-    private void setContext(List<Status> unfilteredAncestors, List<Status> unfilteredDescendants) {
+    private List<Status> filterStatuses(List<Status> unfiltered) {
+        List<Status> filtered = new ArrayList<>(unfiltered.size());
+        for(Status status : unfiltered) {
+            if(!shouldFilterStatus(status)) {
+                filtered.add(status);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * @param ancestors filtered ancestors of the main status
+     * @param descendants filtered descendants of the main status
+     */
+    private void setContext(List<Status> ancestors, List<Status> descendants) {
         Status mainStatus = null;
 
         // In case of refresh, remove old ancestors and descendants first. We'll remove all blindly,
@@ -646,13 +668,6 @@ public final class ViewThreadFragment extends SFragment
             adapter.clearItems();
         }
 
-        ArrayList<Status> ancestors = new ArrayList<>();
-        for(Status status : unfilteredAncestors) {
-            if(!shouldFilterStatus(status)) {
-                ancestors.add(status);
-            }
-        }
-
         // Insert newly fetched ancestors
         statusIndex = ancestors.size();
         adapter.setDetailedStatusPosition(statusIndex);
@@ -678,13 +693,6 @@ public final class ViewThreadFragment extends SFragment
             adapter.addItem(statusIndex, viewData);
         }
 
-        ArrayList<Status> descendants = new ArrayList<>();
-        for(Status status : unfilteredDescendants) {
-            if(!shouldFilterStatus(status)) {
-                descendants.add(status);
-            }
-        }
-
         // Insert newly fetched descendants
         statuses.addAll(descendants);
         List<StatusViewData.Concrete> descendantsViewData;
@@ -702,11 +710,10 @@ public final class ViewThreadFragment extends SFragment
     }
 
     private void setMutedStatusForStatus(int position, Status status, boolean muted) {
-        StatusViewData.Builder statusViewData =
-            new StatusViewData.Builder(statuses.getPairedItem(position));
-        statusViewData.setMuted(muted);
+        StatusViewData.Concrete statusViewData = statuses.getPairedItem(position);
 
-        statuses.setPairedItem(position, statusViewData.createStatusViewData());
+        statuses.setPairedItem(position,
+            statusViewData.withMuted(muted, statusViewData.isThreadMuted()));
     }
 
     private void handleMuteEvent(MuteEvent event) {
@@ -743,10 +750,7 @@ public final class ViewThreadFragment extends SFragment
 
         StatusViewData.Concrete viewdata = statuses.getPairedItem(posAndStatus.first);
 
-        StatusViewData.Builder viewDataBuilder = new StatusViewData.Builder((viewdata));
-        viewDataBuilder.setFavourited(favourite);
-
-        StatusViewData.Concrete newViewData = viewDataBuilder.createStatusViewData();
+        StatusViewData.Concrete newViewData = viewdata.withFavourited(favourite);
 
         statuses.setPairedItem(posAndStatus.first, newViewData);
         adapter.setItem(posAndStatus.first, newViewData, true);
@@ -767,10 +771,7 @@ public final class ViewThreadFragment extends SFragment
 
         StatusViewData.Concrete viewdata = statuses.getPairedItem(posAndStatus.first);
 
-        StatusViewData.Builder viewDataBuilder = new StatusViewData.Builder((viewdata));
-        viewDataBuilder.setReblogged(reblog);
-
-        StatusViewData.Concrete newViewData = viewDataBuilder.createStatusViewData();
+        StatusViewData.Concrete newViewData = viewdata.withReblogged(reblog);
 
         statuses.setPairedItem(posAndStatus.first, newViewData);
         adapter.setItem(posAndStatus.first, newViewData, true);
@@ -791,10 +792,7 @@ public final class ViewThreadFragment extends SFragment
 
         StatusViewData.Concrete viewdata = statuses.getPairedItem(posAndStatus.first);
 
-        StatusViewData.Builder viewDataBuilder = new StatusViewData.Builder((viewdata));
-        viewDataBuilder.setBookmarked(bookmark);
-
-        StatusViewData.Concrete newViewData = viewDataBuilder.createStatusViewData();
+        StatusViewData.Concrete newViewData = viewdata.withBookmarked(bookmark);
 
         statuses.setPairedItem(posAndStatus.first, newViewData);
         adapter.setItem(posAndStatus.first, newViewData, true);
@@ -874,9 +872,10 @@ public final class ViewThreadFragment extends SFragment
             ViewThreadActivity.REVEAL_BUTTON_REVEAL);
     }
 
+    @NonNull
     @Override
-    protected boolean filterIsRelevant(@NonNull Filter filter) {
-        return filter.getContext().contains(Filter.THREAD);
+    protected List<String> filterContexts() {
+        return THREAD_FILTER_CONTEXTS;
     }
 
     @Override
@@ -915,9 +914,7 @@ public final class ViewThreadFragment extends SFragment
                     (t) -> Timber.e(t, "Failed to react with " + emoji + " on status: " + statusId));
         } else {
             EmojiDialogFragment dialog = EmojiDialogFragment.Companion.newInstance(
-                    (instanceRepo.getInstanceInfoDb().getEmojiList() !=
-                            null) ? instanceRepo.getInstanceInfoDb()
-                                                .getEmojiList() : Collections.emptyList(),
+                    null,
                     (isCustomEmoji, shortcode) -> {
                         timelineCases.getValue()
                                      .react(shortcode, statusId, true)
@@ -0,0 +1,75 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.json
+
+import android.text.Spanned
+import androidx.core.text.parseAsHtml
+import com.keylesspalace.tusky.util.trimTrailingWhitespace
+
+/**
+ * HTML that is only parsed once it is read, like when it's displayed. Most of what a streamed
+ * event carries, like the notes of the accounts in it, is never displayed at all.
+ *
+ * Thread safe, the HTML is parsed once by whichever thread reads it first, or calls [parse].
+ */
+class DeferredHtml(override val html: String) : HtmlBacked {
+
+    private val lazyParsed = lazy { parseHtml(html) }
+
+    private val parsed: Spanned
+        get() = lazyParsed.value
+
+    val isParsed: Boolean
+        get() = lazyParsed.isInitialized()
+
+    /**
+     * Parses the HTML now, unless it was already.
+     */
+    override fun parse(): Spanned = parsed
+
+    override val length: Int
+        get() = parsed.length
+
+    override fun get(index: Int): Char = parsed[index]
+
+    override fun subSequence(startIndex: Int, endIndex: Int): CharSequence {
+        return parsed.subSequence(startIndex, endIndex)
+    }
+
+    override fun <T> getSpans(start: Int, end: Int, type: Class<T>): Array<T> {
+        return parsed.getSpans(start, end, type)
+    }
+
+    override fun getSpanStart(tag: Any): Int = parsed.getSpanStart(tag)
+
+    override fun getSpanEnd(tag: Any): Int = parsed.getSpanEnd(tag)
+
+    override fun getSpanFlags(tag: Any): Int = parsed.getSpanFlags(tag)
+
+    override fun nextSpanTransition(start: Int, limit: Int, type: Class<*>?): Int {
+        return parsed.nextSpanTransition(start, limit, type)
+    }
+
+    override fun toString(): String = parsed.toString()
+}
+
+/* Html.fromHtml returns trailing whitespace if the html ends in a </p> tag, which
+ * all status contents do, so it should be trimmed. */
+internal fun parseHtml(html: String): Spanned = html.parseAsHtml().trimTrailingWhitespace()
@@ -0,0 +1,47 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.json
+
+import android.text.Spanned
+
+/**
+ * Text parsed from HTML that still has the HTML it came as, so that it can be stored or sent on
+ * without converting it back.
+ */
+interface HtmlBacked : Spanned {
+
+    val html: String
+
+    /**
+     * @return the parsed HTML itself, without the HTML it came as
+     */
+    fun parse(): Spanned
+}
+
+/**
+ * HTML that was parsed right away, together with the HTML.
+ */
+class ParsedHtml(override val html: String, private val parsed: Spanned) :
+    HtmlBacked, Spanned by parsed {
+
+    override fun parse(): Spanned = parsed
+
+    override fun toString(): String = parsed.toString()
+}
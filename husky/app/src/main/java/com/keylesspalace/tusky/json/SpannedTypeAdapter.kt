@@ -18,7 +18,6 @@ package com.keylesspalace.tusky.json
 import android.text.Spanned
 import android.text.SpannedString
 import androidx.core.text.HtmlCompat
-import androidx.core.text.parseAsHtml
 import com.google.gson.JsonDeserializationContext
 import com.google.gson.JsonDeserializer
 import com.google.gson.JsonElement
@@ -26,10 +25,14 @@ import com.google.gson.JsonParseException
 import com.google.gson.JsonPrimitive
 import com.google.gson.JsonSerializationContext
 import com.google.gson.JsonSerializer
-import com.keylesspalace.tusky.util.trimTrailingWhitespace
 import java.lang.reflect.Type
 
-class SpannedTypeAdapter : JsonDeserializer<Spanned>, JsonSerializer<Spanned?> {
+/**
+ * @param deferHtml whether the HTML is only parsed once it is read, see [DeferredHtml]
+ */
+class SpannedTypeAdapter(
+    private val deferHtml: Boolean = false
+) : JsonDeserializer<Spanned>, JsonSerializer<Spanned?> {
 
     @Throws(JsonParseException::class)
     override fun deserialize(
@@ -37,9 +40,8 @@ class SpannedTypeAdapter : JsonDeserializer<Spanned>, JsonSerializer<Spanned?> {
         typeOfT: Type,
         context: JsonDeserializationContext
     ): Spanned {
-        /* Html.fromHtml returns trailing whitespace if the html ends in a </p> tag, which
-         * all status contents do, so it should be trimmed. */
-        return json.asString?.parseAsHtml()?.trimTrailingWhitespace() ?: SpannedString("")
+        val html = json.asString ?: return SpannedString("")
+        return if (deferHtml) DeferredHtml(html) else ParsedHtml(html, parseHtml(html))
     }
 
     override fun serialize(
@@ -47,6 +49,10 @@ class SpannedTypeAdapter : JsonDeserializer<Spanned>, JsonSerializer<Spanned?> {
         typeOfSrc: Type,
         context: JsonSerializationContext
     ): JsonElement {
+        // HTML that came in JSON is written back as it came
+        if (src is HtmlBacked) {
+            return JsonPrimitive(src.html)
+        }
         return JsonPrimitive(
             HtmlCompat.toHtml(
                 src!!,
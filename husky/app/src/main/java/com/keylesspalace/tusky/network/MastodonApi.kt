@@ -62,6 +62,7 @@ import retrofit2.http.FormUrlEncoded
 import retrofit2.http.GET
 import retrofit2.http.HTTP
 import retrofit2.http.Header
+import retrofit2.http.Headers
 import retrofit2.http.Multipart
 import retrofit2.http.PATCH
 import retrofit2.http.POST
@@ -70,6 +71,7 @@ import retrofit2.http.Part
 import retrofit2.http.PartMap
 import retrofit2.http.Path
 import retrofit2.http.Query
+import retrofit2.http.Streaming
 import retrofit2.http.Url
 
 /*
@@ -87,6 +89,15 @@ interface MastodonApi {
     @GET("/api/v1/custom_emojis")
     fun getCustomEmojis(): Single<List<Emoji>>
 
+    /**
+     * The custom emoji list as it's sent, to be read as a stream. The HTTP cache always
+     * revalidates it, so an unchanged list only costs a 304.
+     */
+    @GET("/api/v1/custom_emojis")
+    @Headers("Cache-Control: no-cache")
+    @Streaming
+    fun getCustomEmojiList(): Call<ResponseBody>
+
     @GET("api/v1/instance")
     fun getInstance(): Single<Instance>
 
@@ -118,6 +129,14 @@ interface MastodonApi {
         @Query("limit") limit: Int?
     ): Call<List<Status>>
 
+    @GET("api/v1/timelines/public?with_muted=true")
+    fun publicTimelineSingle(
+        @Query("local") local: Boolean?,
+        @Query("max_id") maxId: String?,
+        @Query("since_id") sinceId: String?,
+        @Query("limit") limit: Int?
+    ): Single<List<Status>>
+
     @GET("api/v1/timelines/bubble?with_muted=true")
     fun bubbleTimeline(
         @Query("max_id") maxId: String?,
@@ -125,6 +144,13 @@ interface MastodonApi {
         @Query("limit") limit: Int?
     ): Call<List<Status>>
 
+    @GET("api/v1/timelines/bubble?with_muted=true")
+    fun bubbleTimelineSingle(
+        @Query("max_id") maxId: String?,
+        @Query("since_id") sinceId: String?,
+        @Query("limit") limit: Int?
+    ): Single<List<Status>>
+
     @GET("api/v1/timelines/tag/{hashtag}?with_muted=true")
     fun hashtagTimeline(
         @Path("hashtag") hashtag: String,
@@ -135,6 +161,16 @@ interface MastodonApi {
         @Query("limit") limit: Int?
     ): Call<List<Status>>
 
+    @GET("api/v1/timelines/tag/{hashtag}?with_muted=true")
+    fun hashtagTimelineSingle(
+        @Path("hashtag") hashtag: String,
+        @Query("any[]") any: List<String>?,
+        @Query("local") local: Boolean?,
+        @Query("max_id") maxId: String?,
+        @Query("since_id") sinceId: String?,
+        @Query("limit") limit: Int?
+    ): Single<List<Status>>
+
     @GET("api/v1/timelines/list/{listId}?with_muted=true")
     fun listTimeline(
         @Path("listId") listId: String,
@@ -143,6 +179,14 @@ interface MastodonApi {
         @Query("limit") limit: Int?
     ): Call<List<Status>>
 
+    @GET("api/v1/timelines/list/{listId}?with_muted=true")
+    fun listTimelineSingle(
+        @Path("listId") listId: String,
+        @Query("max_id") maxId: String?,
+        @Query("since_id") sinceId: String?,
+        @Query("limit") limit: Int?
+    ): Single<List<Status>>
+
     @GET("api/v1/notifications")
     fun notifications(
         @Query("max_id") maxId: String?,
@@ -150,7 +194,7 @@ interface MastodonApi {
         @Query("limit") limit: Int?,
         @Query("exclude_types[]") excludes: Set<Notification.Type>?,
         @Query("with_muted") withMuted: Boolean?
-    ): Call<List<Notification>>
+    ): Single<List<Notification>>
 
     @GET("api/v1/markers")
     fun markersWithAuth(
@@ -164,6 +208,7 @@ interface MastodonApi {
         @Header("Authorization") auth: String,
         @Header(DOMAIN_HEADER) domain: String,
         @Query("since_id") sinceId: String?,
+        @Query("limit") limit: Int?,
         @Query("include_types[]") includeTypes: List<String>?
     ): Single<List<Notification>>
 
@@ -355,6 +400,17 @@ interface MastodonApi {
         @Query("pinned") pinned: Boolean?
     ): Call<List<Status>>
 
+    @GET("api/v1/accounts/{id}/statuses?with_muted=true")
+    fun accountStatusesSingle(
+        @Path("id") accountId: String,
+        @Query("max_id") maxId: String?,
+        @Query("since_id") sinceId: String?,
+        @Query("limit") limit: Int?,
+        @Query("exclude_replies") excludeReplies: Boolean?,
+        @Query("only_media") onlyMedia: Boolean?,
+        @Query("pinned") pinned: Boolean?
+    ): Single<List<Status>>
+
     @GET("api/v1/accounts/{id}/followers")
     fun accountFollowers(
         @Path("id") accountId: String,
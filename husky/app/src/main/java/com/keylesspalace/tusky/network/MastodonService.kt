@@ -46,6 +46,10 @@ class MastodonService(private val retrofit: Retrofit) : MastodonApi {
         return api.getCustomEmojis()
     }
 
+    override fun getCustomEmojiList(): Call<ResponseBody> {
+        return api.getCustomEmojiList()
+    }
+
     override fun getInstance(): Single<Instance> {
         return api.getInstance()
     }
@@ -109,7 +113,7 @@ class MastodonService(private val retrofit: Retrofit) : MastodonApi {
         limit: Int?,
         excludes: Set<Type>?,
         withMuted: Boolean?
-    ): Call<List<Notification>> {
+    ): Single<List<Notification>> {
         return api.notifications(maxId, sinceId, limit, excludes, withMuted)
     }
 
@@ -125,9 +129,10 @@ class MastodonService(private val retrofit: Retrofit) : MastodonApi {
         auth: String,
         domain: String,
         sinceId: String?,
+        limit: Int?,
         includeTypes: List<String>?
     ): Single<List<Notification>> {
-        return api.notificationsWithAuth(auth, domain, sinceId, includeTypes)
+        return api.notificationsWithAuth(auth, domain, sinceId, limit, includeTypes)
     }
 
     override fun clearNotifications(): Call<ResponseBody> {
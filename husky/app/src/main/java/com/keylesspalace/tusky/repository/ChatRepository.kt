@@ -31,6 +31,7 @@ import com.keylesspalace.tusky.db.ChatEntity
 import com.keylesspalace.tusky.db.ChatEntityWithAccount
 import com.keylesspalace.tusky.db.ChatMessageEntity
 import com.keylesspalace.tusky.db.ChatsDao
+import com.keylesspalace.tusky.db.DatabaseWriter
 import com.keylesspalace.tusky.entity.Account
 import com.keylesspalace.tusky.entity.Attachment
 import com.keylesspalace.tusky.entity.Chat
@@ -67,13 +68,28 @@ interface ChatRepository {
         limit: Int,
         requestMode: TimelineRequestMode
     ): Single<out List<ChatMesssageOrPlaceholder>>
+
+    /**
+     * Caches a message that arrived on its own, streamed or just sent, and makes it the last
+     * message of its chat.
+     *
+     * @param gapBelow whether messages may be missing between it and the cached ones
+     */
+    fun addChatMessage(accountId: Long, message: ChatMessage, gapBelow: Boolean)
+
+    /**
+     * Caches a message just sent from this device. A gap is only kept below it when the chat
+     * wasn't cached up to its last message.
+     */
+    fun addSentChatMessage(accountId: Long, message: ChatMessage)
 }
 
 class ChatRepositoryImpl(
     private val chatsDao: ChatsDao,
     private val mastodonApi: MastodonApi,
     private val accountManager: AccountManager,
-    private val gson: Gson
+    private val gson: Gson,
+    private val writer: DatabaseWriter
 ) : ChatRepository {
 
     override fun getChats(
@@ -104,13 +120,40 @@ class ChatRepositoryImpl(
         val acc = accountManager.activeAccount ?: throw IllegalStateException()
         val accountId = acc.id
 
-        /*return if (requestMode == DISK) {
-            getChatMessagesFromDb(chatId, accountId, maxId, sinceId, limit)
+        return if (requestMode == DISK) {
+            getChatMessagesFromDb(accountId, chatId, maxId, sinceId, limit)
         } else {
-            getChatMessagesFromNetwork(chatId, maxId, sinceId, sincedIdMinusOne, limit, accountId, requestMode)
-        }*/
+            getChatMessagesFromNetwork(
+                chatId,
+                maxId,
+                sinceId,
+                sincedIdMinusOne,
+                limit,
+                accountId,
+                requestMode
+            )
+        }
+    }
 
-        return getChatMessagesFromNetwork(chatId, maxId, null, null, limit, accountId, requestMode)
+    override fun addChatMessage(accountId: Long, message: ChatMessage, gapBelow: Boolean) {
+        writer.execute {
+            val placeholder = if (gapBelow) {
+                Placeholder(message.id.dec()).toChatMessageEntity(accountId, message.chatId)
+            } else {
+                null
+            }
+            chatsDao.addMessage(accountId, message.toEntity(accountId, gson), placeholder)
+        }
+    }
+
+    override fun addSentChatMessage(accountId: Long, message: ChatMessage) {
+        writer.execute {
+            chatsDao.addSentMessage(
+                accountId,
+                message.toEntity(accountId, gson),
+                Placeholder(message.id.dec()).toChatMessageEntity(accountId, message.chatId)
+            )
+        }
     }
 
     private fun getChatsFromNetwork(
@@ -146,11 +189,137 @@ class ChatRepositoryImpl(
         accountId: Long,
         requestMode: TimelineRequestMode
     ): Single<out List<ChatMesssageOrPlaceholder>> {
-        return mastodonApi.getChatMessages(chatId, maxId, null, sinceIdMinusOne, 0, limit + 1).map {
-            it.mapTo(mutableListOf(), ChatMessage::lift)
+        return mastodonApi.getChatMessages(chatId, maxId, null, sinceIdMinusOne, 0, limit + 1)
+            .map { messages ->
+                this.saveChatMessagesToDb(accountId, chatId, messages, maxId, sinceId)
+            }
+            .flatMap { messages ->
+                this.addMessagesFromDbIfNeeded(
+                    accountId,
+                    chatId,
+                    messages,
+                    maxId,
+                    sinceId,
+                    limit,
+                    requestMode
+                )
+            }
+            .onErrorResumeNext { error ->
+                if (error is IOException && requestMode != NETWORK) {
+                    this.getChatMessagesFromDb(accountId, chatId, maxId, sinceId, limit)
+                } else {
+                    Single.error(error)
+                }
+            }
+    }
+
+    private fun addMessagesFromDbIfNeeded(
+        accountId: Long,
+        chatId: String,
+        messages: List<ChatMesssageOrPlaceholder>,
+        maxId: String?,
+        sinceId: String?,
+        limit: Int,
+        requestMode: TimelineRequestMode
+    ): Single<List<ChatMesssageOrPlaceholder>> {
+        return if (requestMode != NETWORK && messages.size < 2) {
+            val newMaxID = if (messages.isEmpty()) {
+                maxId
+            } else {
+                messages.last { it.isRight() }.asRight().id
+            }
+            this.getChatMessagesFromDb(accountId, chatId, newMaxID, sinceId, limit)
+                .map { fromDb ->
+                    // If it's just placeholders and less than limit (so we exhausted both
+                    // db and server at this point)
+                    if (fromDb.size < limit && fromDb.all { !it.isRight() }) {
+                        messages
+                    } else {
+                        messages + fromDb
+                    }
+                }
+        } else {
+            Single.just(messages)
         }
     }
 
+    private fun getChatMessagesFromDb(
+        accountId: Long,
+        chatId: String,
+        maxId: String?,
+        sinceId: String?,
+        limit: Int
+    ): Single<out List<ChatMesssageOrPlaceholder>> {
+        return chatsDao.getChatMessages(accountId, chatId, maxId, sinceId, limit)
+            .subscribeOn(Schedulers.io())
+            .map { messages ->
+                messages.map { it.toChatMessageOrPlaceholder(gson) }
+            }
+    }
+
+    private fun saveChatMessagesToDb(
+        accountId: Long,
+        chatId: String,
+        messages: List<ChatMessage>,
+        maxId: String?,
+        sinceId: String?
+    ): List<ChatMesssageOrPlaceholder> {
+        var placeholderToInsert: Placeholder? = null
+
+        // Look for overlap
+        val resultMessages = if (messages.isNotEmpty() && sinceId != null) {
+            val indexOfSince = messages.indexOfLast { it.id == sinceId }
+            if (indexOfSince == -1) {
+                // We didn't find the message which must be there. Add a placeholder
+                placeholderToInsert = Placeholder(sinceId.inc())
+                messages.mapTo(mutableListOf(), ChatMessage::lift)
+                    .apply {
+                        add(Either.Left(placeholderToInsert))
+                    }
+            } else {
+                // There was an overlap. Remove all overlapped messages. No need for a placeholder.
+                messages.mapTo(mutableListOf(), ChatMessage::lift)
+                    .apply {
+                        subList(indexOfSince, size).clear()
+                    }
+            }
+        } else {
+            // Just a normal case.
+            messages.map(ChatMessage::lift)
+        }
+
+        writer.execute {
+            val entities = messages.map { it.toEntity(accountId, gson) }
+            chatsDao.insertMessagePage(accountId, chatId, entities)
+
+            placeholderToInsert?.let {
+                chatsDao.insertChatMessageIfNotThere(it.toChatMessageEntity(accountId, chatId))
+            }
+
+            // If we're loading in the bottom insert placeholder after every load
+            // (for requests on next launches) but not return it.
+            if (sinceId == null && messages.isNotEmpty()) {
+                chatsDao.insertChatMessageIfNotThere(
+                    Placeholder(messages.last().id.dec()).toChatMessageEntity(accountId, chatId)
+                )
+            }
+
+            // The page starts right below maxId, a placeholder above it is no gap anymore
+            if (maxId != null && messages.isNotEmpty()) {
+                chatsDao.removeAllMessagePlaceholdersBetween(
+                    accountId,
+                    chatId,
+                    maxId,
+                    messages.first().id
+                )
+            } else if (placeholderToInsert == null && maxId != null && sinceId != null) {
+                chatsDao.removeAllMessagePlaceholdersBetween(accountId, chatId, maxId, sinceId)
+            }
+        }
+
+        return resultMessages
+    }
+
     private fun addFromDbIfNeeded(
         accountId: Long,
         chats: List<ChatStatus>,
@@ -223,7 +392,7 @@ class ChatRepositoryImpl(
             chats.map(Chat::lift)
         }
 
-        Single.fromCallable {
+        writer.execute {
             if (chats.isNotEmpty()) {
                 chatsDao.deleteRange(accountId, chats.last().id, chats.first().id)
             }
@@ -234,7 +403,10 @@ class ChatRepositoryImpl(
                 chatsDao.insertInTransaction(
                     pair.first,
                     pair.second,
-                    chat.account.toEntity(accountId, gson)
+                    chat.lastMessage?.let {
+                        Placeholder(it.id.dec()).toChatMessageEntity(accountId, chat.id)
+                    },
+                    chat.account.toEntity(accountId)
                 )
             }
 
@@ -261,15 +433,11 @@ class ChatRepositoryImpl(
                 chatsDao.removeAllPlaceholdersBetween(accountId, maxId, sinceId)
             }
         }
-            .subscribeOn(Schedulers.io())
-            .subscribe()
 
         return resultChats
     }
 }
 
-private val emojisListTypeToken = object : TypeToken<List<Emoji>>() {}
-
 fun Placeholder.toChatEntity(timelineUserId: Long): ChatEntity {
     return ChatEntity(
         localId = timelineUserId,
@@ -281,6 +449,19 @@ fun Placeholder.toChatEntity(timelineUserId: Long): ChatEntity {
     )
 }
 
+fun Placeholder.toChatMessageEntity(timelineUserId: Long, chatId: String): ChatMessageEntity {
+    return ChatMessageEntity(
+        localId = timelineUserId,
+        messageId = this.id,
+        content = null,
+        chatId = chatId,
+        accountId = "",
+        createdAt = 0L,
+        attachment = null,
+        emojis = "[]"
+    )
+}
+
 fun ChatMessage.toEntity(timelineUserId: Long, gson: Gson): ChatMessageEntity {
     return ChatMessageEntity(
         localId = timelineUserId,
@@ -321,13 +502,20 @@ fun ChatMessageEntity.toChatMessage(gson: Gson): ChatMessage {
     )
 }
 
+fun ChatMessageEntity.toChatMessageOrPlaceholder(gson: Gson): ChatMesssageOrPlaceholder {
+    if (accountId.isEmpty()) {
+        return Either.Left(Placeholder(messageId))
+    }
+    return toChatMessage(gson).lift()
+}
+
 fun ChatEntityWithAccount.toChat(gson: Gson): ChatStatus {
     if (account == null || chat.accountId.isEmpty() || chat.updatedAt == 0L) {
         return Either.Left(Placeholder(chat.chatId))
     }
 
     return Chat(
-        account = this.account?.toAccount(gson) ?: Account(
+        account = this.account?.toAccount() ?: Account(
             "",
             "",
             "",
@@ -0,0 +1,334 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.repository
+
+import com.google.gson.Gson
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
+import com.keylesspalace.tusky.core.functional.Either
+import com.keylesspalace.tusky.db.AccountManager
+import com.keylesspalace.tusky.db.DatabaseWriter
+import com.keylesspalace.tusky.db.NotificationDao
+import com.keylesspalace.tusky.db.NotificationEntity
+import com.keylesspalace.tusky.db.NotificationRange
+import com.keylesspalace.tusky.entity.Notification
+import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.network.MastodonApi
+import com.keylesspalace.tusky.repository.TimelineRequestMode.DISK
+import com.keylesspalace.tusky.repository.TimelineRequestMode.NETWORK
+import com.keylesspalace.tusky.util.dec
+import io.reactivex.Single
+import io.reactivex.schedulers.Schedulers
+import java.io.IOException
+import java.util.Date
+
+typealias NotificationOrPlaceholder = Either<Placeholder, Notification>
+
+/**
+ * Notifications of a page, newest first.
+ *
+ * @param nextMaxId where the page below starts, null if there is nothing below
+ */
+data class NotificationPage(
+    val notifications: List<NotificationOrPlaceholder>,
+    val nextMaxId: String?
+)
+
+/**
+ * Notifications of the accounts, cached per account. The notifications tab, the background
+ * fetcher and the streaming service all write into the same cache, so the tab only fetches what
+ * none of them has seen yet.
+ *
+ * The cache holds every type, the type filters are applied when it is read.
+ */
+interface NotificationRepository {
+
+    /**
+     * Notifications of the active account. [DISK] reads the cache down to the first
+     * placeholder, [TimelineRequestMode.ANY] goes to the network when nothing is cached there.
+     * Pages fetched since a notification end with a placeholder when notifications may be
+     * missing between them and it. Pages that the type filters empty are skipped, a few at a
+     * time: after that the page is just a placeholder at [NotificationPage.nextMaxId] to go on.
+     *
+     * @param sinceId the newest notification that is shown already, it is left out of the page
+     */
+    fun getNotifications(
+        maxId: String?,
+        sinceId: String?,
+        limit: Int,
+        excludes: Set<Notification.Type>,
+        withMuted: Boolean,
+        requestMode: TimelineRequestMode
+    ): Single<NotificationPage>
+
+    /**
+     * Caches notifications the background fetcher got.
+     *
+     * @param sinceId what they were fetched since
+     * @param limit how many were asked for
+     */
+    fun addFetchedNotifications(
+        accountId: Long,
+        notifications: List<Notification>,
+        sinceId: String?,
+        limit: Int
+    )
+
+    /**
+     * Caches a streamed notification on top.
+     *
+     * @param gapBelow whether notifications may be missing between it and the cached ones,
+     * true for the first one after the stream was opened
+     */
+    fun addStreamedNotification(accountId: Long, notification: Notification, gapBelow: Boolean)
+
+    /**
+     * Applies a change to the cached notifications about a status, like a favourite. Writes on
+     * the calling thread, meant to be part of a [DatabaseWriter] write.
+     */
+    fun updateStatus(accountId: Long, statusId: String, update: (Status) -> Status)
+
+    /**
+     * Forgets the cached notifications of the account, when they are cleared on the server.
+     */
+    fun clearNotifications(accountId: Long)
+
+    companion object {
+        /** Rows kept per account, placeholders included */
+        const val CACHE_LIMIT = 500
+    }
+}
+
+class NotificationRepositoryImpl(
+    private val notificationDao: NotificationDao,
+    private val mastodonApi: MastodonApi,
+    private val accountManager: AccountManager,
+    private val writer: DatabaseWriter,
+    gson: Gson
+) : NotificationRepository {
+
+    // Dates are stored as they are, the default format loses the milliseconds and the time zone
+    private val gson = gson.newBuilder()
+        .registerTypeAdapter(Date::class.java, EpochMillisAdapter.nullSafe())
+        .create()
+
+    override fun getNotifications(
+        maxId: String?,
+        sinceId: String?,
+        limit: Int,
+        excludes: Set<Notification.Type>,
+        withMuted: Boolean,
+        requestMode: TimelineRequestMode
+    ): Single<NotificationPage> {
+        val accountId = accountManager.activeAccount?.id ?: throw IllegalStateException()
+
+        if (requestMode == NETWORK) {
+            return getFromNetwork(accountId, maxId, sinceId, limit, excludes, withMuted)
+        }
+        return getFromDb(accountId, maxId, sinceId, limit, excludes)
+            .flatMap { page ->
+                if (requestMode == DISK || page.notifications.isNotEmpty()) {
+                    Single.just(page)
+                } else {
+                    getFromNetwork(accountId, maxId, sinceId, limit, excludes, withMuted)
+                }
+            }
+    }
+
+    override fun addFetchedNotifications(
+        accountId: Long,
+        notifications: List<Notification>,
+        sinceId: String?,
+        limit: Int
+    ) {
+        val range = makeRange(accountId, notifications, null, sinceId, limit)
+        writer.execute { notificationDao.insertRange(range, NotificationRepository.CACHE_LIMIT) }
+    }
+
+    override fun addStreamedNotification(
+        accountId: Long,
+        notification: Notification,
+        gapBelow: Boolean
+    ) {
+        writer.execute {
+            notificationDao.insertNewest(
+                notification.toEntity(accountId),
+                gapBelow,
+                NotificationRepository.CACHE_LIMIT
+            )
+        }
+    }
+
+    override fun updateStatus(accountId: Long, statusId: String, update: (Status) -> Status) {
+        val updated = notificationDao.getByStatus(accountId, statusId).mapNotNull { entity ->
+            val notification = entity.toNotification()
+            val status = notification.status ?: return@mapNotNull null
+            val reblog = status.reblog
+            val updatedStatus = if (reblog != null) {
+                status.copy(reblog = update(reblog))
+            } else {
+                update(status)
+            }
+            notification.copy(status = updatedStatus).toEntity(accountId)
+        }
+        if (updated.isNotEmpty()) {
+            notificationDao.insertNotifications(updated)
+        }
+    }
+
+    override fun clearNotifications(accountId: Long) {
+        writer.execute { notificationDao.removeAllForAccount(accountId) }
+    }
+
+    private fun getFromDb(
+        accountId: Long,
+        maxId: String?,
+        sinceId: String?,
+        limit: Int,
+        excludes: Set<Notification.Type>
+    ): Single<NotificationPage> {
+        return notificationDao.getNotifications(
+            accountId,
+            maxId,
+            sinceId,
+            excludes.map { it.presentation },
+            limit
+        )
+            .subscribeOn(Schedulers.io())
+            .map { entities ->
+                // Below a placeholder the cache isn't contiguous, the network takes over there
+                val notifications = entities.asSequence()
+                    .takeWhile { it.notification != null }
+                    .map { Either.Right<Placeholder, Notification>(it.toNotification()) }
+                    .toList()
+                NotificationPage(notifications, notifications.lastOrNull()?.value?.id ?: maxId)
+            }
+    }
+
+    /**
+     * @param skippedPages how many pages the type filters emptied on the way here
+     */
+    private fun getFromNetwork(
+        accountId: Long,
+        maxId: String?,
+        sinceId: String?,
+        limit: Int,
+        excludes: Set<Notification.Type>,
+        withMuted: Boolean,
+        skippedPages: Int = 0
+    ): Single<NotificationPage> {
+        // One below the newest shown, so it comes back if nothing is missing in between
+        return mastodonApi.notifications(maxId, sinceId?.dec(), limit, null, withMuted)
+            .flatMap { fetched ->
+                val range = makeRange(accountId, fetched, maxId, sinceId?.dec(), limit)
+
+                val newer = fetched.filter { sinceId == null || it.id != sinceId }
+                val notifications = newer
+                    .filter { it.type !in excludes }
+                    .mapTo(mutableListOf<NotificationOrPlaceholder>()) { Either.Right(it) }
+                // Pages further down are loaded as the list is scrolled, not through a placeholder
+                if (sinceId != null && newer.size == fetched.size && fetched.size >= limit) {
+                    notifications.add(Either.Left(Placeholder(fetched.last().id.dec())))
+                }
+                val page = NotificationPage(notifications, fetched.lastOrNull()?.id)
+                writer.complete {
+                    notificationDao.insertRange(range, NotificationRepository.CACHE_LIMIT)
+                }.toSingleDefault(page)
+            }
+            .flatMap { page ->
+                // Everything on it was filtered out, go on below instead of ending the list
+                val nextMaxId = page.nextMaxId
+                if (sinceId != null || page.notifications.isNotEmpty() || nextMaxId == null) {
+                    Single.just(page)
+                } else if (skippedPages < MAX_SKIPPED_PAGES) {
+                    getFromNetwork(
+                        accountId,
+                        nextMaxId,
+                        null,
+                        limit,
+                        excludes,
+                        withMuted,
+                        skippedPages + 1
+                    )
+                } else {
+                    // Not a page without end, the user can go on from the placeholder
+                    val placeholder = Either.Left<Placeholder, Notification>(Placeholder(nextMaxId))
+                    Single.just(page.copy(notifications = listOf(placeholder)))
+                }
+            }
+    }
+
+    /**
+     * A full page only covers down to its oldest notification, a shorter one reaches [sinceId],
+     * or the very oldest notification without it.
+     */
+    private fun makeRange(
+        accountId: Long,
+        notifications: List<Notification>,
+        maxId: String?,
+        sinceId: String?,
+        limit: Int
+    ): NotificationRange {
+        val minId = if (notifications.size >= limit) {
+            notifications.last().id.dec()
+        } else {
+            sinceId
+        }
+        return NotificationRange(
+            accountId,
+            minId,
+            maxId,
+            notifications.map { it.toEntity(accountId) }
+        )
+    }
+
+    private fun Notification.toEntity(accountId: Long): NotificationEntity {
+        return NotificationEntity(
+            accountId = accountId,
+            serverId = id,
+            type = type.presentation,
+            senderServerId = account.id,
+            statusServerId = status?.actionableId,
+            notification = gson.toJson(this)
+        )
+    }
+
+    // The type is only read from the server format, the column keeps it
+    private fun NotificationEntity.toNotification(): Notification {
+        return gson.fromJson(notification, Notification::class.java)
+            .copy(type = Notification.Type.byString(type.orEmpty()))
+    }
+
+    private companion object {
+        const val MAX_SKIPPED_PAGES = 3
+    }
+
+    private object EpochMillisAdapter : TypeAdapter<Date>() {
+
+        override fun write(writer: JsonWriter, value: Date) {
+            writer.value(value.time)
+        }
+
+        override fun read(reader: JsonReader): Date {
+            return Date(reader.nextLong())
+        }
+    }
+}
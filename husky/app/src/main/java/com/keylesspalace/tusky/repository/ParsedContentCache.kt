@@ -0,0 +1,75 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.repository
+
+import android.text.Spanned
+import android.util.LruCache
+
+/**
+ * Parsed content and quote of a cached status.
+ */
+data class ParsedContent(
+    val content: Spanned,
+    val quote: Spanned?
+)
+
+/**
+ * In-memory LRU of [ParsedContent], shared by every timeline repository instance.
+ *
+ * Entries are keyed by the status id together with its edit date, so an edited status is
+ * parsed again instead of showing stale text.
+ */
+class ParsedContentCache(maxSize: Int = DEFAULT_SIZE) {
+
+    private data class Key(
+        val timelineUserId: Long,
+        val statusId: String,
+        val editedAt: Long?
+    )
+
+    private val cache = LruCache<Key, ParsedContent>(maxSize)
+
+    fun get(timelineUserId: Long, statusId: String, editedAt: Long?): ParsedContent? {
+        return cache.get(Key(timelineUserId, statusId, editedAt))
+    }
+
+    fun put(timelineUserId: Long, statusId: String, editedAt: Long?, content: ParsedContent) {
+        cache.put(Key(timelineUserId, statusId, editedAt), content)
+    }
+
+    inline fun getOrPut(
+        timelineUserId: Long,
+        statusId: String,
+        editedAt: Long?,
+        parse: () -> ParsedContent
+    ): ParsedContent {
+        return get(timelineUserId, statusId, editedAt)
+            ?: parse().also { put(timelineUserId, statusId, editedAt, it) }
+    }
+
+    fun clear() {
+        cache.evictAll()
+    }
+
+    companion object {
+        // A few timeline pages worth of statuses
+        private const val DEFAULT_SIZE = 500
+    }
+}
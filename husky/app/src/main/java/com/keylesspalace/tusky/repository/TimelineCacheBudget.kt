@@ -0,0 +1,211 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.repository
+
+import android.content.SharedPreferences
+import com.keylesspalace.tusky.db.DatabaseWriter
+import com.keylesspalace.tusky.db.TimelineDao
+import com.keylesspalace.tusky.settings.PrefKeys
+import com.keylesspalace.tusky.util.dec
+import io.reactivex.Scheduler
+import io.reactivex.Single
+import io.reactivex.schedulers.Schedulers
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import timber.log.Timber
+
+data class TimelineCacheSize(
+    val statuses: Int,
+    val bytes: Long
+)
+
+/**
+ * Keeps the timeline cache of every account below a number of rows and bytes, both chosen by
+ * the user and counted over all cached timelines of the account. On top of that every timeline
+ * has its own row cap: home may use the whole budget, the other timelines are capped lower as
+ * they are looked at less often and there can be many of them. Every visited profile, list and
+ * hashtag caches its own timelines, so only the ones written last are kept.
+ *
+ * The oldest statuses are evicted first, a few at a time so that every batch is a short
+ * transaction and timeline reads can get in between. Accounts that are no longer referenced are
+ * removed afterwards. Every step is a write of the [DatabaseWriter], like the writes that fill
+ * the cache.
+ */
+class TimelineCacheBudget(
+    private val timelineDao: TimelineDao,
+    private val writer: DatabaseWriter,
+    private val preferences: SharedPreferences,
+    private val scheduler: Scheduler = Schedulers.io()
+) {
+
+    private data class Trim(val accountId: Long, val timeline: TimelineKey)
+
+    private val pending = Collections.newSetFromMap(ConcurrentHashMap<Trim, Boolean>())
+
+    val maxStatuses: Int
+        get() = preferences.getString(PrefKeys.TIMELINE_CACHE_LIMIT, null)?.toIntOrNull()
+            ?: DEFAULT_MAX_STATUSES
+
+    fun maxStatuses(type: TimelineType): Int {
+        return when (type) {
+            TimelineType.HOME -> maxStatuses
+            TimelineType.PUBLIC_LOCAL, TimelineType.PUBLIC_FEDERATED,
+            TimelineType.PUBLIC_BUBBLE -> minOf(maxStatuses, MAX_PUBLIC_STATUSES)
+            TimelineType.TAG, TimelineType.USER, TimelineType.USER_WITH_REPLIES,
+            TimelineType.LIST -> minOf(maxStatuses, MAX_OTHER_STATUSES)
+        }
+    }
+
+    val maxBytes: Long
+        get() {
+            val megabytes = preferences.getString(PrefKeys.TIMELINE_CACHE_SIZE_LIMIT, null)
+                ?.toLongOrNull() ?: DEFAULT_MAX_MEGABYTES
+            return megabytes * 1024 * 1024
+        }
+
+    /**
+     * Trims the timeline soon. Requests for a timeline that is already waiting for a trim are
+     * dropped, so this can be called after every write.
+     */
+    fun scheduleTrim(accountId: Long, timeline: TimelineKey) {
+        val trim = Trim(accountId, timeline)
+        if (pending.add(trim)) {
+            scheduler.scheduleDirect({ trimStep(trim) }, TRIM_DELAY_SECONDS, TimeUnit.SECONDS)
+        }
+    }
+
+    private fun trimStep(trim: Trim) {
+        val accountId = trim.accountId
+        var again = false
+        writer.complete {
+            again = evictBatch(accountId, trim.timeline)
+            if (!again) {
+                evictTimelines(accountId, trim.timeline.type)
+                timelineDao.removeOrphanedAccounts(accountId)
+            }
+        }.subscribe({
+            if (again) {
+                // Over budget still, give others a chance to use the database before going on
+                scheduler.scheduleDirect { trimStep(trim) }
+            } else {
+                pending.remove(trim)
+            }
+        }, { error ->
+            Timber.e(error, "Failed to trim the timeline cache")
+            pending.remove(trim)
+        })
+    }
+
+    /**
+     * Evicts one batch of the oldest statuses if the timeline is over its own cap, or else if the
+     * account is over budget. The latter evicts from whichever timeline holds the account's
+     * oldest status.
+     *
+     * @return whether a batch was evicted
+     */
+    fun evictBatch(accountId: Long, timeline: TimelineKey): Boolean {
+        val kind = timeline.type.storedName
+        val count = timelineDao.countStatuses(accountId, kind, timeline.argument)
+        val maxRows = maxStatuses(timeline.type)
+        if (count > maxRows) {
+            evict(accountId, timeline, (count - maxRows).toLong())
+            return true
+        }
+
+        val accountCount = timelineDao.countAccountStatuses(accountId)
+        val accountBytes = timelineDao.getAccountStatusesSize(accountId)
+        val overRows = accountCount - maxStatuses
+        val overBytes = accountBytes - maxBytes
+        if (overRows <= 0 && overBytes <= 0) {
+            return false
+        }
+        val oldest = timelineDao.getOldestTimeline(accountId) ?: return false
+
+        // Rows are roughly the same size, so the byte excess translates to a row count
+        val averageBytes = (accountBytes / accountCount.coerceAtLeast(1)).coerceAtLeast(1)
+        val excess = maxOf(overRows.toLong(), overBytes / averageBytes + 1)
+        val type = TimelineType.ofStoredName(oldest.timelineKind)
+        if (type == null) {
+            // Written by a newer version, nothing reads it anymore
+            timelineDao.deleteTimeline(accountId, oldest.timelineKind, oldest.timelineArgument)
+        } else {
+            evict(accountId, TimelineKey(type, oldest.timelineArgument), excess)
+        }
+        return true
+    }
+
+    private fun evict(accountId: Long, timeline: TimelineKey, excess: Long) {
+        // One more than needed, the eviction may add a placeholder at the new bottom
+        val toEvict = excess.coerceIn(1, EVICTION_BATCH.toLong()).toInt() + 1
+        timelineDao.evictOldest(
+            accountId,
+            timeline.type.storedName,
+            timeline.argument,
+            toEvict
+        ) { oldestId ->
+            Placeholder(oldestId.dec()).toEntity(accountId, timeline)
+        }
+    }
+
+    /**
+     * Drops the cached timelines of the same group as [type] beyond the ones written last. Home
+     * and the public timelines are single timelines and are left alone.
+     */
+    fun evictTimelines(accountId: Long, type: TimelineType) {
+        val group = CAPPED_GROUPS.firstOrNull { type in it.types } ?: return
+        timelineDao.getTimelines(accountId, group.types.map { it.storedName })
+            .drop(group.maxTimelines)
+            .forEach {
+                timelineDao.deleteTimeline(accountId, it.timelineKind, it.timelineArgument)
+            }
+    }
+
+    /**
+     * Size of the whole timeline cache, over all accounts.
+     */
+    fun getCacheSize(): Single<TimelineCacheSize> {
+        return Single.fromCallable {
+            TimelineCacheSize(timelineDao.countAllStatuses(), timelineDao.getAllStatusesSize())
+        }
+            .subscribeOn(Schedulers.io())
+    }
+
+    companion object {
+        const val DEFAULT_MAX_STATUSES = 2000
+
+        const val DEFAULT_MAX_MEGABYTES = 32L
+
+        private const val MAX_PUBLIC_STATUSES = 400
+        private const val MAX_OTHER_STATUSES = 200
+
+        private class CappedGroup(val types: List<TimelineType>, val maxTimelines: Int)
+
+        private val CAPPED_GROUPS = listOf(
+            // With and without replies count separately
+            CappedGroup(listOf(TimelineType.USER, TimelineType.USER_WITH_REPLIES), 10),
+            CappedGroup(listOf(TimelineType.LIST), 5),
+            CappedGroup(listOf(TimelineType.TAG), 5)
+        )
+
+        private const val EVICTION_BATCH = 200
+        private const val TRIM_DELAY_SECONDS = 5L
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.repository
+
+/**
+ * Identifies a cached timeline of an account.
+ *
+ * @param argument the list id, the account id or the hashtags separated by spaces, empty for
+ * timelines that don't take one
+ */
+data class TimelineKey @JvmOverloads constructor(
+    val type: TimelineType,
+    val argument: String = ""
+) {
+
+    val hashtags: List<String>
+        get() = argument.split(TAG_SEPARATOR)
+
+    companion object {
+
+        @JvmField
+        val HOME = TimelineKey(TimelineType.HOME)
+
+        private const val TAG_SEPARATOR = " "
+
+        @JvmStatic
+        fun ofHashtags(hashtags: List<String>): TimelineKey {
+            return TimelineKey(TimelineType.TAG, hashtags.joinToString(TAG_SEPARATOR))
+        }
+    }
+}
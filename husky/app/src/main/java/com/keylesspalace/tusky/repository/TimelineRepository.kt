@@ -24,27 +24,30 @@ import android.text.Spanned
 import android.text.SpannedString
 import androidx.core.text.parseAsHtml
 import androidx.core.text.toHtml
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
 import com.keylesspalace.tusky.core.extensions.empty
 import com.keylesspalace.tusky.core.functional.Either
 import com.keylesspalace.tusky.db.AccountManager
+import com.keylesspalace.tusky.db.DatabaseWriter
+import com.keylesspalace.tusky.db.IdRange
+import com.keylesspalace.tusky.db.SpannedColumnCodec
 import com.keylesspalace.tusky.db.TimelineAccountEntity
+import com.keylesspalace.tusky.db.TimelineColumnCodec
 import com.keylesspalace.tusky.db.TimelineDao
+import com.keylesspalace.tusky.db.TimelinePage
 import com.keylesspalace.tusky.db.TimelineStatusEntity
 import com.keylesspalace.tusky.db.TimelineStatusWithAccount
 import com.keylesspalace.tusky.entity.Account
-import com.keylesspalace.tusky.entity.Attachment
-import com.keylesspalace.tusky.entity.Emoji
-import com.keylesspalace.tusky.entity.Poll
 import com.keylesspalace.tusky.entity.Quote
 import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.json.DeferredHtml
+import com.keylesspalace.tusky.json.HtmlBacked
 import com.keylesspalace.tusky.network.MastodonApi
 import com.keylesspalace.tusky.repository.TimelineRequestMode.DISK
 import com.keylesspalace.tusky.repository.TimelineRequestMode.NETWORK
 import com.keylesspalace.tusky.util.dec
 import com.keylesspalace.tusky.util.inc
 import com.keylesspalace.tusky.util.trimTrailingWhitespace
+import io.reactivex.Completable
 import io.reactivex.Single
 import io.reactivex.schedulers.Schedulers
 import java.io.IOException
@@ -61,6 +64,7 @@ enum class TimelineRequestMode {
 
 interface TimelineRepository {
     fun getStatuses(
+        timeline: TimelineKey,
         maxId: String?,
         sinceId: String?,
         sincedIdMinusOne: String?,
@@ -68,6 +72,26 @@ interface TimelineRepository {
         requestMode: TimelineRequestMode
     ): Single<out List<TimelineStatus>>
 
+    /**
+     * Adds a status that was streamed to the top of a cached timeline. Its HTML is parsed by the
+     * write, so the status can be shown once the write completes.
+     *
+     * @param gapBelow whether statuses may be missing below it, true for the first status after
+     * the stream was subscribed to
+     */
+    fun addStreamedStatus(
+        accountId: Long,
+        timeline: TimelineKey,
+        status: Status,
+        gapBelow: Boolean
+    ): Completable
+
+    /**
+     * Applies a streamed edit to every cached copy and reblog of the status. Its HTML is parsed
+     * by the write, like with [addStreamedStatus].
+     */
+    fun updateStreamedStatus(accountId: Long, status: Status): Completable
+
     companion object {
         val CLEANUP_INTERVAL = TimeUnit.DAYS.toMillis(14)
     }
@@ -77,7 +101,9 @@ class TimelineRepositoryImpl(
     private val timelineDao: TimelineDao,
     private val mastodonApi: MastodonApi,
     private val accountManager: AccountManager,
-    private val gson: Gson
+    private val contentCache: ParsedContentCache,
+    private val cacheBudget: TimelineCacheBudget,
+    private val writer: DatabaseWriter
 ) : TimelineRepository {
 
     init {
@@ -85,6 +111,7 @@ class TimelineRepositoryImpl(
     }
 
     override fun getStatuses(
+        timeline: TimelineKey,
         maxId: String?,
         sinceId: String?,
         sincedIdMinusOne: String?,
@@ -95,13 +122,94 @@ class TimelineRepositoryImpl(
         val accountId = acc.id
 
         return if (requestMode == DISK) {
-            this.getStatusesFromDb(accountId, maxId, sinceId, limit)
+            this.getStatusesFromDb(accountId, timeline, maxId, sinceId, limit)
         } else {
-            getStatusesFromNetwork(maxId, sinceId, sincedIdMinusOne, limit, accountId, requestMode)
+            getStatusesFromNetwork(
+                timeline,
+                maxId,
+                sinceId,
+                sincedIdMinusOne,
+                limit,
+                accountId,
+                requestMode
+            )
+        }
+    }
+
+    override fun addStreamedStatus(
+        accountId: Long,
+        timeline: TimelineKey,
+        status: Status,
+        gapBelow: Boolean
+    ): Completable {
+        return writer.complete {
+            status.parseDisplayedHtml()
+            cacheParsedContent(accountId, status)
+            val accounts = listOfNotNull(
+                status.account.toEntity(accountId),
+                status.reblog?.account?.toEntity(accountId)
+            )
+            val placeholders = if (gapBelow) {
+                listOf(Placeholder(status.id.dec()).toEntity(accountId, timeline))
+            } else {
+                listOf()
+            }
+            val page = TimelinePage(
+                timelineUserId = accountId,
+                timelineKind = timeline.type.storedName,
+                timelineArgument = timeline.argument,
+                deleteRange = null,
+                accounts = accounts,
+                statuses = listOf(status.toEntity(accountId, timeline)),
+                placeholders = placeholders,
+                removePlaceholdersBetween = null
+            )
+            timelineDao.insertPage(page)
+            cacheBudget.scheduleTrim(accountId, timeline)
+        }
+    }
+
+    override fun updateStreamedStatus(accountId: Long, status: Status): Completable {
+        return writer.complete {
+            status.parseDisplayedHtml()
+            cacheParsedContent(accountId, status)
+            timelineDao.setEdited(accountId, status.toEntity(accountId))
+        }
+    }
+
+    /**
+     * Parses everything that is displayed with a streamed status, so that it isn't parsed on the
+     * main thread once it's shown.
+     */
+    private fun Status.parseDisplayedHtml() {
+        for (status in listOfNotNull(this, reblog)) {
+            status.content.parseIfDeferred()
+            status.quote?.content?.parseIfDeferred()
+            status.pleroma?.quote?.content?.parseIfDeferred()
+            status.card?.title?.parseIfDeferred()
+            status.card?.description?.parseIfDeferred()
         }
     }
 
+    private fun Spanned.parseIfDeferred() {
+        (this as? DeferredHtml)?.parse()
+    }
+
+    private fun cacheParsedContent(accountId: Long, status: Status) {
+        val actionable = status.actionableStatus
+        contentCache.put(
+            accountId,
+            actionable.id,
+            actionable.editedAt?.time,
+            ParsedContent(actionable.content.unwrap(), actionable.quote?.content?.unwrap())
+        )
+    }
+
+    // Only the parsed content is cached, not the HTML it came as
+    private fun Spanned.unwrap(): Spanned = (this as? HtmlBacked)?.parse() ?: this
+
     private fun getStatusesFromNetwork(
+        timeline: TimelineKey,
         maxId: String?,
         sinceId: String?,
         sinceIdMinusOne: String?,
@@ -109,24 +217,80 @@ class TimelineRepositoryImpl(
         accountId: Long,
         requestMode: TimelineRequestMode
     ): Single<out List<TimelineStatus>> {
-        return mastodonApi.homeTimelineSingle(maxId, sinceIdMinusOne, limit + 1)
+        return fetchTimeline(timeline, maxId, sinceIdMinusOne, limit + 1)
             .map { statuses ->
-                this.saveStatusesToDb(accountId, statuses, maxId, sinceId)
+                this.saveStatusesToDb(accountId, timeline, statuses, maxId, sinceId)
             }
             .flatMap { statuses ->
-                this.addFromDbIfNeeded(accountId, statuses, maxId, sinceId, limit, requestMode)
+                this.addFromDbIfNeeded(
+                    accountId,
+                    timeline,
+                    statuses,
+                    maxId,
+                    sinceId,
+                    limit,
+                    requestMode
+                )
             }
             .onErrorResumeNext { error ->
                 if (error is IOException && requestMode != NETWORK) {
-                    this.getStatusesFromDb(accountId, maxId, sinceId, limit)
+                    this.getStatusesFromDb(accountId, timeline, maxId, sinceId, limit)
                 } else {
                     Single.error(error)
                 }
             }
     }
 
+    private fun fetchTimeline(
+        timeline: TimelineKey,
+        maxId: String?,
+        sinceId: String?,
+        limit: Int
+    ): Single<List<Status>> {
+        return when (timeline.type) {
+            TimelineType.HOME -> mastodonApi.homeTimelineSingle(maxId, sinceId, limit)
+            TimelineType.PUBLIC_FEDERATED ->
+                mastodonApi.publicTimelineSingle(null, maxId, sinceId, limit)
+            TimelineType.PUBLIC_LOCAL ->
+                mastodonApi.publicTimelineSingle(true, maxId, sinceId, limit)
+            TimelineType.PUBLIC_BUBBLE -> mastodonApi.bubbleTimelineSingle(maxId, sinceId, limit)
+            TimelineType.TAG -> {
+                val hashtags = timeline.hashtags
+                mastodonApi.hashtagTimelineSingle(
+                    hashtags.first(),
+                    hashtags.drop(1),
+                    null,
+                    maxId,
+                    sinceId,
+                    limit
+                )
+            }
+            TimelineType.USER -> mastodonApi.accountStatusesSingle(
+                timeline.argument,
+                maxId,
+                sinceId,
+                limit,
+                true,
+                null,
+                null
+            )
+            TimelineType.USER_WITH_REPLIES -> mastodonApi.accountStatusesSingle(
+                timeline.argument,
+                maxId,
+                sinceId,
+                limit,
+                null,
+                null,
+                null
+            )
+            TimelineType.LIST ->
+                mastodonApi.listTimelineSingle(timeline.argument, maxId, sinceId, limit)
+        }
+    }
+
     private fun addFromDbIfNeeded(
         accountId: Long,
+        timeline: TimelineKey,
         statuses: List<Either<Placeholder, Status>>,
         maxId: String?,
         sinceId: String?,
@@ -139,7 +303,7 @@ class TimelineRepositoryImpl(
             } else {
                 statuses.last { it.isRight() }.asRight().id
             }
-            this.getStatusesFromDb(accountId, newMaxID, sinceId, limit)
+            this.getStatusesFromDb(accountId, timeline, newMaxID, sinceId, limit)
                 .map { fromDb ->
                     // If it's just placeholders and less than limit (so we exhausted both
                     // db and server at this point)
@@ -156,11 +320,19 @@ class TimelineRepositoryImpl(
 
     private fun getStatusesFromDb(
         accountId: Long,
+        timeline: TimelineKey,
         maxId: String?,
         sinceId: String?,
         limit: Int
     ): Single<out List<TimelineStatus>> {
-        return timelineDao.getStatusesForAccount(accountId, maxId, sinceId, limit)
+        return timelineDao.getStatusesForAccount(
+            accountId,
+            timeline.type.storedName,
+            timeline.argument,
+            maxId,
+            sinceId,
+            limit
+        )
             .subscribeOn(Schedulers.io())
             .map { statuses ->
                 statuses.map { it.toStatus() }
@@ -169,6 +341,7 @@ class TimelineRepositoryImpl(
 
     private fun saveStatusesToDb(
         accountId: Long,
+        timeline: TimelineKey,
         statuses: List<Status>,
         maxId: String?,
         sinceId: String?
@@ -197,52 +370,76 @@ class TimelineRepositoryImpl(
             statuses.map(Status::lift)
         }
 
-        Single.fromCallable {
-            if (statuses.isNotEmpty()) {
-                timelineDao.deleteRange(accountId, statuses.last().id, statuses.first().id)
-            }
+        // The statuses were just parsed from the network, reading them back shouldn't redo it
+        for (status in statuses) {
+            cacheParsedContent(accountId, status)
+        }
 
-            for (status in statuses) {
-                timelineDao.insertInTransaction(
-                    status.toEntity(accountId, gson),
-                    status.account.toEntity(accountId, gson),
-                    status.reblog?.account?.toEntity(accountId, gson)
-                )
-            }
+        val placeholder = placeholderToInsert
+        writer.execute {
+            timelineDao.insertPage(
+                makePage(accountId, timeline, statuses, maxId, sinceId, placeholder)
+            )
+            cacheBudget.scheduleTrim(accountId, timeline)
+        }
 
-            placeholderToInsert?.let {
-                timelineDao.insertStatusIfNotThere(placeholderToInsert.toEntity(accountId))
-            }
+        return resultStatuses
+    }
 
-            // If we're loading in the bottom insert placeholder after every load
-            // (for requests on next launches) but not return it.
-            if (sinceId == null && statuses.isNotEmpty()) {
-                timelineDao.insertStatusIfNotThere(
-                    Placeholder(statuses.last().id.dec()).toEntity(accountId)
-                )
-            }
+    private fun makePage(
+        accountId: Long,
+        timeline: TimelineKey,
+        statuses: List<Status>,
+        maxId: String?,
+        sinceId: String?,
+        placeholderToInsert: Placeholder?
+    ): TimelinePage {
+        val accounts = LinkedHashMap<String, TimelineAccountEntity>()
+        for (status in statuses) {
+            accounts[status.account.id] = status.account.toEntity(accountId)
+            status.reblog?.account?.let { accounts[it.id] = it.toEntity(accountId) }
+        }
 
-            // There may be placeholders which we thought could be from our TL but they are not
-            if (statuses.size > 2) {
-                timelineDao.removeAllPlaceholdersBetween(
-                    accountId,
-                    statuses.first().id,
-                    statuses.last().id
-                )
-            } else if (placeholderToInsert == null && maxId != null && sinceId != null) {
-                timelineDao.removeAllPlaceholdersBetween(accountId, maxId, sinceId)
-            }
+        val placeholders = mutableListOf<TimelineStatusEntity>()
+        placeholderToInsert?.let {
+            placeholders.add(it.toEntity(accountId, timeline))
+        }
+        // If we're loading in the bottom insert placeholder after every load
+        // (for requests on next launches) but not return it.
+        if (sinceId == null && statuses.isNotEmpty()) {
+            placeholders.add(Placeholder(statuses.last().id.dec()).toEntity(accountId, timeline))
         }
-            .subscribeOn(Schedulers.io())
-            .subscribe()
 
-        return resultStatuses
+        // There may be placeholders which we thought could be from our TL but they are not
+        val removePlaceholdersBetween = if (statuses.size > 2) {
+            IdRange(statuses.last().id, statuses.first().id)
+        } else if (placeholderToInsert == null && maxId != null && sinceId != null) {
+            IdRange(sinceId, maxId)
+        } else {
+            null
+        }
+
+        return TimelinePage(
+            timelineUserId = accountId,
+            timelineKind = timeline.type.storedName,
+            timelineArgument = timeline.argument,
+            deleteRange = if (statuses.isNotEmpty()) {
+                IdRange(statuses.last().id, statuses.first().id)
+            } else {
+                null
+            },
+            accounts = accounts.values.toList(),
+            statuses = statuses.map { it.toEntity(accountId, timeline) },
+            placeholders = placeholders,
+            removePlaceholdersBetween = removePlaceholdersBetween
+        )
     }
 
     private fun cleanup() {
-        Schedulers.io().scheduleDirect {
+        writer.execute {
             val olderThan = System.currentTimeMillis() - TimelineRepository.CLEANUP_INTERVAL
             timelineDao.cleanup(olderThan)
+            accountManager.activeAccount?.let { cacheBudget.scheduleTrim(it.id, TimelineKey.HOME) }
         }
     }
 
@@ -251,42 +448,33 @@ class TimelineRepositoryImpl(
             return Either.Left(Placeholder(this.status.serverId))
         }
 
-        val attachments: ArrayList<Attachment> = gson.fromJson(
-            status.attachments,
-            object : TypeToken<List<Attachment>>() {}.type
-        ) ?: ArrayList()
-        val mentions: Array<Status.Mention> = gson.fromJson(
-            status.mentions,
-            Array<Status.Mention>::class.java
-        ) ?: arrayOf()
-        val application = gson.fromJson(status.application, Status.Application::class.java)
-        val emojis: List<Emoji> = gson.fromJson(
-            status.emojis,
-            object : TypeToken<List<Emoji>>() {}.type
-        ) ?: listOf()
-        val quoteEmojis: List<Emoji> = gson.fromJson(
-            status.quoteEmojis,
-            object : TypeToken<List<Emoji>>() {}.type
-        ) ?: listOf()
-        val quotedAccountEmojis: List<Emoji> = gson.fromJson(
-            status.quotedAccountEmojis,
-            object : TypeToken<List<Emoji>>() {}.type
-        ) ?: listOf()
-        val poll: Poll? = gson.fromJson(status.poll, Poll::class.java)
-        val pleroma = gson.fromJson(status.pleroma, Status.PleromaStatus::class.java)
+        val attachments = TimelineColumnCodec.decodeAttachments(status.attachments)
+        val mentions = TimelineColumnCodec.decodeMentions(status.mentions)
+        val application = TimelineColumnCodec.decodeApplication(status.application)
+        val emojis = TimelineColumnCodec.decodeEmojis(status.emojis)
+        val quoteEmojis = TimelineColumnCodec.decodeEmojis(status.quoteEmojis)
+        val quotedAccountEmojis = TimelineColumnCodec.decodeEmojis(status.quotedAccountEmojis)
+        val poll = TimelineColumnCodec.decodePoll(status.poll)
+        val pleroma = TimelineColumnCodec.decodePleroma(status.pleroma)
+        val parsed = contentCache.getOrPut(
+            status.timelineUserId,
+            status.reblogServerId ?: status.serverId,
+            status.editedAt
+        ) {
+            status.parseContent()
+        }
 
         val reblog = status.reblogServerId?.let { id ->
             Status(
                 id = id,
                 url = status.url,
                 uri = status.url,
-                account = account.toAccount(gson),
+                account = account.toAccount(),
                 inReplyToId = status.inReplyToId,
                 inReplyToAccountId = status.inReplyToAccountId,
                 reblog = null,
-                content = status.content?.parseAsHtml()?.trimTrailingWhitespace()
-                    ?: SpannedString(""),
-                quote = status.quote?.parseAsHtml()?.trimTrailingWhitespace()?.let { quote ->
+                content = parsed.content,
+                quote = parsed.quote?.let { quote ->
                     val account =
                         if (status.quoteFullName != null && status.quoteUsername != null) {
                             Account(
@@ -338,7 +526,7 @@ class TimelineRepositoryImpl(
                 id = status.serverId,
                 url = null, // no url for reblogs
                 uri = null,
-                account = this.reblogAccount!!.toAccount(gson),
+                account = this.reblogAccount!!.toAccount(),
                 inReplyToId = null,
                 inReplyToAccountId = null,
                 reblog = reblog,
@@ -367,12 +555,11 @@ class TimelineRepositoryImpl(
                 id = status.serverId,
                 url = status.url,
                 uri = status.url,
-                account = account.toAccount(gson),
+                account = account.toAccount(),
                 inReplyToId = status.inReplyToId,
                 inReplyToAccountId = status.inReplyToAccountId,
                 reblog = null,
-                content = status.content?.parseAsHtml()?.trimTrailingWhitespace()
-                    ?: SpannedString(""),
+                content = parsed.content,
                 createdAt = Date(status.createdAt),
                 editedAt = status.editedAt?.let { Date(it) },
                 emojis = emojis,
@@ -397,9 +584,27 @@ class TimelineRepositoryImpl(
     }
 }
 
-private val emojisListTypeToken = object : TypeToken<List<Emoji>>() {}
+/**
+ * Cached rows carry already parsed spans. Rows written before those existed, or by another
+ * version of [SpannedColumnCodec], are parsed again from their HTML.
+ */
+private fun TimelineStatusEntity.parseContent(): ParsedContent {
+    val content = SpannedColumnCodec.decode(contentSpans)
+        ?: this.content?.parseAsHtml()?.trimTrailingWhitespace()
+        ?: SpannedString("")
+    val quote = SpannedColumnCodec.decode(quoteSpans)
+        ?: this.quote?.parseAsHtml()?.trimTrailingWhitespace()
+    return ParsedContent(content, quote)
+}
+
+/**
+ * Content from the network still has the HTML it came as, anything else is converted back.
+ */
+private fun Spanned.sourceHtml(): String {
+    return (this as? HtmlBacked)?.html ?: toHtml()
+}
 
-fun Account.toEntity(accountId: Long, gson: Gson): TimelineAccountEntity {
+fun Account.toEntity(accountId: Long): TimelineAccountEntity {
     return TimelineAccountEntity(
         serverId = id,
         timelineUserId = accountId,
@@ -408,12 +613,12 @@ fun Account.toEntity(accountId: Long, gson: Gson): TimelineAccountEntity {
         displayName = displayName.orEmpty(),
         url = url,
         avatar = avatar,
-        emojis = gson.toJson(emojis),
+        emojis = TimelineColumnCodec.encodeEmojis(emojis),
         bot = bot
     )
 }
 
-fun TimelineAccountEntity.toAccount(gson: Gson): Account {
+fun TimelineAccountEntity.toAccount(): Account {
     return Account(
         id = serverId,
         localUsername = localUsername,
@@ -429,13 +634,16 @@ fun TimelineAccountEntity.toAccount(gson: Gson): Account {
         statusesCount = 0,
         source = null,
         bot = bot,
-        emojis = gson.fromJson(this.emojis, emojisListTypeToken.type),
+        emojis = TimelineColumnCodec.decodeEmojis(this.emojis),
         fields = null,
         moved = null
     )
 }
 
-fun Placeholder.toEntity(timelineUserId: Long): TimelineStatusEntity {
+fun Placeholder.toEntity(
+    timelineUserId: Long,
+    timeline: TimelineKey = TimelineKey.HOME
+): TimelineStatusEntity {
     return TimelineStatusEntity(
         serverId = this.id,
         url = null,
@@ -468,13 +676,17 @@ fun Placeholder.toEntity(timelineUserId: Long): TimelineStatusEntity {
         quoteEmojis = null,
         quoteFullName = null,
         quoteUsername = null,
-        quotedAccountEmojis = null
+        quotedAccountEmojis = null,
+        contentSpans = null,
+        quoteSpans = null,
+        timelineKind = timeline.type.storedName,
+        timelineArgument = timeline.argument
     )
 }
 
 fun Status.toEntity(
     timelineUserId: Long,
-    gson: Gson
+    timeline: TimelineKey = TimelineKey.HOME
 ): TimelineStatusEntity {
     val actionable = actionableStatus
     return TimelineStatusEntity(
@@ -484,17 +696,17 @@ fun Status.toEntity(
         authorServerId = actionable.account.id,
         inReplyToId = actionable.inReplyToId,
         inReplyToAccountId = actionable.inReplyToAccountId,
-        content = actionable.content.toHtml(),
-        quote = actionable.quote?.content?.toHtml(),
+        content = actionable.content.sourceHtml(),
+        quote = actionable.quote?.content?.sourceHtml(),
         quotedStatusId = actionable.quote?.quotedStatusId,
         quotedStatusUrl = actionable.quote?.quotedStatusUrl,
-        quoteEmojis = actionable.quote?.quoteEmojis?.let { gson.toJson(it) } ?: gson.toJson(listOf<Emoji>()),
+        quoteEmojis = TimelineColumnCodec.encodeEmojis(actionable.quote?.quoteEmojis),
         quoteFullName = actionable.quote?.account?.name,
         quoteUsername = actionable.quote?.account?.username,
-        quotedAccountEmojis = actionable.quote?.account?.emojis?.let { gson.toJson(it) } ?: gson.toJson(listOf<Emoji>()),
+        quotedAccountEmojis = TimelineColumnCodec.encodeEmojis(actionable.quote?.account?.emojis),
         createdAt = actionable.createdAt.time,
         editedAt = actionable.editedAt?.time,
-        emojis = actionable.emojis.let(gson::toJson),
+        emojis = TimelineColumnCodec.encodeEmojis(actionable.emojis),
         reblogsCount = actionable.reblogsCount,
         favouritesCount = actionable.favouritesCount,
         reblogged = actionable.reblogged,
@@ -503,13 +715,17 @@ fun Status.toEntity(
         sensitive = actionable.sensitive,
         spoilerText = actionable.spoilerText,
         visibility = actionable.visibility,
-        attachments = actionable.attachments.let(gson::toJson),
-        mentions = actionable.mentions.let(gson::toJson),
-        application = actionable.application.let(gson::toJson),
+        attachments = TimelineColumnCodec.encodeAttachments(actionable.attachments),
+        mentions = TimelineColumnCodec.encodeMentions(actionable.mentions),
+        application = TimelineColumnCodec.encodeApplication(actionable.application),
         reblogServerId = reblog?.id,
         reblogAccountId = reblog?.let { this.account.id },
-        poll = actionable.poll.let(gson::toJson),
-        pleroma = actionable.pleroma.let(gson::toJson)
+        poll = TimelineColumnCodec.encodePoll(actionable.poll),
+        pleroma = TimelineColumnCodec.encodePleroma(actionable.pleroma),
+        contentSpans = SpannedColumnCodec.encode(actionable.content),
+        quoteSpans = SpannedColumnCodec.encode(actionable.quote?.content),
+        timelineKind = timeline.type.storedName,
+        timelineArgument = timeline.argument
     )
 }
 
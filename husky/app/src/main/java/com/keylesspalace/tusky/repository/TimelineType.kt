@@ -0,0 +1,43 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.repository
+
+/**
+ * The timelines that are cached, whatever screen shows them.
+ *
+ * @param storedName stored as [com.keylesspalace.tusky.db.TimelineStatusEntity.timelineKind],
+ * it must not change once released
+ */
+enum class TimelineType(val storedName: String) {
+    HOME("HOME"),
+    PUBLIC_LOCAL("PUBLIC_LOCAL"),
+    PUBLIC_FEDERATED("PUBLIC_FEDERATED"),
+    PUBLIC_BUBBLE("PUBLIC_BUBBLE"),
+    TAG("TAG"),
+    USER("USER"),
+    USER_WITH_REPLIES("USER_WITH_REPLIES"),
+    LIST("LIST");
+
+    companion object {
+        fun ofStoredName(storedName: String): TimelineType? {
+            return values().firstOrNull { it.storedName == storedName }
+        }
+    }
+}
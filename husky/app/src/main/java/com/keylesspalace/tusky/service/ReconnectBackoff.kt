@@ -0,0 +1,53 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.keylesspalace.tusky.service
+
+import kotlin.random.Random
+
+/**
+ * Delays between attempts to reconnect a socket. They double from [baseMillis] up to
+ * [maxMillis], and each one is picked at random from its upper half, so sockets that dropped
+ * together, like when the network went away, don't all come back at once.
+ */
+class ReconnectBackoff(
+    private val baseMillis: Long = 1000,
+    private val maxMillis: Long = 5 * 60 * 1000,
+    private val random: Random = Random.Default
+) {
+
+    private var attempt = 0
+
+    fun nextDelay(): Long {
+        val cap = maxMillis.coerceAtMost(baseMillis shl attempt.coerceAtMost(MAX_SHIFT))
+        attempt++
+        return cap / 2 + random.nextLong(cap / 2 + 1)
+    }
+
+    /**
+     * Starts over from the shortest delay, once a connection held.
+     */
+    fun reset() {
+        attempt = 0
+    }
+
+    private companion object {
+        // Keeps the shift from overflowing, the delay is capped long before
+        const val MAX_SHIFT = 20
+    }
+}
@@ -52,6 +52,7 @@ import com.keylesspalace.tusky.entity.NewPoll
 import com.keylesspalace.tusky.entity.NewStatus
 import com.keylesspalace.tusky.entity.Status
 import com.keylesspalace.tusky.network.MastodonApi
+import com.keylesspalace.tusky.repository.ChatRepository
 import com.keylesspalace.tusky.util.SaveTootHelper
 import java.util.Timer
 import java.util.TimerTask
@@ -71,6 +72,7 @@ class SendTootService : Service(), KoinComponent {
     private val eventHub: EventHub by inject()
     private val draftHelper: DraftHelper by inject()
     private val saveTootHelper: SaveTootHelper by inject()
+    private val chatRepo: ChatRepository by inject()
 
     private val tootsToSend = ConcurrentHashMap<Int, PostToSend>()
     private val sendCalls = ConcurrentHashMap<Int, Either<Call<Status>, Call<ChatMessage>>>()
@@ -265,7 +267,9 @@ class SendTootService : Service(), KoinComponent {
                     if (response.isSuccessful) {
                         notificationManager.cancel(tootId)
 
-                        eventHub.dispatch(ChatMessageDeliveredEvent(response.body()!!))
+                        val message = response.body()!!
+                        chatRepo.addSentChatMessage(account.id, message)
+                        eventHub.dispatch(ChatMessageDeliveredEvent(message))
                     } else {
                         val builder = NotificationCompat.Builder(this@SendTootService, CHANNEL_ID)
                             .setSmallIcon(R.drawable.ic_notify)
@@ -0,0 +1,181 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.service
+
+import android.text.Spanned
+import com.google.gson.Gson
+import com.google.gson.JsonElement
+import com.google.gson.JsonParser
+import com.google.gson.JsonSyntaxException
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.keylesspalace.tusky.entity.Notification
+import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.entity.StreamEvent
+import com.keylesspalace.tusky.json.DeferredHtml
+import com.keylesspalace.tusky.json.SpannedTypeAdapter
+import java.io.IOException
+import java.io.StringReader
+
+/**
+ * Decodes the messages of a streaming socket. The envelope and the payload are read with one
+ * [JsonReader], the payload straight into the entity of the event. No HTML is parsed on the
+ * thread of the socket, it is left as [DeferredHtml]: the content of the statuses is parsed
+ * while they are cached, see [com.keylesspalace.tusky.repository.TimelineRepository], and the
+ * notes and fields of the accounts are never displayed from a streamed event.
+ *
+ * Thread safe, one decoder can be shared by all sockets.
+ */
+class StreamEventDecoder(gson: Gson) {
+
+    private val gson = gson.newBuilder()
+        .registerTypeAdapter(Spanned::class.java, SpannedTypeAdapter(deferHtml = true))
+        .create()
+    private val eventTypeAdapter = this.gson.getAdapter(StreamEvent.EventType::class.java)
+    private val notificationAdapter = this.gson.getAdapter(Notification::class.java)
+    private val statusAdapter = this.gson.getAdapter(Status::class.java)
+
+    /**
+     * A decoded message. Notification events come with their [notification], updates and edits
+     * with their [status], and deletions with the id of the status in [deletedId].
+     */
+    class Message(
+        val event: StreamEvent.EventType,
+        val stream: List<String>?,
+        val notification: Notification? = null,
+        val status: Status? = null,
+        val deletedId: String? = null
+    )
+
+    /**
+     * @param accept whether the payload of an event on a stream is wanted, the payloads of the
+     * others are skipped without being decoded
+     * @return the message, or null if its payload wasn't accepted
+     */
+    @Throws(JsonSyntaxException::class)
+    fun decode(
+        text: String,
+        accept: (event: StreamEvent.EventType, stream: List<String>?) -> Boolean
+    ): Message? {
+        try {
+            return read(JsonReader(StringReader(text)).apply { isLenient = true }, accept)
+        } catch (e: IOException) {
+            throw JsonSyntaxException(e)
+        } catch (e: IllegalStateException) {
+            throw JsonSyntaxException(e)
+        }
+    }
+
+    private fun read(
+        reader: JsonReader,
+        accept: (StreamEvent.EventType, List<String>?) -> Boolean
+    ): Message? {
+        var event: StreamEvent.EventType? = null
+        var stream: List<String>? = null
+        var streamRead = false
+        var message: Message? = null
+        var skipped = false
+        // Only used if the payload comes before the event or the stream
+        var rawPayload: JsonElement? = null
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "event" -> event = eventTypeAdapter.read(reader) ?: StreamEvent.EventType.UNKNOWN
+                "stream" -> {
+                    stream = readStream(reader)
+                    streamRead = true
+                }
+                "payload" -> if (event != null && streamRead) {
+                    if (accept(event, stream)) {
+                        message = readPayload(event, stream, reader)
+                    } else {
+                        reader.skipValue()
+                        skipped = true
+                    }
+                } else {
+                    rawPayload = JsonParser.parseReader(reader)
+                }
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        if (skipped) {
+            return null
+        }
+        if (message != null) {
+            return message
+        }
+        val type = event ?: StreamEvent.EventType.UNKNOWN
+        if (!accept(type, stream)) {
+            return null
+        }
+        val payload = rawPayload ?: return Message(type, stream)
+        return readPayload(type, stream, JsonReader(StringReader(payload.toString())))
+    }
+
+    private fun readPayload(
+        event: StreamEvent.EventType,
+        stream: List<String>?,
+        reader: JsonReader
+    ): Message {
+        return when (event) {
+            StreamEvent.EventType.NOTIFICATION -> {
+                Message(event, stream, notification = readEntity(notificationAdapter, reader))
+            }
+            StreamEvent.EventType.UPDATE, StreamEvent.EventType.STATUS_UPDATE -> {
+                Message(event, stream, status = readEntity(statusAdapter, reader))
+            }
+            StreamEvent.EventType.DELETE ->
+                Message(event, stream, deletedId = reader.nextString())
+            else -> {
+                reader.skipValue()
+                Message(event, stream)
+            }
+        }
+    }
+
+    /**
+     * Mastodon sends the payload as a string of JSON, other servers may send the object itself.
+     */
+    private fun <T> readEntity(adapter: TypeAdapter<T>, reader: JsonReader): T {
+        return if (reader.peek() == JsonToken.STRING) {
+            adapter.read(JsonReader(StringReader(reader.nextString())).apply { isLenient = true })
+        } else {
+            adapter.read(reader)
+        }
+    }
+
+    private fun readStream(reader: JsonReader): List<String>? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+        val stream = ArrayList<String>(2)
+        reader.beginArray()
+        while (reader.hasNext()) {
+            stream.add(reader.nextString())
+        }
+        reader.endArray()
+        return stream
+    }
+}
@@ -25,6 +25,10 @@ import android.app.NotificationManager
 import android.app.Service
 import android.content.Context
 import android.content.Intent
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.net.NetworkRequest
 import android.os.Build
 import android.os.IBinder
 import androidx.core.app.NotificationCompat
@@ -35,13 +39,27 @@ import com.google.gson.Gson
 import com.keylesspalace.tusky.R
 import com.keylesspalace.tusky.appstore.ChatMessageReceivedEvent
 import com.keylesspalace.tusky.appstore.EventHub
+import com.keylesspalace.tusky.appstore.StatusDeletedEvent
+import com.keylesspalace.tusky.appstore.StatusEditedEvent
+import com.keylesspalace.tusky.appstore.TimelineStreamEvent
+import com.keylesspalace.tusky.components.notifications.NotificationFetcher
 import com.keylesspalace.tusky.components.notifications.NotificationHelper
 import com.keylesspalace.tusky.db.AccountEntity
 import com.keylesspalace.tusky.db.AccountManager
+import com.keylesspalace.tusky.db.DatabaseWriter
 import com.keylesspalace.tusky.entity.Notification
+import com.keylesspalace.tusky.entity.Status
 import com.keylesspalace.tusky.entity.StreamEvent
+import com.keylesspalace.tusky.repository.ChatRepository
+import com.keylesspalace.tusky.repository.NotificationRepository
+import com.keylesspalace.tusky.repository.TimelineKey
+import com.keylesspalace.tusky.repository.TimelineRepository
 import com.keylesspalace.tusky.settings.PrefKeys
 import com.keylesspalace.tusky.util.isLessThan
+import io.reactivex.disposables.Disposable
+import io.reactivex.schedulers.Schedulers
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 import okhttp3.OkHttpClient
 import okhttp3.Request
@@ -58,25 +76,80 @@ class StreamingService : Service(), KoinComponent {
     private val accountManager: AccountManager by inject()
     private val gson: Gson by inject()
     private val client: OkHttpClient by inject()
+    private val timelineRepo: TimelineRepository by inject()
+    private val chatRepo: ChatRepository by inject()
+    private val notificationRepo: NotificationRepository by inject()
+    private val notificationFetcher: NotificationFetcher by inject()
+    private val writer: DatabaseWriter by inject()
+    private val timelineStreams: TimelineStreams by inject()
+    private val decoder by lazy { StreamEventDecoder(gson) }
+
+    // Pings find sockets that died without being closed, like after the network changed
+    private val streamingClient by lazy {
+        client.newBuilder().pingInterval(PING_INTERVAL_SECONDS, TimeUnit.SECONDS).build()
+    }
 
-    private val sockets: MutableMap<Long, WebSocket> = mutableMapOf()
+    // Also read by the network callback
+    private val connections: MutableMap<Long, Connection> = ConcurrentHashMap()
+    private var timelinesDisposable: Disposable? = null
+    private var networkCallback: ConnectivityManager.NetworkCallback? = null
+
+    /**
+     * The socket of an account. Notifications arrive on the stream the socket was opened with,
+     * timelines of the active account are subscribed to over the same socket.
+     *
+     * A socket that fails or is closed by the server is replaced by a new one after a backoff
+     * delay. Everything below is guarded by the connection unless noted otherwise.
+     */
+    private class Connection(
+        val account: AccountEntity,
+        val request: Request,
+        val notifications: Boolean,
+        val timelines: Boolean
+    ) {
+        lateinit var socket: WebSocket
+
+        // The timelines that want to be subscribed to, on this socket and the ones after it
+        var wantedTimelines = emptySet<TimelineKey>()
+
+        val backoff = ReconnectBackoff()
+        var reconnect: Disposable? = null
+        var openedAt = 0L
+        var wasOpen = false
+        var closed = false
+
+        // Guarded by the connection: the streams the socket is subscribed to, and the
+        // timelines that were written to since they were subscribed to
+        val streams = HashMap<TimelineKey, Stream>()
+        val contiguous = HashSet<TimelineKey>()
+
+        // Guarded by the connection: chats that got a message since the socket was opened
+        val chats = HashSet<String>()
+
+        // Notifications sent before the socket was opened may be missing below the first one
+        val notificationGap = AtomicBoolean(true)
+
+        // Saves the last notification id of the account once a burst of notifications is over
+        var accountSave: Disposable? = null
+    }
 
     private val notificationManager by lazy { getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager }
 
     override fun onBind(intent: Intent?): IBinder? { return null }
 
     private fun stopStreamingForId(id: Long) {
-        if (id in sockets) {
-            sockets[id]?.close(1000, null)
-            sockets.remove(id)
-        }
+        connections.remove(id)?.let(::close)
     }
 
     private fun stopStreaming() {
-        for (sock in sockets) {
-            sock.value.close(1000, null)
+        timelinesDisposable?.dispose()
+        timelinesDisposable = null
+        unregisterNetworkCallback()
+
+        for (connection in connections.values) {
+            close(connection)
         }
-        sockets.clear()
+        connections.clear()
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_DETACH)
@@ -104,32 +177,45 @@ class StreamingService : Service(), KoinComponent {
 
         var description = getString(R.string.streaming_notification_description)
         val accounts = accountManager.getAllAccountsOrderedByActive()
+        val activeAccount = accountManager.activeAccount
+        val liveTimelines = PreferenceManager.getDefaultSharedPreferences(this)
+            .getBoolean(PrefKeys.LIVE_TIMELINES, false)
+        val notificationsEnabled = NotificationHelper.areNotificationsEnabled(this, accountManager)
         var count = 0
+        timelinesDisposable?.dispose()
         for (account in accounts) {
             stopStreamingForId(account.id)
 
-            if (!account.notificationsStreamingEnabled) {
+            val notifications = notificationsEnabled && account.notificationsStreamingEnabled
+            val timelines = liveTimelines && account.id == activeAccount?.id
+            if (!notifications && !timelines) {
                 continue
             }
 
+            // Without a stream the socket only receives what it subscribes to later
+            val stream = if (notifications) "&stream=user:notification" else ""
             val endpoint =
-                "wss://${account.domain}/api/v1/streaming/?access_token=${account.accessToken}&stream=user:notification"
+                "wss://${account.domain}/api/v1/streaming/?access_token=${account.accessToken}$stream"
             val request = Request.Builder().url(endpoint).build()
 
             Timber.d("Running stream for ${account.fullName}")
 
-            sockets[account.id] = client.newWebSocket(
-                request,
-                makeStreamingListener(
-                    "${account.fullName}/user:notification",
-                    account
-                )
-            )
+            val connection = Connection(account, request, notifications, timelines)
+            connect(connection)
+            connections[account.id] = connection
 
-            description += "\n" + account.fullName
+            if (notifications) {
+                description += "\n" + account.fullName
+            }
             count++
         }
 
+        timelinesDisposable = connections.values.firstOrNull { it.timelines }?.let { connection ->
+            timelineStreams.timelines.subscribe { timelines ->
+                updateSubscriptions(connection, timelines)
+            }
+        }
+
         if (count <= 0) {
             Timber.d("No accounts. Stopping stream")
             stopStreaming()
@@ -137,6 +223,8 @@ class StreamingService : Service(), KoinComponent {
             return START_NOT_STICKY
         }
 
+        registerNetworkCallback()
+
         if (NotificationHelper.NOTIFICATION_USE_CHANNELS) {
             val channel = NotificationChannel(
                 CHANNEL_ID,
@@ -177,6 +265,15 @@ class StreamingService : Service(), KoinComponent {
     companion object {
         private const val NOTIFICATION_ID = 1337
 
+        private const val PING_INTERVAL_SECONDS = 30L
+
+        // Notifications that are shown again after a crash are less of a bother than a write
+        // for every one of them
+        private const val ACCOUNT_SAVE_DELAY_SECONDS = 5L
+
+        // A socket that stayed open this long starts over from the shortest reconnect delay
+        private val STABLE_CONNECTION_MILLIS = TimeUnit.MINUTES.toMillis(1)
+
         const val CHANNEL_ID = "streaming"
         const val KEY_STOP_STREAMING = "stop_streaming"
 
@@ -221,39 +318,274 @@ class StreamingService : Service(), KoinComponent {
         }
     }
 
-    private fun makeStreamingListener(tag: String, account: AccountEntity): WebSocketListener {
+    /**
+     * Opens a new socket for the connection, subscribed to the timelines the last one was.
+     * Whatever was streamed in between may be missing, so every stream starts with a gap again.
+     */
+    private fun connect(connection: Connection) {
+        synchronized(connection) {
+            if (connection.closed) {
+                return
+            }
+            connection.reconnect = null
+            connection.streams.clear()
+            connection.contiguous.clear()
+            connection.chats.clear()
+            connection.notificationGap.set(true)
+            connection.socket = streamingClient.newWebSocket(
+                connection.request,
+                makeStreamingListener(connection.account.fullName, connection)
+            )
+            updateSubscriptions(connection, connection.wantedTimelines)
+        }
+    }
+
+    private fun close(connection: Connection) {
+        synchronized(connection) {
+            connection.closed = true
+            connection.reconnect?.dispose()
+            connection.reconnect = null
+            connection.socket.close(1000, null)
+            connection.accountSave?.let { save ->
+                save.dispose()
+                connection.accountSave = null
+                accountManager.saveAccount(connection.account)
+            }
+        }
+    }
+
+    /**
+     * Saves the account a while after its last notification id changed, instead of on every
+     * notification.
+     */
+    private fun scheduleAccountSave(connection: Connection) {
+        synchronized(connection) {
+            if (connection.closed || connection.accountSave != null) {
+                return
+            }
+            connection.accountSave = Schedulers.computation().scheduleDirect(
+                {
+                    synchronized(connection) { connection.accountSave = null }
+                    accountManager.saveAccount(connection.account)
+                },
+                ACCOUNT_SAVE_DELAY_SECONDS,
+                TimeUnit.SECONDS
+            )
+        }
+    }
+
+    /**
+     * Replaces a socket that failed or was closed by the server, unless it was replaced already.
+     */
+    private fun scheduleReconnect(connection: Connection, socket: WebSocket) {
+        synchronized(connection) {
+            if (connection.closed || socket !== connection.socket || connection.reconnect != null) {
+                return
+            }
+            if (connection.wasOpen &&
+                System.currentTimeMillis() - connection.openedAt >= STABLE_CONNECTION_MILLIS
+            ) {
+                connection.backoff.reset()
+            }
+            val delay = connection.backoff.nextDelay()
+            Timber.d("Reconnecting stream for ${connection.account.fullName} in $delay ms")
+            connection.reconnect = Schedulers.computation().scheduleDirect(
+                { connect(connection) },
+                delay,
+                TimeUnit.MILLISECONDS
+            )
+        }
+    }
+
+    /**
+     * Reconnects the sockets that wait for their next attempt as soon as a network is back,
+     * instead of after the rest of their backoff delay.
+     */
+    private fun registerNetworkCallback() {
+        if (networkCallback != null) {
+            return
+        }
+        val connectivityManager =
+            getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
+        val callback = object : ConnectivityManager.NetworkCallback() {
+            override fun onAvailable(network: Network) {
+                for (connection in connections.values) {
+                    val reconnectNow = synchronized(connection) {
+                        val reconnect = connection.reconnect ?: return@synchronized false
+                        reconnect.dispose()
+                        connection.backoff.reset()
+                        true
+                    }
+                    if (reconnectNow) {
+                        Timber.d("Network available, reconnecting ${connection.account.fullName}")
+                        connect(connection)
+                    }
+                }
+            }
+        }
+        val request = NetworkRequest.Builder()
+            .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+            .build()
+        connectivityManager.registerNetworkCallback(request, callback)
+        networkCallback = callback
+    }
+
+    private fun unregisterNetworkCallback() {
+        val callback = networkCallback ?: return
+        val connectivityManager =
+            getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
+        connectivityManager.unregisterNetworkCallback(callback)
+        networkCallback = null
+    }
+
+    /**
+     * Fetches the notifications that were sent while the socket was down.
+     */
+    private fun backfill(connection: Connection) {
+        val account = connection.account
+        Timber.d("Fetching notifications missed by the stream of ${account.fullName}")
+        notificationFetcher.fetchAndShow(account)
+            .subscribe({}, { e -> Timber.w(e, "Failed to fetch missed notifications") })
+    }
+
+    /**
+     * Subscribes the socket to the streams of [timelines] and unsubscribes it from the others.
+     * Messages sent before the socket is open are queued by OkHttp.
+     */
+    private fun updateSubscriptions(connection: Connection, timelines: Set<TimelineKey>) {
+        synchronized(connection) {
+            connection.wantedTimelines = timelines
+            val iterator = connection.streams.iterator()
+            while (iterator.hasNext()) {
+                val (timeline, stream) = iterator.next()
+                if (timeline !in timelines) {
+                    connection.socket.send(gson.toJson(stream.unsubscribe()))
+                    connection.contiguous.remove(timeline)
+                    iterator.remove()
+                }
+            }
+            for (timeline in timelines) {
+                if (timeline in connection.streams) {
+                    continue
+                }
+                val stream = TimelineStreams.streamOf(timeline) ?: continue
+                connection.socket.send(gson.toJson(stream.subscribe()))
+                connection.streams[timeline] = stream
+            }
+        }
+    }
+
+    /**
+     * Writes a streamed status into the cache of the timeline it was sent for and shows it.
+     */
+    private fun onTimelineUpdate(connection: Connection, stream: List<String>?, status: Status) {
+        val timeline: TimelineKey
+        val gapBelow: Boolean
+        synchronized(connection) {
+            timeline = connection.streams.entries.firstOrNull { it.value.matches(stream) }
+                ?.key ?: return
+            // Statuses sent before the subscription may be missing below the first one
+            gapBelow = connection.contiguous.add(timeline)
+        }
+        // Dispatched once the write has parsed the status, not on the thread of the socket
+        timelineRepo.addStreamedStatus(connection.account.id, timeline, status, gapBelow)
+            .doOnError { e -> Timber.e(e, "Failed to cache a streamed status") }
+            .onErrorComplete()
+            .subscribe { eventHub.dispatch(TimelineStreamEvent(timeline, status)) }
+    }
+
+    private fun makeStreamingListener(tag: String, connection: Connection): WebSocketListener {
+        val account = connection.account
         return object : WebSocketListener() {
 
             override fun onOpen(webSocket: WebSocket, response: Response) {
                 Timber.d("Stream connected to: $tag. Response[$response]")
+                val reconnected = synchronized(connection) {
+                    if (webSocket !== connection.socket) {
+                        return
+                    }
+                    connection.openedAt = System.currentTimeMillis()
+                    val wasOpen = connection.wasOpen
+                    connection.wasOpen = true
+                    wasOpen
+                }
+                if (reconnected && connection.notifications) {
+                    backfill(connection)
+                }
+            }
+
+            override fun onClosing(webSocket: WebSocket, code: Int, reason: String) {
+                webSocket.close(1000, null)
             }
 
             override fun onClosed(webSocket: WebSocket, code: Int, reason: String) {
                 Timber.d("Stream closed for: $tag. Reason[$reason]")
+                scheduleReconnect(connection, webSocket)
             }
 
             override fun onFailure(webSocket: WebSocket, t: Throwable, response: Response?) {
                 Timber.e("Stream failed for $tag: $t. Response[$response]")
+                scheduleReconnect(connection, webSocket)
             }
 
             override fun onMessage(webSocket: WebSocket, text: String) {
-                val event = gson.fromJson(text, StreamEvent::class.java)
-                when (event.event) {
+                if (synchronized(connection) { webSocket !== connection.socket }) {
+                    return
+                }
+                val decoded = decoder.decode(text) { event, stream ->
+                    when (event) {
+                        // The home timeline stream repeats the notifications
+                        StreamEvent.EventType.NOTIFICATION ->
+                            connection.notifications && stream?.firstOrNull() != "user"
+                        StreamEvent.EventType.UPDATE,
+                        StreamEvent.EventType.STATUS_UPDATE,
+                        StreamEvent.EventType.DELETE -> connection.timelines
+                        else -> true
+                    }
+                } ?: return
+                when (decoded.event) {
                     StreamEvent.EventType.NOTIFICATION -> {
-                        val notification = gson.fromJson(event.payload, Notification::class.java)
+                        val notification = decoded.notification ?: return
                         NotificationHelper.make(this@StreamingService, notification, account, true)
+                        notificationRepo.addStreamedNotification(
+                            account.id,
+                            notification,
+                            connection.notificationGap.getAndSet(false)
+                        )
 
                         if (notification.type == Notification.Type.CHAT_MESSAGE) {
-                            eventHub.dispatch(ChatMessageReceivedEvent(notification.chatMessage!!))
+                            val message = notification.chatMessage!!
+                            // Messages sent before the socket was opened may be missing below
+                            val gapBelow = synchronized(connection) {
+                                connection.chats.add(message.chatId)
+                            }
+                            chatRepo.addChatMessage(account.id, message, gapBelow)
+                            eventHub.dispatch(ChatMessageReceivedEvent(message))
                         }
 
                         if (account.lastNotificationId.isLessThan(notification.id)) {
                             account.lastNotificationId = notification.id
-                            accountManager.saveAccount(account)
+                            scheduleAccountSave(connection)
                         }
                     }
+                    StreamEvent.EventType.UPDATE -> {
+                        val status = decoded.status ?: return
+                        onTimelineUpdate(connection, decoded.stream, status)
+                    }
+                    StreamEvent.EventType.STATUS_UPDATE -> {
+                        val status = decoded.status ?: return
+                        timelineRepo.updateStreamedStatus(account.id, status)
+                            .doOnError { e -> Timber.e(e, "Failed to cache a streamed edit") }
+                            .onErrorComplete()
+                            .subscribe { eventHub.dispatch(StatusEditedEvent(status)) }
+                    }
+                    StreamEvent.EventType.DELETE -> {
+                        val id = decoded.deletedId ?: return
+                        // After the streamed statuses that are still being written
+                        writer.complete {}.subscribe { eventHub.dispatch(StatusDeletedEvent(id)) }
+                    }
                     else -> {
-                        Timber.w("Unknown event type: ${event.event}")
+                        Timber.w("Unknown event type: ${decoded.event}")
                     }
                 }
             }
@@ -0,0 +1,126 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.service
+
+import com.keylesspalace.tusky.repository.TimelineKey
+import com.keylesspalace.tusky.repository.TimelineType
+import io.reactivex.Observable
+import io.reactivex.subjects.BehaviorSubject
+
+/**
+ * A stream of the streaming API and its parameter.
+ */
+data class Stream(
+    val name: String,
+    val list: String? = null,
+    val tag: String? = null
+) {
+
+    /**
+     * Whether an event was sent on this stream.
+     *
+     * @param stream see [com.keylesspalace.tusky.entity.StreamEvent.stream]
+     */
+    fun matches(stream: List<String>?): Boolean {
+        if (stream.isNullOrEmpty() || stream[0] != name) {
+            return false
+        }
+        val parameter = list ?: tag ?: return true
+        return stream.getOrNull(1).equals(parameter, ignoreCase = true)
+    }
+
+    fun subscribe() = StreamCommand(StreamCommand.SUBSCRIBE, name, list, tag)
+
+    fun unsubscribe() = StreamCommand(StreamCommand.UNSUBSCRIBE, name, list, tag)
+}
+
+/**
+ * Message that changes what a multiplexed streaming connection receives.
+ */
+data class StreamCommand(
+    val type: String,
+    val stream: String,
+    val list: String?,
+    val tag: String?
+) {
+    companion object {
+        const val SUBSCRIBE = "subscribe"
+        const val UNSUBSCRIBE = "unsubscribe"
+    }
+}
+
+/**
+ * Timelines of the active account that are on screen and want new statuses streamed to them.
+ * [StreamingService] keeps the socket of the active account subscribed to their streams.
+ *
+ * Timelines register when they are shown and unregister when they are hidden, a timeline that
+ * is shown in several places stays registered until all of them are hidden.
+ */
+class TimelineStreams {
+
+    private val registered = HashMap<TimelineKey, Int>()
+    private val subject = BehaviorSubject.createDefault(emptySet<TimelineKey>())
+
+    val timelines: Observable<Set<TimelineKey>> = subject
+
+    @Synchronized
+    fun register(timeline: TimelineKey) {
+        if (streamOf(timeline) == null) {
+            return
+        }
+        val count = registered[timeline] ?: 0
+        registered[timeline] = count + 1
+        if (count == 0) {
+            subject.onNext(registered.keys.toSet())
+        }
+    }
+
+    @Synchronized
+    fun unregister(timeline: TimelineKey) {
+        val count = registered[timeline] ?: return
+        if (count > 1) {
+            registered[timeline] = count - 1
+        } else {
+            registered.remove(timeline)
+            subject.onNext(registered.keys.toSet())
+        }
+    }
+
+    companion object {
+
+        /**
+         * The stream that carries new statuses of a timeline, or null if it can't be streamed.
+         * Timelines of several hashtags aren't streamed, they can only be subscribed one by one.
+         */
+        @JvmStatic
+        fun streamOf(timeline: TimelineKey): Stream? {
+            return when (timeline.type) {
+                TimelineType.HOME -> Stream("user")
+                TimelineType.PUBLIC_LOCAL -> Stream("public:local")
+                TimelineType.PUBLIC_FEDERATED -> Stream("public")
+                TimelineType.LIST -> Stream("list", list = timeline.argument)
+                TimelineType.TAG ->
+                    timeline.hashtags.singleOrNull()?.let { Stream("hashtag", tag = it) }
+                TimelineType.PUBLIC_BUBBLE, TimelineType.USER,
+                TimelineType.USER_WITH_REPLIES -> null
+            }
+        }
+    }
+}
@@ -59,6 +59,9 @@ object PrefKeys {
     const val ANIMATE_CUSTOM_EMOJIS = "animateCustomEmojis"
     const val RENDER_STATUS_AS_MENTION = "renderStatusAsMention"
     const val COMPOSING_ZWSP_CHAR = "composingZwspChar"
+    const val TIMELINE_CACHE_LIMIT = "timelineCacheLimit"
+    const val TIMELINE_CACHE_SIZE_LIMIT = "timelineCacheSizeLimit"
+    const val LIVE_TIMELINES = "liveTimelines"
 
     const val CUSTOM_TABS = "customTabs"
     const val WELLBEING_LIMITED_NOTIFICATIONS = "wellbeingModeLimitedNotifications"
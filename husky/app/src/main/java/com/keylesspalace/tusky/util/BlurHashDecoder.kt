@@ -7,15 +7,26 @@
 package com.keylesspalace.tusky.util
 
 import android.graphics.Bitmap
-import android.graphics.Color
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.math.PI
 import kotlin.math.cos
 import kotlin.math.pow
 import kotlin.math.withSign
 
+/**
+ * Thread safe, decoding can happen off the main thread.
+ */
 object BlurHashDecoder {
 
     fun decode(blurHash: String?, width: Int, height: Int, punch: Float = 1f): Bitmap? {
+        val pixels = decodePixels(blurHash, width, height, punch) ?: return null
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888)
+    }
+
+    /**
+     * Decodes into ARGB pixels, row by row.
+     */
+    fun decodePixels(blurHash: String?, width: Int, height: Int, punch: Float = 1f): IntArray? {
         require(width > 0) { "Width must be greater than zero" }
         require(height > 0) { "height must be greater than zero" }
         if (blurHash == null || blurHash.length < 6) {
@@ -29,23 +40,21 @@ object BlurHashDecoder {
         }
         val maxAcEnc = decode83(blurHash, 1, 2)
         val maxAc = (maxAcEnc + 1) / 166f
-        val colors = Array(numCompX * numCompY) { i ->
-            if (i == 0) {
-                val colorEnc = decode83(blurHash, 2, 6)
-                decodeDc(colorEnc)
-            } else {
-                val from = 4 + i * 2
-                val colorEnc = decode83(blurHash, from, from + 2)
-                decodeAc(colorEnc, maxAc * punch)
-            }
+        // r, g, b of every component
+        val colors = FloatArray(numCompX * numCompY * 3)
+        decodeDc(decode83(blurHash, 2, 6), colors)
+        for (i in 1 until numCompX * numCompY) {
+            val from = 4 + i * 2
+            decodeAc(decode83(blurHash, from, from + 2), maxAc * punch, colors, i * 3)
         }
-        return composeBitmap(width, height, numCompX, numCompY, colors)
+        return composePixels(width, height, numCompX, numCompY, colors)
     }
 
     private fun decode83(str: String, from: Int = 0, to: Int = str.length): Int {
         var result = 0
         for (i in from until to) {
-            val index = charMap[str[i]] ?: -1
+            val c = str[i].code
+            val index = if (c < charTable.size) charTable[c] else -1
             if (index != -1) {
                 result = result * 83 + index
             }
@@ -53,11 +62,10 @@ object BlurHashDecoder {
         return result
     }
 
-    private fun decodeDc(colorEnc: Int): FloatArray {
-        val r = colorEnc shr 16
-        val g = (colorEnc shr 8) and 255
-        val b = colorEnc and 255
-        return floatArrayOf(srgbToLinear(r), srgbToLinear(g), srgbToLinear(b))
+    private fun decodeDc(colorEnc: Int, colors: FloatArray) {
+        colors[0] = srgbToLinear(colorEnc shr 16)
+        colors[1] = srgbToLinear((colorEnc shr 8) and 255)
+        colors[2] = srgbToLinear(colorEnc and 255)
     }
 
     private fun srgbToLinear(colorEnc: Int): Float {
@@ -69,45 +77,63 @@ object BlurHashDecoder {
         }
     }
 
-    private fun decodeAc(value: Int, maxAc: Float): FloatArray {
+    private fun decodeAc(value: Int, maxAc: Float, colors: FloatArray, offset: Int) {
         val r = value / (19 * 19)
         val g = (value / 19) % 19
         val b = value % 19
-        return floatArrayOf(
-            signedPow2((r - 9) / 9.0f) * maxAc,
-            signedPow2((g - 9) / 9.0f) * maxAc,
-            signedPow2((b - 9) / 9.0f) * maxAc
-        )
+        colors[offset] = signedPow2((r - 9) / 9.0f) * maxAc
+        colors[offset + 1] = signedPow2((g - 9) / 9.0f) * maxAc
+        colors[offset + 2] = signedPow2((b - 9) / 9.0f) * maxAc
     }
 
     private fun signedPow2(value: Float) = value.pow(2f).withSign(value)
 
-    private fun composeBitmap(
+    /**
+     * The basis is separable: every row first sums up the vertical components, then every pixel
+     * only goes through the horizontal ones.
+     */
+    private fun composePixels(
         width: Int,
         height: Int,
         numCompX: Int,
         numCompY: Int,
-        colors: Array<FloatArray>
-    ): Bitmap {
-        val imageArray = IntArray(width * height)
+        colors: FloatArray
+    ): IntArray {
+        val cosX = cosines(width, numCompX)
+        val cosY = cosines(height, numCompY)
+        val row = FloatArray(numCompX * 3)
+        val pixels = IntArray(width * height)
         for (y in 0 until height) {
-            for (x in 0 until width) {
+            for (i in 0 until numCompX) {
                 var r = 0f
                 var g = 0f
                 var b = 0f
                 for (j in 0 until numCompY) {
-                    for (i in 0 until numCompX) {
-                        val basis = (cos(PI * x * i / width) * cos(PI * y * j / height)).toFloat()
-                        val color = colors[j * numCompX + i]
-                        r += color[0] * basis
-                        g += color[1] * basis
-                        b += color[2] * basis
-                    }
+                    val basis = cosY[j * height + y]
+                    val color = (j * numCompX + i) * 3
+                    r += colors[color] * basis
+                    g += colors[color + 1] * basis
+                    b += colors[color + 2] * basis
+                }
+                row[i * 3] = r
+                row[i * 3 + 1] = g
+                row[i * 3 + 2] = b
+            }
+            for (x in 0 until width) {
+                var r = 0f
+                var g = 0f
+                var b = 0f
+                for (i in 0 until numCompX) {
+                    val basis = cosX[i * width + x]
+                    r += row[i * 3] * basis
+                    g += row[i * 3 + 1] * basis
+                    b += row[i * 3 + 2] * basis
                 }
-                imageArray[x + width * y] = Color.rgb(linearToSrgb(r), linearToSrgb(g), linearToSrgb(b))
+                pixels[x + width * y] = (0xff shl 24) or (linearToSrgb(r) shl 16) or
+                    (linearToSrgb(g) shl 8) or linearToSrgb(b)
             }
         }
-        return Bitmap.createBitmap(imageArray, width, height, Bitmap.Config.ARGB_8888)
+        return pixels
     }
 
     private fun linearToSrgb(value: Float): Int {
@@ -119,13 +145,24 @@ object BlurHashDecoder {
         }
     }
 
-    private val charMap = listOf(
-        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F', 'G',
-        'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X',
-        'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o',
-        'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '#', '$', '%', '*', '+', ',',
-        '-', '.', ':', ';', '=', '?', '@', '[', ']', '^', '_', '{', '|', '}', '~'
-    )
-        .mapIndexed { i, c -> c to i }
-        .toMap()
+    // cos(PI * position * component / size) at [component * size + position], there are only
+    // a few sizes in use
+    private val cosineTables = ConcurrentHashMap<Long, FloatArray>()
+
+    private fun cosines(size: Int, components: Int): FloatArray {
+        val key = (size.toLong() shl 32) or components.toLong()
+        return cosineTables.getOrPut(key) {
+            FloatArray(size * components) { index ->
+                val component = index / size
+                val position = index % size
+                cos(PI * position * component / size).toFloat()
+            }
+        }
+    }
+
+    private val charTable = IntArray(128) { -1 }.apply {
+        val chars = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz" +
+            "#\$%*+,-.:;=?@[]^_{|}~"
+        chars.forEachIndexed { i, c -> this[c.code] = i }
+    }
 }
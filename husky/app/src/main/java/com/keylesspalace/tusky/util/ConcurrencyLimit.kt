@@ -0,0 +1,108 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.util
+
+import io.reactivex.Observable
+import io.reactivex.disposables.Disposable
+import java.util.ArrayDeque
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Lets at most [permits] of the observables it [limit]s run at once. The others are subscribed
+ * to in the order they were, as the running ones end. Disposing one that waits takes it out of
+ * the queue.
+ */
+class ConcurrencyLimit(private val permits: Int) {
+
+    private val waiting = ArrayDeque<Runnable>()
+    private var running = 0
+
+    init {
+        require(permits > 0) { "permits must be greater than zero" }
+    }
+
+    fun <T> limit(source: Observable<T>): Observable<T> {
+        return Observable.create { emitter ->
+            val subscription = AtomicReference<Disposable>()
+            val released = AtomicBoolean(false)
+            val releaseOnce = {
+                if (released.compareAndSet(false, true)) {
+                    release()
+                }
+            }
+            val start = Runnable {
+                if (emitter.isDisposed) {
+                    releaseOnce()
+                    return@Runnable
+                }
+                subscription.set(
+                    source.subscribe(
+                        { emitter.onNext(it) },
+                        { error ->
+                            releaseOnce()
+                            emitter.tryOnError(error)
+                        },
+                        {
+                            releaseOnce()
+                            emitter.onComplete()
+                        }
+                    )
+                )
+                if (emitter.isDisposed) {
+                    subscription.get().dispose()
+                }
+            }
+            emitter.setCancellable {
+                if (!dequeue(start)) {
+                    subscription.get()?.dispose()
+                    releaseOnce()
+                }
+            }
+            acquire(start)
+        }
+    }
+
+    private fun acquire(start: Runnable) {
+        synchronized(this) {
+            if (running >= permits) {
+                waiting.add(start)
+                return
+            }
+            running++
+        }
+        start.run()
+    }
+
+    private fun release() {
+        val next = synchronized(this) {
+            waiting.poll().also { next ->
+                if (next == null) {
+                    running--
+                }
+            }
+        }
+        next?.run()
+    }
+
+    private fun dequeue(start: Runnable): Boolean {
+        return synchronized(this) { waiting.remove(start) }
+    }
+}
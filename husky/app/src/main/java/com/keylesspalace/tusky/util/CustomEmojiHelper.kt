@@ -24,25 +24,18 @@ package com.keylesspalace.tusky.util
 
 import android.graphics.Canvas
 import android.graphics.Paint
-import android.graphics.drawable.Animatable
 import android.graphics.drawable.Drawable
 import android.text.SpannableString
 import android.text.Spanned
 import android.text.style.ReplacementSpan
 import android.view.View
 import android.webkit.MimeTypeMap
-import androidx.preference.PreferenceManager
-import com.bumptech.glide.Glide
-import com.bumptech.glide.load.engine.DiskCacheStrategy
-import com.bumptech.glide.request.target.CustomTarget
-import com.bumptech.glide.request.target.Target
-import com.bumptech.glide.request.transition.Transition
-import com.github.penfeizhou.animation.glide.AnimationDecoderOption
+import android.widget.TextView
 import com.keylesspalace.tusky.entity.Emoji
-import com.keylesspalace.tusky.settings.PrefKeys
 import com.keylesspalace.tusky.util.MIME.SVG
 import java.lang.ref.WeakReference
-import java.util.regex.Pattern
+import org.koin.core.component.KoinComponent
+import org.koin.core.component.inject
 import timber.log.Timber
 
 /**
@@ -59,25 +52,83 @@ import timber.log.Timber
 fun CharSequence.emojify(
     emojis: List<Emoji>?, view: View, forceSmallEmoji: Boolean = false
 ): CharSequence {
-    if (emojis.isNullOrEmpty()) {
+    return emojifyInto(emojis, forceSmallEmoji) { url, smallEmojis, animate ->
+        createEmojiSpan(url, view, smallEmojis, animate)
+    }
+}
+
+/**
+ * Like [emojify], but the text only marks where its emojis go, so it can be built once, off the
+ * main thread, and kept with the view data without holding any drawable. [attachEmojis] makes
+ * the EmojiSpans for the view the text is put in.
+ */
+fun CharSequence.emojifyDetached(
+    emojis: List<Emoji>?, forceSmallEmoji: Boolean = false
+): CharSequence {
+    return emojifyInto(emojis, forceSmallEmoji, ::DetachedEmoji)
+}
+
+/**
+ * Returns a copy of a text made by [emojifyDetached] with its emojis shown in [view]. Every
+ * view gets spans of its own, which are released with the text when the view shows another.
+ */
+fun CharSequence.attachEmojis(view: View): CharSequence {
+    if (this !is Spanned) {
         return this
     }
+    val detached = getSpans(0, length, DetachedEmoji::class.java)
+    if (detached.isEmpty()) {
+        return this
+    }
+    val attached = SpannableString(this)
+    for (emoji in detached) {
+        attached.removeSpan(emoji)
+        attached.setSpan(
+            createEmojiSpan(emoji.url, view, emoji.smallEmojis, emoji.animate),
+            getSpanStart(emoji),
+            getSpanEnd(emoji),
+            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE
+        )
+    }
+    return attached
+}
 
-    val builder = SpannableString.valueOf(this)
-    val pm = PreferenceManager.getDefaultSharedPreferences(view.context)
-    val smallEmojis = forceSmallEmoji || !pm.getBoolean(PrefKeys.BIG_EMOJIS, true)
-    val animate = pm.getBoolean(PrefKeys.ANIMATE_CUSTOM_EMOJIS, false)
+/**
+ * Where [emojifyDetached] puts a custom emoji, with the settings it is shown with.
+ */
+class DetachedEmoji internal constructor(
+    val url: String, val smallEmojis: Boolean, val animate: Boolean
+)
 
-    emojis.forEach { emoji ->
-        val matcher = Pattern.compile(":${emoji.shortcode}:", Pattern.LITERAL).matcher(this)
+/**
+ * Changes whenever the settings that texts are emojified with change.
+ */
+fun emojiSettingsVersion(): Int {
+    return EmojiHelper.preferences.version
+}
 
-        while (matcher.find()) {
-            val span = createEmojiSpan(emoji.url, view, smallEmojis, animate)
-            builder.setSpan(span, matcher.start(), matcher.end(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE)
-        }
+private inline fun CharSequence.emojifyInto(
+    emojis: List<Emoji>?,
+    forceSmallEmoji: Boolean,
+    crossinline createSpan: (url: String, smallEmojis: Boolean, animate: Boolean) -> Any
+): CharSequence {
+    val shortcodes = EmojiShortcodes.of(emojis)
+    if (shortcodes.isEmpty) {
+        return this
+    }
+
+    val preferences = EmojiHelper.preferences
+    val smallEmojis = forceSmallEmoji || !preferences.bigEmojis
+    val animate = preferences.animateEmojis
+
+    var builder: SpannableString? = null
+    shortcodes.forEachIn(this) { start, end, emoji ->
+        val span = createSpan(emoji.url, smallEmojis, animate)
+        val spannable = builder ?: SpannableString.valueOf(this).also { builder = it }
+        spannable.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE)
     }
 
-    return builder
+    return builder ?: this
 }
 
 fun CharSequence.emojify(emojis: List<Emoji>?, view: View): CharSequence {
@@ -85,11 +136,15 @@ fun CharSequence.emojify(emojis: List<Emoji>?, view: View): CharSequence {
 }
 
 fun createEmojiSpan(emojiUrl: String, view: View, forceSmallEmoji: Boolean = false): EmojiSpan {
-    val pm = PreferenceManager.getDefaultSharedPreferences(view.context)
-    val smallEmojis = forceSmallEmoji || !pm.getBoolean(PrefKeys.BIG_EMOJIS, true)
-    val animate = pm.getBoolean(PrefKeys.ANIMATE_CUSTOM_EMOJIS, false)
+    val preferences = EmojiHelper.preferences
+    val smallEmojis = forceSmallEmoji || !preferences.bigEmojis
+
+    return createEmojiSpan(emojiUrl, view, smallEmojis, preferences.animateEmojis)
+}
 
-    return createEmojiSpan(emojiUrl, view, smallEmojis, animate)
+private object EmojiHelper : KoinComponent {
+    val preferences: EmojiPreferences by inject()
+    val pool: EmojiDrawablePool by inject()
 }
 
 private fun createEmojiSpan(
@@ -104,26 +159,29 @@ private fun createEmojiSpan(
         EmojiSpan(WeakReference<View>(view))
     }
 
-    var glideRequest =
-        Glide.with(view)
-                .load(emojiUrl)
-                .set(AnimationDecoderOption.DISABLE_ANIMATION_GIF_DECODER, !animate)
-                .set(AnimationDecoderOption.DISABLE_ANIMATION_WEBP_DECODER, !animate)
-                .set(AnimationDecoderOption.DISABLE_ANIMATION_APNG_DECODER, !animate)
-    getMimeType(emojiUrl).takeIf { it == SVG }?.let {
-        glideRequest =
-            glideRequest.diskCacheStrategy(DiskCacheStrategy.AUTOMATIC).override(512, 512)
-    }
-    glideRequest.into(span.getTarget(animate))
+    val textSize = (view as? TextView)?.textSize
+        ?: (view.resources.displayMetrics.scaledDensity * DEFAULT_TEXT_SIZE_SP)
+    val size = EmojiDrawablePool.decodeSize(textSize, span.aspectRatio)
+    EmojiHelper.pool.acquire(EmojiDrawablePool.Key(emojiUrl, size, animate), span)
 
     return span
 }
 
+private const val DEFAULT_TEXT_SIZE_SP = 16f
+
+internal fun isSvgUrl(url: String): Boolean {
+    return getMimeType(url) == SVG
+}
+
 open class EmojiSpan(
-    val viewWeakReference: WeakReference<View>, private val aspectRatio: Double = 2.0
+    val viewWeakReference: WeakReference<View>, val aspectRatio: Double = 2.0
 ) : ReplacementSpan() {
 
-    var imageDrawable: Drawable? = null
+    // The shared drawable, set by EmojiDrawablePool
+    internal var entry: EmojiDrawablePool.Entry? = null
+
+    val imageDrawable: Drawable?
+        get() = entry?.drawable
 
     override fun getSize(
         paint: Paint, text: CharSequence, start: Int, end: Int, fm: Paint.FontMetricsInt?
@@ -153,14 +211,17 @@ open class EmojiSpan(
         paint: Paint
     ) {
         imageDrawable?.let { drawable ->
+            // Calculate the height, keeping the aspect ratio correct
+            val drawableWidth = drawable.intrinsicWidth
+            val drawableHeight = drawable.intrinsicHeight
+            if (drawableWidth <= 0 || drawableHeight <= 0) {
+                return
+            }
+
             canvas.save()
 
             // Start with a width relative to the text size
             var emojiWidth = paint.textSize * aspectRatio
-
-            // Calculate the height, keeping the aspect ratio correct
-            val drawableWidth = drawable.intrinsicWidth
-            val drawableHeight = drawable.intrinsicHeight
             var emojiHeight = emojiWidth / drawableWidth * drawableHeight
 
             // How much vertical space there is draw the emoji
@@ -172,51 +233,26 @@ open class EmojiSpan(
                 emojiWidth *= drawableSpace / emojiHeight
                 emojiHeight = drawableSpace
             }
-            drawable.setBounds(0, 0, emojiWidth.toInt(), emojiHeight.toInt())
 
             // Vertically center the emoji in the line
             val transY = top + (drawableSpace / 2 - emojiHeight / 2)
 
             canvas.translate(x, transY.toFloat())
+            // The drawable is shared with other spans, scale the canvas instead of changing its
+            // bounds so animated drawables don't resample their frames for every span
+            if (drawable.bounds.width() != drawableWidth ||
+                drawable.bounds.height() != drawableHeight
+            ) {
+                drawable.setBounds(0, 0, drawableWidth, drawableHeight)
+            }
+            canvas.scale(
+                (emojiWidth / drawableWidth).toFloat(),
+                (emojiHeight / drawableHeight).toFloat()
+            )
             drawable.draw(canvas)
             canvas.restore()
         }
     }
-
-    fun getTarget(animate: Boolean): Target<Drawable> {
-        return object : CustomTarget<Drawable>() {
-
-            override fun onResourceReady(resource: Drawable, transition: Transition<in Drawable>?) {
-                viewWeakReference.get()?.let { view ->
-                    if (animate && resource is Animatable) {
-                        val callback = resource.callback
-
-                        resource.callback = object : Drawable.Callback {
-                            override fun unscheduleDrawable(p0: Drawable, p1: Runnable) {
-                                callback?.unscheduleDrawable(p0, p1)
-                            }
-
-                            override fun scheduleDrawable(p0: Drawable, p1: Runnable, p2: Long) {
-                                callback?.scheduleDrawable(p0, p1, p2)
-                            }
-
-                            override fun invalidateDrawable(p0: Drawable) {
-                                callback?.invalidateDrawable(p0)
-                                view.invalidate()
-                            }
-                        }
-
-                        resource.start()
-                    }
-
-                    imageDrawable = resource
-                    view.invalidate()
-                }
-            }
-
-            override fun onLoadCleared(placeholder: Drawable?) {}
-        }
-    }
 }
 
 class SmallEmojiSpan(viewWeakReference: WeakReference<View>, aspectRatio: Double) : EmojiSpan(
@@ -0,0 +1,292 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.keylesspalace.tusky.util
+
+import android.content.ComponentCallbacks2
+import android.content.Context
+import android.content.res.Configuration
+import android.graphics.drawable.Animatable
+import android.graphics.drawable.BitmapDrawable
+import android.graphics.drawable.Drawable
+import android.os.Handler
+import android.os.Looper
+import android.view.Choreographer
+import android.view.View
+import com.bumptech.glide.Glide
+import com.bumptech.glide.load.engine.DiskCacheStrategy
+import com.bumptech.glide.request.target.CustomTarget
+import com.bumptech.glide.request.transition.Transition
+import com.github.penfeizhou.animation.glide.AnimationDecoderOption
+import java.lang.ref.ReferenceQueue
+import java.lang.ref.WeakReference
+
+/**
+ * Custom emoji drawables shared by all [EmojiSpan]s.
+ *
+ * There is one request and one decoded drawable per url, decode size and animation setting, no
+ * matter how many spans show the emoji. Entries count the spans that are still alive; the ones
+ * that no span uses anymore are kept in LRU order within a memory budget and are cleared from
+ * Glide when it is exceeded. Animated drawables only run while a span uses them, and their
+ * frames invalidate the views of those spans together, once per display frame.
+ *
+ * Spans are acquired from any thread, Glide requests and invalidations happen on the main thread.
+ */
+class EmojiDrawablePool(context: Context) {
+
+    data class Key(val url: String, val size: Int, val animate: Boolean)
+
+    private val context = context.applicationContext
+    private val handler = Handler(Looper.getMainLooper())
+    private val frameClock = FrameClock()
+
+    private val spanQueue = ReferenceQueue<EmojiSpan>()
+
+    // Guarded by the pool
+    private val entries = HashMap<Key, Entry>()
+    private val unused = LinkedHashMap<Key, Entry>(16, 0.75f, true)
+    private var unusedBytes = 0L
+    private val maxUnusedBytes = Runtime.getRuntime().maxMemory() / 32
+
+    init {
+        this.context.registerComponentCallbacks(object : ComponentCallbacks2 {
+            override fun onTrimMemory(level: Int) {
+                if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+                    trimUnused(0)
+                }
+            }
+
+            override fun onConfigurationChanged(newConfig: Configuration) {}
+
+            @Deprecated("Deprecated in Java")
+            override fun onLowMemory() {
+                trimUnused(0)
+            }
+        })
+    }
+
+    /**
+     * Makes [span] show the drawable of [key], loading it if no other span has done so.
+     */
+    fun acquire(key: Key, span: EmojiSpan) {
+        val start: Entry?
+        synchronized(this) {
+            releaseCollectedSpans()
+            val entry = entries[key] ?: Entry(key).also { entries[key] = it }
+            if (unused.remove(key) != null) {
+                unusedBytes -= entry.bytes
+            }
+            entry.spans.add(SpanReference(span, entry, spanQueue))
+            span.entry = entry
+            // New, or nothing used it anymore
+            start = entry.takeIf { it.spans.size == 1 }
+        }
+        start?.let { onMainThread { it.use() } }
+    }
+
+    private fun releaseCollectedSpans() {
+        while (true) {
+            val reference = spanQueue.poll() as SpanReference? ?: break
+            val entry = reference.entry
+            entry.spans.remove(reference)
+            if (entry.spans.isEmpty() && entries[entry.key] === entry) {
+                unused[entry.key] = entry
+                unusedBytes += entry.bytes
+                onMainThread { entry.pause() }
+            }
+        }
+        trimUnused(maxUnusedBytes)
+    }
+
+    private fun trimUnused(maxBytes: Long) {
+        val evicted = ArrayList<Entry>()
+        synchronized(this) {
+            val iterator = unused.values.iterator()
+            while (unusedBytes > maxBytes && iterator.hasNext()) {
+                val entry = iterator.next()
+                iterator.remove()
+                entries.remove(entry.key)
+                unusedBytes -= entry.bytes
+                evicted.add(entry)
+            }
+        }
+        if (evicted.isNotEmpty()) {
+            onMainThread { evicted.forEach { Glide.with(context).clear(it) } }
+        }
+    }
+
+    private fun viewsOf(entries: Collection<Entry>): Set<View> {
+        val views = HashSet<View>()
+        synchronized(this) {
+            entries.forEach { entry ->
+                entry.spans.forEach { reference ->
+                    reference.get()?.viewWeakReference?.get()?.let(views::add)
+                }
+            }
+        }
+        return views
+    }
+
+    private fun onMainThread(action: () -> Unit) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action()
+        } else {
+            handler.post(action)
+        }
+    }
+
+    internal class SpanReference(
+        span: EmojiSpan,
+        val entry: Entry,
+        queue: ReferenceQueue<EmojiSpan>
+    ) : WeakReference<EmojiSpan>(span, queue)
+
+    inner class Entry(val key: Key) :
+        CustomTarget<Drawable>(key.size, key.size), Drawable.Callback {
+
+        // Guarded by the pool
+        internal val spans = HashSet<SpanReference>()
+
+        @Volatile
+        var drawable: Drawable? = null
+            private set
+
+        // Guarded by the pool, only set once the drawable is there
+        internal var bytes = 0L
+
+        // Main thread only
+        private var requested = false
+
+        internal fun use() {
+            if (!requested) {
+                requested = true
+                load()
+            } else {
+                (drawable as? Animatable)?.takeIf { key.animate }?.start()
+                invalidateViews()
+            }
+        }
+
+        internal fun pause() {
+            synchronized(this@EmojiDrawablePool) {
+                if (spans.isNotEmpty()) {
+                    return
+                }
+            }
+            (drawable as? Animatable)?.stop()
+        }
+
+        private fun load() {
+            var request = Glide.with(context)
+                .load(key.url)
+                .set(AnimationDecoderOption.DISABLE_ANIMATION_GIF_DECODER, !key.animate)
+                .set(AnimationDecoderOption.DISABLE_ANIMATION_WEBP_DECODER, !key.animate)
+                .set(AnimationDecoderOption.DISABLE_ANIMATION_APNG_DECODER, !key.animate)
+            if (isSvgUrl(key.url)) {
+                request = request.diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
+            }
+            request.into(this)
+        }
+
+        override fun onResourceReady(resource: Drawable, transition: Transition<in Drawable>?) {
+            resource.callback = this
+            drawable = resource
+            val used = synchronized(this@EmojiDrawablePool) {
+                bytes = sizeOf(resource)
+                if (unused.containsKey(key)) {
+                    unusedBytes += bytes
+                }
+                spans.isNotEmpty()
+            }
+            if (used && key.animate && resource is Animatable) {
+                resource.start()
+            }
+            invalidateViews()
+        }
+
+        override fun onLoadCleared(placeholder: Drawable?) {
+            drawable?.callback = null
+            drawable = null
+        }
+
+        private fun invalidateViews() {
+            viewsOf(listOf(this)).forEach(View::invalidate)
+        }
+
+        override fun invalidateDrawable(who: Drawable) {
+            onMainThread { frameClock.invalidate(this) }
+        }
+
+        override fun scheduleDrawable(who: Drawable, what: Runnable, time: Long) {
+            handler.postAtTime(what, who, time)
+        }
+
+        override fun unscheduleDrawable(who: Drawable, what: Runnable) {
+            handler.removeCallbacks(what, who)
+        }
+    }
+
+    /**
+     * Invalidates the views of all animated emojis that changed at most once per frame, however
+     * many of them are in a view.
+     */
+    private inner class FrameClock : Choreographer.FrameCallback {
+
+        // Main thread only
+        private val invalidated = LinkedHashSet<Entry>()
+        private var posted = false
+
+        fun invalidate(entry: Entry) {
+            invalidated.add(entry)
+            if (!posted) {
+                posted = true
+                Choreographer.getInstance().postFrameCallback(this)
+            }
+        }
+
+        override fun doFrame(frameTimeNanos: Long) {
+            posted = false
+            val entries = invalidated.toList()
+            invalidated.clear()
+            viewsOf(entries).forEach(View::invalidate)
+        }
+    }
+
+    companion object {
+
+        // Rounding the decode size up keeps emojis of slightly different text sizes together
+        private const val SIZE_STEP = 16
+
+        fun decodeSize(textSize: Float, aspectRatio: Double): Int {
+            val size = Math.ceil(textSize * aspectRatio).toInt().coerceAtLeast(1)
+            return (size + SIZE_STEP - 1) / SIZE_STEP * SIZE_STEP
+        }
+
+        private fun sizeOf(drawable: Drawable): Long {
+            if (drawable is BitmapDrawable) {
+                drawable.bitmap?.let { return it.allocationByteCount.toLong() }
+            }
+            // Animated drawables keep about two frames
+            val frames = if (drawable is Animatable) 2 else 1
+            return frames * 4L * drawable.intrinsicWidth.coerceAtLeast(1) *
+                drawable.intrinsicHeight.coerceAtLeast(1)
+        }
+    }
+}
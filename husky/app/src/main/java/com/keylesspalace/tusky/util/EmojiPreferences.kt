@@ -0,0 +1,60 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.keylesspalace.tusky.util
+
+import android.content.SharedPreferences
+import com.keylesspalace.tusky.settings.PrefKeys
+
+/**
+ * The custom emoji settings, read once and kept up to date instead of being looked up for every
+ * text that is emojified.
+ */
+class EmojiPreferences(preferences: SharedPreferences) {
+
+    @Volatile
+    var bigEmojis = preferences.getBoolean(PrefKeys.BIG_EMOJIS, true)
+        private set
+
+    @Volatile
+    var animateEmojis = preferences.getBoolean(PrefKeys.ANIMATE_CUSTOM_EMOJIS, false)
+        private set
+
+    /**
+     * Incremented whenever one of the settings changes.
+     */
+    @Volatile
+    var version = 0
+        private set
+
+    // SharedPreferences only keeps a weak reference to its listeners
+    private val listener = SharedPreferences.OnSharedPreferenceChangeListener { prefs, key ->
+        when (key) {
+            PrefKeys.BIG_EMOJIS -> bigEmojis = prefs.getBoolean(key, true)
+            PrefKeys.ANIMATE_CUSTOM_EMOJIS -> animateEmojis = prefs.getBoolean(key, false)
+            else -> return@OnSharedPreferenceChangeListener
+        }
+        version++
+    }
+
+    init {
+        preferences.registerOnSharedPreferenceChangeListener(listener)
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.util
+
+import com.keylesspalace.tusky.entity.Emoji
+import java.util.Locale
+
+/**
+ * Searches custom emojis by shortcode, ignoring case, for autocompletion.
+ *
+ * Built once per emoji list. The shortcodes are kept sorted, so the ones starting with a query
+ * are a range found by binary search. Shortcodes that contain a query further in are looked up
+ * in an index of the trigrams of all shortcodes, only queries shorter than a trigram scan them.
+ */
+class EmojiSearchIndex(emojis: List<Emoji>) {
+
+    /**
+     * @param startingWith emojis whose shortcode starts with the query, sorted by shortcode
+     * @param containing the other emojis whose shortcode contains the query, the ones where it
+     * starts a word of the shortcode first
+     */
+    class Matches(val startingWith: List<Emoji>, val containing: List<Emoji>)
+
+    private val emojis: Array<Emoji>
+    private val keys: Array<String>
+    private val trigrams = HashMap<Long, IntArray>()
+
+    init {
+        val sorted = emojis.map { keyOf(it.shortcode) to it }.sortedBy { it.first }
+        this.emojis = Array(sorted.size) { sorted[it].second }
+        keys = Array(sorted.size) { sorted[it].first }
+
+        val postings = HashMap<Long, IntList>()
+        keys.forEachIndexed { index, key ->
+            for (i in 0..key.length - TRIGRAM) {
+                val list = postings.getOrPut(trigramOf(key, i)) { IntList() }
+                // Indices are added in order, only a repeated trigram of the same key repeats one
+                if (list.size == 0 || list.last() != index) {
+                    list.add(index)
+                }
+            }
+        }
+        postings.forEach { (trigram, list) -> trigrams[trigram] = list.toArray() }
+    }
+
+    val size: Int
+        get() = emojis.size
+
+    fun search(query: String, limit: Int): Matches {
+        val key = keyOf(query)
+        return Matches(startingWith(key, limit), containing(key, limit))
+    }
+
+    private fun startingWith(key: String, limit: Int): List<Emoji> {
+        val result = ArrayList<Emoji>()
+        var i = lowerBound(key)
+        while (i < keys.size && result.size < limit && keys[i].startsWith(key)) {
+            result.add(emojis[i])
+            i++
+        }
+        return result
+    }
+
+    private fun containing(key: String, limit: Int): List<Emoji> {
+        if (key.isEmpty()) {
+            return emptyList()
+        }
+        val atWord = ArrayList<Emoji>()
+        val inWord = ArrayList<Emoji>()
+        forEachCandidate(key) { index ->
+            val shortcode = keys[index]
+            if (shortcode.startsWith(key)) {
+                return@forEachCandidate true
+            }
+            var position = shortcode.indexOf(key, 1)
+            var found = false
+            while (position != -1) {
+                if (!shortcode[position - 1].isLetterOrDigit()) {
+                    atWord.add(emojis[index])
+                    return@forEachCandidate atWord.size < limit
+                }
+                found = true
+                position = shortcode.indexOf(key, position + 1)
+            }
+            if (found && inWord.size < limit) {
+                inWord.add(emojis[index])
+            }
+            true
+        }
+        return (atWord + inWord).take(limit)
+    }
+
+    /**
+     * Calls [action] with the indices of all emojis that might contain [key], in order, until it
+     * returns false.
+     */
+    private inline fun forEachCandidate(key: String, action: (Int) -> Boolean) {
+        if (key.length < TRIGRAM) {
+            for (index in keys.indices) {
+                if (!action(index)) {
+                    return
+                }
+            }
+            return
+        }
+        val lists = ArrayList<IntArray>(key.length - TRIGRAM + 1)
+        for (i in 0..key.length - TRIGRAM) {
+            lists.add(trigrams[trigramOf(key, i)] ?: return)
+        }
+        lists.sortBy { it.size }
+        val shortest = lists[0]
+        for (index in shortest) {
+            var inAll = true
+            for (j in 1 until lists.size) {
+                if (lists[j].binarySearch(index) < 0) {
+                    inAll = false
+                    break
+                }
+            }
+            if (inAll && !action(index)) {
+                return
+            }
+        }
+    }
+
+    private fun lowerBound(key: String): Int {
+        var low = 0
+        var high = keys.size
+        while (low < high) {
+            val middle = (low + high) ushr 1
+            if (keys[middle] < key) {
+                low = middle + 1
+            } else {
+                high = middle
+            }
+        }
+        return low
+    }
+
+    private class IntList {
+        private var values = IntArray(4)
+        var size = 0
+            private set
+
+        fun add(value: Int) {
+            if (size == values.size) {
+                values = values.copyOf(size * 2)
+            }
+            values[size++] = value
+        }
+
+        fun last() = values[size - 1]
+
+        fun toArray(): IntArray = values.copyOf(size)
+    }
+
+    private companion object {
+        const val TRIGRAM = 3
+
+        fun keyOf(shortcode: String) = shortcode.lowercase(Locale.ROOT)
+
+        fun trigramOf(key: String, start: Int): Long {
+            return (key[start].code.toLong() shl 32) or (key[start + 1].code.toLong() shl 16) or
+                key[start + 2].code.toLong()
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.keylesspalace.tusky.util
+
+import com.keylesspalace.tusky.entity.Emoji
+
+/**
+ * Finds the `:shortcode:`s of a list of custom emojis in a text.
+ *
+ * The text is scanned once, from colon to colon, and every candidate is looked up in a map of
+ * the shortcodes. Use [of] to get the instance of a list: it is built once and reused for as
+ * long as the list is, view data keep the same emoji lists over all binds.
+ */
+class EmojiShortcodes private constructor(emojis: List<Emoji>) {
+
+    fun interface Action {
+        /**
+         * @param start index of the opening colon
+         * @param end index after the closing colon
+         */
+        fun onEmoji(start: Int, end: Int, emoji: Emoji)
+    }
+
+    private val byShortcode = HashMap<String, Emoji>(emojis.size * 2)
+    private val minLength: Int
+    private val maxLength: Int
+
+    init {
+        var min = Int.MAX_VALUE
+        var max = 0
+        for (emoji in emojis) {
+            val shortcode = emoji.shortcode
+            // A colon would end the shortcode while scanning, those can't be found anyway
+            if (shortcode.isEmpty() || shortcode.indexOf(':') != -1 ||
+                byShortcode.containsKey(shortcode)
+            ) {
+                continue
+            }
+            byShortcode[shortcode] = emoji
+            min = minOf(min, shortcode.length)
+            max = maxOf(max, shortcode.length)
+        }
+        minLength = min
+        maxLength = max
+    }
+
+    val isEmpty: Boolean
+        get() = byShortcode.isEmpty()
+
+    /**
+     * Calls [action] for every shortcode in [text], from start to end. Found shortcodes don't
+     * overlap: the closing colon of one isn't the opening colon of the next.
+     */
+    fun forEachIn(text: CharSequence, action: Action) {
+        if (isEmpty) {
+            return
+        }
+        var start = indexOfColon(text, 0)
+        while (start != -1) {
+            val end = indexOfColon(text, start + 1)
+            if (end == -1) {
+                return
+            }
+            val length = end - start - 1
+            val emoji = if (length in minLength..maxLength) {
+                byShortcode[text.subSequence(start + 1, end).toString()]
+            } else {
+                null
+            }
+            if (emoji != null) {
+                action.onEmoji(start, end + 1, emoji)
+                start = indexOfColon(text, end + 1)
+            } else {
+                // The closing colon may open the next shortcode
+                start = end
+            }
+        }
+    }
+
+    companion object {
+
+        private const val CACHE_SIZE = 256
+
+        private val EMPTY = EmojiShortcodes(emptyList())
+
+        // Keyed by the identity of the list, comparing emoji lists would cost as much as
+        // building the map again
+        private val cache = object : LinkedHashMap<ListKey, EmojiShortcodes>(
+            CACHE_SIZE,
+            0.75f,
+            true
+        ) {
+            override fun removeEldestEntry(
+                eldest: MutableMap.MutableEntry<ListKey, EmojiShortcodes>
+            ): Boolean {
+                return size > CACHE_SIZE
+            }
+        }
+
+        @JvmStatic
+        fun of(emojis: List<Emoji>?): EmojiShortcodes {
+            if (emojis.isNullOrEmpty()) {
+                return EMPTY
+            }
+            val key = ListKey(emojis)
+            synchronized(cache) {
+                cache[key]?.let { return it }
+            }
+            val shortcodes = EmojiShortcodes(emojis)
+            synchronized(cache) {
+                cache[key] = shortcodes
+            }
+            return shortcodes
+        }
+
+        private fun indexOfColon(text: CharSequence, from: Int): Int {
+            for (i in from until text.length) {
+                if (text[i] == ':') {
+                    return i
+                }
+            }
+            return -1
+        }
+    }
+
+    private class ListKey(val list: List<Emoji>) {
+
+        override fun equals(other: Any?) = other is ListKey && other.list === list
+
+        override fun hashCode() = System.identityHashCode(list)
+    }
+}
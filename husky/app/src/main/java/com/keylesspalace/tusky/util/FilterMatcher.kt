@@ -0,0 +1,189 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.util
+
+import com.keylesspalace.tusky.entity.Filter
+
+/**
+ * Finds filter phrases in a text, ignoring case.
+ *
+ * All phrases are compiled into a single Aho-Corasick automaton, so a text is scanned once no
+ * matter how many filters there are. Whole word filters only match when they aren't surrounded by
+ * word characters; like on the server this only applies to phrases made of word characters.
+ */
+class FilterMatcher(filters: List<Filter>) {
+
+    // Transitions of state s are the sorted chars edgeChars[edgeStart[s] until edgeStart[s + 1]]
+    // leading to the states at the same positions of edgeTargets
+    private val edgeStart: IntArray
+    private val edgeChars: CharArray
+    private val edgeTargets: IntArray
+    private val fail: IntArray
+
+    // Phrase ending in a state, or -1, and the next state on the fail chain that ends one
+    private val phraseAt: IntArray
+    private val nextMatch: IntArray
+
+    private val phraseLength: IntArray
+    private val phraseWholeWord: BooleanArray
+
+    init {
+        val phrases = filters
+            .filter { it.phrase.isNotEmpty() }
+            .map { filter -> Pair(filter.phrase.lowercaseChars(), filter.isWholeWord()) }
+            .distinct()
+        phraseLength = IntArray(phrases.size) { phrases[it].first.length }
+        phraseWholeWord = BooleanArray(phrases.size) { phrases[it].second }
+
+        // Build the trie
+        val children = arrayListOf(sortedMapOf<Char, Int>())
+        val ends = arrayListOf(-1)
+        phrases.forEachIndexed { index, (phrase, _) ->
+            var state = 0
+            for (c in phrase) {
+                state = children[state].getOrPut(c) {
+                    children.add(sortedMapOf())
+                    ends.add(-1)
+                    children.size - 1
+                }
+            }
+            // Of equal phrases keep the one that isn't whole word only, it matches in more places
+            if (ends[state] == -1 || phraseWholeWord[ends[state]]) {
+                ends[state] = index
+            }
+        }
+
+        val stateCount = children.size
+        edgeStart = IntArray(stateCount + 1)
+        for (state in 0 until stateCount) {
+            edgeStart[state + 1] = edgeStart[state] + children[state].size
+        }
+        edgeChars = CharArray(edgeStart[stateCount])
+        edgeTargets = IntArray(edgeStart[stateCount])
+        for (state in 0 until stateCount) {
+            var i = edgeStart[state]
+            for ((c, target) in children[state]) {
+                edgeChars[i] = c
+                edgeTargets[i] = target
+                i++
+            }
+        }
+
+        // Breadth first, so the fail state of a state is always done before the state itself
+        fail = IntArray(stateCount)
+        phraseAt = ends.toIntArray()
+        nextMatch = IntArray(stateCount) { -1 }
+        val queue = IntArray(stateCount)
+        var head = 0
+        var tail = 0
+        for (i in edgeStart[0] until edgeStart[1]) {
+            queue[tail++] = edgeTargets[i]
+        }
+        while (head < tail) {
+            val state = queue[head++]
+            for (i in edgeStart[state] until edgeStart[state + 1]) {
+                val target = edgeTargets[i]
+                var f = fail[state]
+                var next = transition(f, edgeChars[i])
+                while (next == -1 && f != 0) {
+                    f = fail[f]
+                    next = transition(f, edgeChars[i])
+                }
+                fail[target] = if (next == -1) 0 else next
+                val failState = fail[target]
+                nextMatch[target] = if (phraseAt[failState] != -1) failState else nextMatch[failState]
+                queue[tail++] = target
+            }
+        }
+    }
+
+    val isEmpty: Boolean
+        get() = phraseLength.isEmpty()
+
+    fun matches(text: CharSequence?): Boolean {
+        if (text == null || isEmpty) {
+            return false
+        }
+        var state = 0
+        for (end in text.indices) {
+            val c = Character.toLowerCase(text[end])
+            var next = transition(state, c)
+            while (next == -1 && state != 0) {
+                state = fail[state]
+                next = transition(state, c)
+            }
+            state = if (next == -1) 0 else next
+
+            var match = if (phraseAt[state] != -1) state else nextMatch[state]
+            while (match != -1) {
+                if (isMatch(text, phraseAt[match], end)) {
+                    return true
+                }
+                match = nextMatch[match]
+            }
+        }
+        return false
+    }
+
+    private fun isMatch(text: CharSequence, phrase: Int, end: Int): Boolean {
+        if (!phraseWholeWord[phrase]) {
+            return true
+        }
+        val start = end - phraseLength[phrase] + 1
+        return (start == 0 || !isWordChar(text[start - 1])) &&
+            (end == text.length - 1 || !isWordChar(text[end + 1]))
+    }
+
+    private fun transition(state: Int, c: Char): Int {
+        var low = edgeStart[state]
+        var high = edgeStart[state + 1] - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val midChar = edgeChars[mid]
+            when {
+                midChar < c -> low = mid + 1
+                midChar > c -> high = mid - 1
+                else -> return edgeTargets[mid]
+            }
+        }
+        return -1
+    }
+
+    companion object {
+
+        /**
+         * Lowercases char by char like [matches] does, String.lowercase() can change the length.
+         */
+        private fun String.lowercaseChars(): String {
+            val chars = CharArray(length) { Character.toLowerCase(this[it]) }
+            return String(chars)
+        }
+
+        // "whole word" should only apply to alphanumeric filters, #1543
+        private fun Filter.isWholeWord() = wholeWord && phrase.all { isWordChar(it) }
+
+        /**
+         * Same as \w in a regular expression.
+         */
+        private fun isWordChar(c: Char): Boolean {
+            return c in 'a'..'z' || c in 'A'..'Z' || c in '0'..'9' || c == '_'
+        }
+    }
+}
@@ -3,13 +3,16 @@
 package com.keylesspalace.tusky.util
 
 import android.content.Context
+import android.graphics.Bitmap
 import android.graphics.drawable.BitmapDrawable
+import android.util.LruCache
 import android.widget.ImageView
 import androidx.annotation.Px
 import com.bumptech.glide.Glide
 import com.bumptech.glide.load.resource.bitmap.CenterCrop
 import com.bumptech.glide.load.resource.bitmap.RoundedCorners
 import com.keylesspalace.tusky.R
+import com.keylesspalace.tusky.entity.Status
 
 private val centerCropTransformation = CenterCrop()
 
@@ -42,6 +45,38 @@ fun loadAvatar(url: String?, imageView: ImageView, @Px radius: Int, animate: Boo
     }
 }
 
+private const val BLURHASH_SIZE = 32
+
+// About 200 placeholders of 4 KiB
+private val blurHashCache = object : LruCache<String, Bitmap>(800 * 1024) {
+    override fun sizeOf(key: String, value: Bitmap) = value.byteCount
+}
+
 fun decodeBlurHash(context: Context, blurhash: String): BitmapDrawable {
-    return BitmapDrawable(context.resources, BlurHashDecoder.decode(blurhash, 32, 32, 1f))
+    return BitmapDrawable(context.resources, decodeBlurHashBitmap(blurhash))
+}
+
+/**
+ * Decodes a blurhash, or takes it from the cache if it was shown or prefetched recently.
+ * Cached bitmaps are shared, they must not be changed or recycled.
+ */
+fun decodeBlurHashBitmap(blurhash: String): Bitmap? {
+    val key = "$blurhash/$BLURHASH_SIZE"
+    blurHashCache.get(key)?.let { return it }
+    val bitmap = BlurHashDecoder.decode(blurhash, BLURHASH_SIZE, BLURHASH_SIZE, 1f)
+        ?: return null
+    blurHashCache.put(key, bitmap)
+    return bitmap
+}
+
+/**
+ * Decodes the blurhashes of the media and the card of a status ahead of binding it. Meant to be
+ * called on a background thread.
+ */
+fun prefetchBlurHashes(status: Status) {
+    val actionable = status.actionableStatus
+    actionable.attachments.forEach { attachment ->
+        attachment.blurhash?.let(::decodeBlurHashBitmap)
+    }
+    actionable.card?.blurhash?.takeIf { it.isNotEmpty() }?.let(::decodeBlurHashBitmap)
 }
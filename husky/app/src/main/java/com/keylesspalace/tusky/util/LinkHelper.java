@@ -23,6 +23,7 @@ import android.os.Build;
 import android.text.SpannableString;
 import android.text.SpannableStringBuilder;
 import android.text.Spanned;
+import android.text.SpannedString;
 import android.text.method.LinkMovementMethod;
 import android.text.style.ClickableSpan;
 import android.text.style.URLSpan;
@@ -76,6 +77,42 @@ public class LinkHelper {
      */
     public static void setClickableText(TextView view, CharSequence content,
                                         @Nullable Status.Mention[] mentions, final LinkListener listener) {
+        view.setTag(R.id.link_listener, listener);
+        view.setText(buildClickableText(content, mentions));
+        view.setMovementMethod(LinkMovementMethod.getInstance());
+    }
+
+    /**
+     * Shows a text made by {@link #renderClickableText}, or any text with detached emojis, and
+     * notifies the listener about its clicked spans. The emojis get spans of this view's own.
+     *
+     * @param view the text will be put in
+     * @param rendered text that is shared by all views that show it
+     * @param listener to notify about particular spans that are clicked
+     */
+    public static void setRenderedText(TextView view, CharSequence rendered,
+                                       final LinkListener listener) {
+        view.setTag(R.id.link_listener, listener);
+        view.setText(CustomEmojiHelper.attachEmojis(rendered, view));
+        view.setMovementMethod(LinkMovementMethod.getInstance());
+    }
+
+    /**
+     * Like {@link #setClickableText}, but only builds the text so it can be done once, off the
+     * main thread, and shown in any view with {@link #setRenderedText}. The clickable spans find
+     * the listener in the view they are clicked in.
+     *
+     * @param content containing text with mentions, links, or hashtags
+     * @param mentions any '@' mentions which are known to be in the content
+     * @return an immutable copy of the content with clickable spans
+     */
+    public static Spanned renderClickableText(CharSequence content,
+                                              @Nullable Status.Mention[] mentions) {
+        return new SpannedString(buildClickableText(content, mentions));
+    }
+
+    private static SpannableStringBuilder buildClickableText(
+            CharSequence content, @Nullable Status.Mention[] mentions) {
         SpannableStringBuilder builder = SpannableStringBuilder.valueOf(content);
         URLSpan[] urlSpans = builder.getSpans(0, content.length(), URLSpan.class);
         for (URLSpan span : urlSpans) {
@@ -86,42 +123,17 @@ public class LinkHelper {
             ClickableSpan customSpan = null;
 
             if (text.charAt(0) == '#') {
-                final String tag = text.subSequence(1, text.length()).toString();
-                customSpan = new ClickableSpanNoUnderline() {
-                    @Override
-                    public void onClick(@NonNull View widget) { listener.onViewTag(tag); }
-                };
+                customSpan = new TagSpan(text.subSequence(1, text.length()).toString());
             } else if (text.charAt(0) == '@' && mentions != null && mentions.length > 0) {
-                String accountUsername = text.subSequence(1, text.length()).toString();
-                /* There may be multiple matches for users on different instances with the same
-                 * username. If a match has the same domain we know it's for sure the same, but if
-                 * that can't be found then just go with whichever one matched last. */
-                String id = null;
-                for (Status.Mention mention : mentions) {
-                    if (mention.getLocalUsername().equalsIgnoreCase(accountUsername)) {
-                        id = mention.getId();
-                        String url = mention.getUrl();
-                        if (url != null && url.contains(getDomain(span.getURL()))) {
-                            break;
-                        }
-                    }
-                }
+                String id = findMentionedAccount(text.subSequence(1, text.length()).toString(),
+                        span.getURL(), mentions);
                 if (id != null) {
-                    final String accountId = id;
-                    customSpan = new ClickableSpanNoUnderline() {
-                        @Override
-                        public void onClick(@NonNull View widget) { listener.onViewAccount(accountId); }
-                    };
+                    customSpan = new MentionSpan(id);
                 }
             }
 
             if (customSpan == null) {
-                customSpan = new CustomURLSpan(span.getURL()) {
-                    @Override
-                    public void onClick(View widget) {
-                        listener.onViewUrl(getURL());
-                    }
-                };
+                customSpan = new LinkSpan(span.getURL());
             }
             builder.removeSpan(span);
             builder.setSpan(customSpan, start, end, flags);
@@ -129,14 +141,92 @@ public class LinkHelper {
             /* Add zero-width space after links in end of line to fix its too large hitbox.
              * See also : https://github.com/tuskyapp/Tusky/issues/846
              *            https://github.com/tuskyapp/Tusky/pull/916 */
-            if (end >= builder.length() ||
-                    builder.subSequence(end, end + 1).toString().equals("\n")){
+            if (end >= builder.length() || builder.charAt(end) == '\n') {
                 builder.insert(end, "\u200B");
             }
         }
+        return builder;
+    }
 
-        view.setText(builder);
-        view.setMovementMethod(LinkMovementMethod.getInstance());
+    @Nullable
+    private static String findMentionedAccount(String accountUsername, String url,
+                                               Status.Mention[] mentions) {
+        /* There may be multiple matches for users on different instances with the same
+         * username. If a match has the same domain we know it's for sure the same, but if
+         * that can't be found then just go with whichever one matched last. */
+        String id = null;
+        String domain = null;
+        for (Status.Mention mention : mentions) {
+            if (mention.getLocalUsername().equalsIgnoreCase(accountUsername)) {
+                id = mention.getId();
+                String mentionUrl = mention.getUrl();
+                if (mentionUrl == null) {
+                    continue;
+                }
+                if (domain == null) {
+                    domain = getDomain(url);
+                }
+                if (mentionUrl.contains(domain)) {
+                    break;
+                }
+            }
+        }
+        return id;
+    }
+
+    @Nullable
+    private static LinkListener listenerOf(View view) {
+        Object listener = view.getTag(R.id.link_listener);
+        return listener instanceof LinkListener ? (LinkListener) listener : null;
+    }
+
+    private static final class TagSpan extends ClickableSpanNoUnderline {
+        private final String tag;
+
+        TagSpan(String tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public void onClick(@NonNull View widget) {
+            LinkListener listener = listenerOf(widget);
+            if (listener != null) {
+                listener.onViewTag(tag);
+            }
+        }
+    }
+
+    private static final class MentionSpan extends ClickableSpanNoUnderline {
+        private final String accountId;
+
+        MentionSpan(String accountId) {
+            this.accountId = accountId;
+        }
+
+        @Override
+        public void onClick(@NonNull View widget) {
+            LinkListener listener = listenerOf(widget);
+            if (listener != null) {
+                listener.onViewAccount(accountId);
+            }
+        }
+    }
+
+    private static final class LinkSpan extends CustomURLSpan {
+
+        LinkSpan(String url) {
+            super(url);
+        }
+
+        @Override
+        public void onClick(View widget) {
+            LinkListener listener = listenerOf(widget);
+            if (listener != null) {
+                listener.onViewUrl(getURL());
+            } else {
+                super.onClick(widget);
+            }
+        }
     }
 
     /**
@@ -0,0 +1,109 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.util
+
+import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.ListUpdateCallback
+import io.reactivex.android.schedulers.AndroidSchedulers
+import io.reactivex.schedulers.Schedulers
+
+/**
+ * Like [androidx.recyclerview.widget.AsyncListDiffer], but a diff can also be calculated by the
+ * caller on a thread it already runs on, like the one that merged the new list, and then be
+ * applied with [apply] without diffing again.
+ *
+ * [currentList], [submitList] and [apply] are for the main thread only.
+ */
+class ListDiffer<T : Any>(
+    private val updateCallback: ListUpdateCallback,
+    private val itemCallback: DiffUtil.ItemCallback<T>
+) {
+
+    /**
+     * A diff from the list that was shown when it was calculated.
+     */
+    class Update<T> internal constructor(
+        internal val oldList: List<T>,
+        internal val newList: List<T>,
+        internal val diff: DiffUtil.DiffResult
+    )
+
+    var currentList: List<T> = emptyList()
+        private set
+
+    // Diffs submitted before the last change of the list are dropped
+    private var generation = 0
+
+    /**
+     * Calculates the update from the current list to [newList] in the background.
+     */
+    fun submitList(newList: List<T>) {
+        val update = ++generation
+        val oldList = currentList
+        Schedulers.computation().scheduleDirect {
+            val diff = calculateDiff(oldList, newList)
+            AndroidSchedulers.mainThread().scheduleDirect {
+                if (update == generation) {
+                    apply(diff)
+                }
+            }
+        }
+    }
+
+    /**
+     * Diffs [oldList], which should be [currentList] as read on the main thread, to [newList].
+     * Can be called on any thread.
+     */
+    fun calculateDiff(oldList: List<T>, newList: List<T>): Update<T> {
+        val diff = DiffUtil.calculateDiff(object : DiffUtil.Callback() {
+            override fun getOldListSize() = oldList.size
+
+            override fun getNewListSize() = newList.size
+
+            override fun areItemsTheSame(oldPosition: Int, newPosition: Int): Boolean {
+                return itemCallback.areItemsTheSame(oldList[oldPosition], newList[newPosition])
+            }
+
+            override fun areContentsTheSame(oldPosition: Int, newPosition: Int): Boolean {
+                return itemCallback.areContentsTheSame(oldList[oldPosition], newList[newPosition])
+            }
+
+            override fun getChangePayload(oldPosition: Int, newPosition: Int): Any? {
+                return itemCallback.getChangePayload(oldList[oldPosition], newList[newPosition])
+            }
+        })
+        return Update(oldList, newList, diff)
+    }
+
+    /**
+     * Shows the new list of [update] if it was calculated from the list shown now.
+     *
+     * @return whether the update was applied, if not the list has to be submitted again
+     */
+    fun apply(update: Update<T>): Boolean {
+        if (update.oldList !== currentList) {
+            return false
+        }
+        generation++
+        currentList = update.newList
+        update.diff.dispatchUpdatesTo(updateCallback)
+        return true
+    }
+}
@@ -149,10 +149,14 @@ fun calculateInSampleSize(options: BitmapFactory.Options, reqWidth: Int, reqHeig
     return inSampleSize
 }
 
-fun reorientBitmap(bitmap: Bitmap?, orientation: Int): Bitmap? {
+/**
+ * The transformation that shows an image with the given EXIF orientation upright, or null if it
+ * already is.
+ */
+fun orientationMatrix(orientation: Int): Matrix? {
     val matrix = Matrix()
     when (orientation) {
-        ExifInterface.ORIENTATION_NORMAL -> return bitmap
+        ExifInterface.ORIENTATION_NORMAL -> return null
         ExifInterface.ORIENTATION_FLIP_HORIZONTAL -> matrix.setScale(-1.0f, 1.0f)
         ExifInterface.ORIENTATION_ROTATE_180 -> matrix.setRotate(180.0f)
         ExifInterface.ORIENTATION_FLIP_VERTICAL -> {
@@ -172,8 +176,13 @@ fun reorientBitmap(bitmap: Bitmap?, orientation: Int): Bitmap? {
         }
 
         ExifInterface.ORIENTATION_ROTATE_270 -> matrix.setRotate(-90.0f)
-        else -> return bitmap
+        else -> return null
     }
+    return matrix
+}
+
+fun reorientBitmap(bitmap: Bitmap?, orientation: Int): Bitmap? {
+    val matrix = orientationMatrix(orientation) ?: return bitmap
 
     if (bitmap == null) {
         return null
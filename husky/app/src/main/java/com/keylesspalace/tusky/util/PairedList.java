@@ -5,6 +5,7 @@ import androidx.arch.core.util.Function;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -27,6 +28,7 @@ public final class PairedList<T, V> extends AbstractList<T> {
     private final List<T> main = new ArrayList<>();
     private final List<V> synced = new ArrayList<>();
     private final Function<T, ? extends V> mapper;
+    private int version = 0;
 
     /**
      * Construct new paired list. Main and supplementary lists will be empty.
@@ -41,6 +43,54 @@ public final class PairedList<T, V> extends AbstractList<T> {
         return new ArrayList<>(synced);
     }
 
+    /**
+     * Number of changes made so far to either list, including {@code setPairedItem()}. Can be
+     * used to find out if a copy of the lists is still up to date.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Replaces the contents of both lists with items that were already paired, e.g. by a merge
+     * done off the main thread, without calling the mapper.
+     */
+    public void setAll(List<? extends T> items, List<? extends V> pairedItems) {
+        if(items.size() != pairedItems.size()) {
+            throw new IllegalArgumentException(
+                "Lists have different sizes: " + items.size() + " and " + pairedItems.size());
+        }
+        main.clear();
+        main.addAll(items);
+        synced.clear();
+        synced.addAll(pairedItems);
+        version++;
+    }
+
+    /**
+     * Removes all items matching the predicate in a single pass.
+     *
+     * @return whether any item was removed
+     */
+    public boolean removeMatching(Function<? super T, Boolean> predicate) {
+        int kept = 0;
+        for(int i = 0; i < main.size(); i++) {
+            T item = main.get(i);
+            if(!predicate.apply(item)) {
+                main.set(kept, item);
+                synced.set(kept, synced.get(i));
+                kept++;
+            }
+        }
+        if(kept == main.size()) {
+            return false;
+        }
+        main.subList(kept, main.size()).clear();
+        synced.subList(kept, synced.size()).clear();
+        version++;
+        return true;
+    }
+
     public V getPairedItem(int index) {
         return synced.get(index);
     }
@@ -56,6 +106,7 @@ public final class PairedList<T, V> extends AbstractList<T> {
 
     public void setPairedItem(int index, V element) {
         synced.set(index, element);
+        version++;
     }
 
     @Override
@@ -66,12 +117,14 @@ public final class PairedList<T, V> extends AbstractList<T> {
     @Override
     public T set(int index, T element) {
         synced.set(index, mapper.apply(element));
+        version++;
         return main.set(index, element);
     }
 
     @Override
     public boolean add(T t) {
         synced.add(mapper.apply(t));
+        version++;
         return main.add(t);
     }
 
@@ -79,14 +132,38 @@ public final class PairedList<T, V> extends AbstractList<T> {
     public void add(int index, T element) {
         synced.add(index, mapper.apply(element));
         main.add(index, element);
+        version++;
     }
 
     @Override
     public T remove(int index) {
         synced.remove(index);
+        version++;
         return main.remove(index);
     }
 
+    @Override
+    public boolean addAll(int index, Collection<? extends T> items) {
+        if(items.isEmpty()) {
+            return false;
+        }
+        List<V> mapped = new ArrayList<>(items.size());
+        for(T item : items) {
+            mapped.add(mapper.apply(item));
+        }
+        synced.addAll(index, mapped);
+        main.addAll(index, items);
+        version++;
+        return true;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        synced.subList(fromIndex, toIndex).clear();
+        main.subList(fromIndex, toIndex).clear();
+        version++;
+    }
+
     @Override
     public int size() {
         return main.size();
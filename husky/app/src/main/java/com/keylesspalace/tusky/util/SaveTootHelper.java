@@ -7,10 +7,12 @@ import androidx.annotation.NonNull;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.keylesspalace.tusky.db.AppDatabase;
+import com.keylesspalace.tusky.db.DatabaseWriter;
 import com.keylesspalace.tusky.db.TootDao;
 import com.keylesspalace.tusky.db.TootEntity;
 import java.util.ArrayList;
 import kotlin.Lazy;
+import kotlin.Unit;
 import static org.koin.java.KoinJavaComponent.inject;
 
 public final class SaveTootHelper {
@@ -18,19 +20,26 @@ public final class SaveTootHelper {
     private static final String TAG = "SaveTootHelper";
 
     private final TootDao tootDao;
+    private final DatabaseWriter writer;
     private final Context context;
     private final Lazy<Gson> gson = inject(com.google.gson.Gson.class);
 
-    public SaveTootHelper(@NonNull AppDatabase appDatabase, @NonNull Context context) {
+    public SaveTootHelper(@NonNull AppDatabase appDatabase, @NonNull DatabaseWriter writer,
+        @NonNull Context context)
+    {
         this.tootDao = appDatabase.tootDao();
+        this.writer = writer;
         this.context = context;
     }
 
     public void deleteDraft(int tootId) {
-        TootEntity item = tootDao.find(tootId);
-        if(item != null) {
-            deleteDraft(item);
-        }
+        writer.execute(() -> {
+            TootEntity item = tootDao.find(tootId);
+            if(item != null) {
+                deleteDraft(item);
+            }
+            return Unit.INSTANCE;
+        });
     }
 
     public void deleteDraft(@NonNull TootEntity item) {
@@ -47,6 +56,9 @@ public final class SaveTootHelper {
             }
         }
         // Update DB
-        tootDao.delete(item.getUid());
+        writer.execute(() -> {
+            tootDao.delete(item.getUid());
+            return Unit.INSTANCE;
+        });
     }
 }
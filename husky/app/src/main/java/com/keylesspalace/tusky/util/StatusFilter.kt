@@ -0,0 +1,117 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.util
+
+import android.util.LruCache
+import com.keylesspalace.tusky.entity.Filter
+import com.keylesspalace.tusky.entity.Status
+import java.util.Date
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * The server side filters of the active account, shared by all timelines, threads and
+ * notifications.
+ *
+ * Matchers are compiled once per set of filter contexts and verdicts are remembered per status,
+ * so statuses that are shown again after a refresh aren't scanned again. Setting new filters
+ * starts a new version and drops both. Everything here is thread safe, filtering is meant to
+ * happen off the main thread.
+ */
+class StatusFilter {
+
+    private class Snapshot(val filters: List<Filter>?, val version: Int) {
+        val matchers = ConcurrentHashMap<List<String>, FilterMatcher>()
+        val verdicts = LruCache<VerdictKey, Boolean>(MAX_VERDICTS)
+    }
+
+    private data class VerdictKey(
+        val statusId: String,
+        val editedAt: Date?,
+        val contexts: List<String>
+    )
+
+    @Volatile
+    private var snapshot = Snapshot(null, 0)
+
+    /**
+     * The filters of the account, or null if they weren't loaded yet.
+     */
+    val filters: List<Filter>?
+        get() = snapshot.filters
+
+    val version: Int
+        get() = snapshot.version
+
+    fun setFilters(filters: List<Filter>?) {
+        synchronized(this) {
+            snapshot = Snapshot(filters, snapshot.version + 1)
+        }
+    }
+
+    /**
+     * Forgets the filters, for example when the account changes.
+     */
+    fun clear() {
+        setFilters(null)
+    }
+
+    /**
+     * Matcher for the filters that apply to any of [contexts].
+     */
+    fun matcher(contexts: List<String>): FilterMatcher {
+        return matcher(snapshot, contexts)
+    }
+
+    /**
+     * Whether a filter for one of [contexts] matches the content, the spoiler text or a poll
+     * option of the status.
+     */
+    fun shouldFilter(status: Status, contexts: List<String>): Boolean {
+        val current = snapshot
+        if (current.filters.isNullOrEmpty() || contexts.isEmpty()) {
+            return false
+        }
+        val key = VerdictKey(status.id, status.editedAt, contexts)
+        current.verdicts.get(key)?.let { return it }
+
+        val matcher = matcher(current, contexts)
+        val actionable = status.actionableStatus
+        val verdict = !matcher.isEmpty && (
+            status.poll?.options?.any { matcher.matches(it.title) } == true ||
+                matcher.matches(actionable.content) ||
+                (status.spoilerText.isNotEmpty() && matcher.matches(actionable.spoilerText))
+            )
+        current.verdicts.put(key, verdict)
+        return verdict
+    }
+
+    private fun matcher(snapshot: Snapshot, contexts: List<String>): FilterMatcher {
+        return snapshot.matchers.getOrPut(contexts) {
+            val relevant = snapshot.filters.orEmpty().filter { filter ->
+                filter.context.any { it in contexts }
+            }
+            FilterMatcher(relevant)
+        }
+    }
+
+    companion object {
+        private const val MAX_VERDICTS = 2000
+    }
+}
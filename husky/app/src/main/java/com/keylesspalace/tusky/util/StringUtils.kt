@@ -3,6 +3,7 @@
 package com.keylesspalace.tusky.util
 
 import android.text.Spanned
+import java.util.Locale
 import java.util.Random
 
 private const val POSSIBLE_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ"
@@ -71,6 +72,15 @@ fun String.isLessThan(other: String): Boolean {
     }
 }
 
+/**
+ * Key that sorts like [isLessThan] with a plain string comparison, so the database can keep
+ * it in an index: the length as four digits, then the id itself.
+ * Must stay in sync with the `printf('%04d', LENGTH(id)) || id` expressions in the DAOs.
+ */
+fun String.toSortKey(): String {
+    return String.format(Locale.ROOT, "%04d%s", length, this)
+}
+
 fun Spanned.trimTrailingWhitespace(): Spanned {
     var i = length
     do {
@@ -0,0 +1,261 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky.util
+
+import androidx.arch.core.util.Function
+import com.keylesspalace.tusky.core.functional.Either
+import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.repository.Placeholder
+
+/**
+ * Merges fetched pages into a copy of a timeline and its view data, so that the merge can run
+ * off the main thread and its result be handed to [PairedList.setAll].
+ *
+ * Every merge is a single pass over the timeline that copies the items it keeps in bulk, and
+ * view data is only created for items that weren't in the timeline before. Items are looked up
+ * in the timeline by an index of their positions. Consecutive placeholders are collapsed into
+ * the last one.
+ *
+ * @param items the timeline, newest first
+ * @param viewData view data of [items], at the same positions
+ * @param mapper creates view data for new items
+ */
+class TimelineMerge<V>(
+    private val items: List<Either<Placeholder, Status>>,
+    private val viewData: List<V>,
+    private val mapper: Function<Either<Placeholder, Status>, out V>
+) {
+
+    /**
+     * @param changed whether any item was added
+     */
+    class Result<V>(
+        val items: List<Either<Placeholder, Status>>,
+        val viewData: List<V>,
+        val changed: Boolean
+    )
+
+    init {
+        require(items.size == viewData.size) {
+            "Lists have different sizes: ${items.size} and ${viewData.size}"
+        }
+    }
+
+    // Where the items are, found by equality like indexOf() does, so by id
+    private val positions by lazy(LazyThreadSafetyMode.NONE) {
+        val positions = HashMap<Either<Placeholder, Status>, Int>(items.size * 2)
+        // Backwards, so that the first of equal items wins like with indexOf()
+        for (i in items.indices.reversed()) {
+            positions[items[i]] = i
+        }
+        positions
+    }
+
+    /**
+     * Adds statuses that are newer than the timeline. If the page doesn't reach the top of the
+     * timeline and the server had more, a placeholder marks the gap.
+     */
+    fun prepend(page: List<Either<Placeholder, Status>>, fullFetch: Boolean): Result<V> {
+        if (page.isEmpty()) {
+            return unchanged()
+        }
+        if (items.isEmpty()) {
+            return Builder(page.size).addNew(page).build()
+        }
+
+        // Everything above the oldest status of the page is replaced by the page
+        val index = indexOf(page.last())
+        val start = index.coerceAtLeast(0)
+        val overlap = page.indexOf(items[start])
+
+        val builder = Builder(page.size + items.size - start + 1)
+        if (overlap == -1) {
+            builder.addNew(page)
+            if (index == -1 && fullFetch) {
+                page.lastOrNull { it.isRight() }?.let {
+                    builder.addNew(Either.Left(Placeholder(it.asRight().id.inc())))
+                }
+            }
+        } else {
+            builder.addNew(page.subList(0, overlap))
+        }
+        return builder.addExisting(start, items.size).build()
+    }
+
+    /**
+     * Adds statuses that are older than the timeline, dropping the placeholder that was shown
+     * while they were loading. A timeline of at most one item is treated like [prepend].
+     */
+    fun append(page: List<Either<Placeholder, Status>>, fullFetch: Boolean): Result<V> {
+        val end = if (items.lastOrNull()?.isLeft() == true) items.size - 1 else items.size
+        // The cache ends its pages with a placeholder, the bottom is loaded again anyway
+        val newItems = if (page.lastOrNull()?.isLeft() == true) {
+            page.subList(0, page.size - 1)
+        } else {
+            page
+        }
+
+        if (end <= 1) {
+            return TimelineMerge(items.subList(0, end), viewData.subList(0, end), mapper)
+                .prepend(newItems, fullFetch)
+        }
+
+        val builder = Builder(end + newItems.size).addExisting(0, end)
+        val last = items.subList(0, end).lastOrNull { it.isRight() }
+        if (last != null && newItems.isNotEmpty() && !newItems.contains(last)) {
+            builder.addNew(newItems)
+        }
+        return builder.build()
+    }
+
+    /**
+     * Fills the gap of the placeholder with [placeholderId] with a page. If the server had more,
+     * the placeholder stays below the page. If the placeholder is gone, the statuses of the page
+     * are inserted where they belong, like [insert] does.
+     */
+    fun replacePlaceholder(
+        placeholderId: String,
+        page: List<Either<Placeholder, Status>>,
+        fullFetch: Boolean
+    ): Result<V> {
+        val position = indexOf(Either.Left(Placeholder(placeholderId)))
+        if (position == -1) {
+            return insert(page)
+        }
+        val builder = Builder(items.size + page.size).addExisting(0, position).addNew(page)
+        if (fullFetch && page.isNotEmpty()) {
+            builder.addNew(items[position])
+        }
+        return builder.addExisting(position + 1, items.size).build()
+    }
+
+    /**
+     * Replaces everything older than [topId] with a fresh page.
+     */
+    fun replaceOlderThan(topId: String, page: List<Either<Placeholder, Status>>): Result<V> {
+        val builder = Builder(items.size + page.size)
+        items.forEachIndexed { i, item ->
+            if (!idOf(item).isLessThan(topId)) {
+                builder.addExisting(i, i + 1)
+            }
+        }
+        return builder.addNew(page).build()
+    }
+
+    fun replaceAll(page: List<Either<Placeholder, Status>>): Result<V> {
+        return Builder(page.size).addNew(page).build()
+    }
+
+    /**
+     * Adds single statuses where they belong by id, like the ones that are streamed. Statuses
+     * that are already in the timeline or older than all of it are left out, an empty timeline
+     * stays empty.
+     */
+    fun insert(statuses: List<Either<Placeholder, Status>>): Result<V> {
+        val newStatuses = statuses
+            .filter { it.isRight() && it !in positions }
+            .distinct()
+            .sortedWith { a, b ->
+                when {
+                    idOf(b).isLessThan(idOf(a)) -> -1
+                    idOf(a).isLessThan(idOf(b)) -> 1
+                    else -> 0
+                }
+            }
+        if (newStatuses.isEmpty()) {
+            return unchanged()
+        }
+
+        val builder = Builder(items.size + newStatuses.size)
+        var next = 0
+        items.forEachIndexed { i, item ->
+            while (next < newStatuses.size && idOf(item).isLessThan(idOf(newStatuses[next]))) {
+                builder.addNew(newStatuses[next++])
+            }
+            builder.addExisting(i, i + 1)
+        }
+        return builder.build()
+    }
+
+    /**
+     * Replaces a status that is in the timeline already, like one that was edited. Reblogs of it
+     * are left as they are.
+     */
+    fun replace(status: Either<Placeholder, Status>): Result<V> {
+        val position = indexOf(status)
+        if (position == -1) {
+            return unchanged()
+        }
+        return Builder(items.size)
+            .addExisting(0, position)
+            .addNew(status)
+            .addExisting(position + 1, items.size)
+            .build()
+    }
+
+    private fun unchanged() = Result(items, viewData, false)
+
+    private fun indexOf(item: Either<Placeholder, Status>): Int = positions[item] ?: -1
+
+    private fun idOf(item: Either<Placeholder, Status>): String {
+        return item.asRightOrNull()?.id ?: item.asLeft().id
+    }
+
+    private inner class Builder(capacity: Int) {
+        private val newItems = ArrayList<Either<Placeholder, Status>>(capacity)
+        private val newViewData = ArrayList<V>(capacity)
+        private var changed = false
+
+        fun addExisting(from: Int, to: Int): Builder {
+            if (from < to) {
+                newItems.addAll(items.subList(from, to))
+                newViewData.addAll(viewData.subList(from, to))
+            }
+            return this
+        }
+
+        fun addNew(page: List<Either<Placeholder, Status>>): Builder {
+            page.forEach { addNew(it) }
+            return this
+        }
+
+        fun addNew(item: Either<Placeholder, Status>): Builder {
+            newItems.add(item)
+            newViewData.add(mapper.apply(item))
+            changed = true
+            return this
+        }
+
+        fun build(): Result<V> {
+            var kept = 0
+            for (i in newItems.indices) {
+                if (newItems[i].isLeft() && newItems.getOrNull(i + 1)?.isLeft() == true) {
+                    continue
+                }
+                newItems[kept] = newItems[i]
+                newViewData[kept] = newViewData[i]
+                kept++
+            }
+            newItems.subList(kept, newItems.size).clear()
+            newViewData.subList(kept, newViewData.size).clear()
+            return Result(newItems, newViewData, changed)
+        }
+    }
+}
@@ -25,7 +25,7 @@ import android.graphics.text.LineBreaker
 import android.os.Build.VERSION
 import android.os.Build.VERSION_CODES
 import android.text.Layout
-import android.text.Spannable
+import android.text.Spanned
 import android.util.AttributeSet
 import androidx.emoji2.widget.EmojiTextView
 import com.keylesspalace.tusky.util.EmojiSpan
@@ -49,7 +49,7 @@ class CustomEmojiTextView
         var overridden = false
 
         // Do not change if break strategy is already Layout.BREAK_STRATEGY_HIGH_QUALITY
-        if (text is Spannable && (breakStrategy != Layout.BREAK_STRATEGY_HIGH_QUALITY || breakStrategy != LineBreaker.BREAK_STRATEGY_HIGH_QUALITY)) {
+        if (text is Spanned && (breakStrategy != Layout.BREAK_STRATEGY_HIGH_QUALITY || breakStrategy != LineBreaker.BREAK_STRATEGY_HIGH_QUALITY)) {
             val spans = text.getSpans(0, text.length, EmojiSpan::class.java)
 
             if (spans.size >= spanLimit) {
@@ -43,7 +43,7 @@ class CustomEmojiPickerPage : Fragment() {
 
     companion object {
         fun newInstance(
-            emojiList: List<Emoji>,
+            emojiList: List<Emoji>?,
             onEmojiClick: (String) -> Unit
         ): CustomEmojiPickerPage {
             return CustomEmojiPickerPage().apply {
@@ -55,9 +55,12 @@ class CustomEmojiPickerPage : Fragment() {
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
-        initialEmojis?.let { list ->
-            customEmojiViewModel.setEmojis(list)
+        val emojiList = initialEmojis
+        if (emojiList != null) {
+            customEmojiViewModel.setEmojis(emojiList)
             initialEmojis = null
+        } else {
+            customEmojiViewModel.loadInstanceEmojis()
         }
     }
 
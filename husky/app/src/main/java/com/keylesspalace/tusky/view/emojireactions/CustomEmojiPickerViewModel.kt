@@ -2,8 +2,10 @@ package com.keylesspalace.tusky.view.emojireactions
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.keylesspalace.tusky.components.instance.domain.repository.InstanceRepository
 import com.keylesspalace.tusky.core.extensions.empty
 import com.keylesspalace.tusky.entity.Emoji
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.FlowPreview
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharingStarted
@@ -12,10 +14,15 @@ import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.flow.debounce
 import kotlinx.coroutines.flow.distinctUntilChanged
 import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.launch
+import timber.log.Timber
 
 @OptIn(FlowPreview::class)
-class CustomEmojiPickerViewModel : ViewModel() {
+class CustomEmojiPickerViewModel(
+    private val instanceRepository: InstanceRepository
+) : ViewModel() {
 
+    private var loaded = false
     private val allEmojis = MutableStateFlow<List<Emoji>>(emptyList())
     private val query = MutableStateFlow(String.empty())
     val emojis: StateFlow<List<Emoji>> =
@@ -36,11 +43,30 @@ class CustomEmojiPickerViewModel : ViewModel() {
         )
 
     fun setEmojis(list: List<Emoji>) {
+        loaded = true
         allEmojis.value = list.filter { emoji ->
             emoji.visibleInPicker == null || emoji.visibleInPicker
         }.sortedBy { it.shortcode.lowercase() }
     }
 
+    /**
+     * Shows the stored custom emojis of the instance, once they were brought up to date.
+     */
+    fun loadInstanceEmojis() {
+        if (loaded) {
+            return
+        }
+        loaded = true
+        viewModelScope.launch(Dispatchers.IO) {
+            try {
+                instanceRepository.refreshEmojis().blockingAwait()
+            } catch (e: Exception) {
+                Timber.w(e, "Failed to refresh custom emojis")
+            }
+            allEmojis.value = instanceRepository.getPickerEmojis()
+        }
+    }
+
     fun updateQuery(newQuery: String) {
         query.value = newQuery
     }
@@ -162,7 +162,7 @@ class EmojiDialogFragment : DialogFragment() {
 
         override fun createFragment(position: Int): Fragment {
             return when (position) {
-                0 -> CustomEmojiPickerPage.newInstance(emojis ?: emptyList()) { shortcode ->
+                0 -> CustomEmojiPickerPage.newInstance(emojis) { shortcode ->
                     onEmojiClick(true, shortcode)
                 }
 
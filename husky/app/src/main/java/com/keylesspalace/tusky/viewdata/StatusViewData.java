@@ -21,8 +21,11 @@
 package com.keylesspalace.tusky.viewdata;
 
 import android.os.Build;
+import android.text.Spannable;
 import android.text.SpannableStringBuilder;
 import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.keylesspalace.tusky.entity.Attachment;
@@ -31,12 +34,15 @@ import com.keylesspalace.tusky.entity.Emoji;
 import com.keylesspalace.tusky.entity.EmojiReaction;
 import com.keylesspalace.tusky.entity.Poll;
 import com.keylesspalace.tusky.entity.Status;
+import com.keylesspalace.tusky.util.CustomEmojiHelper;
+import com.keylesspalace.tusky.util.LinkHelper;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class to represent data required to display either a notification or a placeholder. It is either
@@ -51,320 +57,241 @@ public abstract class StatusViewData {
 
     public abstract boolean deepEquals(StatusViewData other);
 
+    /**
+     * View data of a status, split into its {@link Content}, which only changes when the status
+     * is fetched again, and its {@link State}, which the user changes by interacting with it.
+     * The {@code with...()} methods share the content with the copy they return, so toggling
+     * something only allocates a new state.
+     */
     public static final class Concrete extends StatusViewData {
         private static final char SOFT_HYPHEN = '\u00ad';
         private static final char ASCII_HYPHEN = '-';
 
-        private final String id;
-        private final Spanned content;
-        final boolean reblogged;
-        final boolean favourited;
-        final boolean bookmarked;
-        @Nullable
-        private final String spoilerText;
-        private final Status.Visibility visibility;
-        private final List<Attachment> attachments;
-        @Nullable
-        private final String rebloggedByUsername;
-        @Nullable
-        private final String rebloggedAvatar;
-        private final boolean isSensitive;
-        final boolean isExpanded;
-        private final boolean isShowingContent;
-        private final String userFullName;
-        private final String nickname;
-        private final String avatar;
-        private final Date createdAt;
-        private final Date editedAt;
-        private final int reblogsCount;
-        private final int favouritesCount;
-        @Nullable
-        private final String inReplyToId;
-        @Nullable
-        private final String inReplyToAccountAcct;
-        // I would rather have something else but it would be too much of a rewrite
-        @Nullable
-        private final Status.Mention[] mentions;
-        private final String senderId;
-        private final boolean rebloggingEnabled;
-        private final Status.Application application;
-        private final List<Emoji> statusEmojis;
-        private final List<Emoji> accountEmojis;
-        private final List<Emoji> rebloggedByAccountEmojis;
-        @Nullable
-        private final Card card;
-        private final boolean isCollapsible;
-        /**
-         * Whether the status meets the requirement to be collapse
-         */
-        final boolean isCollapsed;
+        private static final AtomicLong VERSIONS = new AtomicLong();
+
+        private final Content content;
+        private final State state;
+        private final long version;
+
+        Concrete(Content content, State state) {
+            this.content = content;
+            this.state = state;
+            this.version = VERSIONS.incrementAndGet();
+        }
+
         /**
-         * Whether the status is shown partially or fully
+         * Unique for every view data object. Copies that don't change anything return the view
+         * data itself, so equal versions mean equal view data.
          */
-        @Nullable
-        private final PollViewData poll;
-        private final boolean isBot;
-        private final boolean isMuted; /* user toggle */
-        private final boolean isThreadMuted; /* thread_muted state got from backend */
-        private final boolean isUserMuted; /* muted state got from backend */
-        private final String conversationId;
-        @Nullable
-        private final List<EmojiReaction> emojiReactions;
-        private final boolean parentVisible;
-        private final Spanned quote;
-        private final List<Emoji> quoteEmojis;
-        private final String quoteFullName;
-        private final String quoteUsername;
-        private final List<Emoji> quotedAccountEmojis;
-        private final String quotedStatusId;
-        private final String quotedStatusUrl;
-
-        public Concrete(
-                String id,
-                Spanned content,
-                boolean reblogged,
-                boolean favourited,
-                boolean bookmarked,
-                @Nullable String spoilerText,
-                Status.Visibility visibility,
-                List<Attachment> attachments,
-                @Nullable String rebloggedByUsername,
-                @Nullable String rebloggedAvatar,
-                boolean sensitive,
-                boolean isExpanded,
-                boolean isShowingContent,
-                String userFullName,
-                String nickname,
-                String avatar,
-                Date createdAt,
-                Date editedAt,
-                int reblogsCount,
-                int favouritesCount,
-                @Nullable String inReplyToId,
-                @Nullable String inReplyToAccountAcct,
-                @Nullable Status.Mention[] mentions,
-                String senderId,
-                boolean rebloggingEnabled,
-                Status.Application application,
-                List<Emoji> statusEmojis,
-                List<Emoji> accountEmojis,
-                List<Emoji> rebloggedByAccountEmojis,
-                @Nullable Card card,
-                boolean isCollapsible,
-                boolean isCollapsed,
-                @Nullable PollViewData poll,
-                boolean isBot,
-                boolean isMuted,
-                boolean isThreadMuted,
-                boolean isUserMuted,
-                String conversationId,
-                @Nullable List<EmojiReaction> emojiReactions,
-                boolean parentVisible,
-                @Nullable Spanned quote,
-                List<Emoji> quoteEmojis,
-                String quoteFullName,
-                String quoteUsername,
-                List<Emoji> quotedAccountEmojis,
-                String quotedStatusId,
-                String quotedStatusUrl
-        ) {
-            this.id = id;
-            if (Build.VERSION.SDK_INT == Build.VERSION_CODES.M) {
-                // https://github.com/tuskyapp/Tusky/issues/563
-                this.content = replaceCrashingCharacters(content);
-                this.spoilerText = spoilerText == null ? null : replaceCrashingCharacters(
-                        spoilerText).toString();
-                CharSequence nicknameReplaced = replaceCrashingCharacters(nickname);
-                if (nicknameReplaced != null) {
-                    this.nickname = nicknameReplaced.toString();
-                } else {
-                    this.nickname = null;
-                }
-            } else {
-                this.content = content;
-                this.spoilerText = spoilerText;
-                this.nickname = nickname;
+        public long getVersion() {
+            return version;
+        }
+
+        public Concrete withReblogged(boolean reblogged) {
+            if (state.reblogged == reblogged) {
+                return this;
             }
-            this.reblogged = reblogged;
-            this.favourited = favourited;
-            this.bookmarked = bookmarked;
-            this.visibility = visibility;
-            this.attachments = attachments;
-            this.rebloggedByUsername = rebloggedByUsername;
-            this.rebloggedAvatar = rebloggedAvatar;
-            this.isSensitive = sensitive;
-            this.isExpanded = isExpanded;
-            this.isShowingContent = isShowingContent;
-            this.userFullName = userFullName;
-            this.avatar = avatar;
-            this.createdAt = createdAt;
-            this.editedAt = editedAt;
-            this.reblogsCount = reblogsCount;
-            this.favouritesCount = favouritesCount;
-            this.inReplyToId = inReplyToId;
-            this.inReplyToAccountAcct = inReplyToAccountAcct;
-            this.mentions = mentions;
-            this.senderId = senderId;
-            this.rebloggingEnabled = rebloggingEnabled;
-            this.application = application;
-            this.statusEmojis = statusEmojis;
-            this.accountEmojis = accountEmojis;
-            this.rebloggedByAccountEmojis = rebloggedByAccountEmojis;
-            this.card = card;
-            this.isCollapsible = isCollapsible;
-            this.isCollapsed = isCollapsed;
-            this.poll = poll;
-            this.isBot = isBot;
-            this.isMuted = isMuted;
-            this.isThreadMuted = isThreadMuted;
-            this.isUserMuted = isUserMuted;
-            this.conversationId = conversationId;
-            this.emojiReactions = emojiReactions;
-            this.parentVisible = parentVisible;
-            this.quote = quote;
-            this.quoteEmojis = quoteEmojis;
-            this.quoteFullName = quoteFullName;
-            this.quoteUsername = quoteUsername;
-            this.quotedAccountEmojis = quotedAccountEmojis;
-            this.quotedStatusId = quotedStatusId;
-            this.quotedStatusUrl = quotedStatusUrl;
+            State newState = new State(state);
+            newState.reblogged = reblogged;
+            return new Concrete(content, newState);
+        }
+
+        public Concrete withFavourited(boolean favourited) {
+            if (state.favourited == favourited) {
+                return this;
+            }
+            State newState = new State(state);
+            newState.favourited = favourited;
+            return new Concrete(content, newState);
+        }
+
+        public Concrete withBookmarked(boolean bookmarked) {
+            if (state.bookmarked == bookmarked) {
+                return this;
+            }
+            State newState = new State(state);
+            newState.bookmarked = bookmarked;
+            return new Concrete(content, newState);
+        }
+
+        public Concrete withExpanded(boolean isExpanded) {
+            if (state.isExpanded == isExpanded) {
+                return this;
+            }
+            State newState = new State(state);
+            newState.isExpanded = isExpanded;
+            return new Concrete(content, newState);
+        }
+
+        public Concrete withShowingContent(boolean isShowingContent) {
+            if (state.isShowingContent == isShowingContent) {
+                return this;
+            }
+            State newState = new State(state);
+            newState.isShowingContent = isShowingContent;
+            return new Concrete(content, newState);
+        }
+
+        public Concrete withCollapsed(boolean isCollapsed) {
+            if (state.isCollapsed == isCollapsed) {
+                return this;
+            }
+            State newState = new State(state);
+            newState.isCollapsed = isCollapsed;
+            return new Concrete(content, newState);
+        }
+
+        public Concrete withMuted(boolean isMuted, boolean isThreadMuted) {
+            if (state.isMuted == isMuted && state.isThreadMuted == isThreadMuted) {
+                return this;
+            }
+            State newState = new State(state);
+            newState.isMuted = isMuted;
+            newState.isThreadMuted = isThreadMuted;
+            return new Concrete(content, newState);
+        }
+
+        public Concrete withPoll(@Nullable Poll poll) {
+            State newState = new State(state);
+            newState.poll = PollViewDataKt.toViewData(poll);
+            return new Concrete(content, newState);
         }
 
         public String getId() {
-            return id;
+            return content.id;
         }
 
         public Spanned getContent() {
-            return content;
+            return content.content;
         }
 
         public boolean isReblogged() {
-            return reblogged;
+            return state.reblogged;
         }
 
         public boolean isFavourited() {
-            return favourited;
+            return state.favourited;
         }
 
         public boolean isBookmarked() {
-            return bookmarked;
+            return state.bookmarked;
         }
 
         @Nullable
         public String getSpoilerText() {
-            return spoilerText;
+            return content.spoilerText;
         }
 
         public Status.Visibility getVisibility() {
-            return visibility;
+            return content.visibility;
         }
 
         public List<Attachment> getAttachments() {
-            return attachments;
+            return content.attachments;
         }
 
         @Nullable
         public String getRebloggedByUsername() {
-            return rebloggedByUsername;
+            return content.rebloggedByUsername;
         }
 
         public boolean isSensitive() {
-            return isSensitive;
+            return content.isSensitive;
         }
 
         public boolean isExpanded() {
-            return isExpanded;
+            return state.isExpanded;
         }
 
         public boolean isShowingContent() {
-            return isShowingContent;
+            return state.isShowingContent;
         }
 
         public boolean isBot() {
-            return isBot;
+            return content.isBot;
         }
 
         @Nullable
         public String getRebloggedAvatar() {
-            return rebloggedAvatar;
+            return content.rebloggedAvatar;
         }
 
         public String getUserFullName() {
-            return Objects.requireNonNullElse(userFullName, "");
+            return Objects.requireNonNullElse(content.userFullName, "");
         }
 
         public String getNickname() {
-            return nickname;
+            return content.nickname;
         }
 
         public String getAvatar() {
-            return avatar;
+            return content.avatar;
         }
 
         public Date getCreatedAt() {
-            return createdAt;
+            return content.createdAt;
         }
 
         public Date getEditedAt() {
-            return editedAt;
+            return content.editedAt;
         }
 
         public int getReblogsCount() {
-            return reblogsCount;
+            return state.reblogsCount;
         }
 
         public int getFavouritesCount() {
-            return favouritesCount;
+            return state.favouritesCount;
         }
 
         @Nullable
         public String getInReplyToId() {
-            return inReplyToId;
+            return content.inReplyToId;
         }
 
         public String getInReplyToAccountAcct() {
-            if (inReplyToAccountAcct != null) {
-                return inReplyToAccountAcct;
+            if (content.inReplyToAccountAcct != null) {
+                return content.inReplyToAccountAcct;
             }
             return "";
         }
 
         public String getSenderId() {
-            return senderId;
+            return content.senderId;
         }
 
         public Boolean getRebloggingEnabled() {
-            return rebloggingEnabled;
+            return content.rebloggingEnabled;
         }
 
         @Nullable
         public Status.Mention[] getMentions() {
-            return mentions;
+            return content.mentions;
         }
 
         public Status.Application getApplication() {
-            return application;
+            return content.application;
         }
 
         public List<Emoji> getStatusEmojis() {
-            return statusEmojis;
+            return content.statusEmojis;
         }
 
         public List<Emoji> getAccountEmojis() {
-            return accountEmojis;
+            return content.accountEmojis;
         }
 
         public boolean getParentVisible() {
-            return parentVisible;
+            return content.parentVisible;
         }
 
         public List<Emoji> getRebloggedByAccountEmojis() {
-            return rebloggedByAccountEmojis;
+            return content.rebloggedByAccountEmojis;
         }
 
         @Nullable
         public Card getCard() {
-            return card;
+            return content.card;
         }
 
         /**
@@ -374,7 +301,7 @@ public abstract class StatusViewData {
          * @return Whether the post is collapsible or never collapsed.
          */
         public boolean isCollapsible() {
-            return isCollapsible;
+            return content.isCollapsible;
         }
 
         /**
@@ -384,68 +311,84 @@ public abstract class StatusViewData {
          * @return Whether the post is collapsed or fully expanded.
          */
         public boolean isCollapsed() {
-            return isCollapsed;
+            return state.isCollapsed;
         }
 
         @Nullable
         public PollViewData getPoll() {
-            return poll;
+            return state.poll;
         }
 
         @Override
         public long getViewDataId() {
             // Chance of collision is super low and impact of mistake is low as well
-            return id.hashCode();
+            return content.id.hashCode();
         }
 
         public boolean isThreadMuted() {
-            return isThreadMuted;
+            return state.isThreadMuted;
         }
 
         public boolean isMuted() {
-            return isMuted;
+            return state.isMuted;
         }
 
         public boolean isUserMuted() {
-            return isUserMuted;
+            return state.isUserMuted;
         }
 
         @Nullable
         public List<EmojiReaction> getEmojiReactions() {
-            return emojiReactions;
+            return content.emojiReactions;
         }
 
         @Nullable
         public Spanned getQuote() {
-            return quote;
+            return content.quote;
         }
 
         @NonNull
         public List<Emoji> getQuoteEmojis() {
-            return quoteEmojis;
+            return content.quoteEmojis;
         }
 
         public String getQuoteFullName() {
-            return quoteFullName;
+            return content.quoteFullName;
         }
 
         public String getQuoteUsername() {
-            return quoteUsername;
+            return content.quoteUsername;
         }
 
         @NonNull
         public List<Emoji> getQuotedAccountEmojis() {
-            return quotedAccountEmojis;
+            return content.quotedAccountEmojis;
         }
 
         public String getQuotedStatusId() {
-            return quotedStatusId;
+            return content.quotedStatusId;
         }
 
         public String getQuotedStatusUrl() {
-            return quotedStatusUrl;
+            return content.quotedStatusUrl;
         }
 
+        /**
+         * The texts of the status the way they are shown. They are rendered the first time they
+         * are needed with the current emoji settings and shared by all copies of the view data.
+         * Timelines ask for them when they make the view data, off the main thread, so binding
+         * the status only sets them.
+         */
+        @NonNull
+        public RenderedTexts getRenderedTexts() {
+            return content.renderedTexts();
+        }
+
+        /**
+         * Copies made by the {@code with...()} methods share their content, so comparing them
+         * only compares the state. Only view data made from different fetches of a status have
+         * their whole content compared.
+         */
         public boolean deepEquals(StatusViewData o) {
             if (this == o) {
                 return true;
@@ -454,49 +397,11 @@ public abstract class StatusViewData {
                 return false;
             }
             Concrete concrete = (Concrete) o;
-            return reblogged == concrete.reblogged &&
-                    favourited == concrete.favourited &&
-                    bookmarked == concrete.bookmarked &&
-                    isSensitive == concrete.isSensitive &&
-                    isExpanded == concrete.isExpanded &&
-                    isShowingContent == concrete.isShowingContent &&
-                    isBot == concrete.isBot &&
-                    reblogsCount == concrete.reblogsCount &&
-                    favouritesCount == concrete.favouritesCount &&
-                    rebloggingEnabled == concrete.rebloggingEnabled &&
-                    Objects.equals(id, concrete.id) &&
-                    Objects.equals(content, concrete.content) &&
-                    Objects.equals(quote, concrete.quote) &&
-                    Objects.equals(spoilerText, concrete.spoilerText) &&
-                    visibility == concrete.visibility &&
-                    Objects.equals(attachments, concrete.attachments) &&
-                    Objects.equals(rebloggedByUsername, concrete.rebloggedByUsername) &&
-                    Objects.equals(rebloggedAvatar, concrete.rebloggedAvatar) &&
-                    Objects.equals(userFullName, concrete.userFullName) &&
-                    Objects.equals(nickname, concrete.nickname) &&
-                    Objects.equals(avatar, concrete.avatar) &&
-                    Objects.equals(createdAt, concrete.createdAt) &&
-                    Objects.equals(editedAt, concrete.editedAt) &&
-                    Objects.equals(inReplyToId, concrete.inReplyToId) &&
-                    Objects.equals(inReplyToAccountAcct, concrete.inReplyToAccountAcct) &&
-                    Arrays.equals(mentions, concrete.mentions) &&
-                    Objects.equals(senderId, concrete.senderId) &&
-                    Objects.equals(application, concrete.application) &&
-                    Objects.equals(statusEmojis, concrete.statusEmojis) &&
-                    Objects.equals(accountEmojis, concrete.accountEmojis) &&
-                    Objects.equals(rebloggedByAccountEmojis, concrete.rebloggedByAccountEmojis) &&
-                    Objects.equals(card, concrete.card) &&
-                    Objects.equals(poll, concrete.poll) &&
-                    isCollapsed == concrete.isCollapsed &&
-                    isMuted == concrete.isMuted &&
-                    isThreadMuted == concrete.isThreadMuted &&
-                    isUserMuted == concrete.isUserMuted &&
-                    conversationId == concrete.conversationId &&
-                    Objects.equals(emojiReactions, concrete.emojiReactions) &&
-                    parentVisible == concrete.parentVisible &&
-                    Objects.equals(quoteEmojis, concrete.quoteEmojis) &&
-                    Objects.equals(quotedStatusId, concrete.quotedStatusId) &&
-                    Objects.equals(quotedStatusUrl, concrete.quotedStatusUrl);
+            if (version == concrete.version) {
+                return true;
+            }
+            return state.equals(concrete.state) &&
+                    (content == concrete.content || content.deepEquals(concrete.content));
         }
 
         static Spanned replaceCrashingCharacters(Spanned content) {
@@ -532,6 +437,273 @@ public abstract class StatusViewData {
         }
     }
 
+    /**
+     * Everything about a status that only changes when it's fetched again.
+     */
+    static final class Content {
+        final String id;
+        final Spanned content;
+        @Nullable
+        final String spoilerText;
+        final Status.Visibility visibility;
+        final List<Attachment> attachments;
+        @Nullable
+        final String rebloggedByUsername;
+        @Nullable
+        final String rebloggedAvatar;
+        final boolean isSensitive;
+        final String userFullName;
+        final String nickname;
+        final String avatar;
+        final Date createdAt;
+        final Date editedAt;
+        @Nullable
+        final String inReplyToId;
+        @Nullable
+        final String inReplyToAccountAcct;
+        // I would rather have something else but it would be too much of a rewrite
+        @Nullable
+        final Status.Mention[] mentions;
+        final String senderId;
+        final boolean rebloggingEnabled;
+        final Status.Application application;
+        final List<Emoji> statusEmojis;
+        final List<Emoji> accountEmojis;
+        final List<Emoji> rebloggedByAccountEmojis;
+        @Nullable
+        final Card card;
+        /**
+         * Whether the status meets the requirement to be collapse
+         */
+        final boolean isCollapsible;
+        final boolean isBot;
+        final String conversationId;
+        @Nullable
+        final List<EmojiReaction> emojiReactions;
+        final boolean parentVisible;
+        final Spanned quote;
+        final List<Emoji> quoteEmojis;
+        final String quoteFullName;
+        final String quoteUsername;
+        final List<Emoji> quotedAccountEmojis;
+        final String quotedStatusId;
+        final String quotedStatusUrl;
+        @Nullable
+        private volatile RenderedTexts renderedTexts;
+
+        Content(Builder builder) {
+            id = builder.id;
+            if (Build.VERSION.SDK_INT == Build.VERSION_CODES.M) {
+                // https://github.com/tuskyapp/Tusky/issues/563
+                content = Concrete.replaceCrashingCharacters(builder.content);
+                spoilerText = builder.spoilerText == null ? null :
+                        Concrete.replaceCrashingCharacters(builder.spoilerText).toString();
+                CharSequence nicknameReplaced =
+                        Concrete.replaceCrashingCharacters(builder.nickname);
+                if (nicknameReplaced != null) {
+                    nickname = nicknameReplaced.toString();
+                } else {
+                    nickname = null;
+                }
+            } else {
+                content = builder.content;
+                spoilerText = builder.spoilerText;
+                nickname = builder.nickname;
+            }
+            visibility = builder.visibility;
+            attachments = builder.attachments;
+            rebloggedByUsername = builder.rebloggedByUsername;
+            rebloggedAvatar = builder.rebloggedAvatar;
+            isSensitive = builder.isSensitive;
+            userFullName = builder.userFullName;
+            avatar = builder.avatar;
+            createdAt = builder.createdAt;
+            editedAt = builder.editedAt;
+            inReplyToId = builder.inReplyToId;
+            inReplyToAccountAcct = builder.inReplyToAccountAcct;
+            mentions = builder.mentions;
+            senderId = builder.senderId;
+            rebloggingEnabled = builder.rebloggingEnabled;
+            application = builder.application;
+            statusEmojis = builder.statusEmojis;
+            accountEmojis = builder.accountEmojis;
+            rebloggedByAccountEmojis = builder.rebloggedByAccountEmojis;
+            card = builder.card;
+            isCollapsible = builder.isCollapsible;
+            isBot = builder.isBot;
+            conversationId = builder.conversationId;
+            emojiReactions = builder.emojiReactions;
+            parentVisible = builder.parentVisible;
+            quote = builder.quote;
+            quoteEmojis = builder.quoteEmojis;
+            quoteFullName = builder.quoteFullName;
+            quoteUsername = builder.quoteUsername;
+            quotedAccountEmojis = builder.quotedAccountEmojis;
+            quotedStatusId = builder.quotedStatusId;
+            quotedStatusUrl = builder.quotedStatusUrl;
+        }
+
+        boolean deepEquals(Content other) {
+            return isSensitive == other.isSensitive &&
+                    isBot == other.isBot &&
+                    rebloggingEnabled == other.rebloggingEnabled &&
+                    isCollapsible == other.isCollapsible &&
+                    parentVisible == other.parentVisible &&
+                    Objects.equals(id, other.id) &&
+                    Objects.equals(content, other.content) &&
+                    Objects.equals(quote, other.quote) &&
+                    Objects.equals(spoilerText, other.spoilerText) &&
+                    visibility == other.visibility &&
+                    Objects.equals(attachments, other.attachments) &&
+                    Objects.equals(rebloggedByUsername, other.rebloggedByUsername) &&
+                    Objects.equals(rebloggedAvatar, other.rebloggedAvatar) &&
+                    Objects.equals(userFullName, other.userFullName) &&
+                    Objects.equals(nickname, other.nickname) &&
+                    Objects.equals(avatar, other.avatar) &&
+                    Objects.equals(createdAt, other.createdAt) &&
+                    Objects.equals(editedAt, other.editedAt) &&
+                    Objects.equals(inReplyToId, other.inReplyToId) &&
+                    Objects.equals(inReplyToAccountAcct, other.inReplyToAccountAcct) &&
+                    Arrays.equals(mentions, other.mentions) &&
+                    Objects.equals(senderId, other.senderId) &&
+                    Objects.equals(application, other.application) &&
+                    Objects.equals(statusEmojis, other.statusEmojis) &&
+                    Objects.equals(accountEmojis, other.accountEmojis) &&
+                    Objects.equals(rebloggedByAccountEmojis, other.rebloggedByAccountEmojis) &&
+                    Objects.equals(card, other.card) &&
+                    Objects.equals(conversationId, other.conversationId) &&
+                    Objects.equals(emojiReactions, other.emojiReactions) &&
+                    Objects.equals(quoteEmojis, other.quoteEmojis) &&
+                    Objects.equals(quotedStatusId, other.quotedStatusId) &&
+                    Objects.equals(quotedStatusUrl, other.quotedStatusUrl);
+        }
+
+        RenderedTexts renderedTexts() {
+            int emojiSettings = CustomEmojiHelper.emojiSettingsVersion();
+            RenderedTexts texts = renderedTexts;
+            // Rendering twice when two threads get here at once is harmless
+            if (texts == null || texts.emojiSettings != emojiSettings) {
+                texts = new RenderedTexts(this, emojiSettings);
+                renderedTexts = texts;
+            }
+            return texts;
+        }
+    }
+
+    /**
+     * Texts of a status with their custom emojis and clickable links, see
+     * {@link LinkHelper#renderClickableText}. They are immutable and not tied to a view, so
+     * they can be rendered on any thread and shown with {@link LinkHelper#setRenderedText}.
+     * Emojis are only marked, the views showing the texts load them.
+     */
+    public static final class RenderedTexts {
+        @NonNull
+        public final CharSequence displayName;
+        @Nullable
+        public final CharSequence content;
+        @Nullable
+        public final CharSequence spoilerText;
+        @Nullable
+        public final CharSequence quote;
+        @Nullable
+        public final CharSequence quoteFullName;
+        final int emojiSettings;
+
+        RenderedTexts(Content status, int emojiSettings) {
+            this.emojiSettings = emojiSettings;
+            String name = status.userFullName == null ? "" : status.userFullName;
+            displayName = freeze(CustomEmojiHelper.emojifyDetached(
+                    name, status.accountEmojis, true));
+            content = status.content == null ? null : LinkHelper.renderClickableText(
+                    CustomEmojiHelper.emojifyDetached(
+                            status.content, status.statusEmojis, false),
+                    status.mentions);
+            spoilerText = TextUtils.isEmpty(status.spoilerText) ? null :
+                    freeze(CustomEmojiHelper.emojifyDetached(
+                            status.spoilerText, status.statusEmojis, false));
+            quote = status.quote == null ? null : freeze(CustomEmojiHelper.emojifyDetached(
+                    status.quote, status.quoteEmojis, false));
+            quoteFullName = status.quoteFullName == null ? null :
+                    freeze(CustomEmojiHelper.emojifyDetached(
+                            status.quoteFullName, status.quotedAccountEmojis, true));
+        }
+
+        private static CharSequence freeze(CharSequence text) {
+            return text instanceof Spannable ? new SpannedString(text) : text;
+        }
+    }
+
+    /**
+     * What the user changes by interacting with a status. Never modified once it's part of a
+     * {@link Concrete}, copies are made instead.
+     */
+    static final class State {
+        boolean reblogged;
+        boolean favourited;
+        boolean bookmarked;
+        boolean isExpanded;
+        boolean isShowingContent;
+        /**
+         * Whether the status is shown partially or fully
+         */
+        boolean isCollapsed;
+        boolean isMuted; /* user toggle */
+        boolean isThreadMuted; /* thread_muted state got from backend */
+        boolean isUserMuted; /* muted state got from backend */
+        int reblogsCount;
+        int favouritesCount;
+        @Nullable
+        PollViewData poll;
+
+        State() {
+        }
+
+        State(State other) {
+            reblogged = other.reblogged;
+            favourited = other.favourited;
+            bookmarked = other.bookmarked;
+            isExpanded = other.isExpanded;
+            isShowingContent = other.isShowingContent;
+            isCollapsed = other.isCollapsed;
+            isMuted = other.isMuted;
+            isThreadMuted = other.isThreadMuted;
+            isUserMuted = other.isUserMuted;
+            reblogsCount = other.reblogsCount;
+            favouritesCount = other.favouritesCount;
+            poll = other.poll;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            State state = (State) o;
+            return reblogged == state.reblogged &&
+                    favourited == state.favourited &&
+                    bookmarked == state.bookmarked &&
+                    isExpanded == state.isExpanded &&
+                    isShowingContent == state.isShowingContent &&
+                    isCollapsed == state.isCollapsed &&
+                    isMuted == state.isMuted &&
+                    isThreadMuted == state.isThreadMuted &&
+                    isUserMuted == state.isUserMuted &&
+                    reblogsCount == state.reblogsCount &&
+                    favouritesCount == state.favouritesCount &&
+                    Objects.equals(poll, state.poll);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(reblogged, favourited, bookmarked, isExpanded, isShowingContent,
+                    isCollapsed, isMuted, isThreadMuted, isUserMuted, reblogsCount,
+                    favouritesCount, poll);
+        }
+    }
+
     public static final class Placeholder extends StatusViewData {
         private final boolean isLoading;
         private final String id;
@@ -644,52 +816,56 @@ public abstract class StatusViewData {
         }
 
         public Builder(final StatusViewData.Concrete viewData) {
-            id = viewData.id;
-            content = viewData.content;
-            reblogged = viewData.reblogged;
-            favourited = viewData.favourited;
-            bookmarked = viewData.bookmarked;
-            spoilerText = viewData.spoilerText;
-            visibility = viewData.visibility;
-            attachments =
-                    viewData.attachments == null ? null : new ArrayList<>(viewData.attachments);
-            rebloggedByUsername = viewData.rebloggedByUsername;
-            rebloggedAvatar = viewData.rebloggedAvatar;
-            isSensitive = viewData.isSensitive;
-            isExpanded = viewData.isExpanded;
-            isShowingContent = viewData.isShowingContent;
-            userFullName = viewData.userFullName;
-            nickname = viewData.nickname;
-            avatar = viewData.avatar;
-            createdAt = new Date(viewData.createdAt.getTime());
-            editedAt = viewData.editedAt == null ? null : new Date(viewData.editedAt.getTime());
-            reblogsCount = viewData.reblogsCount;
-            favouritesCount = viewData.favouritesCount;
-            inReplyToId = viewData.inReplyToId;
-            inReplyToAccountAcct = viewData.inReplyToAccountAcct;
-            mentions = viewData.mentions == null ? null : viewData.mentions.clone();
-            senderId = viewData.senderId;
-            rebloggingEnabled = viewData.rebloggingEnabled;
-            application = viewData.application;
-            statusEmojis = viewData.getStatusEmojis();
-            accountEmojis = viewData.getAccountEmojis();
-            card = viewData.getCard();
-            isCollapsible = viewData.isCollapsible();
-            isCollapsed = viewData.isCollapsed();
-            poll = viewData.poll;
-            isBot = viewData.isBot();
-            isMuted = viewData.isMuted;
-            isThreadMuted = viewData.isThreadMuted;
-            isUserMuted = viewData.isUserMuted;
-            emojiReactions = viewData.emojiReactions;
-            parentVisible = viewData.parentVisible;
-            quote = viewData.quote;
-            quoteEmojis = viewData.quoteEmojis;
-            quoteFullName = viewData.quoteFullName;
-            quoteUsername = viewData.quoteUsername;
-            quotedAccountEmojis = viewData.quotedAccountEmojis;
-            quotedStatusId = viewData.quotedStatusId;
-            quotedStatusUrl = viewData.quotedStatusUrl;
+            Content content = viewData.content;
+            id = content.id;
+            this.content = content.content;
+            spoilerText = content.spoilerText;
+            visibility = content.visibility;
+            attachments = content.attachments == null ? null : new ArrayList<>(content.attachments);
+            rebloggedByUsername = content.rebloggedByUsername;
+            rebloggedAvatar = content.rebloggedAvatar;
+            isSensitive = content.isSensitive;
+            userFullName = content.userFullName;
+            nickname = content.nickname;
+            avatar = content.avatar;
+            createdAt = new Date(content.createdAt.getTime());
+            editedAt = content.editedAt == null ? null : new Date(content.editedAt.getTime());
+            inReplyToId = content.inReplyToId;
+            inReplyToAccountAcct = content.inReplyToAccountAcct;
+            mentions = content.mentions == null ? null : content.mentions.clone();
+            senderId = content.senderId;
+            rebloggingEnabled = content.rebloggingEnabled;
+            application = content.application;
+            statusEmojis = content.statusEmojis;
+            accountEmojis = content.accountEmojis;
+            rebloggedByAccountEmojis = content.rebloggedByAccountEmojis;
+            card = content.card;
+            isCollapsible = content.isCollapsible;
+            isBot = content.isBot;
+            conversationId = content.conversationId;
+            emojiReactions = content.emojiReactions;
+            parentVisible = content.parentVisible;
+            quote = content.quote;
+            quoteEmojis = content.quoteEmojis;
+            quoteFullName = content.quoteFullName;
+            quoteUsername = content.quoteUsername;
+            quotedAccountEmojis = content.quotedAccountEmojis;
+            quotedStatusId = content.quotedStatusId;
+            quotedStatusUrl = content.quotedStatusUrl;
+
+            State state = viewData.state;
+            reblogged = state.reblogged;
+            favourited = state.favourited;
+            bookmarked = state.bookmarked;
+            isExpanded = state.isExpanded;
+            isShowingContent = state.isShowingContent;
+            isCollapsed = state.isCollapsed;
+            isMuted = state.isMuted;
+            isThreadMuted = state.isThreadMuted;
+            isUserMuted = state.isUserMuted;
+            reblogsCount = state.reblogsCount;
+            favouritesCount = state.favouritesCount;
+            poll = state.poll;
         }
 
         public Builder setId(String id) {
@@ -955,54 +1131,21 @@ public abstract class StatusViewData {
                 createdAt = new Date();
             }
 
-            return new StatusViewData.Concrete(id,
-                    content,
-                    reblogged,
-                    favourited,
-                    bookmarked,
-                    spoilerText,
-                    visibility,
-                    attachments,
-                    rebloggedByUsername,
-                    rebloggedAvatar,
-                    isSensitive,
-                    isExpanded,
-                    isShowingContent,
-                    userFullName,
-                    nickname,
-                    avatar,
-                    createdAt,
-                    editedAt,
-                    reblogsCount,
-                    favouritesCount,
-                    inReplyToId,
-                    inReplyToAccountAcct,
-                    mentions,
-                    senderId,
-                    rebloggingEnabled,
-                    application,
-                    statusEmojis,
-                    accountEmojis,
-                    rebloggedByAccountEmojis,
-                    card,
-                    isCollapsible,
-                    isCollapsed,
-                    poll,
-                    isBot,
-                    isMuted,
-                    isThreadMuted,
-                    isUserMuted,
-                    conversationId,
-                    emojiReactions,
-                    parentVisible,
-                    quote,
-                    quoteEmojis,
-                    quoteFullName,
-                    quoteUsername,
-                    quotedAccountEmojis,
-                    quotedStatusId,
-                    quotedStatusUrl
-            );
+            State state = new State();
+            state.reblogged = reblogged;
+            state.favourited = favourited;
+            state.bookmarked = bookmarked;
+            state.isExpanded = isExpanded;
+            state.isShowingContent = isShowingContent;
+            state.isCollapsed = isCollapsed;
+            state.isMuted = isMuted;
+            state.isThreadMuted = isThreadMuted;
+            state.isUserMuted = isUserMuted;
+            state.reblogsCount = reblogsCount;
+            state.favouritesCount = favouritesCount;
+            state.poll = poll;
+
+            return new StatusViewData.Concrete(new Content(this), state);
         }
     }
 }
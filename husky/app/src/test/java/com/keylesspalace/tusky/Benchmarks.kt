@@ -0,0 +1,33 @@
+/*
+ * Husky -- A Pleroma client for Android
+ *
+ * Copyright (C) 2026  The Husky Developers
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.keylesspalace.tusky
+
+/**
+ * Runs [block] [rounds] times to warm up, then returns how many nanoseconds another [rounds]
+ * runs take.
+ *
+ * The benchmarks that use it only print their results, they are ignored and run by hand.
+ */
+inline fun measure(rounds: Int, block: () -> Unit): Long {
+    repeat(rounds) { block() }
+    val start = System.nanoTime()
+    repeat(rounds) { block() }
+    return System.nanoTime() - start
+}
@@ -3,6 +3,7 @@ package com.keylesspalace.tusky
 import com.keylesspalace.tusky.util.dec
 import com.keylesspalace.tusky.util.inc
 import com.keylesspalace.tusky.util.isLessThan
+import com.keylesspalace.tusky.util.toSortKey
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertFalse
 import org.junit.Assert.assertTrue
@@ -46,4 +47,15 @@ class StringUtilsTest {
             "2" to "1"
         ).forEach { (l, r) -> assertEquals("$l - 1 = $r", r, l.dec()) }
     }
+
+    @Test
+    fun toSortKeyKeepsOrder() {
+        val ids = listOf("", "1", "2", "zz", "100", "11z", "120", "9AbC", "110453829105762304")
+        for (l in ids) {
+            for (r in ids) {
+                assertEquals("$l < $r", l.isLessThan(r), l.toSortKey() < r.toSortKey())
+            }
+        }
+        assertEquals("0003120", "120".toSortKey())
+    }
 }
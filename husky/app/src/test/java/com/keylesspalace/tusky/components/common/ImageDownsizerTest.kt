@@ -0,0 +1,175 @@
+package com.keylesspalace.tusky.components.common
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import androidx.exifinterface.media.ExifInterface
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.keylesspalace.tusky.measure
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+import org.robolectric.annotation.GraphicsMode
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import kotlin.random.Random
+
+@ConscryptMode(OFF)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+@RunWith(AndroidJUnit4::class)
+class ImageDownsizerTest {
+
+    private val files = mutableListOf<File>()
+    private val maxPixels = 4096L * 4096
+
+    @After
+    fun tearDown() {
+        files.forEach { it.delete() }
+    }
+
+    @Test
+    fun predictsScale() {
+        assertEquals(1f, targetScale(1000, 1000, maxPixels, 1_000_000), 0f)
+        assertEquals(0.5f, targetScale(8192, 8192, maxPixels, Long.MAX_VALUE), 0.001f)
+        assertTrue(targetScale(4000, 3000, maxPixels, 1_000_000) < 0.5f)
+    }
+
+    @Test
+    fun subsamplesToAtMostTwiceTheTarget() {
+        assertEquals(1, sampleSizeFor(1f))
+        assertEquals(1, sampleSizeFor(0.6f))
+        assertEquals(2, sampleSizeFor(0.5f))
+        assertEquals(2, sampleSizeFor(0.3f))
+        assertEquals(4, sampleSizeFor(0.25f))
+    }
+
+    @Test
+    fun fitsLimit() {
+        val input = photo(3000, 2000)
+        val output = tempFile()
+        val limit = 300_000L
+
+        assertTrue(input.length() > limit)
+        assertTrue(ImageDownsizer(maxPixels).downsize(source(input), limit, output))
+        assertTrue(output.length() in 1..limit)
+        val options = bounds(output)
+        assertEquals(1.5f, options.outWidth.toFloat() / options.outHeight, 0.01f)
+    }
+
+    @Test
+    fun appliesOrientation() {
+        val input = photo(1200, 800)
+        ExifInterface(input.path).apply {
+            setAttribute(
+                ExifInterface.TAG_ORIENTATION,
+                ExifInterface.ORIENTATION_ROTATE_90.toString()
+            )
+            saveAttributes()
+        }
+        val output = tempFile()
+
+        assertTrue(ImageDownsizer(maxPixels).downsize(source(input), 200_000, output))
+        val options = bounds(output)
+        assertTrue(options.outHeight > options.outWidth)
+    }
+
+    @Test
+    fun failsOnInvalidImages() {
+        val input = tempFile().apply { writeText("not an image") }
+
+        assertFalse(ImageDownsizer(maxPixels).downsize(source(input), 200_000, tempFile()))
+    }
+
+    /**
+     * Shrinks a 12 megapixel photo below 1 MB, once the way DownsizeImageTask did, decoding and
+     * compressing to a file until it fits, and once with ImageDownsizer. Results are printed to
+     * the test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkDownsize() {
+        val rounds = 3
+        val input = photo(4000, 3000)
+        val output = tempFile()
+        val limit = 1_000_000L
+
+        val legacyTime = measure(rounds) { legacyResize(input, limit, output) }
+        val legacySize = output.length()
+        val downsizerTime = measure(rounds) {
+            ImageDownsizer(maxPixels).downsize(source(input), limit, output)
+        }
+
+        println("DownsizeImageTask: ${legacyTime / rounds / 1000} µs, ${legacySize / 1024} KiB")
+        println(
+            "ImageDownsizer: ${downsizerTime / rounds / 1000} µs, ${output.length() / 1024} KiB"
+        )
+    }
+
+    // How DownsizeImageTask.resize worked, without the orientation
+    private fun legacyResize(input: File, sizeLimit: Long, output: File) {
+        val options = BitmapFactory.Options()
+        options.inJustDecodeBounds = true
+        FileInputStream(input).use { BitmapFactory.decodeStream(it, null, options) }
+        var scaledImageSize = 1024
+        do {
+            options.inSampleSize = legacySampleSize(options, scaledImageSize)
+            options.inJustDecodeBounds = false
+            val bitmap = FileInputStream(input).use {
+                BitmapFactory.decodeStream(it, null, options)
+            }!!
+            FileOutputStream(output).use { bitmap.compress(Bitmap.CompressFormat.JPEG, 85, it) }
+            bitmap.recycle()
+            scaledImageSize /= 2
+        } while (output.length() > sizeLimit)
+    }
+
+    private fun legacySampleSize(options: BitmapFactory.Options, size: Int): Int {
+        var inSampleSize = 1
+        if (options.outHeight > size || options.outWidth > size) {
+            while (options.outHeight / 2 / inSampleSize > size &&
+                options.outWidth / 2 / inSampleSize > size
+            ) {
+                inSampleSize *= 2
+            }
+        }
+        return inSampleSize
+    }
+
+    private fun photo(width: Int, height: Int): File {
+        val random = Random(width * height)
+        val pixels = IntArray(width * height) { i ->
+            // Gradients with noise, to compress somewhat like a photo
+            val x = i % width
+            val y = i / width
+            val noise = random.nextInt(48)
+            val r = (x * 255 / width + noise).coerceAtMost(255)
+            val g = (y * 255 / height + noise).coerceAtMost(255)
+            val b = ((x + y) % 256 + noise).coerceAtMost(255)
+            (0xff shl 24) or (r shl 16) or (g shl 8) or b
+        }
+        val bitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888)
+        val file = tempFile()
+        FileOutputStream(file).use { bitmap.compress(Bitmap.CompressFormat.JPEG, 95, it) }
+        bitmap.recycle()
+        return file
+    }
+
+    private fun bounds(file: File): BitmapFactory.Options {
+        val options = BitmapFactory.Options()
+        options.inJustDecodeBounds = true
+        BitmapFactory.decodeFile(file.path, options)
+        return options
+    }
+
+    private fun source(file: File) = ImageDownsizer.Source { FileInputStream(file) }
+
+    private fun tempFile(): File {
+        return File.createTempFile("downsize", ".jpg").also { files.add(it) }
+    }
+}
@@ -0,0 +1,106 @@
+package com.keylesspalace.tusky.components.common
+
+import android.net.Uri
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.keylesspalace.tusky.components.compose.ComposeActivity.QueuedMedia
+import com.keylesspalace.tusky.entity.Attachment
+import com.nhaarman.mockitokotlin2.mock
+import io.reactivex.Observable
+import io.reactivex.schedulers.TestScheduler
+import io.reactivex.subjects.PublishSubject
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class UploadSchedulerTest {
+
+    private val testScheduler = TestScheduler()
+    private val uploadScheduler = UploadScheduler(1, 2, testScheduler)
+
+    @Test
+    fun limitsUploadsSeparatelyFromPreparation() {
+        var prepared = 0
+        val uploads = List(3) { PublishSubject.create<UploadEvent>() }
+        val observers = (0 until 3).map { i ->
+            uploadScheduler.schedule(
+                media(i),
+                prepare = {
+                    prepared++
+                    it
+                },
+                upload = { uploads[it.localId.toInt()] }
+            ).test()
+        }
+
+        testScheduler.triggerActions()
+
+        assertEquals(3, prepared)
+        assertEquals(listOf(true, true, false), uploads.map { it.hasObservers() })
+
+        uploads[0].onNext(UploadEvent.FinishedEvent(attachment()))
+        uploads[0].onComplete()
+        testScheduler.triggerActions()
+
+        assertEquals(listOf(false, true, true), uploads.map { it.hasObservers() })
+        observers[0].assertValueAt(0, UploadEvent.ProgressEvent(0, UploadStage.PREPARING))
+        observers[0].assertComplete()
+    }
+
+    @Test
+    fun retriesUploadWithPreparedMedia() {
+        var prepared = 0
+        var attempts = 0
+        val observer = uploadScheduler.schedule(
+            media(0),
+            prepare = {
+                prepared++
+                it.copy(mediaSize = 1)
+            },
+            upload = {
+                attempts++
+                assertEquals(1L, it.mediaSize)
+                if (attempts < 3) {
+                    Observable.error(IOException())
+                } else {
+                    Observable.just(UploadEvent.FinishedEvent(attachment()))
+                }
+            }
+        ).test()
+
+        testScheduler.advanceTimeBy(1, TimeUnit.MINUTES)
+
+        assertEquals(1, prepared)
+        assertEquals(3, attempts)
+        observer.assertComplete()
+    }
+
+    @Test
+    fun doesNotRetryOtherErrors() {
+        var attempts = 0
+        val observer = uploadScheduler.schedule(
+            media(0),
+            prepare = { it },
+            upload = {
+                attempts++
+                Observable.error(IllegalStateException())
+            }
+        ).test()
+
+        testScheduler.advanceTimeBy(1, TimeUnit.MINUTES)
+
+        assertEquals(1, attempts)
+        observer.assertError(IllegalStateException::class.java)
+    }
+
+    private fun media(i: Int): QueuedMedia {
+        return QueuedMedia(i.toLong(), mock<Uri>(), QueuedMedia.IMAGE, 100, "image$i.jpg")
+    }
+
+    private fun attachment(): Attachment = mock()
+}
@@ -0,0 +1,137 @@
+package com.keylesspalace.tusky.components.compose
+
+import android.text.SpannableString
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.keylesspalace.tusky.components.compose.ComposeAutoCompleteAdapter.AccountResult
+import com.keylesspalace.tusky.db.AccountEntity
+import com.keylesspalace.tusky.db.AccountManager
+import com.keylesspalace.tusky.db.TimelineDao
+import com.keylesspalace.tusky.entity.Account
+import com.keylesspalace.tusky.network.MastodonApi
+import com.keylesspalace.tusky.repository.toEntity
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.anyOrNull
+import com.nhaarman.mockitokotlin2.eq
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import io.reactivex.Single
+import io.reactivex.schedulers.TestScheduler
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mock
+import org.mockito.MockitoAnnotations
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+import java.util.concurrent.TimeUnit
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class ComposeAutocompleteSearchTest {
+
+    @Mock
+    lateinit var mastodonApi: MastodonApi
+
+    @Mock
+    lateinit var accountManager: AccountManager
+
+    @Mock
+    lateinit var timelineDao: TimelineDao
+
+    private lateinit var scheduler: TestScheduler
+    private lateinit var subject: ComposeAutocompleteSearch
+
+    private val account = AccountEntity(
+        id = 2,
+        accessToken = "token",
+        domain = "domain.com",
+        isActive = true
+    )
+
+    @Before
+    fun setup() {
+        MockitoAnnotations.openMocks(this)
+        whenever(accountManager.activeAccount).thenReturn(account)
+        whenever(timelineDao.searchAccounts(any(), any(), any())).thenReturn(emptyList())
+        scheduler = TestScheduler()
+        subject = ComposeAutocompleteSearch(mastodonApi, accountManager, timelineDao, scheduler)
+    }
+
+    @Test
+    fun answersFromCachedTimelinesRightAway() {
+        whenever(timelineDao.searchAccounts(account.id, "al", 10))
+            .thenReturn(listOf(makeAccount("1", "alice").toEntity(account.id)))
+
+        assertEquals(listOf("alice"), usernames(subject.search("@al")))
+        verify(mastodonApi, never()).searchAccounts(any(), anyOrNull(), anyOrNull(), anyOrNull())
+    }
+
+    @Test
+    fun searchesOnceForQuickTokensAndRefreshes() {
+        whenever(mastodonApi.searchAccounts(eq("ali"), anyOrNull(), anyOrNull(), anyOrNull()))
+            .thenReturn(Single.just(listOf(makeAccount("1", "alice"))))
+        val refreshes = subject.refreshes.test()
+
+        subject.search("@a")
+        subject.search("@al")
+        subject.search("@ali")
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+        verify(mastodonApi).searchAccounts(eq("ali"), anyOrNull(), anyOrNull(), anyOrNull())
+        verify(mastodonApi, never()).searchAccounts(eq("al"), anyOrNull(), anyOrNull(), anyOrNull())
+        refreshes.assertValue("@ali")
+        assertEquals(listOf("alice"), usernames(subject.search("@ali")))
+    }
+
+    @Test
+    fun answersLongerTokensFromCompleteResults() {
+        whenever(mastodonApi.searchAccounts(eq("al"), anyOrNull(), anyOrNull(), anyOrNull()))
+            .thenReturn(
+                Single.just(listOf(makeAccount("1", "alice"), makeAccount("2", "alfred")))
+            )
+        subject.search("@al")
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+        assertEquals(listOf("alice"), usernames(subject.search("@alic")))
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+        verify(mastodonApi, never())
+            .searchAccounts(eq("alic"), anyOrNull(), anyOrNull(), anyOrNull())
+    }
+
+    @Test
+    fun resolvesTokensWithDomain() {
+        whenever(mastodonApi.searchAccounts(any(), anyOrNull(), anyOrNull(), anyOrNull()))
+            .thenReturn(Single.just(listOf(makeAccount("1", "alice"))))
+        subject.search("@al")
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+        subject.search("@alice@remote.example")
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+        verify(mastodonApi)
+            .searchAccounts(eq("alice@remote.example"), anyOrNull(), anyOrNull(), anyOrNull())
+    }
+
+    private fun usernames(results: List<ComposeAutoCompleteAdapter.AutocompleteResult>) =
+        results.map { (it as AccountResult).account.username }
+
+    private fun makeAccount(id: String, username: String): Account {
+        return Account(
+            id = id,
+            localUsername = username,
+            username = username,
+            displayName = "Example Account $id",
+            note = SpannableString(""),
+            url = "https://example.com/@$username",
+            avatar = "avatar$id",
+            header = "header$id",
+            bot = false,
+            emojis = listOf(),
+            fields = null,
+            source = null
+        )
+    }
+}
@@ -0,0 +1,66 @@
+package com.keylesspalace.tusky.components.instance.domain.repository
+
+import com.google.gson.Gson
+import com.google.gson.stream.JsonReader
+import com.keylesspalace.tusky.components.instance.data.models.entity.toEntity
+import com.keylesspalace.tusky.entity.Emoji
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.io.StringReader
+
+class EmojiListReaderTest {
+
+    private val adapter = Gson().getAdapter(Emoji::class.java)
+
+    @Test
+    fun readsInChunks() {
+        val json = (0 until 7).joinToString(",", "[", "]") { emojiJson("emoji$it") }
+        val chunks = mutableListOf<List<String>>()
+
+        readEmojiList(JsonReader(StringReader(json)), adapter, chunkSize = 3) { chunk ->
+            chunks.add(chunk.map { it.shortcode })
+        }
+
+        assertEquals(
+            listOf(
+                listOf("emoji0", "emoji1", "emoji2"),
+                listOf("emoji3", "emoji4", "emoji5"),
+                listOf("emoji6")
+            ),
+            chunks
+        )
+    }
+
+    @Test
+    fun readsEmptyList() {
+        var called = false
+
+        readEmojiList(JsonReader(StringReader("[]")), adapter) { called = true }
+
+        assertFalse(called)
+    }
+
+    @Test
+    fun storesEmojisWithMissingFields() {
+        val json = "[{\"shortcode\":\"Blob\",\"url\":\"https://example.com/blob.png\"}," +
+            "{\"shortcode\":\"broken\"}]"
+        val emojis = mutableListOf<Emoji>()
+        readEmojiList(JsonReader(StringReader(json)), adapter) { emojis.addAll(it) }
+
+        val entity = emojis[0].toEntity("example.com", 1L)!!
+
+        assertEquals("blob", entity.sortKey)
+        assertEquals("https://example.com/blob.png", entity.staticUrl)
+        assertEquals("", entity.category)
+        assertEquals(true, entity.visibleInPicker)
+        assertNull(emojis[1].toEntity("example.com", 1L))
+    }
+
+    private fun emojiJson(shortcode: String): String {
+        return "{\"shortcode\":\"$shortcode\",\"url\":\"https://example.com/$shortcode.png\"," +
+            "\"static_url\":\"https://example.com/$shortcode.png\",\"visible_in_picker\":true," +
+            "\"category\":\"blobs\"}"
+    }
+}
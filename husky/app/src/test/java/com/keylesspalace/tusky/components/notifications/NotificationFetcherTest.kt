@@ -0,0 +1,134 @@
+package com.keylesspalace.tusky.components.notifications
+
+import android.text.SpannableString
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.keylesspalace.tusky.db.AccountEntity
+import com.keylesspalace.tusky.db.AccountManager
+import com.keylesspalace.tusky.entity.Account
+import com.keylesspalace.tusky.entity.Marker
+import com.keylesspalace.tusky.entity.Notification
+import com.keylesspalace.tusky.network.MastodonApi
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.eq
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import io.reactivex.Single
+import io.reactivex.schedulers.TestScheduler
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+import java.util.Date
+import java.util.concurrent.TimeUnit
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class NotificationFetcherTest {
+
+    private val deadAccount = makeAccount(1, "dead.example")
+    private val liveAccount = makeAccount(2, "live.example")
+
+    private lateinit var mastodonApi: MastodonApi
+    private lateinit var accountManager: AccountManager
+    private lateinit var notifier: Notifier
+    private lateinit var scheduler: TestScheduler
+    private lateinit var fetcher: NotificationFetcher
+
+    @Before
+    fun setup() {
+        mastodonApi = mock()
+        accountManager = mock {
+            on { getAllAccountsOrderedByActive() } doReturn listOf(deadAccount, liveAccount)
+        }
+        notifier = mock()
+        scheduler = TestScheduler()
+        fetcher = NotificationFetcher(mastodonApi, accountManager, notifier, mock(), scheduler)
+
+        whenever(mastodonApi.markersWithAuth(any(), eq("live.example"), any()))
+            .thenReturn(Single.just(mapOf("notifications" to marker("2"))))
+        whenever(
+            mastodonApi.notificationsWithAuth(any(), eq("live.example"), eq("1"), any(), any())
+        ).thenReturn(
+            Single.just(
+                listOf(makeNotification("4"), makeNotification("3"), makeNotification("2"))
+            )
+        )
+    }
+
+    @Test
+    fun unreachableInstanceDoesNotHoldUpOthers() {
+        whenever(mastodonApi.markersWithAuth(any(), eq("dead.example"), any()))
+            .thenReturn(Single.never())
+        whenever(
+            mastodonApi.notificationsWithAuth(any(), eq("dead.example"), any(), any(), any())
+        ).thenReturn(Single.never())
+
+        val observer = fetcher.fetchAll().test()
+        scheduler.advanceTimeBy(19, TimeUnit.SECONDS)
+        observer.assertNotComplete()
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+        observer.assertComplete()
+        val fetched = observer.values().single()
+        assertEquals(listOf(liveAccount), fetched.map { it.account })
+        // The marker already covers the oldest one
+        assertEquals(listOf("3", "4"), fetched[0].notifications.map { it.id })
+        assertEquals("4", fetched[0].lastNotificationId)
+    }
+
+    @Test
+    fun missingMarkerKeepsEveryNewNotification() {
+        whenever(mastodonApi.markersWithAuth(any(), eq("dead.example"), any()))
+            .thenReturn(Single.error(RuntimeException()))
+        whenever(
+            mastodonApi.notificationsWithAuth(any(), eq("dead.example"), eq("1"), any(), any())
+        ).thenReturn(Single.just(listOf(makeNotification("3"), makeNotification("2"))))
+
+        fetcher.fetchAndShow()
+
+        verify(notifier).show(makeNotification("2"), deadAccount, true)
+        verify(notifier).show(makeNotification("3"), deadAccount, false)
+        verify(notifier).show(makeNotification("3"), liveAccount, true)
+        verify(notifier).show(makeNotification("4"), liveAccount, false)
+        assertEquals("3", deadAccount.lastNotificationId)
+        assertEquals("4", liveAccount.lastNotificationId)
+        // One write for every account
+        verify(accountManager).saveAccounts(listOf(deadAccount, liveAccount))
+    }
+
+    private fun makeAccount(id: Long, domain: String): AccountEntity {
+        return AccountEntity(
+            id = id,
+            domain = domain,
+            accessToken = "token$id",
+            isActive = id == 1L,
+            lastNotificationId = "1"
+        )
+    }
+
+    private fun marker(lastReadId: String): Marker {
+        return Marker(lastReadId = lastReadId, version = 1, updatedAt = Date())
+    }
+
+    private fun makeNotification(id: String): Notification {
+        return Notification(
+            type = Notification.Type.MENTION,
+            id = id,
+            account = Account(
+                id = "a$id",
+                localUsername = "test$id",
+                username = "test$id@example.com",
+                displayName = "Example Account $id",
+                note = SpannableString(""),
+                url = "https://example.com/@test$id",
+                avatar = "avatar$id",
+                header = "header$id"
+            ),
+            status = null
+        )
+    }
+}
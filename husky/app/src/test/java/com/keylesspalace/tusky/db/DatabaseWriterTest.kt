@@ -0,0 +1,84 @@
+package com.keylesspalace.tusky.db
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.concurrent.Executor
+
+class DatabaseWriterTest {
+
+    // Runs what the writer hands to its thread only when asked to
+    private val tasks = ArrayDeque<Runnable>()
+    private val executor = Executor { tasks.addLast(it) }
+
+    // Every transaction, with the writes that ended up in it
+    private val transactions = mutableListOf<List<String>>()
+    private var current: MutableList<String>? = null
+
+    private val writer = DatabaseWriter(executor) { block ->
+        val writes = mutableListOf<String>()
+        current = writes
+        try {
+            block.run()
+            transactions.add(writes)
+        } finally {
+            current = null
+        }
+    }
+
+    @Test
+    fun writesQueuedTogetherShareTransaction() {
+        writer.execute { write("a") }
+        writer.execute { write("b") }
+        writer.execute { write("c") }
+
+        assertEquals(1, tasks.size)
+        runTasks()
+
+        assertEquals(listOf(listOf("a", "b", "c")), transactions)
+    }
+
+    @Test
+    fun writesQueuedDuringTransactionGoIntoNextOne() {
+        writer.execute {
+            write("a")
+            writer.execute { write("c") }
+        }
+        writer.execute { write("b") }
+        runTasks()
+
+        assertEquals(listOf(listOf("a", "b"), listOf("c")), transactions)
+    }
+
+    @Test
+    fun failingWriteDoesNotTakeOthersWithIt() {
+        writer.execute { write("a") }
+        val failed = writer.complete { throw IllegalStateException() }.test()
+        val completed = writer.complete { write("b") }.test()
+        runTasks()
+
+        assertEquals(listOf(listOf("a"), listOf("b")), transactions)
+        failed.assertError(IllegalStateException::class.java)
+        completed.assertComplete()
+    }
+
+    @Test
+    fun completesOnlyAfterCommit() {
+        val observer = writer.complete { write("a") }.test()
+        observer.assertNotComplete()
+
+        runTasks()
+
+        observer.assertComplete()
+        assertEquals(listOf(listOf("a")), transactions)
+    }
+
+    private fun write(name: String) {
+        current!!.add(name)
+    }
+
+    private fun runTasks() {
+        while (tasks.isNotEmpty()) {
+            tasks.removeFirst().run()
+        }
+    }
+}
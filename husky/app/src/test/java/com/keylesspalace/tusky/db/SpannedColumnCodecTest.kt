@@ -0,0 +1,100 @@
+package com.keylesspalace.tusky.db
+
+import android.text.Spanned
+import android.text.style.StyleSpan
+import android.text.style.URLSpan
+import androidx.core.text.parseAsHtml
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.keylesspalace.tusky.measure
+import com.keylesspalace.tusky.util.trimTrailingWhitespace
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Ignore
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class SpannedColumnCodecTest {
+
+    private val html = "<p>Hello <a href=\"https://example.com/@alice\" class=\"u-url mention\">" +
+        "@<span>alice</span></a>, this is <strong>important</strong> and " +
+        "<em>emphasised</em>.</p><p>Second paragraph with a <a href=\"https://example.com/tags/" +
+        "husky\">#husky</a> tag and <code>some code</code>.</p>"
+
+    @Test
+    fun roundTrip() {
+        val parsed = html.parseAsHtml().trimTrailingWhitespace()
+        val decoded = SpannedColumnCodec.decode(SpannedColumnCodec.encode(parsed))!!
+
+        assertEquals(parsed.toString(), decoded.toString())
+        assertSameSpans(parsed, decoded, URLSpan::class.java) { it.url }
+        assertSameSpans(parsed, decoded, StyleSpan::class.java) { it.style }
+    }
+
+    @Test
+    fun unknownVersionIsTreatedAsMissing() {
+        val bytes = SpannedColumnCodec.encode(html.parseAsHtml())!!
+        bytes[0] = (SpannedColumnCodec.VERSION + 1).toByte()
+        assertNull(SpannedColumnCodec.decode(bytes))
+        assertNull(SpannedColumnCodec.decode(null))
+    }
+
+    @Test
+    fun unknownSpanTypeIsTreatedAsMissing() {
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use { out ->
+            out.writeByte(SpannedColumnCodec.VERSION)
+            out.writeInt(5)
+            out.write("Hello".toByteArray(Charsets.UTF_8))
+            out.writeInt(1)
+            out.writeByte(Byte.MAX_VALUE.toInt())
+            out.writeInt(0)
+            out.writeInt(5)
+            out.writeInt(Spanned.SPAN_EXCLUSIVE_EXCLUSIVE)
+        }
+        assertNull(SpannedColumnCodec.decode(bytes.toByteArray()))
+    }
+
+    /**
+     * Compares the per-page cost of reading content from the cache through the HTML parser
+     * (what every cached row used to go through) against decoding the persisted spans.
+     * Results are printed to the test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkPageDecode() {
+        val pageSize = 30
+        val rounds = 50
+        val page = (0 until pageSize).map { i -> html.replace("alice", "alice$i") }
+        val encodedPage = page.map { SpannedColumnCodec.encode(it.parseAsHtml().trimTrailingWhitespace()) }
+
+        val htmlTime = measure(rounds) {
+            page.forEach { it.parseAsHtml().trimTrailingWhitespace() }
+        }
+        val codecTime = measure(rounds) {
+            encodedPage.forEach { SpannedColumnCodec.decode(it) }
+        }
+
+        println("parseAsHtml: ${htmlTime / rounds / 1000} µs/page")
+        println("SpannedColumnCodec: ${codecTime / rounds / 1000} µs/page")
+    }
+
+    private fun <T> assertSameSpans(
+        expected: Spanned,
+        actual: Spanned,
+        type: Class<T>,
+        value: (T) -> Any?
+    ) {
+        val expectedSpans = expected.getSpans(0, expected.length, type)
+            .map { Triple(expected.getSpanStart(it), expected.getSpanEnd(it), value(it)) }
+        val actualSpans = actual.getSpans(0, actual.length, type)
+            .map { Triple(actual.getSpanStart(it), actual.getSpanEnd(it), value(it)) }
+        val order = compareBy<Triple<Int, Int, Any?>>({ it.first }, { it.second }, { it.third.toString() })
+        assertEquals(expectedSpans.sortedWith(order), actualSpans.sortedWith(order))
+    }
+}
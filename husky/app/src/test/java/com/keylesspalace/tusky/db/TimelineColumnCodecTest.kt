@@ -0,0 +1,172 @@
+package com.keylesspalace.tusky.db
+
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import com.keylesspalace.tusky.entity.Attachment
+import com.keylesspalace.tusky.entity.Emoji
+import com.keylesspalace.tusky.entity.EmojiReaction
+import com.keylesspalace.tusky.entity.Poll
+import com.keylesspalace.tusky.entity.PollOption
+import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.measure
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import java.util.Date
+
+class TimelineColumnCodecTest {
+
+    private val emojis = (0 until 20).map { i ->
+        Emoji("category", "blobcat$i", "https://example.com/$i.png", "https://example.com/s/$i.png", i % 2 == 0)
+    }
+
+    private val attachments = arrayListOf(
+        Attachment(
+            id = "1",
+            url = "https://example.com/media/1.jpg",
+            previewUrl = "https://example.com/media/1_small.jpg",
+            meta = Attachment.MetaData(Attachment.Focus(0.5f, -0.25f), null),
+            type = Attachment.Type.IMAGE,
+            description = "A husky in the snow 🐕",
+            blurhash = "LEHV6nWB2yk8pyo0adR*.7kCMdnj"
+        ),
+        Attachment(
+            id = "2",
+            url = "https://example.com/media/2.mp4",
+            previewUrl = null,
+            meta = Attachment.MetaData(null, 12.5f),
+            type = Attachment.Type.VIDEO,
+            description = null,
+            blurhash = null
+        )
+    )
+
+    private val mentions = arrayOf(
+        Status.Mention("10", "https://example.com/@alice", "alice@example.com", "alice"),
+        Status.Mention("11", null, "bob", "bob")
+    )
+
+    private val poll = Poll(
+        id = "poll",
+        expiresAt = Date(1_700_000_000_000L),
+        expired = false,
+        multiple = true,
+        votesCount = 12,
+        votersCount = null,
+        options = listOf(PollOption("yes", 10), PollOption("no", 2)),
+        voted = true
+    )
+
+    private val pleroma = Status.PleromaStatus(
+        threadMuted = false,
+        conversationId = "conversation",
+        emojiReactions = listOf(
+            EmojiReaction("", "blobcat", 3, true, "https://example.com/blobcat.png", null, null)
+        ),
+        inReplyToAccountAcct = "alice@example.com",
+        parentVisible = null
+    )
+
+    @Test
+    fun roundTrip() {
+        assertEquals(emojis, TimelineColumnCodec.decodeEmojis(TimelineColumnCodec.encodeEmojis(emojis)))
+        assertEquals(
+            attachments,
+            TimelineColumnCodec.decodeAttachments(TimelineColumnCodec.encodeAttachments(attachments))
+        )
+        assertArrayEquals(
+            mentions,
+            TimelineColumnCodec.decodeMentions(TimelineColumnCodec.encodeMentions(mentions))
+        )
+        val application = Status.Application("Husky", null)
+        assertEquals(
+            application,
+            TimelineColumnCodec.decodeApplication(TimelineColumnCodec.encodeApplication(application))
+        )
+        assertEquals(poll, TimelineColumnCodec.decodePoll(TimelineColumnCodec.encodePoll(poll)))
+        assertEquals(
+            pleroma,
+            TimelineColumnCodec.decodePleroma(TimelineColumnCodec.encodePleroma(pleroma))
+        )
+    }
+
+    @Test
+    fun nullsAndEmpty() {
+        assertNull(TimelineColumnCodec.encodePoll(null))
+        assertNull(TimelineColumnCodec.decodePoll(null))
+        assertNull(TimelineColumnCodec.decodePleroma(ByteArray(0)))
+        assertEquals(listOf<Emoji>(), TimelineColumnCodec.decodeEmojis(null))
+        assertEquals(listOf<Emoji>(), TimelineColumnCodec.decodeEmojis(TimelineColumnCodec.encodeEmojis(null)))
+        assertTrue(TimelineColumnCodec.decodeMentions(null).isEmpty())
+    }
+
+    @Test
+    fun unknownVersionIsTreatedAsMissing() {
+        val bytes = TimelineColumnCodec.encodeEmojis(emojis)
+        bytes[0] = (TimelineColumnCodec.VERSION + 1).toByte()
+        assertEquals(listOf<Emoji>(), TimelineColumnCodec.decodeEmojis(bytes))
+    }
+
+    @Test
+    fun truncatedBlobIsTreatedAsMissing() {
+        val bytes = TimelineColumnCodec.encodeAttachments(attachments)
+        assertEquals(
+            ArrayList<Attachment>(),
+            TimelineColumnCodec.decodeAttachments(bytes.copyOf(bytes.size / 2))
+        )
+    }
+
+    @Test
+    fun corruptLengthIsTreatedAsMissing() {
+        for (length in listOf(Int.MAX_VALUE, -2)) {
+            val bytes = TimelineColumnCodec.encodeEmojis(emojis)
+            // The list size follows the version byte
+            for (i in 0 until 4) {
+                bytes[1 + i] = (length ushr (24 - 8 * i)).toByte()
+            }
+            assertEquals(listOf<Emoji>(), TimelineColumnCodec.decodeEmojis(bytes))
+        }
+    }
+
+    /**
+     * Not a precise benchmark, but enough to compare the codec against the Gson path it
+     * replaced on the same JVM. Results are printed to the test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkAgainstGson() {
+        val gson = Gson()
+        val emojiType = object : TypeToken<List<Emoji>>() {}.type
+        val attachmentType = object : TypeToken<List<Attachment>>() {}.type
+        val iterations = 2_000
+
+        val gsonTime = measure(iterations) {
+            gson.fromJson<List<Emoji>>(gson.toJson(emojis), emojiType)
+            gson.fromJson<List<Attachment>>(gson.toJson(attachments), attachmentType)
+            gson.fromJson(gson.toJson(mentions), Array<Status.Mention>::class.java)
+            gson.fromJson(gson.toJson(poll), Poll::class.java)
+            gson.fromJson(gson.toJson(pleroma), Status.PleromaStatus::class.java)
+        }
+        val codecTime = measure(iterations) {
+            TimelineColumnCodec.decodeEmojis(TimelineColumnCodec.encodeEmojis(emojis))
+            TimelineColumnCodec.decodeAttachments(TimelineColumnCodec.encodeAttachments(attachments))
+            TimelineColumnCodec.decodeMentions(TimelineColumnCodec.encodeMentions(mentions))
+            TimelineColumnCodec.decodePoll(TimelineColumnCodec.encodePoll(poll))
+            TimelineColumnCodec.decodePleroma(TimelineColumnCodec.encodePleroma(pleroma))
+        }
+
+        val gsonSize = gson.toJson(emojis).length + gson.toJson(attachments).length +
+            gson.toJson(mentions).length + gson.toJson(poll).length + gson.toJson(pleroma).length
+        val codecSize = TimelineColumnCodec.encodeEmojis(emojis).size +
+            TimelineColumnCodec.encodeAttachments(attachments).size +
+            TimelineColumnCodec.encodeMentions(mentions).size +
+            TimelineColumnCodec.encodePoll(poll)!!.size +
+            TimelineColumnCodec.encodePleroma(pleroma)!!.size
+
+        println("Gson:  ${gsonTime / iterations} ns/row, $gsonSize bytes")
+        println("Codec: ${codecTime / iterations} ns/row, $codecSize bytes")
+    }
+}
@@ -0,0 +1,114 @@
+package com.keylesspalace.tusky.fragment
+
+import android.text.SpannedString
+import androidx.recyclerview.widget.DiffUtil
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.keylesspalace.tusky.adapter.StatusBaseViewHolder
+import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.measure
+import com.keylesspalace.tusky.viewdata.StatusViewData
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Ignore
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+import java.util.Date
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class TimelineDiffCallbackTest {
+
+    private val callback = TimelineFragment.diffCallback
+
+    @Test
+    fun unchangedCopyOnlyUpdatesTimestamp() {
+        val viewData = makeViewData("1")
+
+        assertSame(viewData, viewData.withFavourited(false))
+        assertEquals(
+            listOf(StatusBaseViewHolder.Key.KEY_CREATED),
+            callback.getChangePayload(viewData, makeViewData("1"))
+        )
+    }
+
+    @Test
+    fun toggleRebindsItem() {
+        val viewData = makeViewData("1")
+        val favourited = viewData.withFavourited(true)
+
+        assertNull(callback.getChangePayload(viewData, favourited))
+        assertSame(viewData.content, favourited.content)
+        assertEquals(
+            listOf(StatusBaseViewHolder.Key.KEY_CREATED),
+            callback.getChangePayload(favourited, StatusViewData.Builder(favourited).createStatusViewData())
+        )
+    }
+
+    /**
+     * Diffs a timeline of 1000 statuses that were all favourited, once with copies made by the
+     * builder and once with copies that share the content. Results are printed to the test
+     * output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkDiff() {
+        val size = 1000
+        val rounds = 50
+        val old = (0 until size).map { makeViewData(it.toString()) }
+        val builderCopies: List<StatusViewData> =
+            old.map { StatusViewData.Builder(it).setFavourited(true).createStatusViewData() }
+        val sharedCopies: List<StatusViewData> = old.map { it.withFavourited(true) }
+        val unchanged: List<StatusViewData> =
+            old.map { StatusViewData.Builder(it).createStatusViewData() }
+
+        val builderTime = measure(rounds) { diff(old, builderCopies) }
+        val sharedTime = measure(rounds) { diff(old, sharedCopies) }
+        val unchangedTime = measure(rounds) { diff(old, unchanged) }
+
+        println("Builder copies: ${builderTime / rounds / 1000} µs/diff")
+        println("Shared content: ${sharedTime / rounds / 1000} µs/diff")
+        println("Refetched, unchanged: ${unchangedTime / rounds / 1000} µs/diff")
+    }
+
+    private fun diff(old: List<StatusViewData>, new: List<StatusViewData>) {
+        DiffUtil.calculateDiff(object : DiffUtil.Callback() {
+            override fun getOldListSize() = old.size
+
+            override fun getNewListSize() = new.size
+
+            override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int): Boolean {
+                return callback.areItemsTheSame(old[oldItemPosition], new[newItemPosition])
+            }
+
+            override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int): Boolean {
+                return callback.areContentsTheSame(old[oldItemPosition], new[newItemPosition])
+            }
+
+            override fun getChangePayload(oldItemPosition: Int, newItemPosition: Int): Any? {
+                return callback.getChangePayload(old[oldItemPosition], new[newItemPosition])
+            }
+        })
+    }
+
+    private fun makeViewData(id: String): StatusViewData.Concrete {
+        return StatusViewData.Builder()
+            .setId(id)
+            .setContent(SpannedString("Status $id with some text in it"))
+            .setSpoilerText("")
+            .setVisibility(Status.Visibility.PUBLIC)
+            .setAttachments(ArrayList())
+            .setUserFullName("Example Account")
+            .setNickname("test")
+            .setAvatar("https://example.com/avatar.png")
+            .setCreatedAt(Date(1_600_000_000_000L))
+            .setSenderId("1")
+            .setRebloggingEnabled(true)
+            .setConversationId("conversation$id")
+            .setQuoteEmojis(listOf())
+            .setQuotedAccountEmojis(listOf())
+            .createStatusViewData()
+    }
+}
@@ -2,16 +2,22 @@ package com.keylesspalace.tusky.fragment
 
 import android.text.SpannableString
 import androidx.test.ext.junit.runners.AndroidJUnit4
-import com.google.gson.Gson
 import com.keylesspalace.tusky.core.functional.Either
 import com.keylesspalace.tusky.db.AccountEntity
 import com.keylesspalace.tusky.db.AccountManager
+import com.keylesspalace.tusky.db.DatabaseWriter
+import com.keylesspalace.tusky.db.HOME_TIMELINE
+import com.keylesspalace.tusky.db.IdRange
 import com.keylesspalace.tusky.db.TimelineDao
+import com.keylesspalace.tusky.db.TimelinePage
 import com.keylesspalace.tusky.db.TimelineStatusWithAccount
 import com.keylesspalace.tusky.entity.Account
 import com.keylesspalace.tusky.entity.Status
 import com.keylesspalace.tusky.network.MastodonApi
+import com.keylesspalace.tusky.repository.ParsedContentCache
 import com.keylesspalace.tusky.repository.Placeholder
+import com.keylesspalace.tusky.repository.TimelineCacheBudget
+import com.keylesspalace.tusky.repository.TimelineKey
 import com.keylesspalace.tusky.repository.TimelineRepository
 import com.keylesspalace.tusky.repository.TimelineRepositoryImpl
 import com.keylesspalace.tusky.repository.TimelineRequestMode
@@ -37,6 +43,7 @@ import org.mockito.MockitoAnnotations
 import org.robolectric.annotation.ConscryptMode
 import org.robolectric.annotation.ConscryptMode.Mode.OFF
 import java.util.Date
+import java.util.concurrent.Executor
 import java.util.concurrent.TimeUnit
 
 @ConscryptMode(OFF)
@@ -52,7 +59,8 @@ class TimelineRepositoryTest {
     @Mock
     private lateinit var accountManager: AccountManager
 
-    private lateinit var gson: Gson
+    @Mock
+    private lateinit var cacheBudget: TimelineCacheBudget
 
     private lateinit var subject: TimelineRepository
 
@@ -71,10 +79,16 @@ class TimelineRepositoryTest {
         MockitoAnnotations.openMocks(this)
         whenever(accountManager.activeAccount).thenReturn(account)
 
-        gson = Gson()
         testScheduler = TestScheduler()
         RxJavaPlugins.setIoSchedulerHandler { testScheduler }
-        subject = TimelineRepositoryImpl(timelineDao, mastodonApi, accountManager, gson)
+        subject = TimelineRepositoryImpl(
+            timelineDao,
+            mastodonApi,
+            accountManager,
+            ParsedContentCache(),
+            cacheBudget,
+            DatabaseWriter(Executor { testScheduler.scheduleDirect(it) }) { it.run() }
+        )
     }
 
     @Test
@@ -85,22 +99,26 @@ class TimelineRepositoryTest {
         )
         whenever(mastodonApi.homeTimelineSingle(isNull(), isNull(), anyInt()))
             .thenReturn(Single.just(statuses))
-        val result = subject.getStatuses(null, null, null, limit, TimelineRequestMode.NETWORK)
+        val result = subject.getStatuses(
+            TimelineKey.HOME,
+            null,
+            null,
+            null,
+            limit,
+            TimelineRequestMode.NETWORK
+        )
             .blockingGet()
 
         assertEquals(statuses.map(Status::lift), result)
         testScheduler.advanceTimeBy(100, TimeUnit.SECONDS)
 
-        verify(timelineDao).deleteRange(account.id, statuses.last().id, statuses.first().id)
-
-        verify(timelineDao).insertStatusIfNotThere(Placeholder("1").toEntity(account.id))
-        for (status in statuses) {
-            verify(timelineDao).insertInTransaction(
-                status.toEntity(account.id, gson),
-                status.account.toEntity(account.id, gson),
-                null
+        verify(timelineDao).insertPage(
+            makePage(
+                statuses,
+                placeholders = listOf(Placeholder("1")),
+                removePlaceholdersBetween = null
             )
-        }
+        )
         verify(timelineDao).cleanup(anyLong())
         verifyNoMoreInteractions(timelineDao)
     }
@@ -117,6 +135,7 @@ class TimelineRepositoryTest {
         whenever(mastodonApi.homeTimelineSingle(null, sinceIdMinusOne, limit + 1))
             .thenReturn(Single.just(response))
         val result = subject.getStatuses(
+            TimelineKey.HOME,
             null,
             sinceId,
             sinceIdMinusOne,
@@ -130,19 +149,13 @@ class TimelineRepositoryTest {
             result
         )
         testScheduler.advanceTimeBy(100, TimeUnit.SECONDS)
-        verify(timelineDao).deleteRange(account.id, response.last().id, response.first().id)
         // We assume for now that overlapped one is inserted but it's not that important
-        for (status in response) {
-            verify(timelineDao).insertInTransaction(
-                status.toEntity(account.id, gson),
-                status.account.toEntity(account.id, gson),
-                null
+        verify(timelineDao).insertPage(
+            makePage(
+                response,
+                placeholders = listOf(),
+                removePlaceholdersBetween = IdRange(response.last().id, response.first().id)
             )
-        }
-        verify(timelineDao).removeAllPlaceholdersBetween(
-            account.id,
-            response.first().id,
-            response.last().id
         )
         verify(timelineDao).cleanup(anyLong())
         verifyNoMoreInteractions(timelineDao)
@@ -159,6 +172,7 @@ class TimelineRepositoryTest {
         whenever(mastodonApi.homeTimelineSingle(null, sinceIdMinusOne, limit + 1))
             .thenReturn(Single.just(response))
         val result = subject.getStatuses(
+            TimelineKey.HOME,
             null,
             sinceId,
             sinceIdMinusOne,
@@ -170,15 +184,13 @@ class TimelineRepositoryTest {
         val placeholder = Placeholder("3")
         assertEquals(response.map(Status::lift) + Either.Left(placeholder), result)
         testScheduler.advanceTimeBy(100, TimeUnit.SECONDS)
-        verify(timelineDao).deleteRange(account.id, response.last().id, response.first().id)
-        for (status in response) {
-            verify(timelineDao).insertInTransaction(
-                status.toEntity(account.id, gson),
-                status.account.toEntity(account.id, gson),
-                null
+        verify(timelineDao).insertPage(
+            makePage(
+                response,
+                placeholders = listOf(placeholder),
+                removePlaceholdersBetween = null
             )
-        }
-        verify(timelineDao).insertStatusIfNotThere(placeholder.toEntity(account.id))
+        )
         verify(timelineDao).cleanup(anyLong())
         verifyNoMoreInteractions(timelineDao)
     }
@@ -204,6 +216,7 @@ class TimelineRepositoryTest {
         whenever(mastodonApi.homeTimelineSingle(maxId, sinceIdMinusOne, limit + 1))
             .thenReturn(Single.just(response))
         val result = subject.getStatuses(
+            TimelineKey.HOME,
             maxId,
             sinceId,
             sinceIdMinusOne,
@@ -217,19 +230,13 @@ class TimelineRepositoryTest {
             result
         )
         testScheduler.advanceTimeBy(100, TimeUnit.SECONDS)
-        verify(timelineDao).deleteRange(account.id, response.last().id, response.first().id)
         // We assume for now that overlapped one is inserted but it's not that important
-        for (status in response) {
-            verify(timelineDao).insertInTransaction(
-                status.toEntity(account.id, gson),
-                status.account.toEntity(account.id, gson),
-                null
+        verify(timelineDao).insertPage(
+            makePage(
+                response,
+                placeholders = listOf(),
+                removePlaceholdersBetween = IdRange(response.last().id, response.first().id)
             )
-        }
-        verify(timelineDao).removeAllPlaceholdersBetween(
-            account.id,
-            response.first().id,
-            response.last().id
         )
         verify(timelineDao).cleanup(anyLong())
         verifyNoMoreInteractions(timelineDao)
@@ -255,6 +262,7 @@ class TimelineRepositoryTest {
         whenever(mastodonApi.homeTimelineSingle(maxId, sinceIdMinusOne, limit + 1))
             .thenReturn(Single.just(response))
         val result = subject.getStatuses(
+            TimelineKey.HOME,
             maxId,
             sinceId,
             sinceIdMinusOne,
@@ -270,22 +278,13 @@ class TimelineRepositoryTest {
         )
         testScheduler.advanceTimeBy(100, TimeUnit.SECONDS)
         // We assume for now that overlapped one is inserted but it's not that important
-
-        verify(timelineDao).deleteRange(account.id, response.last().id, response.first().id)
-
-        for (status in response) {
-            verify(timelineDao).insertInTransaction(
-                status.toEntity(account.id, gson),
-                status.account.toEntity(account.id, gson),
-                null
+        verify(timelineDao).insertPage(
+            makePage(
+                response,
+                placeholders = listOf(placeholder),
+                removePlaceholdersBetween = IdRange(response.last().id, response.first().id)
             )
-        }
-        verify(timelineDao).removeAllPlaceholdersBetween(
-            account.id,
-            response.first().id,
-            response.last().id
         )
-        verify(timelineDao).insertStatusIfNotThere(placeholder.toEntity(account.id))
         verify(timelineDao).cleanup(anyLong())
         verifyNoMoreInteractions(timelineDao)
     }
@@ -296,14 +295,15 @@ class TimelineRepositoryTest {
         val status = makeStatus("2")
         val dbStatus = makeStatus("1")
         val dbResult = TimelineStatusWithAccount()
-        dbResult.status = dbStatus.toEntity(account.id, gson)
-        dbResult.account = status.account.toEntity(account.id, gson)
+        dbResult.status = dbStatus.toEntity(account.id)
+        dbResult.account = status.account.toEntity(account.id)
 
         whenever(mastodonApi.homeTimelineSingle(any(), any(), any()))
             .thenReturn(Single.just(listOf(status)))
-        whenever(timelineDao.getStatusesForAccount(account.id, status.id, null, 30))
+        whenever(timelineDao.getStatusesForAccount(account.id, HOME_TIMELINE, "", status.id, null, 30))
             .thenReturn(Single.just(listOf(dbResult)))
         val result = subject.getStatuses(
+            TimelineKey.HOME,
             null,
             null,
             null,
@@ -324,9 +324,10 @@ class TimelineRepositoryTest {
 
         whenever(mastodonApi.homeTimelineSingle(any(), any(), any()))
             .thenReturn(Single.just(listOf(status)))
-        whenever(timelineDao.getStatusesForAccount(account.id, status.id, null, 30))
+        whenever(timelineDao.getStatusesForAccount(account.id, HOME_TIMELINE, "", status.id, null, 30))
             .thenReturn(Single.just(listOf(dbResult, dbResult2)))
         val result = subject.getStatuses(
+            TimelineKey.HOME,
             null,
             null,
             null,
@@ -336,6 +337,23 @@ class TimelineRepositoryTest {
         assertEquals(listOf(status).map(Status::lift), result)
     }
 
+    private fun makePage(
+        statuses: List<Status>,
+        placeholders: List<Placeholder>,
+        removePlaceholdersBetween: IdRange?
+    ): TimelinePage {
+        return TimelinePage(
+            timelineUserId = account.id,
+            timelineKind = HOME_TIMELINE,
+            timelineArgument = "",
+            deleteRange = IdRange(statuses.last().id, statuses.first().id),
+            accounts = statuses.map { it.account.toEntity(account.id) },
+            statuses = statuses.map { it.toEntity(account.id) },
+            placeholders = placeholders.map { it.toEntity(account.id) },
+            removePlaceholdersBetween = removePlaceholdersBetween
+        )
+    }
+
     private fun makeStatus(id: String, account: Account = makeAccount(id)): Status {
         return Status(
             id = id,
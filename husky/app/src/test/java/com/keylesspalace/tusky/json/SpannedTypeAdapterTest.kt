@@ -0,0 +1,40 @@
+package com.keylesspalace.tusky.json
+
+import android.text.Spanned
+import android.text.style.URLSpan
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.gson.GsonBuilder
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class SpannedTypeAdapterTest {
+
+    private val gson = GsonBuilder()
+        .registerTypeAdapter(Spanned::class.java, SpannedTypeAdapter())
+        .create()
+
+    private val html = "<p>Hello <a href=\"https://example.com/tags/husky\">#husky</a></p>"
+
+    @Test
+    fun parsedHtmlKeepsItsSource() {
+        val spanned = gson.fromJson(gson.toJson(html), Spanned::class.java)
+
+        assertTrue(spanned is ParsedHtml)
+        assertEquals(html, (spanned as ParsedHtml).html)
+        assertEquals("Hello #husky", spanned.toString())
+        assertEquals(1, spanned.getSpans(0, spanned.length, URLSpan::class.java).size)
+    }
+
+    @Test
+    fun parsedHtmlIsWrittenBackAsItCame() {
+        val spanned = gson.fromJson(gson.toJson(html), Spanned::class.java)
+
+        assertEquals(gson.toJson(html), gson.toJson(spanned, Spanned::class.java))
+    }
+}
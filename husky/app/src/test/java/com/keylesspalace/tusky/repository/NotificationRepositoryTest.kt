@@ -0,0 +1,227 @@
+package com.keylesspalace.tusky.repository
+
+import android.text.SpannableString
+import android.text.Spanned
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.gson.GsonBuilder
+import com.keylesspalace.tusky.core.functional.Either
+import com.keylesspalace.tusky.db.AccountEntity
+import com.keylesspalace.tusky.db.AccountManager
+import com.keylesspalace.tusky.db.DatabaseWriter
+import com.keylesspalace.tusky.db.NotificationDao
+import com.keylesspalace.tusky.db.NotificationRange
+import com.keylesspalace.tusky.entity.Account
+import com.keylesspalace.tusky.entity.Notification
+import com.keylesspalace.tusky.json.SpannedTypeAdapter
+import com.keylesspalace.tusky.network.MastodonApi
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.argumentCaptor
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.eq
+import com.nhaarman.mockitokotlin2.isNull
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import io.reactivex.Single
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+import java.util.Date
+import java.util.concurrent.Executor
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class NotificationRepositoryTest {
+
+    private val account = AccountEntity(
+        id = 2,
+        accessToken = "token",
+        domain = "domain.com",
+        isActive = true
+    )
+
+    private lateinit var notificationDao: NotificationDao
+    private lateinit var mastodonApi: MastodonApi
+    private lateinit var subject: NotificationRepository
+
+    @Before
+    fun setup() {
+        notificationDao = mock()
+        mastodonApi = mock()
+        val accountManager: AccountManager = mock {
+            on { activeAccount } doReturn account
+        }
+        val gson = GsonBuilder()
+            .registerTypeAdapter(Spanned::class.java, SpannedTypeAdapter())
+            .create()
+        // Writes run right away, on the test thread
+        val writer = DatabaseWriter(Executor { it.run() }) { it.run() }
+        subject = NotificationRepositoryImpl(
+            notificationDao,
+            mastodonApi,
+            accountManager,
+            writer,
+            gson
+        )
+    }
+
+    @Test
+    fun deltaReachingShownNotificationHasNoGap() {
+        whenever(mastodonApi.notifications(isNull(), eq("4"), eq(30), isNull(), eq(true)))
+            .thenReturn(Single.just(listOf(makeNotification("7"), makeNotification("6"),
+                makeNotification("5"))))
+
+        val page = subject.getNotifications(
+            null, "5", 30, emptySet(), true, TimelineRequestMode.NETWORK
+        ).blockingGet()
+
+        assertEquals(listOf("7", "6"), page.notifications.map { it.asRight().id })
+        val range = insertedRange()
+        assertEquals("4", range.minId)
+        assertEquals(listOf("7", "6", "5"), range.notifications.map { it.serverId })
+    }
+
+    @Test
+    fun fullDeltaEndsWithPlaceholder() {
+        whenever(mastodonApi.notifications(isNull(), eq("4"), eq(3), isNull(), eq(true)))
+            .thenReturn(Single.just(listOf(makeNotification("10"), makeNotification("9"),
+                makeNotification("8"))))
+
+        val page = subject.getNotifications(
+            null, "5", 3, emptySet(), true, TimelineRequestMode.NETWORK
+        ).blockingGet()
+
+        assertEquals(
+            listOf<NotificationOrPlaceholder>(
+                Either.Right(makeNotification("10")),
+                Either.Right(makeNotification("9")),
+                Either.Right(makeNotification("8")),
+                Either.Left(Placeholder("7"))
+            ),
+            page.notifications
+        )
+        assertEquals("7", insertedRange().minId)
+    }
+
+    @Test
+    fun excludedTypesAreCachedButNotShown() {
+        val follow = makeNotification("8", Notification.Type.FOLLOW)
+        whenever(mastodonApi.notifications(isNull(), isNull(), eq(30), isNull(), eq(true)))
+            .thenReturn(Single.just(listOf(makeNotification("9"), follow)))
+
+        val page = subject.getNotifications(
+            null, null, 30, setOf(Notification.Type.FOLLOW), true, TimelineRequestMode.NETWORK
+        ).blockingGet()
+
+        assertEquals(listOf("9"), page.notifications.map { it.asRight().id })
+        assertEquals("8", page.nextMaxId)
+        assertEquals(listOf("9", "8"), insertedRange().notifications.map { it.serverId })
+    }
+
+    @Test
+    fun fullyFilteredPageGoesOnBelow() {
+        whenever(mastodonApi.notifications(isNull(), isNull(), eq(2), isNull(), eq(true)))
+            .thenReturn(Single.just(listOf(
+                makeNotification("9", Notification.Type.FOLLOW),
+                makeNotification("8", Notification.Type.FOLLOW)
+            )))
+        whenever(mastodonApi.notifications(eq("8"), isNull(), eq(2), isNull(), eq(true)))
+            .thenReturn(Single.just(listOf(makeNotification("7"))))
+
+        val page = subject.getNotifications(
+            null, null, 2, setOf(Notification.Type.FOLLOW), true, TimelineRequestMode.NETWORK
+        ).blockingGet()
+
+        assertEquals(listOf("7"), page.notifications.map { it.asRight().id })
+        assertEquals("7", page.nextMaxId)
+    }
+
+    @Test
+    fun manyFilteredPagesEndWithPlaceholder() {
+        for (id in 9 downTo 1 step 2) {
+            val maxId = if (id == 9) null else (id + 1).toString()
+            whenever(mastodonApi.notifications(eq(maxId), isNull(), eq(2), isNull(), eq(true)))
+                .thenReturn(Single.just(listOf(
+                    makeNotification(id.toString(), Notification.Type.FOLLOW),
+                    makeNotification((id - 1).toString(), Notification.Type.FOLLOW)
+                )))
+        }
+
+        val page = subject.getNotifications(
+            null, null, 2, setOf(Notification.Type.FOLLOW), true, TimelineRequestMode.NETWORK
+        ).blockingGet()
+
+        assertEquals(listOf("2"), page.notifications.map { it.asLeft().id })
+        assertEquals("2", page.nextMaxId)
+        verify(mastodonApi, never()).notifications(eq("2"), isNull(), eq(2), isNull(), eq(true))
+    }
+
+    @Test
+    fun diskStopsAtPlaceholder() {
+        whenever(mastodonApi.notifications(isNull(), isNull(), eq(2), isNull(), eq(true)))
+            .thenReturn(Single.just(listOf(makeNotification("9"), makeNotification("8"))))
+        subject.getNotifications(null, null, 2, emptySet(), true, TimelineRequestMode.NETWORK)
+            .blockingGet()
+        val cached = insertedRange().notifications
+        val placeholder = cached[1].copy(
+            serverId = "5",
+            type = null,
+            notification = null,
+            sortKey = "00015"
+        )
+        whenever(
+            notificationDao.getNotifications(eq(account.id), isNull(), isNull(), any(), eq(30))
+        ).thenReturn(Single.just(cached + placeholder + cached[1].copy(serverId = "4")))
+
+        val page = subject.getNotifications(
+            null, null, 30, emptySet(), true, TimelineRequestMode.DISK
+        ).blockingGet()
+
+        assertEquals(
+            listOf(makeNotification("9"), makeNotification("8")),
+            page.notifications.map { it.asRight() }
+        )
+        assertEquals(Notification.Type.MENTION, page.notifications[0].asRight().type)
+        assertEquals("8", page.nextMaxId)
+    }
+
+    private fun insertedRange(): NotificationRange {
+        val captor = argumentCaptor<NotificationRange>()
+        verify(notificationDao)
+            .insertRange(captor.capture(), eq(NotificationRepository.CACHE_LIMIT))
+        return captor.firstValue
+    }
+
+    private fun makeNotification(
+        id: String,
+        type: Notification.Type = Notification.Type.MENTION
+    ): Notification {
+        return Notification(
+            type = type,
+            id = id,
+            account = makeAccount(id),
+            status = null,
+            createdAt = Date(1_600_000_000_000L)
+        )
+    }
+
+    private fun makeAccount(id: String): Account {
+        return Account(
+            id = id,
+            localUsername = "test$id",
+            username = "test$id@example.com",
+            displayName = "Example Account $id",
+            note = SpannableString("Note! $id"),
+            url = "https://example.com/@test$id",
+            avatar = "avatar$id",
+            header = "Header$id",
+            emojis = listOf(),
+            fields = null,
+            source = null
+        )
+    }
+}
@@ -0,0 +1,150 @@
+package com.keylesspalace.tusky.repository
+
+import android.content.SharedPreferences
+import com.keylesspalace.tusky.db.CachedTimeline
+import com.keylesspalace.tusky.db.DatabaseWriter
+import com.keylesspalace.tusky.db.HOME_TIMELINE
+import com.keylesspalace.tusky.db.TimelineDao
+import com.keylesspalace.tusky.settings.PrefKeys
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.eq
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import io.reactivex.schedulers.TestScheduler
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+
+class TimelineCacheBudgetTest {
+
+    private val accountId = 3L
+
+    private lateinit var timelineDao: TimelineDao
+    private lateinit var scheduler: TestScheduler
+    private lateinit var budget: TimelineCacheBudget
+
+    @Before
+    fun setup() {
+        timelineDao = mock()
+        val preferences: SharedPreferences = mock {
+            on { getString(eq(PrefKeys.TIMELINE_CACHE_LIMIT), any()) } doReturn "500"
+            on { getString(eq(PrefKeys.TIMELINE_CACHE_SIZE_LIMIT), any()) } doReturn "1"
+        }
+        scheduler = TestScheduler()
+        val writer = DatabaseWriter(Executor { it.run() }) { it.run() }
+        budget = TimelineCacheBudget(timelineDao, writer, preferences, scheduler)
+    }
+
+    @Test
+    fun underBudgetEvictsNothing() {
+        whenever(timelineDao.countStatuses(accountId, HOME_TIMELINE, "")).thenReturn(400)
+        whenever(timelineDao.countAccountStatuses(accountId)).thenReturn(400)
+        whenever(timelineDao.getAccountStatusesSize(accountId)).thenReturn(400 * 1024L)
+
+        assertFalse(budget.evictBatch(accountId, TimelineKey.HOME))
+        verify(timelineDao, never()).evictOldest(eq(accountId), eq(HOME_TIMELINE), eq(""), any(), any())
+    }
+
+    @Test
+    fun overRowBudgetEvictsTheExcess() {
+        whenever(timelineDao.countStatuses(accountId, HOME_TIMELINE, "")).thenReturn(530)
+
+        assertTrue(budget.evictBatch(accountId, TimelineKey.HOME))
+        verify(timelineDao).evictOldest(eq(accountId), eq(HOME_TIMELINE), eq(""), eq(31), any())
+    }
+
+    @Test
+    fun overByteBudgetEvictsByAverageSize() {
+        whenever(timelineDao.countStatuses(accountId, HOME_TIMELINE, "")).thenReturn(100)
+        whenever(timelineDao.countAccountStatuses(accountId)).thenReturn(100)
+        // 100 rows of 50 KB, the budget is 1 MB
+        whenever(timelineDao.getAccountStatusesSize(accountId)).thenReturn(100 * 50 * 1024L)
+        whenever(timelineDao.getOldestTimeline(accountId)).thenReturn(CachedTimeline(HOME_TIMELINE, ""))
+
+        assertTrue(budget.evictBatch(accountId, TimelineKey.HOME))
+        verify(timelineDao).evictOldest(eq(accountId), eq(HOME_TIMELINE), eq(""), eq(81), any())
+    }
+
+    @Test
+    fun accountOverBudgetEvictsFromTheTimelineWithTheOldestStatus() {
+        val list = TimelineKey(TimelineType.LIST, "12")
+        val local = TimelineType.PUBLIC_LOCAL.storedName
+        whenever(timelineDao.countStatuses(accountId, TimelineType.LIST.storedName, "12")).thenReturn(100)
+        whenever(timelineDao.countAccountStatuses(accountId)).thenReturn(600)
+        whenever(timelineDao.getOldestTimeline(accountId)).thenReturn(CachedTimeline(local, ""))
+
+        assertTrue(budget.evictBatch(accountId, list))
+        verify(timelineDao).evictOldest(eq(accountId), eq(local), eq(""), eq(101), any())
+        verify(timelineDao, never()).evictOldest(eq(accountId), eq(TimelineType.LIST.storedName), eq("12"), any(), any())
+    }
+
+    @Test
+    fun trimsInBatchesAndCollectsAccountsOnce() {
+        whenever(timelineDao.countStatuses(accountId, HOME_TIMELINE, "")).thenReturn(1000, 799, 598, 500)
+
+        budget.scheduleTrim(accountId, TimelineKey.HOME)
+        budget.scheduleTrim(accountId, TimelineKey.HOME)
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES)
+
+        verify(timelineDao, times(3)).evictOldest(eq(accountId), eq(HOME_TIMELINE), eq(""), any(), any())
+        verify(timelineDao).removeOrphanedAccounts(accountId)
+    }
+
+    @Test
+    fun otherTimelinesKeepLess() {
+        val list = TimelineKey(TimelineType.LIST, "12")
+        whenever(timelineDao.countStatuses(accountId, TimelineType.LIST.storedName, "12")).thenReturn(250)
+
+        assertTrue(budget.evictBatch(accountId, list))
+        verify(timelineDao).evictOldest(eq(accountId), eq(TimelineType.LIST.storedName), eq("12"), eq(51), any())
+    }
+
+    @Test
+    fun onlyTheProfilesWrittenLastAreKept() {
+        val profile = TimelineKey(TimelineType.USER, "0")
+        val kinds = listOf(
+            TimelineType.USER.storedName,
+            TimelineType.USER_WITH_REPLIES.storedName
+        )
+        whenever(timelineDao.getTimelines(accountId, kinds)).thenReturn(
+            (0 until 12).map { CachedTimeline(TimelineType.USER.storedName, it.toString()) }
+        )
+
+        budget.scheduleTrim(accountId, profile)
+        scheduler.advanceTimeBy(5, TimeUnit.SECONDS)
+
+        verify(timelineDao).deleteTimeline(accountId, TimelineType.USER.storedName, "10")
+        verify(timelineDao).deleteTimeline(accountId, TimelineType.USER.storedName, "11")
+        verify(timelineDao, never()).deleteTimeline(accountId, TimelineType.USER.storedName, "9")
+    }
+
+    @Test
+    fun onlyTheListsAndTagsWrittenLastAreKept() {
+        val list = TimelineType.LIST.storedName
+        val tag = TimelineType.TAG.storedName
+        whenever(timelineDao.getTimelines(accountId, listOf(list))).thenReturn(
+            (0 until 7).map { CachedTimeline(list, it.toString()) }
+        )
+        whenever(timelineDao.getTimelines(accountId, listOf(tag))).thenReturn(
+            (0 until 6).map { CachedTimeline(tag, "tag$it") }
+        )
+
+        budget.evictTimelines(accountId, TimelineType.LIST)
+        budget.evictTimelines(accountId, TimelineType.TAG)
+        budget.evictTimelines(accountId, TimelineType.HOME)
+
+        verify(timelineDao).deleteTimeline(accountId, list, "5")
+        verify(timelineDao).deleteTimeline(accountId, list, "6")
+        verify(timelineDao, never()).deleteTimeline(accountId, list, "4")
+        verify(timelineDao).deleteTimeline(accountId, tag, "tag5")
+        verify(timelineDao, never()).deleteTimeline(accountId, tag, "tag4")
+        verify(timelineDao, never()).getTimelines(eq(accountId), eq(listOf(HOME_TIMELINE)))
+    }
+}
@@ -0,0 +1,38 @@
+package com.keylesspalace.tusky.service
+
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.random.Random
+
+class ReconnectBackoffTest {
+
+    @Test
+    fun delaysDoubleWithinUpperHalf() {
+        val backoff = ReconnectBackoff(baseMillis = 1000, maxMillis = 60_000, random = Random(1))
+
+        for (cap in listOf(1000L, 2000L, 4000L, 8000L, 16_000L, 32_000L, 60_000L, 60_000L)) {
+            val delay = backoff.nextDelay()
+            assertTrue("$delay for $cap", delay in cap / 2..cap)
+        }
+    }
+
+    @Test
+    fun resetStartsOver() {
+        val backoff = ReconnectBackoff(baseMillis = 1000, maxMillis = 60_000, random = Random(1))
+        repeat(10) { backoff.nextDelay() }
+
+        backoff.reset()
+
+        assertTrue(backoff.nextDelay() <= 1000)
+    }
+
+    @Test
+    fun manyAttemptsStayCapped() {
+        val backoff = ReconnectBackoff(baseMillis = 1000, maxMillis = 60_000, random = Random(1))
+
+        val delays = List(100) { backoff.nextDelay() }
+
+        assertTrue(delays.all { it <= 60_000 })
+        assertTrue(delays.drop(10).all { it >= 30_000 })
+    }
+}
@@ -0,0 +1,210 @@
+package com.keylesspalace.tusky.service
+
+import android.text.Spanned
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.gson.GsonBuilder
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
+import com.google.gson.JsonParser
+import com.keylesspalace.tusky.entity.Notification
+import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.entity.StreamEvent
+import com.keylesspalace.tusky.json.DeferredHtml
+import com.keylesspalace.tusky.json.SpannedTypeAdapter
+import com.keylesspalace.tusky.measure
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class StreamEventDecoderTest {
+
+    private val gson = GsonBuilder()
+        .registerTypeAdapter(Spanned::class.java, SpannedTypeAdapter())
+        .create()
+    private val decoder = StreamEventDecoder(gson)
+
+    @Test
+    fun decodesPayloadString() {
+        val message = decoder.decode(
+            frame("notification", notificationJson(1), "user:notification")
+        ) { _, _ -> true }!!
+
+        val notification = message.notification!!
+        assertEquals(StreamEvent.EventType.NOTIFICATION, message.event)
+        assertEquals(listOf("user:notification"), message.stream)
+        assertEquals("1", notification.id)
+        assertEquals(Notification.Type.MENTION, notification.type)
+        assertEquals("Status 1 about #husky1", notification.status!!.content.toString())
+    }
+
+    @Test
+    fun decodesPayloadObjectBeforeEnvelope() {
+        val text = "{\"payload\":${statusJson(2)},\"event\":\"update\",\"stream\":[\"public\"]}"
+
+        val message = decoder.decode(text) { _, _ -> true }!!
+
+        assertEquals(StreamEvent.EventType.UPDATE, message.event)
+        assertEquals("2", message.status!!.id)
+        assertEquals("Status 2 about #husky2", message.status!!.content.toString())
+    }
+
+    @Test
+    fun skipsPayloadsThatArentAccepted() {
+        val accepted = mutableListOf<Pair<StreamEvent.EventType, List<String>?>>()
+
+        val message = decoder.decode(frame("notification", notificationJson(3), "user")) { e, s ->
+            accepted.add(e to s)
+            false
+        }
+
+        assertNull(message)
+        assertEquals(listOf(StreamEvent.EventType.NOTIFICATION to listOf("user")), accepted)
+    }
+
+    @Test
+    fun decodesDeletionsAndUnknownEvents() {
+        val deleted = decoder.decode(frame("delete", "5", "public")) { _, _ -> true }!!
+        val unknown = decoder.decode(frame("announcement", "{}", "user")) { _, _ -> true }!!
+
+        assertEquals("5", deleted.deletedId)
+        assertEquals(StreamEvent.EventType.UNKNOWN, unknown.event)
+        assertNull(unknown.status)
+    }
+
+    @Test
+    fun statusHtmlIsLeftDeferred() {
+        val notification = decoder.decode(
+            frame("notification", notificationJson(4), "user:notification")
+        ) { _, _ -> true }!!.notification!!
+
+        assertFalse((notification.status!!.content as DeferredHtml).isParsed)
+        assertFalse((notification.status!!.account.note as DeferredHtml).isParsed)
+        assertFalse((notification.account.note as DeferredHtml).isParsed)
+    }
+
+    @Test
+    fun accountHtmlIsParsedOnceRead() {
+        val status = decoder.decode(frame("update", statusJson(5), "public")) { _, _ -> true }!!
+            .status!!
+        val note = status.account.note as DeferredHtml
+        val field = status.account.fields!!.first().value as DeferredHtml
+
+        assertFalse((status.content as DeferredHtml).isParsed)
+        assertFalse(field.isParsed)
+        assertEquals("example.com", field.toString())
+        assertTrue(field.isParsed)
+
+        // What was never parsed is written back as it came
+        val written = JsonParser.parseString(gson.toJson(status)).asJsonObject
+        assertFalse(note.isParsed)
+        assertEquals(note.html, written["account"].asJsonObject["note"].asString)
+    }
+
+    /**
+     * Replays a recorded stream of the home timeline and the notifications of a busy account,
+     * once the way StreamingService used to decode it, the envelope first and the payload from
+     * it, and once with the decoder, with and without showing the content of everything that
+     * was decoded. Results are printed to the test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkDecode() {
+        val rounds = 10
+        val recorded = recordedStream(300)
+        val accept = { event: StreamEvent.EventType, stream: List<String>? ->
+            event != StreamEvent.EventType.NOTIFICATION || stream?.firstOrNull() != "user"
+        }
+
+        val envelopeTime = measure(rounds) {
+            recorded.forEach { text ->
+                val event = gson.fromJson(text, StreamEvent::class.java)
+                when (event.event) {
+                    StreamEvent.EventType.NOTIFICATION -> if (accept(event.event, event.stream)) {
+                        gson.fromJson(event.payload, Notification::class.java)
+                    } else {
+                        null
+                    }
+                    StreamEvent.EventType.UPDATE -> gson.fromJson(event.payload, Status::class.java)
+                    else -> Unit
+                }
+            }
+        }
+        val decoderTime = measure(rounds) {
+            recorded.forEach { decoder.decode(it, accept) }
+        }
+        val shownTime = measure(rounds) {
+            recorded.forEach { text ->
+                val message = decoder.decode(text, accept)
+                (message?.status ?: message?.notification?.status)?.content?.toString()
+            }
+        }
+
+        println("Envelope, then payload: ${envelopeTime / rounds / 1000} µs/stream")
+        println("StreamEventDecoder: ${decoderTime / rounds / 1000} µs/stream")
+        println("StreamEventDecoder, content shown: ${shownTime / rounds / 1000} µs/stream")
+    }
+
+    /**
+     * Statuses of the home timeline with a mention now and then, which the user stream repeats,
+     * and a deletion every few events.
+     */
+    private fun recordedStream(size: Int): List<String> {
+        return (0 until size).flatMap { i ->
+            when {
+                i % 10 == 0 -> listOf(
+                    frame("notification", notificationJson(i), "user:notification"),
+                    frame("notification", notificationJson(i), "user")
+                )
+                i % 7 == 0 -> listOf(frame("delete", (i - 1).toString(), "user"))
+                else -> listOf(frame("update", statusJson(i), "user"))
+            }
+        }
+    }
+
+    // The way Mastodon sends it, the payload is a string of JSON
+    private fun frame(event: String, payload: String, vararg stream: String): String {
+        return JsonObject().apply {
+            add("stream", JsonArray().apply { stream.forEach { add(it) } })
+            addProperty("event", event)
+            addProperty("payload", payload)
+        }.toString()
+    }
+
+    private fun notificationJson(i: Int): String {
+        return "{\"id\":\"$i\",\"type\":\"mention\",\"created_at\":\"2026-01-01T00:00:00.000Z\"," +
+            "\"account\":${accountJson(i + 1)},\"status\":${statusJson(i)}}"
+    }
+
+    private fun statusJson(i: Int): String {
+        return "{\"id\":\"$i\",\"url\":\"https://example.com/@user$i/$i\"," +
+            "\"account\":${accountJson(i)},\"in_reply_to_id\":null," +
+            "\"in_reply_to_account_id\":null,\"reblog\":null," +
+            "\"content\":\"<p>Status $i about <a href=\\\"https://example.com/tags/husky$i\\\" " +
+            "class=\\\"mention hashtag\\\" rel=\\\"tag\\\">#<span>husky$i</span></a></p>\"," +
+            "\"created_at\":\"2026-01-01T00:00:00.000Z\",\"edited_at\":null,\"emojis\":[]," +
+            "\"reblogs_count\":0,\"favourites_count\":0,\"reblogged\":false," +
+            "\"favourited\":false,\"bookmarked\":false,\"sensitive\":false," +
+            "\"spoiler_text\":\"\",\"visibility\":\"public\",\"media_attachments\":[]," +
+            "\"mentions\":[],\"application\":null,\"pinned\":false,\"muted\":false," +
+            "\"poll\":null,\"card\":null}"
+    }
+
+    private fun accountJson(i: Int): String {
+        return "{\"id\":\"$i\",\"username\":\"user$i\",\"acct\":\"user$i@example.com\"," +
+            "\"display_name\":\"User $i\",\"note\":\"<p>Posts about <a " +
+            "href=\\\"https://example.com/tags/husky\\\">#husky</a> and other things, " +
+            "<br>see <a href=\\\"https://example.com/about\\\">example.com/about</a></p>\"," +
+            "\"url\":\"https://example.com/@user$i\",\"avatar\":\"https://example.com/a.png\"," +
+            "\"header\":\"https://example.com/h.png\",\"bot\":false,\"emojis\":[]," +
+            "\"fields\":[{\"name\":\"Website\",\"value\":\"<a href=\\\"https://example.com\\\">" +
+            "example.com</a>\"}]}"
+    }
+}
@@ -0,0 +1,157 @@
+package com.keylesspalace.tusky.util
+
+import com.keylesspalace.tusky.measure
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.math.cos
+import kotlin.math.pow
+import kotlin.math.withSign
+
+class BlurHashDecoderTest {
+
+    private val hashes = listOf(
+        "LEHV6nWB2yk8pyo0adR*.7kCMdnj",
+        "LGF5]+Yk^6#M@-5c,1J5@[or[Q6.",
+        "L6PZfSi_.AyE_3t7t7R**0o#DgR4",
+        "LKO2?U%2Tw=w]~RBVZRi};RPxuwH"
+    )
+
+    @Test
+    fun agreesWithPreviousDecoder() {
+        hashes.forEach { hash ->
+            val expected = legacyDecode(hash, 32, 32)!!
+            val actual = BlurHashDecoder.decodePixels(hash, 32, 32)!!
+
+            assertEquals(expected.size, actual.size)
+            for (i in expected.indices) {
+                for (shift in intArrayOf(0, 8, 16, 24)) {
+                    val difference = abs(
+                        ((expected[i] shr shift) and 0xff) - ((actual[i] shr shift) and 0xff)
+                    )
+                    assertTrue("$hash at $i", difference <= 1)
+                }
+            }
+        }
+    }
+
+    @Test
+    fun rejectsInvalidHashes() {
+        assertNull(BlurHashDecoder.decodePixels(null, 32, 32))
+        assertNull(BlurHashDecoder.decodePixels("LEHV", 32, 32))
+        assertNull(BlurHashDecoder.decodePixels("LEHV6nWB2yk8pyo0adR*.7kCMdn", 32, 32))
+    }
+
+    @Test
+    fun decodesNonSquareSizes() {
+        assertNotNull(BlurHashDecoder.decodePixels(hashes[0], 40, 17))
+        assertEquals(40 * 17, BlurHashDecoder.decodePixels(hashes[0], 40, 17)!!.size)
+    }
+
+    /**
+     * Decodes a few hundred 32x32 placeholders, like a fast fling through a media timeline,
+     * with the previous decoder and the current one. Results are printed to the test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkDecode() {
+        val rounds = 20
+        val page = (0 until 200).map { hashes[it % hashes.size] }
+
+        val legacyTime = measure(rounds) { page.forEach { legacyDecode(it, 32, 32) } }
+        val decoderTime = measure(rounds) {
+            page.forEach { BlurHashDecoder.decodePixels(it, 32, 32) }
+        }
+
+        println("Previous decoder: ${legacyTime / rounds / 1000} µs/page")
+        println("BlurHashDecoder: ${decoderTime / rounds / 1000} µs/page")
+    }
+
+    // How BlurHashDecoder decoded before, without the Bitmap
+    private fun legacyDecode(blurHash: String, width: Int, height: Int): IntArray? {
+        val numCompEnc = legacyDecode83(blurHash, 0, 1)
+        val numCompX = (numCompEnc % 9) + 1
+        val numCompY = (numCompEnc / 9) + 1
+        if (blurHash.length != 4 + 2 * numCompX * numCompY) {
+            return null
+        }
+        val maxAc = (legacyDecode83(blurHash, 1, 2) + 1) / 166f
+        val colors = Array(numCompX * numCompY) { i ->
+            if (i == 0) {
+                val colorEnc = legacyDecode83(blurHash, 2, 6)
+                floatArrayOf(
+                    srgbToLinear(colorEnc shr 16),
+                    srgbToLinear((colorEnc shr 8) and 255),
+                    srgbToLinear(colorEnc and 255)
+                )
+            } else {
+                val from = 4 + i * 2
+                val value = legacyDecode83(blurHash, from, from + 2)
+                floatArrayOf(
+                    signedPow2((value / (19 * 19) - 9) / 9.0f) * maxAc,
+                    signedPow2(((value / 19) % 19 - 9) / 9.0f) * maxAc,
+                    signedPow2((value % 19 - 9) / 9.0f) * maxAc
+                )
+            }
+        }
+        val imageArray = IntArray(width * height)
+        for (y in 0 until height) {
+            for (x in 0 until width) {
+                var r = 0f
+                var g = 0f
+                var b = 0f
+                for (j in 0 until numCompY) {
+                    for (i in 0 until numCompX) {
+                        val basis = (cos(PI * x * i / width) * cos(PI * y * j / height)).toFloat()
+                        val color = colors[j * numCompX + i]
+                        r += color[0] * basis
+                        g += color[1] * basis
+                        b += color[2] * basis
+                    }
+                }
+                imageArray[x + width * y] = (0xff shl 24) or (linearToSrgb(r) shl 16) or
+                    (linearToSrgb(g) shl 8) or linearToSrgb(b)
+            }
+        }
+        return imageArray
+    }
+
+    private fun legacyDecode83(str: String, from: Int, to: Int): Int {
+        var result = 0
+        for (i in from until to) {
+            val index = legacyCharMap[str[i]] ?: -1
+            if (index != -1) {
+                result = result * 83 + index
+            }
+        }
+        return result
+    }
+
+    private fun srgbToLinear(colorEnc: Int): Float {
+        val v = colorEnc / 255f
+        return if (v <= 0.04045f) (v / 12.92f) else ((v + 0.055f) / 1.055f).pow(2.4f)
+    }
+
+    private fun signedPow2(value: Float) = value.pow(2f).withSign(value)
+
+    private fun linearToSrgb(value: Float): Int {
+        val v = value.coerceIn(0f, 1f)
+        return if (v <= 0.0031308f) {
+            (v * 12.92f * 255f + 0.5f).toInt()
+        } else {
+            ((1.055f * v.pow(1 / 2.4f) - 0.055f) * 255 + 0.5f).toInt()
+        }
+    }
+
+    private val legacyCharMap = (
+        "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz" +
+            "#\$%*+,-.:;=?@[]^_{|}~"
+        )
+        .mapIndexed { i, c -> c to i }
+        .toMap()
+}
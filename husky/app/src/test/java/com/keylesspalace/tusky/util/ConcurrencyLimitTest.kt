@@ -0,0 +1,53 @@
+package com.keylesspalace.tusky.util
+
+import io.reactivex.subjects.PublishSubject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class ConcurrencyLimitTest {
+
+    private val limit = ConcurrencyLimit(2)
+    private val sources = List(4) { PublishSubject.create<Int>() }
+
+    @Test
+    fun subscribesInOrderAsPermitsFree() {
+        val observers = sources.map { limit.limit(it).test() }
+
+        assertEquals(listOf(true, true, false, false), sources.map { it.hasObservers() })
+
+        sources[1].onNext(1)
+        sources[1].onComplete()
+        assertEquals(listOf(true, false, true, false), sources.map { it.hasObservers() })
+
+        sources[0].onError(RuntimeException())
+        assertEquals(listOf(false, false, true, true), sources.map { it.hasObservers() })
+
+        observers[0].assertError(RuntimeException::class.java)
+        observers[1].assertResult(1)
+        observers[2].assertNotTerminated()
+    }
+
+    @Test
+    fun disposingWaitingSourceLeavesQueue() {
+        val observers = sources.map { limit.limit(it).test() }
+
+        observers[2].dispose()
+        sources[0].onComplete()
+
+        assertFalse(sources[2].hasObservers())
+        assertTrue(sources[3].hasObservers())
+    }
+
+    @Test
+    fun disposingRunningSourceFreesPermit() {
+        val observers = sources.map { limit.limit(it).test() }
+
+        observers[0].dispose()
+
+        assertFalse(sources[0].hasObservers())
+        assertTrue(sources[2].hasObservers())
+        assertFalse(sources[3].hasObservers())
+    }
+}
@@ -0,0 +1,122 @@
+package com.keylesspalace.tusky.util
+
+import com.keylesspalace.tusky.entity.Emoji
+import com.keylesspalace.tusky.measure
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import java.util.Locale
+
+class EmojiSearchIndexTest {
+
+    @Test
+    fun findsPrefixesInOrder() {
+        val index = EmojiSearchIndex(
+            listOf(emoji("blobcat_hug"), emoji("BlobCat"), emoji("blob"), emoji("cat"))
+        )
+
+        assertEquals(
+            listOf("blob", "BlobCat", "blobcat_hug"),
+            index.search("BLOB", 10).startingWith.map { it.shortcode }
+        )
+        assertEquals(
+            listOf("BlobCat", "blobcat_hug"),
+            index.search("blobc", 10).startingWith.map { it.shortcode }
+        )
+    }
+
+    @Test
+    fun ranksMatchesAtWordsFirst() {
+        val index = EmojiSearchIndex(
+            listOf(emoji("bobcat"), emoji("blob_cat"), emoji("cat"), emoji("a_catalog"))
+        )
+        val matches = index.search("cat", 10)
+
+        assertEquals(listOf("cat"), matches.startingWith.map { it.shortcode })
+        assertEquals(
+            listOf("a_catalog", "blob_cat", "bobcat"),
+            matches.containing.map { it.shortcode }
+        )
+    }
+
+    @Test
+    fun limitsResults() {
+        val index = EmojiSearchIndex((0 until 100).map { emoji("emoji$it") })
+        val matches = index.search("moj", 5)
+
+        assertEquals(5, matches.containing.size)
+        assertTrue(index.search("emoji", 5).startingWith.size == 5)
+    }
+
+    @Test
+    fun agreesWithScan() {
+        val emojis = catalogue(2000)
+        val index = EmojiSearchIndex(emojis)
+        val queries = listOf("", "a", "bl", "cat", "BLOB", "cat_1", "ob_", "xyz", "_12", "wave")
+
+        queries.forEach { query ->
+            val matches = index.search(query, Int.MAX_VALUE)
+            val (startingWith, containing) = scan(emojis, query)
+
+            assertEquals(query, startingWith, matches.startingWith.map { it.shortcode })
+            assertEquals(query, containing, matches.containing.map { it.shortcode }.sorted())
+        }
+    }
+
+    /**
+     * Autocompletes a few keystrokes over a 12000 emoji catalogue, once the way the compose
+     * screen used to, lowercasing and scanning the whole list on every keystroke, and once with
+     * the index. Results are printed to the test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkAutocomplete() {
+        val rounds = 20
+        val emojis = catalogue(12000)
+        val keystrokes = listOf("b", "bl", "blo", "blob", "blobc", "cat", "cat_", "wave_1")
+
+        val buildTime = measure(rounds) { EmojiSearchIndex(emojis) }
+        val index = EmojiSearchIndex(emojis)
+        val scanTime = measure(rounds) { keystrokes.forEach { scan(emojis, it) } }
+        val indexTime = measure(rounds) { keystrokes.forEach { index.search(it, 50) } }
+
+        println("Building the index: ${buildTime / rounds / 1000} µs")
+        println("Scanning the list: ${scanTime / rounds / keystrokes.size / 1000} µs/keystroke")
+        println("EmojiSearchIndex: ${indexTime / rounds / keystrokes.size / 1000} µs/keystroke")
+    }
+
+    // How the compose screen searched before
+    private fun scan(emojis: List<Emoji>, query: String): Pair<List<String>, List<String>> {
+        val incomplete = query.lowercase(Locale.ROOT)
+        val startingWith = ArrayList<Emoji>()
+        val containing = ArrayList<Emoji>()
+        for (emoji in emojis) {
+            val shortcode = emoji.shortcode.lowercase(Locale.ROOT)
+            if (shortcode.startsWith(incomplete)) {
+                startingWith.add(emoji)
+            } else if (shortcode.indexOf(incomplete, 1) != -1) {
+                containing.add(emoji)
+            }
+        }
+        val sorted = startingWith.sortedBy { it.shortcode.lowercase(Locale.ROOT) }
+        return sorted.map { it.shortcode } to containing.map { it.shortcode }.sorted()
+    }
+
+    private fun catalogue(size: Int): List<Emoji> {
+        val words = listOf("blob", "cat", "fox", "wave", "Party", "heart", "neko", "flag")
+        return (0 until size).map { i ->
+            emoji("${words[i % words.size]}${words[i / 7 % words.size]}_${i / 3}")
+        }.distinctBy { it.shortcode }
+    }
+
+    private fun emoji(shortcode: String): Emoji {
+        return Emoji(
+            category = "",
+            shortcode = shortcode,
+            url = "https://example.com/emoji/$shortcode.png",
+            staticUrl = "https://example.com/emoji/$shortcode.png",
+            visibleInPicker = true
+        )
+    }
+}
@@ -0,0 +1,127 @@
+package com.keylesspalace.tusky.util
+
+import com.keylesspalace.tusky.entity.Emoji
+import com.keylesspalace.tusky.measure
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import java.util.regex.Pattern
+
+class EmojiShortcodesTest {
+
+    @Test
+    fun findsShortcodesInOrder() {
+        val shortcodes = EmojiShortcodes.of(listOf(emoji("blobcat"), emoji("flag")))
+
+        assertEquals(
+            listOf(Triple(6, 15, "blobcat"), Triple(20, 26, "flag")),
+            find(shortcodes, "hello :blobcat: and :flag:")
+        )
+    }
+
+    @Test
+    fun closingColonCanOpenNextShortcode() {
+        val shortcodes = EmojiShortcodes.of(listOf(emoji("a")))
+
+        assertEquals(
+            listOf(Triple(6, 9, "a")),
+            find(shortcodes, "12:30 :a: done")
+        )
+        assertEquals(
+            listOf(Triple(0, 3, "a"), Triple(3, 6, "a")),
+            find(shortcodes, ":a::a:")
+        )
+    }
+
+    @Test
+    fun ignoresUnknownAndUnclosedShortcodes() {
+        val shortcodes = EmojiShortcodes.of(listOf(emoji("known")))
+
+        assertTrue(find(shortcodes, ":unknown: :known").isEmpty())
+        assertTrue(find(shortcodes, "no colons here").isEmpty())
+    }
+
+    @Test
+    fun reusesInstanceForSameList() {
+        val emojis = listOf(emoji("a"))
+
+        assertSame(EmojiShortcodes.of(emojis), EmojiShortcodes.of(emojis))
+        assertTrue(EmojiShortcodes.of(null).isEmpty)
+    }
+
+    @Test
+    fun agreesWithRegex() {
+        val emojis = (0 until 50).map { emoji("emoji$it") }
+        val shortcodes = EmojiShortcodes.of(emojis)
+        val text = pleromaContent(0)
+
+        val expected = emojis.flatMap { emoji ->
+            val matcher = Pattern.compile(":${emoji.shortcode}:", Pattern.LITERAL).matcher(text)
+            generateSequence { if (matcher.find()) matcher.start() else null }.toList()
+        }.sorted()
+
+        assertEquals(expected, find(shortcodes, text).map { it.first })
+    }
+
+    /**
+     * Emojifies a page of Pleroma statuses with 50 custom emojis each, once the way emojify()
+     * used to, with a compiled pattern and a pass over the text per emoji, and once with the
+     * shortcode scanner. Results are printed to the test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkEmojify() {
+        val rounds = 20
+        val emojis = (0 until 50).map { emoji("emoji$it") }
+        val texts = (0 until 40).map { pleromaContent(it) }
+
+        val regexTime = measure(rounds) {
+            texts.forEach { text ->
+                emojis.forEach { emoji ->
+                    val matcher =
+                        Pattern.compile(":${emoji.shortcode}:", Pattern.LITERAL).matcher(text)
+                    while (matcher.find()) {
+                        matcher.start()
+                    }
+                }
+            }
+        }
+        val scannerTime = measure(rounds) {
+            texts.forEach { text ->
+                EmojiShortcodes.of(emojis).forEachIn(text) { start, _, _ -> start }
+            }
+        }
+
+        println("Pattern per emoji: ${regexTime / rounds / 1000} µs/page")
+        println("EmojiShortcodes: ${scannerTime / rounds / 1000} µs/page")
+    }
+
+    private fun find(
+        shortcodes: EmojiShortcodes,
+        text: String
+    ): List<Triple<Int, Int, String>> {
+        val found = mutableListOf<Triple<Int, Int, String>>()
+        shortcodes.forEachIn(text) { start, end, emoji ->
+            found.add(Triple(start, end, emoji.shortcode))
+        }
+        return found
+    }
+
+    private fun pleromaContent(i: Int): String {
+        return "<p>:emoji$i: Status $i at 12:30 :emoji${i + 1}::emoji${i + 2}: with " +
+            "<a href=\"https://example.com/tag\">#tag</a> and :not_an_emoji: lots of " +
+            ":emoji7: :emoji8: :emoji9: blobs :emoji10::emoji11::emoji12:</p>"
+    }
+
+    private fun emoji(shortcode: String): Emoji {
+        return Emoji(
+            category = "",
+            shortcode = shortcode,
+            url = "https://example.com/emoji/$shortcode.png",
+            staticUrl = "https://example.com/emoji/$shortcode.png",
+            visibleInPicker = true
+        )
+    }
+}
@@ -0,0 +1,156 @@
+package com.keylesspalace.tusky.util
+
+import com.keylesspalace.tusky.entity.Filter
+import com.keylesspalace.tusky.measure
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import java.util.regex.Pattern
+
+class FilterMatcherTest {
+
+    @Test
+    fun matchesPhraseAnywhere() {
+        val matcher = FilterMatcher(listOf(filter("bad")))
+
+        assertTrue(matcher.matches("this is bad"))
+        assertTrue(matcher.matches("badly"))
+        assertFalse(matcher.matches("this is good"))
+        assertFalse(matcher.matches(null))
+    }
+
+    @Test
+    fun ignoresCase() {
+        val matcher = FilterMatcher(listOf(filter("Spoiler")))
+
+        assertTrue(matcher.matches("SPOILERS ahead"))
+        assertTrue(matcher.matches("no spoiler"))
+    }
+
+    @Test
+    fun wholeWordNeedsBoundaries() {
+        val matcher = FilterMatcher(listOf(filter("cat", wholeWord = true)))
+
+        assertTrue(matcher.matches("cat"))
+        assertTrue(matcher.matches("a cat."))
+        assertTrue(matcher.matches("Cat!"))
+        assertFalse(matcher.matches("concatenate"))
+        assertFalse(matcher.matches("cats"))
+        assertFalse(matcher.matches("_cat"))
+    }
+
+    @Test
+    fun wholeWordIsIgnoredForNonWordPhrases() {
+        val matcher = FilterMatcher(listOf(filter("#tag", wholeWord = true)))
+
+        assertTrue(matcher.matches("a#tags"))
+    }
+
+    @Test
+    fun findsWholeWordAfterFailedCandidate() {
+        val matcher = FilterMatcher(listOf(filter("ab", wholeWord = true), filter("b")))
+
+        assertTrue(matcher.matches("abc"))
+        assertTrue(matcher.matches("abcd ab"))
+        assertFalse(FilterMatcher(listOf(filter("ab", wholeWord = true))).matches("abc"))
+    }
+
+    @Test
+    fun findsOverlappingPhrases() {
+        val matcher = FilterMatcher(listOf(filter("she"), filter("hers"), filter("his")))
+
+        assertTrue(matcher.matches("ushers"))
+        assertTrue(matcher.matches("this"))
+        assertFalse(matcher.matches("sh her"))
+    }
+
+    @Test
+    fun findsSuffixPhraseOfLongerCandidate() {
+        val matcher = FilterMatcher(
+            listOf(filter("banana split", wholeWord = true), filter("nan"))
+        )
+
+        assertTrue(matcher.matches("bananas"))
+    }
+
+    @Test
+    fun equalPhrasesPreferTheLooserFilter() {
+        val matcher = FilterMatcher(listOf(filter("cat", wholeWord = true), filter("CAT")))
+
+        assertTrue(matcher.matches("concatenate"))
+    }
+
+    @Test
+    fun emptyFiltersMatchNothing() {
+        val matcher = FilterMatcher(listOf(filter("")))
+
+        assertTrue(matcher.isEmpty)
+        assertFalse(matcher.matches("anything"))
+    }
+
+    @Test
+    fun agreesWithRegex() {
+        val filters = (0 until 50).map { filter("word$it", wholeWord = it % 2 == 0) }
+        val matcher = FilterMatcher(filters)
+        val regex = regexOf(filters)
+        val texts = (0 until 200).map {
+            "Some text with word${it % 70}" + if (it % 3 == 0) "x" else ""
+        }
+
+        texts.forEach { text ->
+            assertEquals(text, regex.reset(text).find(), matcher.matches(text))
+        }
+    }
+
+    /**
+     * Filters a few hundred statuses with 500 filter phrases, through the combined regular
+     * expression the fragments used to build and through the automaton. Results are printed to
+     * the test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkMatching() {
+        val rounds = 20
+        val filters = (0 until 500).map { filter("muted$it phrase", wholeWord = it % 2 == 0) }
+        val texts = (0 until 300).map {
+            "<p>Status number $it, talking about the weather and some other things like " +
+                "muted phrases that aren't filtered. Lorem ipsum dolor sit amet.</p>"
+        }
+        val regex = regexOf(filters)
+        val matcher = FilterMatcher(filters)
+
+        val regexTime = measure(rounds) { texts.forEach { regex.reset(it).find() } }
+        val matcherTime = measure(rounds) { texts.forEach { matcher.matches(it) } }
+        val compileTime = measure(rounds) { FilterMatcher(filters) }
+
+        println("Regex: ${regexTime / rounds / 1000} µs/page")
+        println("FilterMatcher: ${matcherTime / rounds / 1000} µs/page")
+        println("FilterMatcher compilation: ${compileTime / rounds / 1000} µs")
+    }
+
+    private fun filter(phrase: String, wholeWord: Boolean = false): Filter {
+        return Filter(
+            id = phrase,
+            phrase = phrase,
+            context = listOf(Filter.HOME),
+            expiresAt = null,
+            irreversible = false,
+            wholeWord = wholeWord
+        )
+    }
+
+    // How the fragments matched filters before
+    private fun regexOf(filters: List<Filter>): java.util.regex.Matcher {
+        val tokens = filters.map { filter ->
+            val quoted = Pattern.quote(filter.phrase)
+            if (filter.wholeWord && filter.phrase.matches(Regex("^\\w+$"))) {
+                "(^|\\W)$quoted($|\\W)"
+            } else {
+                quoted
+            }
+        }
+        return Pattern.compile(tokens.joinToString("|"), Pattern.CASE_INSENSITIVE).matcher("")
+    }
+}
@@ -0,0 +1,202 @@
+package com.keylesspalace.tusky.util
+
+import android.app.Application
+import android.text.Spannable
+import android.text.Spanned
+import android.text.style.ClickableSpan
+import android.widget.TextView
+import androidx.core.text.HtmlCompat
+import androidx.preference.PreferenceManager
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.keylesspalace.tusky.entity.Emoji
+import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.interfaces.LinkListener
+import com.keylesspalace.tusky.measure
+import com.keylesspalace.tusky.viewdata.StatusViewData
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
+import org.junit.Before
+import org.junit.Ignore
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.koin.core.context.startKoin
+import org.koin.core.context.stopKoin
+import org.koin.dsl.module
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+import java.util.Date
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class LinkHelperTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Application>()
+
+    @Before
+    fun setUp() {
+        startKoin {
+            modules(
+                module {
+                    single {
+                        EmojiPreferences(PreferenceManager.getDefaultSharedPreferences(context))
+                    }
+                }
+            )
+        }
+    }
+
+    @After
+    fun tearDown() {
+        stopKoin()
+    }
+
+    @Test
+    fun renderedSpansNotifyListenerOfView() {
+        val rendered = LinkHelper.renderClickableText(html(0), mentions(0))
+        val listener = RecordingListener()
+        val view = TextView(context)
+
+        LinkHelper.setRenderedText(view, rendered, listener)
+        clickableSpans(view.text).forEach { it.onClick(view) }
+
+        assertEquals(
+            listOf("tag:husky0", "account:account0", "url:https://example.com/page/0"),
+            listener.clicks
+        )
+    }
+
+    @Test
+    fun prefersMentionOnSameDomain() {
+        val mentions = arrayOf(
+            Status.Mention("1", "https://other.example/users/user0", "user0@other", "user0"),
+            Status.Mention("2", "https://example.com/users/user0", "user0", "user0"),
+            Status.Mention("3", "https://third.example/users/user0", "user0@third", "user0")
+        )
+        val rendered = LinkHelper.renderClickableText(html(0), mentions)
+        val listener = RecordingListener()
+        val view = TextView(context)
+
+        LinkHelper.setRenderedText(view, rendered, listener)
+        clickableSpans(view.text)[1].onClick(view)
+
+        assertEquals(listOf("account:2"), listener.clicks)
+    }
+
+    @Test
+    fun renderedTextsAreImmutableAndShared() {
+        val viewData = makeViewData(0)
+        val texts = viewData.renderedTexts
+
+        assertFalse(texts.content is Spannable)
+        assertSame(texts, viewData.withFavourited(true).renderedTexts)
+    }
+
+    @Test
+    fun detachedEmojisAreOnlyMarked() {
+        val url = "https://example.com/emoji/husky.png"
+        val text = "Hello :husky:".emojifyDetached(listOf(Emoji("", "husky", url, url, true)))
+        val spanned = text as Spanned
+
+        assertEquals(0, spanned.getSpans(0, text.length, EmojiSpan::class.java).size)
+        val marks = spanned.getSpans(0, text.length, DetachedEmoji::class.java)
+        assertEquals(listOf(url), marks.map { it.url })
+        assertEquals(6, spanned.getSpanStart(marks[0]))
+    }
+
+    /**
+     * Binds the content of a 500 status timeline, once the way StatusBaseViewHolder used to,
+     * building the clickable text on every bind, and once with the texts rendered with the view
+     * data. Custom emojis are left out, loading their drawables needs Glide. Results are printed
+     * to the test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkBind() {
+        val rounds = 10
+        val timeline = (0 until 500).map { makeViewData(it) }
+        val listener = RecordingListener()
+        val view = TextView(context)
+
+        val perBindTime = measure(rounds) {
+            timeline.forEach { status ->
+                val emojified = status.content.emojify(status.statusEmojis, view)
+                LinkHelper.setClickableText(view, emojified, status.mentions, listener)
+            }
+        }
+        val renderTime = measure(rounds) {
+            timeline.forEach { status ->
+                StatusViewData.Builder(status).createStatusViewData().renderedTexts
+            }
+        }
+        timeline.forEach { it.renderedTexts }
+        val renderedTime = measure(rounds) {
+            timeline.forEach { status ->
+                LinkHelper.setRenderedText(view, status.renderedTexts.content!!, listener)
+            }
+        }
+
+        println("Built on bind: ${perBindTime / rounds / 1000} µs/timeline")
+        println("Rendered with the view data: ${renderTime / rounds / 1000} µs/timeline")
+        println("Bound pre-rendered: ${renderedTime / rounds / 1000} µs/timeline")
+    }
+
+    private fun html(i: Int): Spanned {
+        return HtmlCompat.fromHtml(
+            "<p>Status $i about <a href=\"https://example.com/tags/husky$i\">#husky$i</a>, " +
+                "hello <a href=\"https://example.com/users/user$i\">@user$i</a>, read " +
+                "<a href=\"https://example.com/page/$i\">example.com/page/$i</a></p>",
+            HtmlCompat.FROM_HTML_MODE_LEGACY
+        )
+    }
+
+    private fun mentions(i: Int): Array<Status.Mention> {
+        return arrayOf(
+            Status.Mention("account$i", "https://example.com/users/user$i", "user$i", "user$i")
+        )
+    }
+
+    private fun makeViewData(i: Int): StatusViewData.Concrete {
+        return StatusViewData.Builder()
+            .setId(i.toString())
+            .setContent(html(i))
+            .setMentions(mentions(i))
+            .setSpoilerText("")
+            .setVisibility(Status.Visibility.PUBLIC)
+            .setAttachments(ArrayList())
+            .setUserFullName("Example Account")
+            .setNickname("test")
+            .setAvatar("https://example.com/avatar.png")
+            .setCreatedAt(Date(1_600_000_000_000L))
+            .setSenderId("1")
+            .setRebloggingEnabled(true)
+            .setConversationId("conversation$i")
+            .setQuoteEmojis(listOf())
+            .setQuotedAccountEmojis(listOf())
+            .createStatusViewData()
+    }
+
+    private fun clickableSpans(text: CharSequence): List<ClickableSpan> {
+        val spanned = text as Spanned
+        return spanned.getSpans(0, spanned.length, ClickableSpan::class.java)
+            .sortedBy { spanned.getSpanStart(it) }
+    }
+
+    private class RecordingListener : LinkListener {
+        val clicks = mutableListOf<String>()
+
+        override fun onViewTag(tag: String) {
+            clicks.add("tag:$tag")
+        }
+
+        override fun onViewAccount(id: String) {
+            clicks.add("account:$id")
+        }
+
+        override fun onViewUrl(url: String) {
+            clicks.add("url:$url")
+        }
+    }
+}
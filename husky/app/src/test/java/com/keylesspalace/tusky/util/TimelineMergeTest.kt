@@ -0,0 +1,249 @@
+package com.keylesspalace.tusky.util
+
+import android.text.SpannableString
+import androidx.arch.core.util.Function
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.keylesspalace.tusky.core.functional.Either
+import com.keylesspalace.tusky.entity.Account
+import com.keylesspalace.tusky.entity.Status
+import com.keylesspalace.tusky.measure
+import com.keylesspalace.tusky.repository.Placeholder
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.ConscryptMode
+import org.robolectric.annotation.ConscryptMode.Mode.OFF
+import java.util.Date
+
+@ConscryptMode(OFF)
+@RunWith(AndroidJUnit4::class)
+class TimelineMergeTest {
+
+    private val account = Account(
+        id = "1",
+        localUsername = "test",
+        username = "test@example.com",
+        displayName = "Example Account",
+        note = SpannableString("Note!"),
+        url = "https://example.com/@test",
+        avatar = "avatar",
+        header = "header",
+        followersCount = 300,
+        followingCount = 400,
+        statusesCount = 1000,
+        bot = false,
+        emojis = listOf(),
+        fields = null,
+        source = null
+    )
+
+    private val mapper = Function<Either<Placeholder, Status>, String> { describe(it) }
+
+    @Test
+    fun prependAddsGapWhenPageDoesNotReachTimeline() {
+        val result = merge("5", "4").prepend(statuses("12", "11"), true)
+
+        assertEquals(listOf("12", "11", "P12", "5", "4"), result.items.map(::describe))
+        assertEquals(listOf("12", "11", "P12", "5", "4"), result.viewData)
+        assertTrue(result.changed)
+    }
+
+    @Test
+    fun prependKeepsViewDataOfOverlappingStatuses() {
+        val timeline = merge(statuses("5", "4"), listOf("kept5", "kept4"))
+        val result = timeline.prepend(statuses("7", "6", "5"), true)
+
+        assertEquals(listOf("7", "6", "5", "4"), result.items.map(::describe))
+        assertEquals(listOf("7", "6", "kept5", "kept4"), result.viewData)
+    }
+
+    @Test
+    fun appendReplacesLoadingPlaceholder() {
+        val timeline = merge(statuses("9", "8") + placeholder("7"))
+        val result = timeline.append(statuses("6", "5"), true)
+
+        assertEquals(listOf("9", "8", "6", "5"), result.items.map(::describe))
+        assertTrue(result.changed)
+    }
+
+    @Test
+    fun appendOfPageContainingBottomIsIgnored() {
+        val timeline = merge(statuses("9", "8") + placeholder("7"))
+        val result = timeline.append(statuses("8", "6"), true)
+
+        assertEquals(listOf("9", "8"), result.items.map(::describe))
+        assertFalse(result.changed)
+    }
+
+    @Test
+    fun replacePlaceholderKeepsGapBelowFullPage() {
+        val timeline = merge(statuses("9") + placeholder("8") + statuses("2"))
+        val result = timeline.replacePlaceholder("8", statuses("7", "6"), true)
+
+        assertEquals(listOf("9", "7", "6", "P8", "2"), result.items.map(::describe))
+    }
+
+    @Test
+    fun replacePlaceholderClosesGap() {
+        val timeline = merge(statuses("9") + placeholder("8") + statuses("2"))
+        val result = timeline.replacePlaceholder("8", statuses("7", "6"), false)
+
+        assertEquals(listOf("9", "7", "6", "2"), result.items.map(::describe))
+    }
+
+    @Test
+    fun replacePlaceholderFindsMovedPlaceholder() {
+        val timeline = merge(statuses("10", "9") + placeholder("8") + statuses("2"))
+        val result = timeline.replacePlaceholder("8", statuses("7", "6"), true)
+
+        assertEquals(listOf("10", "9", "7", "6", "P8", "2"), result.items.map(::describe))
+    }
+
+    @Test
+    fun replacePlaceholderThatIsGoneInsertsPage() {
+        val timeline = merge("9", "2")
+        val result = timeline.replacePlaceholder("8", statuses("9", "7"), true)
+
+        assertEquals(listOf("9", "7", "2"), result.items.map(::describe))
+        assertTrue(result.changed)
+    }
+
+    @Test
+    fun consecutivePlaceholdersAreCollapsed() {
+        val timeline = merge(statuses("9", "8") + placeholder("7"))
+        val result = timeline.append(placeholder("5") + placeholder("4") + statuses("3"), false)
+
+        assertEquals(listOf("9", "8", "P4", "3"), result.items.map(::describe))
+    }
+
+    @Test
+    fun replaceOlderThanDropsOlderItems() {
+        val timeline = merge(statuses("12", "10") + placeholder("9") + statuses("8"))
+        val result = timeline.replaceOlderThan("10", statuses("7", "6"))
+
+        assertEquals(listOf("12", "10", "7", "6"), result.items.map(::describe))
+    }
+
+    @Test
+    fun insertPutsStatusesInOrder() {
+        val timeline = merge(statuses("12", "10") + placeholder("9") + statuses("8"))
+        val result = timeline.insert(statuses("11", "13"))
+
+        assertEquals(listOf("13", "12", "11", "10", "P9", "8"), result.items.map(::describe))
+        assertTrue(result.changed)
+    }
+
+    @Test
+    fun insertSkipsKnownAndOldStatuses() {
+        val timeline = merge("12", "10")
+        val result = timeline.insert(statuses("12", "9"))
+
+        assertEquals(listOf("12", "10"), result.items.map(::describe))
+        assertFalse(result.changed)
+        assertFalse(merge().insert(statuses("1")).changed)
+    }
+
+    @Test
+    fun insertAddsStatusStreamedTwiceOnce() {
+        val result = merge("12", "10").insert(statuses("11", "11"))
+
+        assertEquals(listOf("12", "11", "10"), result.items.map(::describe))
+    }
+
+    @Test
+    fun replaceMapsOnlyTheReplacedStatus() {
+        val timeline = merge(statuses("10", "9", "8"), listOf("kept10", "kept9", "kept8"))
+        val result = timeline.replace(status("9"))
+
+        assertEquals(listOf("kept10", "9", "kept8"), result.viewData)
+        assertTrue(result.changed)
+        assertFalse(timeline.replace(status("7")).changed)
+    }
+
+    /**
+     * Prepends pages to a timeline of a few thousand statuses the way the timeline used to do
+     * it, shifting the list for every change, and through a merge. Results are printed to the
+     * test output.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    fun benchmarkPrepend() {
+        val size = 5000
+        val rounds = 20
+        val timeline = (size downTo 1).map { status(it.toString()) }
+        val page = (size + 40 downTo size - 9).map { status(it.toString()) }
+
+        val shiftingTime = measure(rounds) {
+            val list = PairedList<Either<Placeholder, Status>, String>(mapper)
+            list.addAll(timeline)
+            val index = list.indexOf(page.last())
+            for (i in 0 until index) {
+                list.removeAt(0)
+            }
+            val newIndex = page.indexOf(list[0])
+            for (i in newIndex - 1 downTo 0) {
+                list.add(0, page[i])
+            }
+        }
+        val mergeTime = measure(rounds) {
+            TimelineMerge(timeline, timeline.map(::describe), mapper).prepend(page, true)
+        }
+
+        println("Shifting list: ${shiftingTime / rounds / 1000} µs/page")
+        println("TimelineMerge: ${mergeTime / rounds / 1000} µs/page")
+    }
+
+    private fun merge(vararg ids: String) = merge(statuses(*ids))
+
+    private fun merge(
+        items: List<Either<Placeholder, Status>>,
+        viewData: List<String> = items.map(::describe)
+    ) = TimelineMerge(items, viewData, mapper)
+
+    private fun describe(item: Either<Placeholder, Status>): String {
+        return item.asRightOrNull()?.id ?: "P" + item.asLeft().id
+    }
+
+    private fun placeholder(id: String): List<Either<Placeholder, Status>> {
+        return listOf(Either.Left(Placeholder(id)))
+    }
+
+    private fun statuses(vararg ids: String): List<Either<Placeholder, Status>> {
+        return ids.map { status(it) }
+    }
+
+    private fun status(id: String): Either<Placeholder, Status> {
+        return Either.Right(
+            Status(
+                id = id,
+                account = account,
+                content = SpannableString("hello$id"),
+                createdAt = Date(),
+                editedAt = null,
+                emojis = listOf(),
+                reblogsCount = 3,
+                favouritesCount = 5,
+                sensitive = false,
+                visibility = Status.Visibility.PUBLIC,
+                spoilerText = "",
+                reblogged = false,
+                favourited = false,
+                bookmarked = false,
+                attachments = ArrayList(),
+                mentions = arrayOf(),
+                application = null,
+                inReplyToAccountId = null,
+                inReplyToId = null,
+                pinned = false,
+                reblog = null,
+                url = "http://example.com/statuses/$id",
+                uri = "http://example.com/statuses/$id",
+                poll = null,
+                card = null
+            )
+        )
+    }
+}